@@ -0,0 +1,88 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads primitive values, and encodes a search request with both encoders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class BERBenchmark {
+    public static final int VALUES=256;
+
+    private ByteBuffer integers;
+    private ByteBuffer octetStrings;
+    private LdapMessage<@NotNull SearchRequest> searchRequest;
+
+    @Benchmark
+    public int readIntegers() throws Throwable {
+        ByteBuffer.Reader reader=integers.reader();
+        int result=0;
+        while (reader.hasRemainingBytes()) {
+            result+=BER.readIntegerTag(false, reader);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int readOctetStrings() throws Throwable {
+        ByteBuffer.Reader reader=octetStrings.reader();
+        int result=0;
+        while (reader.hasRemainingBytes()) {
+            result+=BER.readOctetStringTag(reader).size();
+        }
+        return result;
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        integers=BERWriter.write((writer)->{
+            for (int ii=0; VALUES>ii; ++ii) {
+                writer.writeIntegerTag((ii*ii*ii)-ii);
+            }
+        });
+        octetStrings=BERWriter.write((writer)->{
+            for (int ii=0; VALUES>ii; ++ii) {
+                writer.writeOctetStringTag(ByteBuffer.create("uid=user%d,ou=users,dc=ldap4j,dc=gds,dc=hu".formatted(ii)));
+            }
+        });
+        searchRequest=new LdapMessage<>(
+                List.of(),
+                new SearchRequest(
+                        List.of("cn", "mail", "memberOf", "objectClass", "uid"),
+                        "ou=users,ou=test,dc=ldap4j,dc=gds,dc=hu",
+                        DerefAliases.NEVER_DEREF_ALIASES,
+                        Filter.parse("(&(objectClass=inetOrgPerson)(|(uid=user0)(mail=user0@ldap4j.gds.hu)))"),
+                        Scope.WHOLE_SUBTREE,
+                        100,
+                        10,
+                        false),
+                17);
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer writeSearchRequestAppend() throws Throwable {
+        return searchRequest.write(SearchRequest::write);
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer writeSearchRequestBERWriter() throws Throwable {
+        return BERWriter.write((writer)->searchRequest.write(searchRequest.message()::write, writer));
+    }
+}
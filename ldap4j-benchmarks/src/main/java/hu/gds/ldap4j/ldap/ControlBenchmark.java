@@ -0,0 +1,61 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses and encodes the controls of a typical paged search response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class ControlBenchmark {
+    private List<@NotNull Control> controls;
+    private ByteBuffer encoded;
+
+    @Benchmark
+    public @NotNull List<@NotNull Control> readControls() throws Throwable {
+        return Control.readControls(encoded.reader());
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        controls=List.of(
+                Control.create(
+                        "1.2.840.113556.1.4.319",
+                        BER.writeSequence(BER.writeIntegerTag(100)
+                                .append(BER.writeOctetStringTag(ByteBuffer.create(new byte[32])))),
+                        false),
+                Control.create(
+                        "1.2.840.113556.1.4.474",
+                        BER.writeSequence(BER.writeEnumeratedTag(0)),
+                        false),
+                Control.create("2.16.840.1.113730.3.4.2", null, true));
+        encoded=Control.writeControls(controls);
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer writeControlsAppend() {
+        return Control.writeControls(controls);
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer writeControlsBERWriter() throws Throwable {
+        return BERWriter.write((writer)->Control.writeControls(controls, writer));
+    }
+}
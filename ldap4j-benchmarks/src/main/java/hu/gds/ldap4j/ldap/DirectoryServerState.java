@@ -0,0 +1,190 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Pair;
+import hu.gds.ldap4j.blocking.BlockingLdapConnection;
+import hu.gds.ldap4j.future.FutureLdapConnection;
+import hu.gds.ldap4j.net.ByteBuffer;
+import hu.gds.ldap4j.net.TlsSettings;
+import hu.gds.ldap4j.reactor.netty.ReactorLdapConnection;
+import hu.gds.ldap4j.trampoline.TrampolineLdapConnection;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Mono;
+
+/**
+ * The in-memory directory server of the tests, and the request the benchmarks send to it.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+public class DirectoryServerState {
+    public enum Operation {
+        BIND {
+            @Override
+            public @NotNull Object blocking(
+                    @NotNull BlockingLdapConnection connection, long endNanos) throws Throwable {
+                return connection.writeRequestReadResponseChecked(endNanos, BIND_REQUEST);
+            }
+
+            @Override
+            public @NotNull Object codecRequest() {
+                return new hu.gds.ldap4j.net.netty.codec.ResponseRequest<>(BIND_REQUEST);
+            }
+
+            @Override
+            public @NotNull CompletableFuture<?> future(@NotNull FutureLdapConnection connection) {
+                return connection.writeRequestReadResponseChecked(BIND_REQUEST);
+            }
+
+            @Override
+            public @NotNull Mono<?> mono(@NotNull ReactorLdapConnection connection) {
+                return connection.writeRequestReadResponseChecked(BIND_REQUEST);
+            }
+
+            @Override
+            public @NotNull Object trampoline(
+                    @NotNull TrampolineLdapConnection connection, long endNanos) throws Throwable {
+                return connection.writeRequestReadResponseChecked(endNanos, BIND_REQUEST);
+            }
+        },
+        COMPARE {
+            @Override
+            public @NotNull Object blocking(
+                    @NotNull BlockingLdapConnection connection, long endNanos) throws Throwable {
+                return connection.writeRequestReadResponseChecked(endNanos, COMPARE_REQUEST);
+            }
+
+            @Override
+            public @NotNull Object codecRequest() {
+                return new hu.gds.ldap4j.net.netty.codec.ResponseRequest<>(COMPARE_REQUEST);
+            }
+
+            @Override
+            public @NotNull CompletableFuture<?> future(@NotNull FutureLdapConnection connection) {
+                return connection.writeRequestReadResponseChecked(COMPARE_REQUEST);
+            }
+
+            @Override
+            public @NotNull Mono<?> mono(@NotNull ReactorLdapConnection connection) {
+                return connection.writeRequestReadResponseChecked(COMPARE_REQUEST);
+            }
+
+            @Override
+            public @NotNull Object trampoline(
+                    @NotNull TrampolineLdapConnection connection, long endNanos) throws Throwable {
+                return connection.writeRequestReadResponseChecked(endNanos, COMPARE_REQUEST);
+            }
+        },
+        SEARCH {
+            @Override
+            public @NotNull Object blocking(
+                    @NotNull BlockingLdapConnection connection, long endNanos) throws Throwable {
+                return connection.search(endNanos, SEARCH_REQUEST);
+            }
+
+            @Override
+            public @NotNull Object codecRequest() {
+                return new hu.gds.ldap4j.net.netty.codec.SearchRequest(SEARCH_REQUEST);
+            }
+
+            @Override
+            public @NotNull CompletableFuture<?> future(@NotNull FutureLdapConnection connection) {
+                return connection.search(SEARCH_REQUEST);
+            }
+
+            @Override
+            public @NotNull Mono<?> mono(@NotNull ReactorLdapConnection connection) {
+                return connection.search(SEARCH_REQUEST);
+            }
+
+            @Override
+            public @NotNull Object trampoline(
+                    @NotNull TrampolineLdapConnection connection, long endNanos) throws Throwable {
+                return connection.search(endNanos, SEARCH_REQUEST);
+            }
+        };
+
+        public abstract @NotNull Object blocking(
+                @NotNull BlockingLdapConnection connection, long endNanos) throws Throwable;
+
+        /**
+         * @return the request object of the {@link hu.gds.ldap4j.net.netty.codec.NettyLdapCodec} pipeline
+         */
+        public abstract @NotNull Object codecRequest();
+
+        public abstract @NotNull CompletableFuture<?> future(@NotNull FutureLdapConnection connection);
+
+        public abstract @NotNull Mono<?> mono(@NotNull ReactorLdapConnection connection);
+
+        public abstract @NotNull Object trampoline(
+                @NotNull TrampolineLdapConnection connection, long endNanos) throws Throwable;
+    }
+
+    public static final @NotNull ControlsMessage<BindRequest> BIND_REQUEST=BindRequest.simple(
+                    UnboundidDirectoryServer.ADMIN_USER,
+                    UnboundidDirectoryServer.ADMIN_PASSWORD.toCharArray())
+            .controlsEmpty();
+    public static final @NotNull ControlsMessage<CompareRequest> COMPARE_REQUEST=new CompareRequest(
+                    new Filter.EqualityMatch(ByteBuffer.create("user0"), ByteBuffer.create("uid")),
+                    ByteBuffer.create("uid=user0,ou=users,"+UnboundidDirectoryServer.BASE_DN))
+            .controlsEmpty();
+    public static final int POOL_SIZE=AbstractTest.PARALLELISM;
+    public static final @NotNull ControlsMessage<SearchRequest> SEARCH_REQUEST=new SearchRequest(
+                    List.of("cn", "mail", "memberOf", "objectClass", "uid"),
+                    "ou=users,"+UnboundidDirectoryServer.BASE_DN,
+                    DerefAliases.NEVER_DEREF_ALIASES,
+                    new Filter.Present(ByteBuffer.create("uid")),
+                    Scope.WHOLE_SUBTREE,
+                    100,
+                    10,
+                    false)
+            .controlsEmpty();
+    public static final int THREADS=AbstractTest.PARALLELISM;
+    public static final long TIMEOUT_NANOS=AbstractTest.TIMEOUT_NANOS;
+
+    @Param({"BIND", "COMPARE", "SEARCH"})
+    public Operation operation;
+    private InetSocketAddress remoteAddress;
+    private UnboundidDirectoryServer server;
+    @Param({"CLEAR_TEXT", "TLS"})
+    public LdapTestParameters.Tls tls;
+    private TlsSettings tlsSettings;
+
+    public @NotNull InetSocketAddress remoteAddress() {
+        return Objects.requireNonNull(remoteAddress, "remoteAddress");
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        server=new UnboundidDirectoryServer(
+                false, AbstractTest.SERVER_PORT_CLEAR_TEXT, AbstractTest.SERVER_PORT_TLS);
+        server.start();
+        @NotNull Pair<@NotNull InetSocketAddress, @NotNull TlsSettings> addressTlsSettings
+                =LdapTestParameters.addressTlsSettings(server::localAddressClearText, server::localAddressTls, tls);
+        remoteAddress=addressTlsSettings.first();
+        tlsSettings=addressTlsSettings.second();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (null!=server) {
+            try {
+                server.close();
+            }
+            finally {
+                server=null;
+            }
+        }
+    }
+
+    public @NotNull TlsSettings tlsSettings() {
+        return Objects.requireNonNull(tlsSettings, "tlsSettings");
+    }
+}
@@ -0,0 +1,54 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses filter strings, and encodes the parsed filters with both encoders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class FilterBenchmark {
+    private Filter filter;
+    @Param({
+            "(objectClass=*)",
+            "(&(objectClass=inetOrgPerson)(|(uid=user0)(mail=user0@ldap4j.gds.hu))(!(cn=admin*)))",
+            "(&(objectClass=groupOfNames)(member:1.2.840.113556.1.4.1941:=uid=user0,ou=users,dc=ldap4j,dc=gds,dc=hu)(cn=*group*0*))"})
+    public String filterString;
+
+    @Benchmark
+    public @NotNull Filter parse() throws Throwable {
+        return Filter.parse(filterString);
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        filter=Filter.parse(filterString);
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer writeAppend() throws Throwable {
+        return filter.write();
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer writeBERWriter() throws Throwable {
+        return BERWriter.write(filter::write);
+    }
+}
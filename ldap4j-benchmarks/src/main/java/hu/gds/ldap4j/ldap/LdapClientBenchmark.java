@@ -0,0 +1,282 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.future.FutureLdapPool;
+import hu.gds.ldap4j.lava.ThreadLocalScheduledExecutorContext;
+import hu.gds.ldap4j.net.TlsSettings;
+import hu.gds.ldap4j.net.netty.codec.NettyLdapCodec;
+import hu.gds.ldap4j.net.netty.codec.Response;
+import hu.gds.ldap4j.net.netty.codec.UnbindRequest;
+import hu.gds.ldap4j.reactor.netty.ReactorLdapPool;
+import hu.gds.ldap4j.trampoline.TrampolineLdapConnection;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compares the client apis over their default transports.
+ * {@value DirectoryServerState#THREADS} threads keep one request in flight each,
+ * the pools have {@value DirectoryServerState#THREADS} connections,
+ * the trampoline and the netty codec use a connection per thread.
+ * Throughput comes from the throughput mode, latency percentiles from the sample time mode,
+ * allocated bytes per request from the gc profiler.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@Fork(1)
+@Measurement(iterations=5, time=2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(DirectoryServerState.THREADS)
+@Warmup(iterations=3, time=2)
+public class LdapClientBenchmark {
+    @State(org.openjdk.jmh.annotations.Scope.Benchmark)
+    public static class FuturePoolState {
+        private ScheduledExecutorService executor;
+        private FutureLdapPool pool;
+        @Param({"1", "4"})
+        public int poolShards;
+
+        @Setup(Level.Trial)
+        public void setup(@NotNull DirectoryServerState server) throws Throwable {
+            executor=Executors.newScheduledThreadPool(DirectoryServerState.THREADS);
+            pool=FutureLdapPool.createJavaAsync(
+                            (loopGroup)->CompletableFuture.completedFuture(null),
+                            ()->CompletableFuture.completedFuture(null),
+                            executor,
+                            null,
+                            ThreadLocalScheduledExecutorContext.DEFAULT_LOCAL_SIZE,
+                            Log.systemErr(),
+                            DirectoryServerState.THREADS,
+                            LdapPoolSettings.builder(DirectoryServerState.POOL_SIZE)
+                                    .shards(poolShards)
+                                    .build(),
+                            server.remoteAddress(),
+                            new ThreadLocal<>(),
+                            DirectoryServerState.TIMEOUT_NANOS,
+                            server.tlsSettings())
+                    .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            try {
+                if (null!=pool) {
+                    pool.close()
+                            .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                }
+            }
+            finally {
+                if (null!=executor) {
+                    executor.shutdownNow();
+                }
+                executor=null;
+                pool=null;
+            }
+        }
+    }
+
+    private static class NettyCodecHandler extends SimpleChannelInboundHandler<Response> {
+        private volatile @Nullable CompletableFuture<@NotNull Response> response;
+        private final @NotNull TlsSettings tlsSettings;
+
+        public NettyCodecHandler(@NotNull TlsSettings tlsSettings) {
+            this.tlsSettings=Objects.requireNonNull(tlsSettings, "tlsSettings");
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Response msg) {
+            @Nullable CompletableFuture<@NotNull Response> response2=response;
+            if (null!=response2) {
+                response2.complete(msg);
+            }
+        }
+
+        @Override
+        public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
+            ctx.channel().pipeline().addFirst(new NettyLdapCodec(
+                    DirectoryServerState.TIMEOUT_NANOS,
+                    Log.systemErr(),
+                    DirectoryServerState.TIMEOUT_NANOS,
+                    tlsSettings));
+            super.channelRegistered(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            @Nullable CompletableFuture<@NotNull Response> response2=response;
+            if (null==response2) {
+                Log.systemErr().error(getClass(), cause);
+            }
+            else {
+                response2.completeExceptionally(cause);
+            }
+        }
+
+        public @NotNull Response request(@NotNull Channel channel, @NotNull Object request) throws Throwable {
+            @NotNull CompletableFuture<@NotNull Response> response2=new CompletableFuture<>();
+            response=response2;
+            channel.writeAndFlush(request);
+            return response2.get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    public static class NettyCodecState {
+        private Channel channel;
+        private EventLoopGroup eventLoopGroup;
+        private NettyCodecHandler handler;
+
+        @Setup(Level.Trial)
+        public void setup(@NotNull DirectoryServerState server) throws Throwable {
+            eventLoopGroup=new MultiThreadIoEventLoopGroup(1, NioIoHandler.newFactory());
+            handler=new NettyCodecHandler(server.tlsSettings());
+            channel=new Bootstrap()
+                    .group(eventLoopGroup)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.AUTO_CLOSE, false)
+                    .option(ChannelOption.AUTO_READ, false)
+                    .handler(handler)
+                    .validate()
+                    .connect(server.remoteAddress())
+                    .sync()
+                    .channel();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            try {
+                if (null!=channel) {
+                    channel.writeAndFlush(new UnbindRequest());
+                    channel.close()
+                            .await(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                }
+            }
+            finally {
+                if (null!=eventLoopGroup) {
+                    eventLoopGroup.shutdownGracefully(10L, 10L, TimeUnit.MILLISECONDS)
+                            .await(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                }
+                channel=null;
+                eventLoopGroup=null;
+                handler=null;
+            }
+        }
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Benchmark)
+    public static class ReactorPoolState {
+        private EventLoopGroup eventLoopGroup;
+        private ReactorLdapPool pool;
+
+        @Setup(Level.Trial)
+        public void setup(@NotNull DirectoryServerState server) {
+            eventLoopGroup=new MultiThreadIoEventLoopGroup(DirectoryServerState.THREADS, NioIoHandler.newFactory());
+            pool=ReactorLdapPool.create(
+                    eventLoopGroup,
+                    (eventLoopGroup2)->Mono.empty(),
+                    Log.systemErr(),
+                    DirectoryServerState.POOL_SIZE,
+                    server.remoteAddress(),
+                    DirectoryServerState.TIMEOUT_NANOS,
+                    server.tlsSettings());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            try {
+                if (null!=pool) {
+                    pool.close()
+                            .block(Duration.ofNanos(DirectoryServerState.TIMEOUT_NANOS));
+                }
+            }
+            finally {
+                if (null!=eventLoopGroup) {
+                    eventLoopGroup.shutdownGracefully(10L, 10L, TimeUnit.MILLISECONDS)
+                            .await(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                }
+                eventLoopGroup=null;
+                pool=null;
+            }
+        }
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    public static class TrampolineState {
+        private TrampolineLdapConnection connection;
+
+        @Setup(Level.Trial)
+        public void setup(@NotNull DirectoryServerState server) throws Throwable {
+            connection=TrampolineLdapConnection.createJavaAsync(
+                    null,
+                    System.nanoTime()+DirectoryServerState.TIMEOUT_NANOS,
+                    Log.systemErr(),
+                    server.remoteAddress(),
+                    server.tlsSettings());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            if (null!=connection) {
+                try {
+                    connection.close(System.nanoTime()+DirectoryServerState.TIMEOUT_NANOS);
+                }
+                finally {
+                    connection=null;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Object futurePool(
+            @NotNull FuturePoolState pool, @NotNull DirectoryServerState server) throws Throwable {
+        return pool.pool.lease(server.operation::future)
+                .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public Object nettyCodec(
+            @NotNull NettyCodecState channel, @NotNull DirectoryServerState server) throws Throwable {
+        return channel.handler.request(channel.channel, server.operation.codecRequest());
+    }
+
+    @Benchmark
+    public Object reactorPool(@NotNull ReactorPoolState pool, @NotNull DirectoryServerState server) {
+        return pool.pool.lease(server.operation::mono)
+                .block(Duration.ofNanos(DirectoryServerState.TIMEOUT_NANOS));
+    }
+
+    @Benchmark
+    public Object trampoline(
+            @NotNull DirectoryServerState server, @NotNull TrampolineState trampoline) throws Throwable {
+        return server.operation.trampoline(
+                trampoline.connection, System.nanoTime()+DirectoryServerState.TIMEOUT_NANOS);
+    }
+}
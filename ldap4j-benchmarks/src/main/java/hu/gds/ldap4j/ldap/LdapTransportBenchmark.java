@@ -0,0 +1,127 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.future.FutureLdapPool;
+import hu.gds.ldap4j.lava.ContextHolder;
+import hu.gds.ldap4j.lava.NewThreadContextHolder;
+import hu.gds.ldap4j.lava.ThreadLocalScheduledExecutorContext;
+import hu.gds.ldap4j.net.NetworkConnectionFactory;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the duplex connection implementations.
+ * Every transport is driven through the same {@link FutureLdapPool},
+ * {@value DirectoryServerState#THREADS} threads keep one request in flight each.
+ * Throughput comes from the throughput mode, latency percentiles from the sample time mode,
+ * allocated bytes per request from the gc profiler.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@Fork(1)
+@Measurement(iterations=5, time=2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@Threads(DirectoryServerState.THREADS)
+@Warmup(iterations=3, time=2)
+public class LdapTransportBenchmark {
+    private ContextHolder blockingIoContextHolder;
+    private ScheduledExecutorService executor;
+    private NetworkConnectionFactory networkConnectionFactory;
+    private FutureLdapPool pool;
+    @Param({"javaAsyncChannel", "javaBlockingSocket", "javaChannelPoll", "javaChannelSelector", "mina", "nettyEpoll", "nettyNio"})
+    public String transport;
+
+    private static @NotNull Supplier<@NotNull NetworkConnectionFactory> networkConnectionFactory(
+            @NotNull String transport) {
+        return switch (transport) {
+            case "javaAsyncChannel" -> NetworkConnectionFactory.javaAsyncChannel();
+            case "javaBlockingSocket" -> NetworkConnectionFactory.javaBlockingSocket();
+            case "javaChannelPoll" -> NetworkConnectionFactory.javaChannelPoll();
+            case "javaChannelSelector" -> NetworkConnectionFactory.javaChannelSelector();
+            case "mina" -> NetworkConnectionFactory.mina();
+            case "nettyEpoll" -> NetworkConnectionFactory.nettyEpoll();
+            case "nettyNio" -> NetworkConnectionFactory.nettyNio();
+            default -> throw new IllegalArgumentException("unknown transport %s".formatted(transport));
+        };
+    }
+
+    @Benchmark
+    public Object request(@NotNull DirectoryServerState server) throws Throwable {
+        return pool.lease(server.operation::future)
+                .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @Setup(Level.Trial)
+    public void setup(@NotNull DirectoryServerState server) throws Throwable {
+        @NotNull Log log=Log.systemErr();
+        blockingIoContextHolder=new NewThreadContextHolder(log, DirectoryServerState.THREADS, null);
+        blockingIoContextHolder.start();
+        executor=Executors.newScheduledThreadPool(DirectoryServerState.THREADS);
+        networkConnectionFactory=networkConnectionFactory(transport).get();
+        pool=FutureLdapPool.create(
+                        ()->CompletableFuture.completedFuture(null),
+                        executor,
+                        networkConnectionFactory.factory(blockingIoContextHolder.context(), log, Map.of()),
+                        null,
+                        ThreadLocalScheduledExecutorContext.DEFAULT_LOCAL_SIZE,
+                        log,
+                        DirectoryServerState.THREADS,
+                        DirectoryServerState.POOL_SIZE,
+                        server.remoteAddress(),
+                        new ThreadLocal<>(),
+                        DirectoryServerState.TIMEOUT_NANOS,
+                        server.tlsSettings())
+                .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        try {
+            try {
+                try {
+                    if (null!=pool) {
+                        pool.close()
+                                .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                    }
+                }
+                finally {
+                    if (null!=networkConnectionFactory) {
+                        networkConnectionFactory.close();
+                    }
+                }
+            }
+            finally {
+                if (null!=executor) {
+                    executor.shutdownNow();
+                }
+            }
+        }
+        finally {
+            if (null!=blockingIoContextHolder) {
+                blockingIoContextHolder.close();
+            }
+            blockingIoContextHolder=null;
+            executor=null;
+            networkConnectionFactory=null;
+            pool=null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads the search result entry message of a user with a dozen attributes and group memberships.
+ * The fragmented message is split into segments like a tcp stream would be.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class SearchResultBenchmark {
+    private ByteBuffer fragmented;
+    private ByteBuffer message;
+    @Param({"20"})
+    public int groups;
+    @Param({"1460"})
+    public int segmentSize;
+
+    public static @NotNull SearchResult.Entry entry(int groups, int index) {
+        List<@NotNull String> memberOf=new ArrayList<>(groups);
+        for (int ii=0; groups>ii; ++ii) {
+            memberOf.add("cn=group%d,ou=groups,ou=test,dc=ldap4j,dc=gds,dc=hu".formatted(ii));
+        }
+        return new SearchResult.Entry(
+                List.of(
+                        new PartialAttribute(
+                                "objectClass",
+                                List.of("top", "person", "organizationalPerson", "inetOrgPerson")),
+                        new PartialAttribute("cn", List.of("User %d".formatted(index))),
+                        new PartialAttribute("sn", List.of("User")),
+                        new PartialAttribute("givenName", List.of("Test%d".formatted(index))),
+                        new PartialAttribute("uid", List.of("user%d".formatted(index))),
+                        new PartialAttribute("mail", List.of("user%d@ldap4j.gds.hu".formatted(index))),
+                        new PartialAttribute("telephoneNumber", List.of("+36 1 555 %04d".formatted(index))),
+                        new PartialAttribute("description", List.of("lorem ipsum dolor sit amet ".repeat(8))),
+                        new PartialAttribute("memberOf", memberOf)),
+                ByteBuffer.create("uid=user%d,ou=users,ou=test,dc=ldap4j,dc=gds,dc=hu".formatted(index)));
+    }
+
+    private static @NotNull ByteBuffer fragment(@NotNull ByteBuffer buffer, int segmentSize) throws Throwable {
+        ByteBuffer result=ByteBuffer.empty();
+        for (int ii=0; buffer.size()>ii; ii+=segmentSize) {
+            result=result.append(ByteBuffer.create(
+                    buffer.subBuffer(ii, Math.min(buffer.size(), ii+segmentSize)).arrayCopy()));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public @NotNull LdapMessage<@NotNull SearchResult> read() throws Throwable {
+        return read(message);
+    }
+
+    private static @NotNull LdapMessage<@NotNull SearchResult> read(@NotNull ByteBuffer buffer) throws Throwable {
+        return buffer.read((reader)->BER.readSequence(
+                (reader2)->{
+                    int messageId=BER.readIntegerTag(true, reader2);
+                    @NotNull SearchResult searchResult=SearchResult.READER.read(reader2);
+                    @NotNull List<@NotNull Control> controls=Control.readControls(reader2);
+                    return new LdapMessage<>(controls, searchResult, messageId);
+                },
+                reader));
+    }
+
+    @Benchmark
+    public @NotNull LdapMessage<@NotNull SearchResult> readFragmented() throws Throwable {
+        return read(fragmented);
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        @NotNull SearchResult.Entry entry=entry(groups, 0);
+        message=BERWriter.write((writer)->new LdapMessage<>(List.of(), entry, 17)
+                .write(
+                        (writer2)->writer2.writeTag(
+                                SearchResult.RESULT_ENTRY_TAG,
+                                (writer3)->{
+                                    writer3.writeOctetStringTag(entry.objectName());
+                                    writer3.writeSequence((writer4)->{
+                                        for (@NotNull PartialAttribute attribute: entry.attributes()) {
+                                            attribute.write(writer4);
+                                        }
+                                    });
+                                }),
+                        writer));
+        fragmented=fragment(message, segmentSize);
+        if (!entry.equals(read(fragmented).message())) {
+            throw new IllegalStateException("entry mismatch");
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.blocking.BlockingLdapPool;
+import hu.gds.ldap4j.blocking.VirtualThreads;
+import hu.gds.ldap4j.future.FutureLdapPool;
+import hu.gds.ldap4j.lava.Clock;
+import hu.gds.ldap4j.lava.ThreadLocalScheduledExecutorContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the blocking pool with the future pool, {@value #CALLERS} callers each run on their own virtual thread
+ * and send one request. An invocation ends when all the callers got their responses.
+ * Both pools have {@value DirectoryServerState#POOL_SIZE} connections.
+ * This needs a java runtime with virtual threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+public class VirtualThreadPoolBenchmark {
+    @State(org.openjdk.jmh.annotations.Scope.Benchmark)
+    public static class BlockingPoolState {
+        private ExecutorService callers;
+        private BlockingLdapPool pool;
+
+        @Setup(Level.Trial)
+        public void setup(@NotNull DirectoryServerState server) throws Throwable {
+            callers=VirtualThreads.newVirtualThreadPerTaskExecutor();
+            pool=BlockingLdapPool.create(
+                    Log.systemErr(),
+                    DirectoryServerState.POOL_SIZE,
+                    server.remoteAddress(),
+                    DirectoryServerState.TIMEOUT_NANOS,
+                    server.tlsSettings());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            try {
+                if (null!=pool) {
+                    pool.close();
+                }
+            }
+            finally {
+                if (null!=callers) {
+                    callers.shutdownNow();
+                }
+                callers=null;
+                pool=null;
+            }
+        }
+    }
+
+    @State(org.openjdk.jmh.annotations.Scope.Benchmark)
+    public static class FuturePoolState {
+        private ExecutorService callers;
+        private ScheduledExecutorService executor;
+        private FutureLdapPool pool;
+
+        @Setup(Level.Trial)
+        public void setup(@NotNull DirectoryServerState server) throws Throwable {
+            callers=VirtualThreads.newVirtualThreadPerTaskExecutor();
+            executor=Executors.newScheduledThreadPool(DirectoryServerState.THREADS);
+            pool=FutureLdapPool.createJavaAsync(
+                            (loopGroup)->CompletableFuture.completedFuture(null),
+                            ()->CompletableFuture.completedFuture(null),
+                            executor,
+                            null,
+                            ThreadLocalScheduledExecutorContext.DEFAULT_LOCAL_SIZE,
+                            Log.systemErr(),
+                            DirectoryServerState.THREADS,
+                            DirectoryServerState.POOL_SIZE,
+                            server.remoteAddress(),
+                            new ThreadLocal<>(),
+                            DirectoryServerState.TIMEOUT_NANOS,
+                            server.tlsSettings())
+                    .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            try {
+                if (null!=pool) {
+                    pool.close()
+                            .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                }
+            }
+            finally {
+                try {
+                    if (null!=executor) {
+                        executor.shutdownNow();
+                    }
+                }
+                finally {
+                    if (null!=callers) {
+                        callers.shutdownNow();
+                    }
+                }
+                callers=null;
+                executor=null;
+                pool=null;
+            }
+        }
+    }
+
+    public static final int CALLERS=10_000;
+
+    @Benchmark
+    public int blockingPool(
+            @NotNull BlockingPoolState pool, @NotNull DirectoryServerState server) throws Throwable {
+        return callers(
+                pool.callers,
+                ()->{
+                    try {
+                        return pool.pool.lease((connection)->server.operation.blocking(
+                                connection,
+                                Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(DirectoryServerState.TIMEOUT_NANOS)));
+                    }
+                    catch (Throwable throwable) {
+                        throw new RuntimeException(throwable);
+                    }
+                });
+    }
+
+    /**
+     * Starts the callers, and waits for all of them.
+     *
+     * @return the number of callers
+     */
+    private static int callers(
+            @NotNull ExecutorService callers, @NotNull Callable<@NotNull Object> caller) throws Throwable {
+        List<@NotNull Future<@NotNull Object>> futures=new ArrayList<>(CALLERS);
+        for (int ii=CALLERS; 0<ii; --ii) {
+            futures.add(callers.submit(caller));
+        }
+        for (Future<@NotNull Object> future: futures) {
+            future.get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+        }
+        return futures.size();
+    }
+
+    @Benchmark
+    public int futurePool(
+            @NotNull FuturePoolState pool, @NotNull DirectoryServerState server) throws Throwable {
+        return callers(
+                pool.callers,
+                ()->pool.pool.lease(server.operation::future)
+                        .get(DirectoryServerState.TIMEOUT_NANOS, TimeUnit.NANOSECONDS));
+    }
+}
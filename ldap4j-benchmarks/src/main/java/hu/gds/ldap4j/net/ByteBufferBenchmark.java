@@ -0,0 +1,98 @@
+package hu.gds.ldap4j.net;
+
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads a buffer appended from chunks of the same size.
+ * A chunk size of the whole buffer is a single array buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class ByteBufferBenchmark {
+    public static final int SIZE=1<<16;
+
+    private ByteBuffer buffer;
+    @Param({"16", "1460", "65536"})
+    public int chunkSize;
+    private ByteBuffer[] chunks;
+    private ByteBuffer copy;
+
+    @Benchmark
+    public @NotNull ByteBuffer append() {
+        ByteBuffer result=ByteBuffer.empty();
+        for (ByteBuffer chunk: chunks) {
+            result=result.append(chunk);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte @NotNull [] arrayCopy() {
+        return buffer.arrayCopy();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return buffer.equals(copy);
+    }
+
+    @Benchmark
+    public int readByteBuffers() throws Throwable {
+        ByteBuffer.Reader reader=buffer.reader();
+        int result=0;
+        while (reader.hasRemainingBytes()) {
+            result+=reader.readByteBuffer(Math.min(100, reader.remainingBytes())).size();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int readBytes() throws Throwable {
+        ByteBuffer.Reader reader=buffer.reader();
+        int result=0;
+        while (reader.hasRemainingBytes()) {
+            result+=reader.readByte();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long readLongs() throws Throwable {
+        ByteBuffer.Reader reader=buffer.reader();
+        long result=0L;
+        while (reader.hasRemainingBytes()) {
+            result+=reader.readLong();
+        }
+        return result;
+    }
+
+    @Setup
+    public void setup() {
+        byte[] array=new byte[SIZE];
+        for (int ii=0; SIZE>ii; ++ii) {
+            array[ii]=(byte)(ii*31);
+        }
+        chunks=new ByteBuffer[(SIZE+chunkSize-1)/chunkSize];
+        for (int ii=0; chunks.length>ii; ++ii) {
+            chunks[ii]=ByteBuffer.createCopy(array, ii*chunkSize, Math.min(SIZE, (ii+1)*chunkSize));
+        }
+        buffer=append();
+        copy=ByteBuffer.create(array);
+    }
+}
@@ -0,0 +1,121 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.Either;
+import hu.gds.ldap4j.Pair;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.SynchronizedWait;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One end of an in-memory connection pair.
+ * Writes complete immediately, reads wait for the bytes written to the other end.
+ */
+public class LoopbackConnection implements DuplexConnection {
+    private boolean closed;
+    private boolean endOfStream;
+    private final @NotNull InetSocketAddress localAddress;
+    private LoopbackConnection peer;
+    private @NotNull ByteBuffer readBuffer=ByteBuffer.empty();
+    private final @NotNull SynchronizedWait wait;
+
+    private LoopbackConnection(@NotNull InetSocketAddress localAddress, @NotNull SynchronizedWait wait) {
+        this.localAddress=Objects.requireNonNull(localAddress, "localAddress");
+        this.wait=Objects.requireNonNull(wait, "wait");
+    }
+
+    @Override
+    public @NotNull Lava<Void> close() {
+        return Lava.supplier(()->{
+            synchronized (wait.lock) {
+                closed=true;
+                peer.endOfStream=true;
+                wait.signalAll();
+            }
+            return Lava.VOID;
+        });
+    }
+
+    public static @NotNull Pair<@NotNull LoopbackConnection, @NotNull LoopbackConnection> create() {
+        @NotNull SynchronizedWait wait=new SynchronizedWait();
+        @NotNull InetAddress address=InetAddress.getLoopbackAddress();
+        @NotNull LoopbackConnection first=new LoopbackConnection(new InetSocketAddress(address, 1), wait);
+        @NotNull LoopbackConnection second=new LoopbackConnection(new InetSocketAddress(address, 2), wait);
+        first.peer=second;
+        second.peer=first;
+        return Pair.of(first, second);
+    }
+
+    @Override
+    public @NotNull Lava<@NotNull Boolean> isOpenAndNotFailed() {
+        return Lava.supplier(()->{
+            synchronized (wait.lock) {
+                return Lava.complete(!closed);
+            }
+        });
+    }
+
+    @Override
+    public @NotNull Lava<@NotNull InetSocketAddress> localAddress() {
+        return Lava.complete(localAddress);
+    }
+
+    @Override
+    public @NotNull Lava<@Nullable ByteBuffer> read() {
+        return wait.await((context)->{
+            if (closed) {
+                throw new ClosedException();
+            }
+            if (!readBuffer.isEmpty()) {
+                @NotNull ByteBuffer result=readBuffer;
+                readBuffer=ByteBuffer.empty();
+                return Either.left(result);
+            }
+            if (endOfStream) {
+                return Either.left(null);
+            }
+            if (!context.isEndNanosInTheFuture()) {
+                return Either.left(ByteBuffer.empty());
+            }
+            return Either.right(null);
+        });
+    }
+
+    @Override
+    public @NotNull Lava<@NotNull InetSocketAddress> remoteAddress() {
+        return Lava.complete(peer.localAddress);
+    }
+
+    @Override
+    public @NotNull Lava<Void> shutDownOutput() {
+        return Lava.supplier(()->{
+            synchronized (wait.lock) {
+                peer.endOfStream=true;
+                wait.signalAll();
+            }
+            return Lava.VOID;
+        });
+    }
+
+    @Override
+    public @NotNull Lava<Void> write(@NotNull ByteBuffer value) {
+        Objects.requireNonNull(value, "value");
+        return Lava.supplier(()->{
+            synchronized (wait.lock) {
+                if (closed) {
+                    throw new ClosedException();
+                }
+                if (peer.endOfStream) {
+                    throw new IOException("output has been shut down");
+                }
+                peer.readBuffer=peer.readBuffer.append(value);
+                wait.signalAll();
+            }
+            return Lava.VOID;
+        });
+    }
+}
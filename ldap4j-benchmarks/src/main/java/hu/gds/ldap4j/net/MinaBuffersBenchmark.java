@@ -0,0 +1,76 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.net.mina.MinaBuffers;
+import java.util.concurrent.TimeUnit;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the mina buffer conversions to the array copies they replaced.
+ * Reads convert a full read buffer, writes convert a buffer appended from chunks of the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class MinaBuffersBenchmark {
+    public static final int SIZE=1<<16;
+
+    private ByteBuffer buffer;
+    @Param({"1460", "65536"})
+    public int chunkSize;
+    @Param({"false", "true"})
+    public boolean direct;
+    private IoBuffer ioBuffer;
+
+    @Benchmark
+    public @NotNull ByteBuffer fromMina() {
+        return MinaBuffers.fromMina(ioBuffer);
+    }
+
+    @Benchmark
+    public @NotNull ByteBuffer fromMinaArrayCopy() {
+        IoBuffer ioBuffer2=ioBuffer.duplicate();
+        byte[] array=new byte[ioBuffer2.remaining()];
+        ioBuffer2.get(array);
+        return ByteBuffer.create(array);
+    }
+
+    @Setup
+    public void setup() {
+        byte[] array=new byte[SIZE];
+        for (int ii=0; SIZE>ii; ++ii) {
+            array[ii]=(byte)(ii*31);
+        }
+        buffer=ByteBuffer.empty();
+        for (int ii=0; SIZE>ii; ii+=chunkSize) {
+            buffer=buffer.append(ByteBuffer.createCopy(array, ii, Math.min(SIZE, ii+chunkSize)));
+        }
+        ioBuffer=IoBuffer.allocate(SIZE, direct);
+        ioBuffer.put(array);
+        ioBuffer.flip();
+    }
+
+    @Benchmark
+    public @NotNull IoBuffer toMina() {
+        return MinaBuffers.toMina(buffer);
+    }
+
+    @Benchmark
+    public @NotNull IoBuffer toMinaArrayCopy() {
+        return IoBuffer.wrap(buffer.arrayCopy());
+    }
+}
@@ -0,0 +1,110 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Pair;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.ldap.UnboundidDirectoryServer;
+import hu.gds.ldap4j.trampoline.Trampoline;
+import java.io.EOFException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes a payload on one end of a loopback connection pair, and reads it on the other end.
+ * With tls the payload is wrapped by the client and unwrapped by the server,
+ * without tls it measures the overhead of the loopback connection and the trampoline.
+ * The keys are the ones of the test directory server, run create-keys.sh first.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations=5, time=1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+public class TlsConnectionBenchmark {
+    public static final long TIMEOUT_NANOS=10_000_000_000L;
+
+    private DuplexConnection client;
+    private ByteBuffer payload;
+    private DuplexConnection server;
+    @Param({"64", "1024", "16384"})
+    public int size;
+    @Param({"false", "true"})
+    public boolean tls;
+    private Trampoline trampoline;
+
+    private <T> T get(@NotNull Lava<T> lava) throws Throwable {
+        return trampoline.contextEndNanos(System.nanoTime()+TIMEOUT_NANOS)
+                .get(true, true, lava);
+    }
+
+    private @NotNull Lava<Void> read(int remaining) {
+        return server.read()
+                .compose((@Nullable ByteBuffer buffer)->{
+                    if (null==buffer) {
+                        throw new EOFException();
+                    }
+                    int remaining2=remaining-buffer.size();
+                    if (0>=remaining2) {
+                        return Lava.VOID;
+                    }
+                    return read(remaining2);
+                });
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        byte[] array=new byte[size];
+        for (int ii=0; size>ii; ++ii) {
+            array[ii]=(byte)ii;
+        }
+        payload=ByteBuffer.create(array);
+        trampoline=new Trampoline(Log.systemErr());
+        @NotNull Pair<@NotNull LoopbackConnection, @NotNull LoopbackConnection> pair=LoopbackConnection.create();
+        if (tls) {
+            @NotNull TlsConnection client2=new TlsConnection(pair.first());
+            @NotNull TlsConnection server2=new TlsConnection(pair.second());
+            @NotNull TlsSettings.Tls clientTls=UnboundidDirectoryServer.clientTls(false, false, false);
+            @NotNull TlsSettings.Tls serverTls=UnboundidDirectoryServer.serverTls(false);
+            get(Lava.forkJoin(
+                    ()->client2.startTlsHandshake(null, clientTls),
+                    ()->server2.startTlsHandshake(null, serverTls)));
+            client=client2;
+            server=server2;
+        }
+        else {
+            client=pair.first();
+            server=pair.second();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        try {
+            get(Lava.finallyList(List.of(client::close, server::close)));
+        }
+        finally {
+            trampoline.close();
+        }
+    }
+
+    @Benchmark
+    public void writeRead() throws Throwable {
+        get(client.write(payload)
+                .composeIgnoreResult(()->read(size)));
+    }
+}
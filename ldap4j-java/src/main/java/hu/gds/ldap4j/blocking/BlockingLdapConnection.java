@@ -0,0 +1,454 @@
+package hu.gds.ldap4j.blocking;
+
+import hu.gds.ldap4j.Consumer;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.lava.Clock;
+import hu.gds.ldap4j.ldap.BER;
+import hu.gds.ldap4j.ldap.BERWriter;
+import hu.gds.ldap4j.ldap.ControlsMessage;
+import hu.gds.ldap4j.ldap.LdapException;
+import hu.gds.ldap4j.ldap.LdapMessage;
+import hu.gds.ldap4j.ldap.Message;
+import hu.gds.ldap4j.ldap.MessageIdGenerator;
+import hu.gds.ldap4j.ldap.MessageReader;
+import hu.gds.ldap4j.ldap.Request;
+import hu.gds.ldap4j.ldap.Response;
+import hu.gds.ldap4j.ldap.SearchRequest;
+import hu.gds.ldap4j.ldap.SearchResult;
+import hu.gds.ldap4j.ldap.StartTls;
+import hu.gds.ldap4j.ldap.UnbindRequest;
+import hu.gds.ldap4j.net.ByteBuffer;
+import hu.gds.ldap4j.net.ClosedException;
+import hu.gds.ldap4j.net.DuplexConnection;
+import hu.gds.ldap4j.net.JavaBlockingSocketConnection;
+import hu.gds.ldap4j.net.TlsSettings;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A connection where every operation is a direct blocking call on a socket, without lava and callbacks.
+ * A virtual thread calling this parks in the socket io, the messages are encoded and decoded
+ * by the codecs of {@link hu.gds.ldap4j.ldap.LdapConnection}.
+ * <p>
+ * Reads and writes are serialized by {@link ReentrantLock}s, not monitors, these don't pin the carrier thread.
+ * Reads time out at the end nanos, writes are not interruptible, only the end nanos are checked before them.
+ * <p>
+ * The connection is single-exchange, responses are not dispatched by message id.
+ * It's not safe to use it for concurrent requests, a thread may read the response of an other thread's request.
+ * A timed out read fails the connection, as the response may still arrive on it.
+ */
+public class BlockingLdapConnection {
+    private boolean closed;
+    private boolean failed;
+    private @NotNull InputStream inputStream;
+    private final boolean ldaps;
+    private final @NotNull ReentrantLock lock=new ReentrantLock();
+    private final @NotNull MessageIdGenerator messageIdGenerator;
+    private @NotNull OutputStream outputStream;
+    private byte @NotNull [] readBuffer=new byte[DuplexConnection.PAGE_SIZE];
+    /**
+     * The unread bytes are readBuffer[readBufferOffset, readBufferOffset+readBufferSize).
+     */
+    private int readBufferOffset;
+    private int readBufferSize;
+    private final @NotNull ReentrantLock readLock=new ReentrantLock();
+    private @NotNull Socket socket;
+    private boolean usingTls;
+    private final @NotNull ReentrantLock writeLock=new ReentrantLock();
+
+    public BlockingLdapConnection(
+            boolean ldaps, @NotNull MessageIdGenerator messageIdGenerator, @NotNull Socket socket) throws Throwable {
+        this.ldaps=ldaps;
+        this.messageIdGenerator=Objects.requireNonNull(messageIdGenerator, "messageIdGenerator");
+        this.socket=Objects.requireNonNull(socket, "socket");
+        inputStream=socket.getInputStream();
+        outputStream=socket.getOutputStream();
+        usingTls=ldaps;
+    }
+
+    public void close(long endNanos) throws Throwable {
+        boolean failed2;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed=true;
+            failed2=failed;
+        }
+        finally {
+            lock.unlock();
+        }
+        try {
+            if ((!failed2) && (!socket.isClosed())) {
+                try {
+                    writeMessage(endNanos, new UnbindRequest().controlsEmpty(), messageIdGenerator, false);
+                    if (!(socket instanceof SSLSocket)) {
+                        socket.shutdownOutput();
+                    }
+                }
+                catch (Throwable throwable) {
+                    if (!Exceptions.isConnectionClosedException(throwable)) {
+                        throw throwable;
+                    }
+                }
+            }
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    private void connection() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new ClosedException();
+            }
+            if (failed) {
+                throw new RuntimeException("ldap connection failed");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public static @NotNull BlockingLdapConnection create(
+            long endNanos,
+            @NotNull MessageIdGenerator messageIdGenerator,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions,
+            @NotNull TlsSettings tlsSettings) throws Throwable {
+        Objects.requireNonNull(messageIdGenerator, "messageIdGenerator");
+        Objects.requireNonNull(tlsSettings, "tlsSettings");
+        Socket socket=JavaBlockingSocketConnection.connect(
+                Clock.SYSTEM_NANO_TIME.checkDelayMillis(endNanos, BlockingLdapConnection.class+" connect timeout"),
+                remoteAddress,
+                socketOptions);
+        boolean error=true;
+        try {
+            BlockingLdapConnection connection;
+            if (tlsSettings.isTls() && (!tlsSettings.isStarttls())) {
+                socket=startTlsHandshake(endNanos, socket, tlsSettings.asTls());
+                connection=new BlockingLdapConnection(true, messageIdGenerator, socket);
+            }
+            else {
+                connection=new BlockingLdapConnection(false, messageIdGenerator, socket);
+                if (tlsSettings.isTls()) {
+                    connection.startTls(endNanos, tlsSettings.asTls());
+                }
+            }
+            error=false;
+            return connection;
+        }
+        finally {
+            if (error) {
+                socket.close();
+            }
+        }
+    }
+
+    public static @NotNull BlockingLdapConnection create(
+            long endNanos,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull TlsSettings tlsSettings) throws Throwable {
+        return create(endNanos, MessageIdGenerator.smallValues(), remoteAddress, Map.of(), tlsSettings);
+    }
+
+    /**
+     * Ldap errors are whole responses, every other error may leave an unread response on the connection.
+     */
+    private void failed(@NotNull Throwable throwable) {
+        if (throwable instanceof LdapException) {
+            return;
+        }
+        lock.lock();
+        try {
+            failed=true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isOpenAndNotFailed() {
+        lock.lock();
+        try {
+            return (!closed) && (!failed) && (!socket.isClosed());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public @NotNull InetSocketAddress localAddress() {
+        connection();
+        return (InetSocketAddress)socket.getLocalSocketAddress();
+    }
+
+    public @NotNull MessageIdGenerator messageIdGenerator() {
+        return messageIdGenerator;
+    }
+
+    /**
+     * Reads bytes from the socket until the read buffer holds a whole frame.
+     * The unread bytes are moved to the start of the buffer only when the buffer is full,
+     * and the buffer grows by doubling as the bytes arrive, up to the size of the frame,
+     * a frame length read from the wire allocates nothing by itself.
+     */
+    private @NotNull ByteBuffer readFrame(long endNanos) throws Throwable {
+        while (true) {
+            int frameSize=BER.readFrameSize(
+                    ByteBuffer.create(readBuffer, readBufferOffset, readBufferOffset+readBufferSize).reader());
+            if ((0<=frameSize) && (readBufferSize>=frameSize)) {
+                ByteBuffer frame=ByteBuffer.createCopy(readBuffer, readBufferOffset, readBufferOffset+frameSize);
+                readBufferOffset=(readBufferSize==frameSize)
+                        ?0
+                        :(readBufferOffset+frameSize);
+                readBufferSize-=frameSize;
+                return frame;
+            }
+            if (readBuffer.length<=readBufferOffset+readBufferSize) {
+                if (0<readBufferOffset) {
+                    System.arraycopy(readBuffer, readBufferOffset, readBuffer, 0, readBufferSize);
+                    readBufferOffset=0;
+                }
+                else {
+                    int length=2*readBuffer.length;
+                    if (readBuffer.length<frameSize) {
+                        length=Math.min(length, frameSize);
+                    }
+                    byte[] readBuffer2=new byte[length];
+                    System.arraycopy(readBuffer, 0, readBuffer2, 0, readBufferSize);
+                    readBuffer=readBuffer2;
+                }
+            }
+            socket.setSoTimeout(Clock.SYSTEM_NANO_TIME.checkDelayMillis(
+                    endNanos, BlockingLdapConnection.class+".readFrame() timeout"));
+            int length;
+            try {
+                int offset=readBufferOffset+readBufferSize;
+                length=inputStream.read(readBuffer, offset, readBuffer.length-offset);
+            }
+            catch (SocketTimeoutException ex) {
+                throw new TimeoutException(ex.toString());
+            }
+            if (0>length) {
+                throw new EOFException();
+            }
+            readBufferSize+=length;
+        }
+    }
+
+    /**
+     * The capacity of the read buffer, for tests.
+     */
+    int readBufferCapacity() {
+        readLock.lock();
+        try {
+            return readBuffer.length;
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    public <T> @NotNull LdapMessage<T> readMessageChecked(
+            long endNanos, int messageId, @NotNull MessageReader<T> messageReader) throws Throwable {
+        Objects.requireNonNull(messageReader, "messageReader");
+        readLock.lock();
+        try {
+            connection();
+            return readFrame(endNanos)
+                    .read(LdapMessage.readChecked(messageId, messageReader));
+        }
+        catch (Throwable throwable) {
+            failed(throwable);
+            throw throwable;
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    public @NotNull InetSocketAddress remoteAddress() {
+        connection();
+        return (InetSocketAddress)socket.getRemoteSocketAddress();
+    }
+
+    public @NotNull List<@NotNull ControlsMessage<SearchResult>> search(
+            long endNanos, @NotNull ControlsMessage<SearchRequest> request) throws Throwable {
+        @NotNull List<@NotNull ControlsMessage<SearchResult>> result=new ArrayList<>();
+        searchStream(result::add, endNanos, request);
+        return result;
+    }
+
+    /**
+     * The consumer is called on the calling thread, the next result is not read until it returns.
+     * If the consumer fails before the done message the connection is marked failed,
+     * as the rest of the results are still unread.
+     */
+    public void searchStream(
+            @NotNull Consumer<@NotNull ControlsMessage<SearchResult>> consumer,
+            long endNanos,
+            @NotNull ControlsMessage<SearchRequest> request) throws Throwable {
+        Objects.requireNonNull(consumer, "consumer");
+        int messageId=writeMessage(endNanos, request);
+        while (true) {
+            @NotNull LdapMessage<SearchResult> searchResult
+                    =readMessageChecked(endNanos, messageId, SearchResult.READER);
+            try {
+                consumer.accept(new ControlsMessage<>(searchResult.controls(), searchResult.message()));
+            }
+            catch (Throwable throwable) {
+                if (!searchResult.message().isDone()) {
+                    failed(new RuntimeException("search stream consumer failed", throwable));
+                }
+                throw throwable;
+            }
+            if (searchResult.message().isDone()) {
+                return;
+            }
+        }
+    }
+
+    public void startTls(long endNanos, @NotNull TlsSettings.Tls tls) throws Throwable {
+        Objects.requireNonNull(tls, "tls");
+        lock.lock();
+        try {
+            if (ldaps) {
+                throw new RuntimeException("cannot start tls on ldaps");
+            }
+            if (usingTls) {
+                throw new RuntimeException("already using tls");
+            }
+            usingTls=true;
+        }
+        finally {
+            lock.unlock();
+        }
+        writeRequestReadResponseChecked(endNanos, StartTls.REQUEST.controlsEmpty());
+        readLock.lock();
+        try {
+            writeLock.lock();
+            try {
+                if (0<readBufferSize) {
+                    throw new RuntimeException("unexpected bytes before the tls handshake");
+                }
+                SSLSocket sslSocket=startTlsHandshake(endNanos, socket, tls);
+                inputStream=sslSocket.getInputStream();
+                outputStream=sslSocket.getOutputStream();
+                socket=sslSocket;
+            }
+            catch (Throwable throwable) {
+                failed(throwable);
+                throw throwable;
+            }
+            finally {
+                writeLock.unlock();
+            }
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    private static @NotNull SSLSocket startTlsHandshake(
+            long endNanos, @NotNull Socket socket, @NotNull TlsSettings.Tls tls) throws Throwable {
+        InetSocketAddress remoteAddress=(InetSocketAddress)socket.getRemoteSocketAddress();
+        SSLSocket sslSocket=(SSLSocket)tls.createSSLSocketFactory(remoteAddress)
+                .createSocket(socket, remoteAddress.getHostString(), remoteAddress.getPort(), true);
+        tls.clientAuthentication().set(sslSocket);
+        sslSocket.setUseClientMode(tls.client());
+        sslSocket.setSoTimeout(Clock.SYSTEM_NANO_TIME.checkDelayMillis(
+                endNanos, BlockingLdapConnection.class+" tls handshake timeout"));
+        try {
+            sslSocket.startHandshake();
+        }
+        catch (SocketTimeoutException ex) {
+            throw new TimeoutException(ex.toString());
+        }
+        return sslSocket;
+    }
+
+    public @Nullable SSLSession tlsSession() {
+        connection();
+        return (socket instanceof SSLSocket sslSocket)
+                ?sslSocket.getSession()
+                :null;
+    }
+
+    /**
+     * @return messageId
+     */
+    public <M extends Message<M>> int writeMessage(
+            long endNanos, @NotNull ControlsMessage<M> message) throws Throwable {
+        return writeMessage(endNanos, message, messageIdGenerator);
+    }
+
+    /**
+     * @return messageId
+     */
+    public <M extends Message<M>> int writeMessage(
+            long endNanos, @NotNull ControlsMessage<M> message, @NotNull MessageIdGenerator messageIdGenerator)
+            throws Throwable {
+        return writeMessage(endNanos, message, messageIdGenerator, true);
+    }
+
+    /**
+     * @return messageId
+     */
+    private <M extends Message<M>> int writeMessage(
+            long endNanos, @NotNull ControlsMessage<M> message, @NotNull MessageIdGenerator messageIdGenerator,
+            boolean checkConnection) throws Throwable {
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(messageIdGenerator, "messageIdGenerator");
+        if (checkConnection) {
+            connection();
+        }
+        Clock.SYSTEM_NANO_TIME.checkEndNanos(endNanos, BlockingLdapConnection.class+".writeMessage() timeout");
+        int messageId=messageIdGenerator.next();
+        @NotNull LdapMessage<M> ldapMessage=new LdapMessage<>(
+                message.controls(),
+                message.message(),
+                messageId);
+        byte[] array=BERWriter.writeArray((writer)->ldapMessage.write(message.message()::write, writer));
+        writeLock.lock();
+        try {
+            outputStream.write(array);
+            outputStream.flush();
+        }
+        catch (Throwable throwable) {
+            failed(throwable);
+            throw throwable;
+        }
+        finally {
+            writeLock.unlock();
+        }
+        return messageId;
+    }
+
+    public <M extends Request<M, R>, R extends Response> @NotNull ControlsMessage<R> writeRequestReadResponseChecked(
+            long endNanos, @NotNull ControlsMessage<M> request) throws Throwable {
+        int messageId=writeMessage(endNanos, request);
+        @NotNull LdapMessage<R> response=readMessageChecked(
+                endNanos, messageId, request.message().responseReader());
+        return new ControlsMessage<>(response.controls(), response.message());
+    }
+}
@@ -0,0 +1,192 @@
+package hu.gds.ldap4j.blocking;
+
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.lava.Clock;
+import hu.gds.ldap4j.lava.PoolStatistics;
+import hu.gds.ldap4j.ldap.MessageIdGenerator;
+import hu.gds.ldap4j.net.ClosedException;
+import hu.gds.ldap4j.net.TlsSettings;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A pool of {@link BlockingLdapConnection}s for virtual threads.
+ * Leases wait for a permit of a fair {@link Semaphore}, and park instead of pinning the carrier thread.
+ * Connections are created by the leases, and closed when they are returned failed, or after the pool is closed.
+ */
+public class BlockingLdapPool {
+    private boolean closed;
+    private final @NotNull Function<@NotNull Long, @NotNull BlockingLdapConnection> factory;
+    private final @NotNull Deque<@NotNull BlockingLdapConnection> idle;
+    private final @NotNull ReentrantLock lock=new ReentrantLock();
+    private final @NotNull Log log;
+    private final @NotNull Semaphore permits;
+    private final int size;
+    private final long timeoutNanos;
+
+    /**
+     * @param factory creates a connection by the end nanos
+     */
+    public BlockingLdapPool(
+            @NotNull Function<@NotNull Long, @NotNull BlockingLdapConnection> factory,
+            @NotNull Log log,
+            int size,
+            long timeoutNanos) {
+        if (0>=size) {
+            throw new IllegalArgumentException("0 >= size %d".formatted(size));
+        }
+        this.factory=Objects.requireNonNull(factory, "factory");
+        this.log=Objects.requireNonNull(log, "log");
+        this.size=size;
+        this.timeoutNanos=timeoutNanos;
+        idle=new ArrayDeque<>(size);
+        permits=new Semaphore(size, true);
+    }
+
+    public void close() throws Throwable {
+        List<@NotNull BlockingLdapConnection> connections;
+        lock.lock();
+        try {
+            closed=true;
+            connections=new ArrayList<>(idle);
+            idle.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+        long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(timeoutNanos);
+        @Nullable Throwable throwable=null;
+        for (BlockingLdapConnection connection: connections) {
+            try {
+                connection.close(endNanos);
+            }
+            catch (Throwable throwable2) {
+                throwable=Exceptions.join(throwable, throwable2);
+            }
+        }
+        if (null!=throwable) {
+            throw throwable;
+        }
+    }
+
+    private void closeSafe(@NotNull BlockingLdapConnection connection) {
+        try {
+            connection.close(Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(timeoutNanos));
+        }
+        catch (Throwable throwable) {
+            log.error(getClass(), throwable);
+        }
+    }
+
+    public static @NotNull BlockingLdapPool create(
+            @NotNull Log log,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        Objects.requireNonNull(remoteAddress, "remoteAddress");
+        Objects.requireNonNull(socketOptions, "socketOptions");
+        Objects.requireNonNull(tlsSettings, "tlsSettings");
+        return new BlockingLdapPool(
+                (endNanos)->BlockingLdapConnection.create(
+                        endNanos,
+                        MessageIdGenerator.smallValues(),
+                        remoteAddress,
+                        socketOptions,
+                        tlsSettings),
+                log,
+                poolSize,
+                timeoutNanos);
+    }
+
+    public static @NotNull BlockingLdapPool create(
+            @NotNull Log log,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return create(log, poolSize, remoteAddress, Map.of(), timeoutNanos, tlsSettings);
+    }
+
+    /**
+     * Applies the function to a pooled connection on the calling thread.
+     * The connection is reused if it's still open and not failed after the function returned or threw.
+     */
+    public <T> T lease(@NotNull Function<@NotNull BlockingLdapConnection, T> function) throws Throwable {
+        Objects.requireNonNull(function, "function");
+        long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(timeoutNanos);
+        if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException(BlockingLdapPool.class+".lease() timeout");
+        }
+        try {
+            @Nullable BlockingLdapConnection connection;
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new ClosedException();
+                }
+                connection=idle.pollLast();
+            }
+            finally {
+                lock.unlock();
+            }
+            if (null==connection) {
+                connection=factory.apply(endNanos);
+            }
+            try {
+                return function.apply(connection);
+            }
+            finally {
+                boolean reuse=connection.isOpenAndNotFailed();
+                if (reuse) {
+                    lock.lock();
+                    try {
+                        if (closed) {
+                            reuse=false;
+                        }
+                        else {
+                            idle.addLast(connection);
+                        }
+                    }
+                    finally {
+                        lock.unlock();
+                    }
+                }
+                if (!reuse) {
+                    closeSafe(connection);
+                }
+            }
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    public @NotNull PoolStatistics statistics() {
+        lock.lock();
+        try {
+            return new PoolStatistics(
+                    idle.size(),
+                    size-permits.availablePermits(),
+                    permits.getQueueLength());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package hu.gds.ldap4j.blocking;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The library is built for java 17, virtual threads are looked up reflectively on newer runtimes.
+ */
+public class VirtualThreads {
+    private static final @Nullable Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        @Nullable Method method;
+        try {
+            method=Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch (NoSuchMethodException ex) {
+            method=null;
+        }
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR=method;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return null!=NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+    }
+
+    /**
+     * @throws UnsupportedOperationException the runtime doesn't support virtual threads
+     */
+    public static @NotNull ExecutorService newVirtualThreadPerTaskExecutor() throws Throwable {
+        if (null==NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR) {
+            throw new UnsupportedOperationException("virtual threads are not supported by java %s"
+                    .formatted(System.getProperty("java.version")));
+        }
+        return (ExecutorService)NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+    }
+}
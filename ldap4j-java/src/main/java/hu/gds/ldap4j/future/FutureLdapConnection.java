@@ -209,6 +209,33 @@ public class FutureLdapConnection {
         return startLava(connection.search(request));
     }
 
+    public @NotNull CompletableFuture<@NotNull List<@NotNull ControlsMessage<SearchResult>>> searchDispatched(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return startLava(connection.searchDispatched(request));
+    }
+
+    /**
+     * The next result is not read until the future returned by the consumer completes.
+     * A failed consumer abandons the search, and fails the connection.
+     */
+    public @NotNull CompletableFuture<Void> searchStream(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull CompletableFuture<Void>> consumer,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        Objects.requireNonNull(consumer, "consumer");
+        return startLava(connection.searchStream(
+                (searchResult)->Futures.handle(()->consumer.apply(searchResult)),
+                request));
+    }
+
+    public @NotNull CompletableFuture<Void> searchStreamDispatched(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull CompletableFuture<Void>> consumer,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        Objects.requireNonNull(consumer, "consumer");
+        return startLava(connection.searchStreamDispatched(
+                (searchResult)->Futures.handle(()->consumer.apply(searchResult)),
+                request));
+    }
+
     private <T> @NotNull CompletableFuture<T> startLava(@NotNull Lava<T> lava) {
         return Futures.start(
                 ThreadLocalScheduledExecutorContext.createDelayNanos(
@@ -246,4 +273,10 @@ public class FutureLdapConnection {
             @NotNull ControlsMessage<M> request) {
         return startLava(connection.writeRequestReadResponseChecked(request));
     }
+
+    public <M extends Request<M, R>, R extends Response>
+    @NotNull CompletableFuture<@NotNull ControlsMessage<R>> writeRequestReadResponseDispatched(
+            @NotNull ControlsMessage<M> request) {
+        return startLava(connection.writeRequestReadResponseDispatched(request));
+    }
 }
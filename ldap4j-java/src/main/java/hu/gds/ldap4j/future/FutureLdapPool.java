@@ -4,10 +4,12 @@ import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.Log;
 import hu.gds.ldap4j.Supplier;
 import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.LeasePool;
 import hu.gds.ldap4j.lava.Pool;
+import hu.gds.ldap4j.lava.PoolStatistics;
 import hu.gds.ldap4j.lava.ThreadLocalScheduledExecutorContext;
 import hu.gds.ldap4j.ldap.LdapConnection;
-import hu.gds.ldap4j.net.Connection;
+import hu.gds.ldap4j.ldap.LdapPoolSettings;
 import hu.gds.ldap4j.net.DuplexConnection;
 import hu.gds.ldap4j.net.JavaAsyncChannelConnection;
 import hu.gds.ldap4j.net.TlsSettings;
@@ -27,7 +29,7 @@ public class FutureLdapPool {
     private final int localSize;
     private final @NotNull Log log;
     private final int parallelism;
-    private final @NotNull Pool<@NotNull LdapConnection, @NotNull FutureLdapConnection> pool;
+    private final @NotNull LeasePool<@NotNull FutureLdapConnection> pool;
     private final @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal;
     private final long timeoutNanos;
 
@@ -37,7 +39,7 @@ public class FutureLdapPool {
             int localSize,
             @NotNull Log log,
             int parallelism,
-            @NotNull Pool<@NotNull LdapConnection, @NotNull FutureLdapConnection> pool,
+            @NotNull LeasePool<@NotNull FutureLdapConnection> pool,
             @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
             long timeoutNanos) {
         this.closeLoopGroup=Objects.requireNonNull(closeLoopGroup, "closeLoopGroup");
@@ -72,11 +74,12 @@ public class FutureLdapPool {
             int localSize,
             @NotNull Log log,
             int parallelism,
-            int poolSize,
+            @NotNull LdapPoolSettings poolSettings,
             @NotNull InetSocketAddress remoteAddress,
             @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
             long timeoutNanos,
             @NotNull TlsSettings tlsSettings) {
+        Objects.requireNonNull(poolSettings, "poolSettings");
         return Futures.start(
                 ThreadLocalScheduledExecutorContext.createDelayNanos(
                         timeoutNanos,
@@ -85,37 +88,83 @@ public class FutureLdapPool {
                         log,
                         parallelism,
                         threadLocal),
-                Lava.supplier(()->Lava.complete(
-                        new FutureLdapPool(
-                                closeLoopGroup,
-                                executor,
-                                localSize,
-                                log,
-                                parallelism,
-                                new Pool<>(
-                                        LdapConnection::close,
-                                        ()->LdapConnection.factory(
-                                                factory,
-                                                handshakeExecutor,
-                                                remoteAddress,
-                                                tlsSettings),
-                                        Connection::checkOpenAndNotFailed,
-                                        timeoutNanos,
-                                        timeoutNanos,
-                                        log,
-                                        poolSize,
-                                        (connection)->connection.connection().isOpenAndNotFailed(),
-                                        (connection)->Lava.complete(
-                                                new FutureLdapConnection(
-                                                        connection,
-                                                        executor,
-                                                        localSize,
-                                                        log,
-                                                        parallelism,
-                                                        threadLocal,
-                                                        timeoutNanos))),
-                                threadLocal,
-                                timeoutNanos))));
+                Lava.supplier(()->{
+                    Pool<@NotNull LdapConnection, @NotNull FutureLdapConnection> pool=new Pool<>(
+                            LdapConnection::close,
+                            ()->LdapConnection.factory(
+                                    factory,
+                                    handshakeExecutor,
+                                    remoteAddress,
+                                    tlsSettings),
+                            poolSettings.initialSize(),
+                            poolSettings.keepAlive(),
+                            poolSettings.keepAlivePeriodNanos(),
+                            poolSettings.keepAliveTimeoutNanos(),
+                            poolSettings.listener(),
+                            log,
+                            poolSettings.maxIdleNanos(),
+                            poolSettings.maxLifetimeNanos(),
+                            poolSettings.minIdle(),
+                            poolSettings.shards(),
+                            poolSettings.size(),
+                            (connection)->connection.connection().isOpenAndNotFailed(),
+                            (connection)->Lava.complete(
+                                    new FutureLdapConnection(
+                                            connection,
+                                            executor,
+                                            localSize,
+                                            log,
+                                            parallelism,
+                                            threadLocal,
+                                            timeoutNanos)));
+                    return pool.warmUp()
+                            .composeIgnoreResult(()->pool.startKeepAlive(
+                                    ThreadLocalScheduledExecutorContext.createEndNanos(
+                                            null,
+                                            executor,
+                                            localSize,
+                                            log,
+                                            parallelism,
+                                            threadLocal)))
+                            .composeIgnoreResult(()->Lava.complete(
+                                    new FutureLdapPool(
+                                            closeLoopGroup,
+                                            executor,
+                                            localSize,
+                                            log,
+                                            parallelism,
+                                            pool,
+                                            threadLocal,
+                                            timeoutNanos)));
+                }));
+    }
+
+    public static @NotNull CompletableFuture<@NotNull FutureLdapPool> create(
+            @NotNull Supplier<@NotNull CompletableFuture<Void>> closeLoopGroup,
+            @NotNull ScheduledExecutorService executor,
+            @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory,
+            @Nullable Executor handshakeExecutor,
+            int localSize,
+            @NotNull Log log,
+            int parallelism,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return create(
+                closeLoopGroup,
+                executor,
+                factory,
+                handshakeExecutor,
+                localSize,
+                log,
+                parallelism,
+                LdapPoolSettings.builder(poolSize).build(),
+                remoteAddress,
+                threadLocal,
+                timeoutNanos,
+                tlsSettings);
     }
 
     public static @NotNull CompletableFuture<@NotNull FutureLdapPool> createJavaAsync(
@@ -126,7 +175,7 @@ public class FutureLdapPool {
             int localSize,
             @NotNull Log log,
             int parallelism,
-            int poolSize,
+            @NotNull LdapPoolSettings poolSettings,
             @NotNull InetSocketAddress remoteAddress,
             @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
             long timeoutNanos,
@@ -144,13 +193,41 @@ public class FutureLdapPool {
                         localSize,
                         log,
                         parallelism,
-                        poolSize,
+                        poolSettings,
                         remoteAddress,
                         threadLocal,
                         timeoutNanos,
                         tlsSettings));
     }
 
+    public static @NotNull CompletableFuture<@NotNull FutureLdapPool> createJavaAsync(
+            @NotNull Function<@Nullable AsynchronousChannelGroup, @NotNull CompletableFuture<Void>> closeLoopGroup,
+            @NotNull Supplier<@NotNull CompletableFuture<@Nullable AsynchronousChannelGroup>> createLoopGroup,
+            @NotNull ScheduledExecutorService executor,
+            @Nullable Executor handshakeExecutor,
+            int localSize,
+            @NotNull Log log,
+            int parallelism,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return createJavaAsync(
+                closeLoopGroup,
+                createLoopGroup,
+                executor,
+                handshakeExecutor,
+                localSize,
+                log,
+                parallelism,
+                LdapPoolSettings.builder(poolSize).build(),
+                remoteAddress,
+                threadLocal,
+                timeoutNanos,
+                tlsSettings);
+    }
+
     public <T> @NotNull CompletableFuture<T> lease(
             @NotNull Function<@NotNull FutureLdapConnection, @NotNull CompletableFuture<T>> function) {
         return Futures.start(
@@ -163,4 +240,16 @@ public class FutureLdapPool {
                         threadLocal),
                 pool.lease((connection)->Futures.handle(()->function.apply(connection))));
     }
+
+    public @NotNull CompletableFuture<@NotNull PoolStatistics> statistics() {
+        return Futures.start(
+                ThreadLocalScheduledExecutorContext.createDelayNanos(
+                        timeoutNanos,
+                        executor,
+                        localSize,
+                        log,
+                        parallelism,
+                        threadLocal),
+                pool.statistics());
+    }
 }
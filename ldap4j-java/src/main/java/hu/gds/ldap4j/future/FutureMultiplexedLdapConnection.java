@@ -0,0 +1,69 @@
+package hu.gds.ldap4j.future;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.ldap.ControlsMessage;
+import hu.gds.ldap4j.ldap.LdapConnection;
+import hu.gds.ldap4j.ldap.Request;
+import hu.gds.ldap4j.ldap.Response;
+import hu.gds.ldap4j.ldap.SearchRequest;
+import hu.gds.ldap4j.ldap.SearchResult;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import javax.net.ssl.SSLSession;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A connection shared by the leases of a multiplexed pool.
+ * Every request goes through the dispatcher of the connection,
+ * the requests of the leases are in flight on the connection at the same time.
+ */
+public class FutureMultiplexedLdapConnection {
+    private final @NotNull FutureLdapConnection connection;
+
+    public FutureMultiplexedLdapConnection(@NotNull FutureLdapConnection connection) {
+        this.connection=Objects.requireNonNull(connection, "connection");
+    }
+
+    @NotNull LdapConnection connection() {
+        return connection.connection();
+    }
+
+    public @NotNull CompletableFuture<@NotNull Boolean> isOpenAndNotFailed() {
+        return connection.isOpenAndNotFailed();
+    }
+
+    public @NotNull CompletableFuture<@NotNull InetSocketAddress> localAddress() {
+        return connection.localAddress();
+    }
+
+    public @NotNull CompletableFuture<@NotNull InetSocketAddress> remoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    public @NotNull CompletableFuture<@NotNull List<@NotNull ControlsMessage<SearchResult>>> search(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return connection.searchDispatched(request);
+    }
+
+    /**
+     * The next result is not read until the future returned by the consumer completes.
+     */
+    public @NotNull CompletableFuture<Void> searchStream(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull CompletableFuture<Void>> consumer,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return connection.searchStreamDispatched(consumer, request);
+    }
+
+    public @NotNull CompletableFuture<@Nullable SSLSession> tlsSession() {
+        return connection.tlsSession();
+    }
+
+    public <M extends Request<M, R>, R extends Response>
+    @NotNull CompletableFuture<@NotNull ControlsMessage<R>> writeRequestReadResponse(
+            @NotNull ControlsMessage<M> request) {
+        return connection.writeRequestReadResponseDispatched(request);
+    }
+}
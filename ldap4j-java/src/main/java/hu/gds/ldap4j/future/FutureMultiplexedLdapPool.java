@@ -0,0 +1,187 @@
+package hu.gds.ldap4j.future;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.LeasePool;
+import hu.gds.ldap4j.lava.MultiplexedPool;
+import hu.gds.ldap4j.lava.PoolStatistics;
+import hu.gds.ldap4j.lava.ThreadLocalScheduledExecutorContext;
+import hu.gds.ldap4j.ldap.LdapConnection;
+import hu.gds.ldap4j.net.DuplexConnection;
+import hu.gds.ldap4j.net.JavaAsyncChannelConnection;
+import hu.gds.ldap4j.net.TlsSettings;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Leases share the connections, up to poolMaxLeasesPerConnection leases use a connection at the same time.
+ * The pool counts leases, not requests, a lease should wait for each of its requests before starting the next one,
+ * so that poolMaxLeasesPerConnection caps the requests in flight on a connection.
+ * A connection failed by a lease is evicted from the pool when that lease ends.
+ */
+public class FutureMultiplexedLdapPool {
+    private final @NotNull Supplier<@NotNull CompletableFuture<Void>> closeLoopGroup;
+    private final @NotNull ScheduledExecutorService executor;
+    private final int localSize;
+    private final @NotNull Log log;
+    private final int parallelism;
+    private final @NotNull LeasePool<@NotNull FutureMultiplexedLdapConnection> pool;
+    private final @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal;
+    private final long timeoutNanos;
+
+    public FutureMultiplexedLdapPool(
+            @NotNull Supplier<@NotNull CompletableFuture<Void>> closeLoopGroup,
+            @NotNull ScheduledExecutorService executor,
+            int localSize,
+            @NotNull Log log,
+            int parallelism,
+            @NotNull LeasePool<@NotNull FutureMultiplexedLdapConnection> pool,
+            @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
+            long timeoutNanos) {
+        this.closeLoopGroup=Objects.requireNonNull(closeLoopGroup, "closeLoopGroup");
+        this.executor=Objects.requireNonNull(executor, "executor");
+        this.localSize=localSize;
+        this.log=Objects.requireNonNull(log, "log");
+        this.parallelism=parallelism;
+        this.pool=Objects.requireNonNull(pool, "pool");
+        this.threadLocal=Objects.requireNonNull(threadLocal, "threadLocal");
+        this.timeoutNanos=timeoutNanos;
+    }
+
+    public @NotNull CompletableFuture<Void> close() {
+        return Futures.start(
+                ThreadLocalScheduledExecutorContext.createDelayNanos(
+                        timeoutNanos,
+                        executor,
+                        localSize,
+                        log,
+                        parallelism,
+                        threadLocal),
+                Lava.finallyGet(
+                        ()->Futures.handle(closeLoopGroup),
+                        pool::close));
+    }
+
+    /**
+     * poolMaxLeasesPerConnection counts leases, not the requests in flight on a connection,
+     * it bounds those only while every lease runs one request at a time.
+     */
+    public static @NotNull CompletableFuture<@NotNull FutureMultiplexedLdapPool> create(
+            @NotNull Supplier<@NotNull CompletableFuture<Void>> closeLoopGroup,
+            @NotNull ScheduledExecutorService executor,
+            @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory,
+            @Nullable Executor handshakeExecutor,
+            int localSize,
+            @NotNull Log log,
+            int parallelism,
+            int poolMaxLeasesPerConnection,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return CompletableFuture.completedFuture(
+                new FutureMultiplexedLdapPool(
+                        closeLoopGroup,
+                        executor,
+                        localSize,
+                        log,
+                        parallelism,
+                        new MultiplexedPool<>(
+                                LdapConnection::close,
+                                ()->LdapConnection.factory(
+                                        factory,
+                                        handshakeExecutor,
+                                        remoteAddress,
+                                        tlsSettings),
+                                log,
+                                poolMaxLeasesPerConnection,
+                                poolSize,
+                                (connection)->connection.connection().isOpenAndNotFailed(),
+                                (connection)->Lava.complete(
+                                        new FutureMultiplexedLdapConnection(
+                                                new FutureLdapConnection(
+                                                        connection,
+                                                        executor,
+                                                        localSize,
+                                                        log,
+                                                        parallelism,
+                                                        threadLocal,
+                                                        timeoutNanos)))),
+                        threadLocal,
+                        timeoutNanos));
+    }
+
+    /**
+     * poolMaxLeasesPerConnection counts leases, not the requests in flight on a connection,
+     * it bounds those only while every lease runs one request at a time.
+     */
+    public static @NotNull CompletableFuture<@NotNull FutureMultiplexedLdapPool> createJavaAsync(
+            @NotNull Function<@Nullable AsynchronousChannelGroup, @NotNull CompletableFuture<Void>> closeLoopGroup,
+            @NotNull Supplier<@NotNull CompletableFuture<@Nullable AsynchronousChannelGroup>> createLoopGroup,
+            @NotNull ScheduledExecutorService executor,
+            @Nullable Executor handshakeExecutor,
+            int localSize,
+            @NotNull Log log,
+            int parallelism,
+            int poolMaxLeasesPerConnection,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull ThreadLocal<ThreadLocalScheduledExecutorContext.@Nullable LocalData> threadLocal,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return Futures.wrapOrClose(
+                closeLoopGroup,
+                createLoopGroup,
+                (loopGroup)->create(
+                        ()->closeLoopGroup.apply(loopGroup),
+                        executor,
+                        JavaAsyncChannelConnection.factory(
+                                loopGroup,
+                                Map.of()),
+                        handshakeExecutor,
+                        localSize,
+                        log,
+                        parallelism,
+                        poolMaxLeasesPerConnection,
+                        poolSize,
+                        remoteAddress,
+                        threadLocal,
+                        timeoutNanos,
+                        tlsSettings));
+    }
+
+    public <T> @NotNull CompletableFuture<T> lease(
+            @NotNull Function<@NotNull FutureMultiplexedLdapConnection, @NotNull CompletableFuture<T>> function) {
+        return Futures.start(
+                ThreadLocalScheduledExecutorContext.createDelayNanos(
+                        timeoutNanos,
+                        executor,
+                        localSize,
+                        log,
+                        parallelism,
+                        threadLocal),
+                pool.lease((connection)->Futures.handle(()->function.apply(connection))));
+    }
+
+    public @NotNull CompletableFuture<@NotNull PoolStatistics> statistics() {
+        return Futures.start(
+                ThreadLocalScheduledExecutorContext.createDelayNanos(
+                        timeoutNanos,
+                        executor,
+                        localSize,
+                        log,
+                        parallelism,
+                        threadLocal),
+                pool.statistics());
+    }
+}
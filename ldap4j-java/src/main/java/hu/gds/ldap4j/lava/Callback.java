@@ -2,17 +2,33 @@ package hu.gds.ldap4j.lava;
 
 import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.PrettyPrinter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
 import org.jetbrains.annotations.NotNull;
 
 public interface Callback<T> {
     abstract class AbstractSingleRunCallback<T> implements Callback<T>, SingleRun {
-        private final AtomicBoolean completed=new AtomicBoolean();
+        /**
+         * A var handle instead of an atomic boolean saves an allocation per callback.
+         */
+        private static final @NotNull VarHandle COMPLETED;
+
+        static {
+            try {
+                COMPLETED=MethodHandles.lookup().findVarHandle(
+                        AbstractSingleRunCallback.class, "completed", boolean.class);
+            }
+            catch (ReflectiveOperationException ex) {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+
+        private volatile boolean completed;
 
         @Override
         public final void completed(T value) {
-            if (completed.compareAndSet(false, true)) {
+            if (COMPLETED.compareAndSet(this, false, true)) {
                 completedImpl(value);
             }
         }
@@ -22,7 +38,7 @@ public interface Callback<T> {
         @Override
         public final void failed(@NotNull Throwable throwable) {
             Objects.requireNonNull(throwable, "throwable");
-            if (completed.compareAndSet(false, true)) {
+            if (COMPLETED.compareAndSet(this, false, true)) {
                 failedImpl(throwable);
             }
         }
@@ -56,8 +56,9 @@ public interface Context extends Executor {
 
         @Override
         public long endNanos() {
+            // half the range, an end read before the clock must not overflow into the past
             return (null==endNanos)
-                    ?clock.delayNanosToEndNanos(Long.MAX_VALUE)
+                    ?clock.delayNanosToEndNanos(Long.MAX_VALUE>>1)
                     :endNanos;
         }
 
@@ -105,15 +106,15 @@ public interface Context extends Executor {
 
         @Override
         public void run() {
-            Callback<U> callback2=callback;
+            Lava<U> newSupplier;
             try {
-                Lava<U> newSupplier=Objects.requireNonNull(function.apply(value), "newSupplier");
-                callback2=callback2.singleRun();
-                context.get(callback2, newSupplier);
+                newSupplier=Objects.requireNonNull(function.apply(value), "newSupplier");
             }
             catch (Throwable throwable) {
-                callback2.failed(throwable);
+                callback.failed(throwable);
+                return;
             }
+            getFused(callback, context, newSupplier);
         }
 
         @Override
@@ -178,14 +179,7 @@ public interface Context extends Executor {
 
         @Override
         public void run() {
-            Callback<T> callback2=callback;
-            try {
-                callback2=callback2.singleRun();
-                supplier.get(callback2, context);
-            }
-            catch (Throwable throwable) {
-                callback2.failed(throwable);
-            }
+            getFused(callback, context, supplier);
         }
 
         @Override
@@ -205,6 +199,11 @@ public interface Context extends Executor {
         return debugMagic(debugMagic2);
     }
 
+    /**
+     * The maximum number of lavas fused by a single task, see {@link Lava#fuse()}.
+     */
+    int MAX_FUSED_LAVAS=64;
+
     default <T, U> void apply(
             @NotNull Callback<U> callback, @NotNull Function<T, Lava<U>> function, T value) {
         execute(new Apply<>(callback, this, function, value));
@@ -267,6 +266,40 @@ public interface Context extends Executor {
         execute(new Get<>(callback, this, supplier));
     }
 
+    /**
+     * Evaluates the supplier on the current thread, the current thread must be running a task of the context.
+     * Fusable lavas are evaluated in place, and a completed result is passed to the callback without a new task.
+     */
+    private static <T> void getFused(
+            @NotNull Callback<T> callback, @NotNull Context context, @NotNull Lava<T> supplier) {
+        Lava<T> supplier2=supplier;
+        try {
+            for (int ii=MAX_FUSED_LAVAS; (0<ii) && (!(supplier2 instanceof Lava.CompleteSupplier<T>)); --ii) {
+                @Nullable Lava<T> fused=supplier2.fuse();
+                if (null==fused) {
+                    break;
+                }
+                supplier2=fused;
+            }
+        }
+        catch (Throwable throwable) {
+            callback.failed(throwable);
+            return;
+        }
+        if (supplier2 instanceof Lava.CompleteSupplier<T> complete) {
+            callback.completed(complete.value());
+            return;
+        }
+        Callback<T> callback2=callback;
+        try {
+            callback2=callback2.singleRun();
+            supplier2.get(callback2, context);
+        }
+        catch (Throwable throwable) {
+            callback2.failed(throwable);
+        }
+    }
+
     default boolean isEndNanosInTheFuture() {
         return isEndNanosInTheFuture(clock().nowNanos());
     }
@@ -0,0 +1,138 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Log;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs on a work stealing fork-join pool.
+ * Tasks submitted by a worker of the pool are forked to the local queue of the worker,
+ * the two halves of a {@link Lava#forkJoin(java.util.List)} are pushed to the forking worker,
+ * and the idle workers steal them.
+ * The results are joined by callbacks, a worker never blocks on a join.
+ * Lava tasks are never joined, the pool should be in async mode, see {@link #createPool(int)}.
+ * A pool in the default lifo mode runs the forked tasks depth first.
+ * <p>
+ * The pool doesn't support delays, the timers are scheduled on a scheduler,
+ * which only submits the expired tasks to the pool.
+ * A single scheduler can be shared by any number of pools.
+ * A timer expiring after the pool was shut down is logged, there's nothing left to run it.
+ */
+public class ForkJoinPoolContext extends ExecutorContext {
+    private static class SharedScheduler {
+        private static final @NotNull ScheduledExecutorService SCHEDULER=Executors.newSingleThreadScheduledExecutor(
+                (runnable)->{
+                    Thread thread=new Thread(runnable, ForkJoinPoolContext.class.getSimpleName()+"-scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private final @NotNull ForkJoinPool pool;
+    private final @NotNull ScheduledExecutorService scheduler;
+
+    public ForkJoinPoolContext(
+            @NotNull String debugMagic,
+            @Nullable Long endNanos,
+            @NotNull Log log,
+            @NotNull ForkJoinPool pool,
+            @NotNull ScheduledExecutorService scheduler) {
+        super(Clock.SYSTEM_NANO_TIME, debugMagic, endNanos, log, pool.getParallelism());
+        this.pool=Objects.requireNonNull(pool, "pool");
+        this.scheduler=Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    @Override
+    protected void checkClosedAndExecute(@NotNull Runnable runnable) {
+        Objects.requireNonNull(runnable, "runnable");
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("%s is shut down".formatted(pool));
+        }
+        if ((Thread.currentThread() instanceof ForkJoinWorkerThread workerThread)
+                && (pool==workerThread.getPool())) {
+            ForkJoinTask.adapt(runnable).fork();
+        }
+        else {
+            pool.execute(runnable);
+        }
+    }
+
+    @Override
+    protected @NotNull Runnable checkClosedAndSchedule(long delayNanos, @NotNull Runnable runnable) {
+        Objects.requireNonNull(runnable, "runnable");
+        if (0L<delayNanos) {
+            Future<?> future=scheduler.schedule(
+                    ()->{
+                        try {
+                            checkClosedAndExecute(runnable);
+                        }
+                        catch (Throwable throwable) {
+                            log().error(getClass(), throwable);
+                        }
+                    },
+                    delayNanos,
+                    TimeUnit.NANOSECONDS);
+            return ()->future.cancel(false);
+        }
+        else {
+            checkClosedAndExecute(runnable);
+            return ()->{
+            };
+        }
+    }
+
+    @Override
+    protected @NotNull Context context(@NotNull String debugMagic, @Nullable Long endNanos, @NotNull Log log) {
+        return new ForkJoinPoolContext(debugMagic, endNanos, log, pool, scheduler);
+    }
+
+    public static @NotNull ForkJoinPoolContext createDelayNanos(
+            long delayNanos,
+            @NotNull Log log,
+            @NotNull ForkJoinPool pool) {
+        return createDelayNanos(delayNanos, log, pool, sharedScheduler());
+    }
+
+    public static @NotNull ForkJoinPoolContext createDelayNanos(
+            long delayNanos,
+            @NotNull Log log,
+            @NotNull ForkJoinPool pool,
+            @NotNull ScheduledExecutorService scheduler) {
+        return createEndNanos(Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(delayNanos), log, pool, scheduler);
+    }
+
+    public static @NotNull ForkJoinPoolContext createEndNanos(
+            @Nullable Long endNanos,
+            @NotNull Log log,
+            @NotNull ForkJoinPool pool) {
+        return createEndNanos(endNanos, log, pool, sharedScheduler());
+    }
+
+    public static @NotNull ForkJoinPoolContext createEndNanos(
+            @Nullable Long endNanos,
+            @NotNull Log log,
+            @NotNull ForkJoinPool pool,
+            @NotNull ScheduledExecutorService scheduler) {
+        return new ForkJoinPoolContext(ForkJoinPool.class.getSimpleName(), endNanos, log, pool, scheduler);
+    }
+
+    public static @NotNull ForkJoinPool createPool(int parallelism) {
+        return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * A single daemon thread, created on first use.
+     */
+    public static @NotNull ScheduledExecutorService sharedScheduler() {
+        return SharedScheduler.SCHEDULER;
+    }
+}
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 @FunctionalInterface
 public interface Lava<T> {
@@ -25,6 +26,13 @@ public interface Lava<T> {
             this.type=Objects.requireNonNull(type, "type");
         }
 
+        @Override
+        public @Nullable Lava<T> fuse() {
+            return (supplier instanceof CompleteSupplier<T>)
+                    ?supplier
+                    :null;
+        }
+
         @Override
         public void get(@NotNull Callback<T> callback, @NotNull Context context) {
             try {
@@ -54,6 +62,10 @@ public interface Lava<T> {
         public String toString() {
             return "CompleteSupplier("+value+")";
         }
+
+        public T value() {
+            return value;
+        }
     }
 
     class CompositionSupplier<T, U> implements Lava<U> {
@@ -66,6 +78,13 @@ public interface Lava<T> {
             this.supplier=Objects.requireNonNull(supplier, "supplier");
         }
 
+        @Override
+        public @Nullable Lava<U> fuse() throws Throwable {
+            return (supplier instanceof CompleteSupplier<T> complete)
+                    ?Objects.requireNonNull(function.apply(complete.value), "newSupplier")
+                    :null;
+        }
+
         @Override
         public void get(@NotNull Callback<U> callback, @NotNull Context context) {
             context.get(callback.compose(context, function), supplier);
@@ -190,10 +209,14 @@ public interface Lava<T> {
             this.supplier=Objects.requireNonNull(supplier, "supplier");
         }
 
+        @Override
+        public @NotNull Lava<T> fuse() throws Throwable {
+            return Objects.requireNonNull(supplier.get(), "supplier.get()");
+        }
+
         @Override
         public void get(@NotNull Callback<T> callback, @NotNull Context context) throws Throwable {
-            @NotNull Lava<T> supplier2=Objects.requireNonNull(supplier.get(), "supplier.get()");
-            context.get(callback, supplier2);
+            context.get(callback, fuse());
         }
 
         @Override
@@ -337,6 +360,17 @@ public interface Lava<T> {
         };
     }
 
+    /**
+     * Fusing lets a context evaluate a chain of lavas in a single task,
+     * without allocating the callbacks and tasks of the intermediate steps.
+     *
+     * @return an equivalent lava, which is one step closer to the result,
+     * or null when this can't be evaluated without a callback
+     */
+    default @Nullable Lava<T> fuse() throws Throwable {
+        return null;
+    }
+
     /**
      * most times you should call this through Context.get()
      */
@@ -0,0 +1,12 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Function;
+import org.jetbrains.annotations.NotNull;
+
+public interface LeasePool<U> extends Closeable {
+    <V> @NotNull Lava<V> lease(@NotNull Function<U, @NotNull Lava<V>> function);
+
+    @NotNull Lava<@NotNull PoolStatistics> statistics();
+
+    @NotNull Lava<Void> warmUp();
+}
@@ -0,0 +1,240 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.net.ClosedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The pooled objects are shared between leases,
+ * an object is leased by at most max-leases-per-object leases at the same time.
+ * The pool counts leases, not the operations run by them,
+ * a lease should run one operation at a time for the limit to cap the operations in flight on an object.
+ * A lease takes the least leased object, a new object is created while the objects are leased and the pool is not full.
+ * When all the objects are leased max-leases-per-object times the leases wait for a lease to end.
+ * <p>
+ * An object unwrapped as not reusable is removed from the pool, and closed after its last lease ended.
+ * Objects are unwrapped when their leases end, failed or not, there are no keep-alive probes of idle objects.
+ */
+public class MultiplexedPool<T, U> implements LeasePool<U> {
+    private class SharedObject {
+        private int leases;
+        private final T object;
+        private boolean removed;
+
+        public SharedObject(T object) {
+            this.object=object;
+        }
+    }
+
+    private final @NotNull Function<T, @NotNull Lava<Void>> close;
+    private boolean closed;
+    private final Lock.Condition closeCondition;
+    private final @NotNull Supplier<@NotNull Lava<T>> create;
+    private int creating;
+    private final Lock lock=new Lock();
+    private final Lock.Condition lockCondition;
+    private final @NotNull Log log;
+    private final int maxLeasesPerObject;
+    private final @NotNull List<@NotNull SharedObject> objects;
+    private final int size;
+    private final @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap;
+    private int waiting;
+    private final @NotNull Function<T, @NotNull Lava<U>> wrap;
+
+    public MultiplexedPool(
+            @NotNull Function<T, @NotNull Lava<Void>> close,
+            @NotNull Supplier<@NotNull Lava<T>> create, @NotNull Log log, int maxLeasesPerObject, int size,
+            @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap,
+            @NotNull Function<T, @NotNull Lava<U>> wrap) {
+        if (0>=maxLeasesPerObject) {
+            throw new IllegalArgumentException("0 >= maxLeasesPerObject %d".formatted(maxLeasesPerObject));
+        }
+        if (0>=size) {
+            throw new IllegalArgumentException("0 >= size %d".formatted(size));
+        }
+        this.close=Objects.requireNonNull(close, "close");
+        this.create=Objects.requireNonNull(create, "create");
+        this.log=Objects.requireNonNull(log, "log");
+        this.maxLeasesPerObject=maxLeasesPerObject;
+        this.size=size;
+        this.unwrap=Objects.requireNonNull(unwrap, "unwrap");
+        this.wrap=Objects.requireNonNull(wrap, "wrap");
+        closeCondition=lock.newCondition();
+        lockCondition=lock.newCondition();
+        objects=new ArrayList<>(size);
+    }
+
+    @Override
+    public @NotNull Lava<Void> close() {
+        return lock.enter(()->{
+                    closed=true;
+                    return lockCondition.signalAll()
+                            .composeIgnoreResult(this::closeCriticalSection);
+                })
+                .compose((objects2)->Lava.forkJoin(
+                        objects2.stream()
+                                .<@NotNull Supplier<@NotNull Lava<Void>>>map((object)->()->close.apply(object))
+                                .toList()))
+                .composeIgnoreResult(()->Lava.VOID);
+    }
+
+    /**
+     * Waits for the leases to end, the removed objects are closed by their last lease.
+     */
+    private @NotNull Lava<@NotNull List<T>> closeCriticalSection() {
+        if ((0<creating) || objects.stream().anyMatch((object)->0<object.leases)) {
+            return Lava.checkEndNanos(MultiplexedPool.class+".close() lease timeout")
+                    .composeIgnoreResult(closeCondition::awaitEndNanos)
+                    .composeIgnoreResult(this::closeCriticalSection);
+        }
+        List<T> objects2=new ArrayList<>(objects.size());
+        for (SharedObject object: objects) {
+            object.removed=true;
+            objects2.add(object.object);
+        }
+        objects.clear();
+        return Lava.complete(objects2);
+    }
+
+    private @NotNull Lava<@NotNull SharedObject> create() {
+        return Lava.catchErrors(
+                        (throwable)->lock.enter(()->{
+                            --creating;
+                            return signalAll()
+                                    .composeIgnoreResult(()->Lava.fail(throwable));
+                        }),
+                        ()->Lava.supplier(create),
+                        Throwable.class)
+                .compose((object)->lock.enter(()->{
+                    --creating;
+                    SharedObject sharedObject=new SharedObject(object);
+                    sharedObject.leases=1;
+                    if (closed) {
+                        sharedObject.removed=true;
+                    }
+                    else {
+                        objects.add(sharedObject);
+                    }
+                    return signalAll()
+                            .composeIgnoreResult(()->Lava.complete(sharedObject));
+                }));
+    }
+
+    @Override
+    public <V> @NotNull Lava<V> lease(@NotNull Function<U, @NotNull Lava<V>> function) {
+        Objects.requireNonNull(function, "function");
+        return lock.enter(this::leaseCriticalSection)
+                .compose(Function::identity)
+                .compose((object)->Lava.finallyGet(
+                        ()->release(object, false),
+                        ()->wrap.apply(object.object)
+                                .compose((wrapped)->Lava.finallyGet(
+                                        ()->unwrap.apply(wrapped)
+                                                .compose((reusable)->Boolean.TRUE.equals(reusable)
+                                                        ?Lava.VOID
+                                                        :release(object, true)),
+                                        ()->function.apply(wrapped)))));
+    }
+
+    /**
+     * @return the object to lease, or the creation of a new one
+     */
+    private @NotNull Lava<@NotNull Lava<@NotNull SharedObject>> leaseCriticalSection() {
+        if (closed) {
+            throw new ClosedException();
+        }
+        @Nullable SharedObject leastLeased=null;
+        for (SharedObject object: objects) {
+            if ((maxLeasesPerObject>object.leases) && ((null==leastLeased) || (leastLeased.leases>object.leases))) {
+                leastLeased=object;
+            }
+        }
+        if (((null==leastLeased) || (0<leastLeased.leases)) && (size>objects.size()+creating)) {
+            ++creating;
+            return Lava.complete(create());
+        }
+        if (null!=leastLeased) {
+            ++leastLeased.leases;
+            return Lava.complete(Lava.complete(leastLeased));
+        }
+        ++waiting;
+        return Lava.finallyGet(
+                        ()->{
+                            --waiting;
+                            return Lava.VOID;
+                        },
+                        ()->Lava.checkEndNanos(MultiplexedPool.class+".lease() timeout")
+                                .composeIgnoreResult(lockCondition::awaitEndNanos))
+                .composeIgnoreResult(this::leaseCriticalSection);
+    }
+
+    /**
+     * @param remove remove the object from the pool instead of ending a lease
+     */
+    private @NotNull Lava<Void> release(@NotNull SharedObject object, boolean remove) {
+        return lock.enter(()->{
+                    boolean close2;
+                    if (remove) {
+                        if (!object.removed) {
+                            object.removed=true;
+                            objects.remove(object);
+                        }
+                        close2=false;
+                    }
+                    else {
+                        --object.leases;
+                        close2=object.removed && (0>=object.leases);
+                    }
+                    // a lease ending frees a single lease, removing an object frees the capacity to create a new one,
+                    // close waits on its own condition, a single signal must not be taken by it
+                    return (remove
+                            ?lockCondition.signalAll()
+                            :lockCondition.signal())
+                            .composeIgnoreResult(closeCondition::signalAll)
+                            .composeIgnoreResult(()->Lava.complete(close2));
+                })
+                .compose((close2)->close2
+                        ?Lava.catchErrors(
+                                (throwable)->{
+                                    log.error(MultiplexedPool.class, throwable);
+                                    return Lava.VOID;
+                                },
+                                ()->close.apply(object.object),
+                                Throwable.class)
+                        :Lava.VOID);
+    }
+
+    private @NotNull Lava<Void> signalAll() {
+        return lockCondition.signalAll()
+                .composeIgnoreResult(closeCondition::signalAll);
+    }
+
+    @Override
+    public @NotNull Lava<@NotNull PoolStatistics> statistics() {
+        return lock.enter(()->{
+            int idle=0;
+            int leased=creating;
+            for (SharedObject object: objects) {
+                if (0>=object.leases) {
+                    ++idle;
+                }
+                leased+=object.leases;
+            }
+            return Lava.complete(new PoolStatistics(idle, leased, waiting));
+        });
+    }
+
+    /**
+     * The objects are created by the leases.
+     */
+    @Override
+    public @NotNull Lava<Void> warmUp() {
+        return Lava.VOID;
+    }
+}
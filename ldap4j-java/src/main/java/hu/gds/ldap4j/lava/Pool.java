@@ -5,71 +5,155 @@ import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.Log;
 import hu.gds.ldap4j.Supplier;
 import hu.gds.ldap4j.net.ClosedException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-public class Pool<T, U> implements Closeable {
-    private class KeepAliveLease {
-        boolean leased;
-        @Nullable PooledObject object;
+/**
+ * The pooled objects are split between shards.
+ * Every shard has its own lock and idle objects, and leases prefer the idle objects of their home shard.
+ * A lease steals an idle object from an other shard before it creates a new one.
+ * When all the shards are exhausted the leases wait in a single fifo queue,
+ * a returned object is handed to the first waiter, and new leases don't overtake the waiters.
+ * <p>
+ * {@link #warmUp()} creates the initial objects in parallel.
+ * The pool creates new objects in the background when there are less than min-idle idle objects,
+ * after a lease took an idle object, or an object was closed.
+ * <p>
+ * Objects idle for longer than max-idle, or older than max-lifetime are closed instead of being leased,
+ * and by the keep-alive loop. An idle object is due at the earliest of its next keep-alive and its expiry.
+ * An object failing its keep-alive when leased is closed, and the lease gets a new object instead.
+ * <p>
+ * The events of the pool are reported to a {@link PoolListener}, the gauges are read by {@link #statistics()}.
+ */
+public class Pool<T, U> implements LeasePool<U> {
+    private abstract class AbstractLease {
+        protected boolean leased;
+        protected @Nullable PooledObject object;
+        protected @Nullable Shard shard;
 
-        @NotNull Lava<Void> keepAlive() {
-            return Lava.finallyList(List.of(
-                    ()->{
+        protected @NotNull Lava<Void> closeObject() throws Throwable {
+            if (null==object) {
+                return Lava.VOID;
+            }
+            T object2=object.object;
+            object=null;
+            return Pool.this.closeObject(object2);
+        }
+
+        /**
+         * Leaves an expired object to be closed, keeps the others alive, and returns them to the shard.
+         */
+        protected @NotNull Lava<Void> keepAliveAndReturnObject() {
+            return Lava.nowNanos()
+                    .compose((nowNanos)->{
                         if (null==object) {
                             throw new IllegalStateException();
                         }
+                        if (object.isExpired(nowNanos)) {
+                            listenerEvent(listener::expired);
+                            return Lava.VOID;
+                        }
                         return object.keepAlive()
-                                .composeIgnoreResult(()->lock.enter(()->{
-                                    if (closed) {
-                                        return Lava.VOID;
-                                    }
-                                    if (!leased) {
-                                        throw new IllegalStateException();
-                                    }
-                                    if (null==object) {
-                                        throw new IllegalStateException();
-                                    }
-                                    return Lava.nowNanos()
-                                            .compose((nowNanos)->{
-                                                leased=false;
-                                                --leasedObjects;
-                                                queue.add(nowNanos, object);
-                                                object=null;
-                                                return lockCondition.signalAll();
-                                            });
-                                }));
-                    },
-                    ()->{
-                        if (null==object) {
+                                .composeIgnoreResult(this::returnObject);
+                    });
+        }
+
+        /**
+         * @param fill create a replacement if there are less than min-idle idle objects
+         */
+        protected @NotNull Lava<Void> release(boolean fill) {
+            if (!leased) {
+                return Lava.VOID;
+            }
+            Shard shard2=shard();
+            return shard2.lock.enter(()->{
+                        leased=false;
+                        --shard2.leasedObjects;
+                        if (null!=object) {
+                            throw new IllegalStateException();
+                        }
+                        return shard2.lockCondition.signalAll();
+                    })
+                    .composeIgnoreResult(()->handOff(shard2))
+                    .composeIgnoreResult(()->fill
+                            ?fill(shard2)
+                            :Lava.VOID);
+        }
+
+        protected @NotNull Lava<Void> returnObject() {
+            Shard shard2=shard();
+            return shard2.lock.enter(()->{
+                        if (shard2.closed) {
                             return Lava.VOID;
                         }
-                        T object2=object.object;
-                        object=null;
-                        return close.apply(object2);
-                    },
-                    ()->{
                         if (!leased) {
-                            return Lava.VOID;
+                            throw new IllegalStateException();
+                        }
+                        if (null==object) {
+                            throw new IllegalStateException();
                         }
-                        return lock.enter(()->{
-                            leased=false;
-                            --leasedObjects;
-                            if (null!=object) {
-                                throw new IllegalStateException();
-                            }
-                            return lockCondition.signalAll();
-                        });
-                    }));
+                        return Lava.nowNanos()
+                                .compose((nowNanos)->{
+                                    leased=false;
+                                    --shard2.leasedObjects;
+                                    object.idle(nowNanos);
+                                    shard2.queue.add(nowNanos, object);
+                                    object=null;
+                                    return shard2.lockCondition.signalAll();
+                                });
+                    })
+                    .composeIgnoreResult(()->handOff(shard2));
+        }
+
+        protected @NotNull Shard shard() {
+            if (null==shard) {
+                throw new IllegalStateException();
+            }
+            return shard;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Event {
+        void event(long nanos, @Nullable Throwable throwable);
+    }
+
+    private class FillLease extends AbstractLease {
+        @NotNull Lava<Void> fill() {
+            Shard shard2=shard();
+            return Lava.finallyGet(
+                    ()->shard2.lock.enter(()->{
+                        --shard2.filling;
+                        return Lava.VOID;
+                    }),
+                    ()->Lava.finallyList(List.of(
+                            ()->Lava.nowNanos()
+                                    .compose((nowNanos)->createObject()
+                                            .compose((object2)->{
+                                                object=new PooledObject(nowNanos, object2);
+                                                return returnObject();
+                                            })),
+                            this::closeObject,
+                            ()->release(false))));
         }
     }
 
-    private class Lease implements Closeable {
-        private boolean leased;
-        private @Nullable PooledObject object;
+    private class KeepAliveLease extends AbstractLease {
+        @NotNull Lava<Void> keepAlive() {
+            return Lava.finallyList(List.of(
+                    this::keepAliveAndReturnObject,
+                    this::closeObject,
+                    ()->release(true)));
+        }
+    }
+
+    private class Lease extends AbstractLease implements Closeable {
         private @NotNull Either<U, Void> wrapped=Either.right(null);
 
         @Override
@@ -87,108 +171,124 @@ public class Pool<T, U> implements Closeable {
                                     if (null==object) {
                                         throw new IllegalStateException();
                                     }
-                                    return object.keepAlive()
-                                            .composeIgnoreResult(()->lock.enter(()->{
-                                                if (closed) {
-                                                    return Lava.VOID;
-                                                }
-                                                if (!leased) {
-                                                    throw new IllegalStateException();
-                                                }
-                                                if (null==object) {
-                                                    throw new IllegalStateException();
-                                                }
-                                                return Lava.nowNanos()
-                                                        .compose((nowNanos)->{
-                                                            leased=false;
-                                                            --leasedObjects;
-                                                            queue.add(nowNanos, object);
-                                                            object=null;
-                                                            return lockCondition.signalAll();
-                                                        });
-                                            }));
+                                    return Lava.nowNanos()
+                                            .compose((nowNanos)->{
+                                                object.idleSinceNanos=nowNanos;
+                                                return keepAliveAndReturnObject();
+                                            });
                                 });
                     },
-                    ()->{
-                        if (null==object) {
-                            return Lava.VOID;
-                        }
-                        T object2=object.object;
-                        object=null;
-                        return close.apply(object2);
-                    },
-                    ()->{
-                        if (!leased) {
-                            return Lava.VOID;
-                        }
-                        return lock.enter(()->{
-                            leased=false;
-                            --leasedObjects;
-                            if (null!=object) {
-                                throw new IllegalStateException();
-                            }
-                            return lockCondition.signalAll();
-                        });
-                    }));
-        }
-
-        @NotNull Lava<@NotNull Lava<@NotNull PooledObject>> factoryCriticalSection() {
-            if (closed) {
-                throw new ClosedException();
-            }
-            return Lava.nowNanos()
-                    .compose((nowNanos)->{
-                        if (!queue.isEmpty()) {
-                            leased=true;
-                            ++leasedObjects;
-                            return Lava.complete(Lava.complete(queue.removeMin(nowNanos)));
-                        }
-                        if (size>leasedObjects) {
-                            leased=true;
-                            ++leasedObjects;
-                            return Lava.complete(
-                                    Lava.supplier(create)
-                                            .compose((object)->Lava.complete(new PooledObject(nowNanos, object))));
-                        }
-                        return Lava.checkEndNanos(Pool.class+".lease() factory timeout")
-                                .composeIgnoreResult(lockCondition::awaitEndNanos)
-                                .composeIgnoreResult(this::factoryCriticalSection);
-                    });
+                    this::closeObject,
+                    ()->release(true)));
         }
 
-        <V> @NotNull Lava<V> lease(
-                @NotNull Lava<@NotNull PooledObject> factory,
-                @NotNull Function<U, @NotNull Lava<V>> function) {
+        private @NotNull Lava<Void> acquire(@NotNull Lava<@NotNull PooledObject> factory) {
             return factory.compose((factoryResult)->{
                         object=factoryResult;
-                        return object.keepAlive();
+                        return replaceExpiredObject();
                     })
                     .composeIgnoreResult(()->{
                         if (null==object) {
                             throw new IllegalStateException();
                         }
-                        return wrap.apply(object.object);
-                    })
-                    .compose((wrapResult)->{
-                        wrapped=Either.left(wrapResult);
-                        return function.apply(wrapResult);
+                        return Lava.catchErrors(
+                                (throwable)->replaceObject(),
+                                object::keepAlive,
+                                Throwable.class);
                     });
         }
 
         <V> @NotNull Lava<V> lease(@NotNull Function<U, @NotNull Lava<V>> function) {
+            int home=Math.floorMod(nextShard.getAndIncrement(), shards.size());
             return finallyClose(
-                    ()->lock.enter(this::factoryCriticalSection)
-                            .compose((factory)->lease(factory, function)));
+                    ()->listen(
+                            listener::leased,
+                            ()->Lava.supplier(()->{
+                                        if (0<waiting.get()) {
+                                            return leaseWait(home, this);
+                                        }
+                                        return leaseShards(0, home, this)
+                                                .compose((factory)->(null==factory)
+                                                        ?leaseWait(home, this)
+                                                        :Lava.complete(factory));
+                                    })
+                                    .compose((factory)->fill(shard())
+                                            .composeIgnoreResult(()->acquire(factory))))
+                            .composeIgnoreResult(()->{
+                                if (null==object) {
+                                    throw new IllegalStateException();
+                                }
+                                return wrap.apply(object.object);
+                            })
+                            .compose((wrapResult)->{
+                                wrapped=Either.left(wrapResult);
+                                return function.apply(wrapResult);
+                            }));
+        }
+
+        private @NotNull Lava<Void> replaceExpiredObject() {
+            return Lava.nowNanos()
+                    .compose((nowNanos)->{
+                        if ((null==object) || (!object.isExpired(nowNanos))) {
+                            return Lava.VOID;
+                        }
+                        listenerEvent(listener::expired);
+                        return replaceObject();
+                    });
+        }
+
+        /**
+         * Closes the object of this lease, and creates a new one in its place.
+         */
+        private @NotNull Lava<Void> replaceObject() throws Throwable {
+            return closeObject()
+                    .composeIgnoreResult(Pool.this::createObject)
+                    .compose((object2)->Lava.nowNanos()
+                            .compose((nowNanos)->{
+                                object=new PooledObject(nowNanos, object2);
+                                return Lava.VOID;
+                            }));
         }
     }
 
     private class PooledObject {
+        public final long createdNanos;
+        public long dueNanos;
+        public long idleSinceNanos;
         public long nextKeepAliveNanos;
         public final T object;
 
-        public PooledObject(long nextKeepAliveNanos, T object) {
-            this.nextKeepAliveNanos=nextKeepAliveNanos;
+        public PooledObject(long nowNanos, T object) {
             this.object=object;
+            createdNanos=nowNanos;
+            dueNanos=nowNanos;
+            idleSinceNanos=nowNanos;
+            nextKeepAliveNanos=nowNanos;
+        }
+
+        /**
+         * Updates the time the keep-alive loop has to look at this object, before it's queued.
+         */
+        public void idle(long nowNanos) {
+            dueNanos=nextKeepAliveNanos;
+            if (0L<maxIdleNanos) {
+                long idleEndNanos=idleSinceNanos+maxIdleNanos;
+                if (0>Clock.compareEndNanos(idleEndNanos, dueNanos, nowNanos)) {
+                    dueNanos=idleEndNanos;
+                }
+            }
+            if (0L<maxLifetimeNanos) {
+                long lifetimeEndNanos=createdNanos+maxLifetimeNanos;
+                if (0>Clock.compareEndNanos(lifetimeEndNanos, dueNanos, nowNanos)) {
+                    dueNanos=lifetimeEndNanos;
+                }
+            }
+        }
+
+        public boolean isExpired(long nowNanos) {
+            return ((0L<maxIdleNanos) && (!Clock.isEndNanosInTheFuture(idleSinceNanos+maxIdleNanos, nowNanos)))
+                    || ((0L<maxLifetimeNanos)
+                    && (!Clock.isEndNanosInTheFuture(createdNanos+maxLifetimeNanos, nowNanos)));
         }
 
         public @NotNull Lava<Void> keepAlive() {
@@ -200,32 +300,231 @@ public class Pool<T, U> implements Closeable {
                         nextKeepAliveNanos=Clock.delayNanosToEndNanos(keepAlivePeriodNanos, nowNanos);
                         return Lava.endNanos(
                                 Clock.delayNanosToEndNanos(keepAliveTimeoutNanos, nowNanos),
-                                ()->keepAlive.apply(object));
+                                ()->listen(listener::keepAlive, ()->keepAlive.apply(object)));
                     });
         }
     }
 
+    private class Shard {
+        private boolean closed;
+        private int filling;
+        private final int initialSize;
+        private boolean keepAliveRunning;
+        private int leasedObjects;
+        private final Lock lock=new Lock();
+        private final Lock.Condition lockCondition=lock.newCondition();
+        private final int minIdle;
+        private final @NotNull MinHeap<@NotNull PooledObject> queue;
+        private final int size;
+
+        public Shard(int initialSize, int minIdle, int size) {
+            this.initialSize=initialSize;
+            this.minIdle=minIdle;
+            this.size=size;
+            queue=new MinHeap<>(size, (pooledObject)->pooledObject.dueNanos);
+        }
+
+        private @NotNull Lava<Void> close() {
+            return lock.enter(()->{
+                        closed=true;
+                        return Lava.nowNanos()
+                                .compose((nowNanos)->{
+                                    List<T> objects=new ArrayList<>(queue.size());
+                                    while (!queue.isEmpty()) {
+                                        objects.add(queue.removeMin(nowNanos).object);
+                                    }
+                                    return lockCondition.signalAll()
+                                            .composeIgnoreResult(()->Lava.complete(objects));
+                                });
+                    })
+                    .compose(this::closePooled);
+        }
+
+        private @NotNull Lava<Void> closeKeepAliveLeasedCriticalSection() {
+            if ((!keepAliveRunning) && (0>=leasedObjects)) {
+                return Lava.VOID;
+            }
+            return Lava.checkEndNanos(Pool.class+".close() lease timeout")
+                    .composeIgnoreResult(lockCondition::awaitEndNanos)
+                    .composeIgnoreResult(this::closeKeepAliveLeasedCriticalSection);
+        }
+
+        private @NotNull Lava<Void> closePooled(@NotNull List<T> objects) {
+            return Lava.finallyGet(
+                    ()->lock.enter(this::closeKeepAliveLeasedCriticalSection),
+                    ()->Lava.forkJoin(
+                                    objects.stream()
+                                            .<@NotNull Supplier<@NotNull Lava<Void>>>map(
+                                                    (object)->()->closeObject(object))
+                                            .toList())
+                            .composeIgnoreResult(()->Lava.VOID));
+        }
+
+        /**
+         * Reserves the capacity for the new objects, the idle objects and the objects being created add up to idle.
+         */
+        private @NotNull Lava<@NotNull List<@NotNull FillLease>> fillCriticalSection(int idle) {
+            List<@NotNull FillLease> fills=new ArrayList<>();
+            while ((!closed) && (idle>queue.size()+filling) && (size>leasedObjects)) {
+                FillLease fill=new FillLease();
+                leased(fill);
+                ++filling;
+                fills.add(fill);
+            }
+            return Lava.complete(fills);
+        }
+
+        private @NotNull Lava<Void> keepAlive() {
+            return lock.enter(this::keepAliveCriticalSection)
+                    .compose(Function::identity);
+        }
+
+        private @NotNull Lava<@NotNull Lava<Void>> keepAliveCriticalSection() {
+            if (closed) {
+                return Lava.complete(Lava.VOID);
+            }
+            return Lava.checkEndNanos(Pool.class+".startKeepAlive() context timeout")
+                    .composeIgnoreResult(()->{
+                        if (queue.isEmpty()) {
+                            return lockCondition.awaitEndNanos()
+                                    .composeIgnoreResult(this::keepAliveCriticalSection);
+                        }
+                        return Lava.nowNanos()
+                                .compose((nowNanos)->{
+                                    PooledObject object=queue.peekMin();
+                                    if (Clock.isEndNanosInTheFuture(object.dueNanos, nowNanos)) {
+                                        return Lava.endNanos(
+                                                        object.dueNanos,
+                                                        lockCondition::awaitEndNanos)
+                                                .composeIgnoreResult(this::keepAliveCriticalSection);
+                                    }
+                                    KeepAliveLease keepAliveLease=new KeepAliveLease();
+                                    keepAliveLease.leased=true;
+                                    keepAliveLease.object=queue.removeMin(nowNanos);
+                                    keepAliveLease.shard=this;
+                                    ++leasedObjects;
+                                    return Lava.complete(Lava.supplier(
+                                            ()->Lava.catchErrors(
+                                                            (throwable)->{
+                                                                log.error(Pool.class, throwable);
+                                                                return Lava.VOID;
+                                                            },
+                                                            keepAliveLease::keepAlive,
+                                                            Throwable.class
+                                                    )
+                                                    .composeIgnoreResult(this::keepAlive)));
+                                });
+                    });
+        }
+
+        /**
+         * @return null if this shard has no idle object, and it cannot create a new one
+         */
+        private @NotNull Lava<@Nullable Lava<@NotNull PooledObject>> leaseCriticalSection(
+                boolean create, @NotNull AbstractLease lease) {
+            if (closed) {
+                throw new ClosedException();
+            }
+            return Lava.nowNanos()
+                    .compose((nowNanos)->{
+                        if (!queue.isEmpty()) {
+                            leased(lease);
+                            return Lava.complete(Lava.complete(queue.removeMin(nowNanos)));
+                        }
+                        if (create && (size>leasedObjects)) {
+                            leased(lease);
+                            return Lava.complete(
+                                    createObject()
+                                            .compose((object)->Lava.complete(new PooledObject(nowNanos, object))));
+                        }
+                        return Lava.complete(null);
+                    });
+        }
+
+        private void leased(@NotNull AbstractLease lease) {
+            lease.leased=true;
+            lease.shard=this;
+            ++leasedObjects;
+        }
+
+        private @NotNull Lava<Void> startKeepAlive(@NotNull Context context) {
+            return lock.enter(()->{
+                        if (closed) {
+                            throw new ClosedException();
+                        }
+                        if (keepAliveRunning) {
+                            throw new RuntimeException("keep-alive already started");
+                        }
+                        keepAliveRunning=true;
+                        return Lava.VOID;
+                    })
+                    .composeIgnoreResult(()->{
+                        context.get(
+                                new Callback.AbstractSingleRunCallback<>() {
+                                    private void completed() {
+                                        lock.enterSync(
+                                                context,
+                                                ()->{
+                                                    keepAliveRunning=false;
+                                                    lockCondition.signalAllSync();
+                                                });
+                                    }
+
+                                    @Override
+                                    protected void completedImpl(Void value) {
+                                        completed();
+                                    }
+
+                                    @Override
+                                    protected void failedImpl(@NotNull Throwable throwable) {
+                                        try {
+                                            log.error(getClass(), throwable);
+                                        }
+                                        finally {
+                                            completed();
+                                        }
+                                    }
+                                },
+                                Lava.supplier(this::keepAlive));
+                        return Lava.VOID;
+                    });
+        }
+    }
+
+    private class Waiter {
+        private final Lock.Condition condition=waitLock.newCondition();
+        private @Nullable Lava<@NotNull PooledObject> factory;
+        private final @NotNull Lease lease;
+
+        public Waiter(@NotNull Lease lease) {
+            this.lease=Objects.requireNonNull(lease, "lease");
+        }
+    }
+
     private final @NotNull Function<T, @NotNull Lava<Void>> close;
     private boolean closed;
     private final @NotNull Supplier<@NotNull Lava<T>> create;
     private final @NotNull Function<T, @NotNull Lava<Void>> keepAlive;
     private final long keepAlivePeriodNanos;
-    private boolean keepAliveRunning;
     private final long keepAliveTimeoutNanos;
-    private int leasedObjects;
-    private final Lock lock=new Lock();
-    private final Lock.Condition lockCondition=lock.newCondition();
+    private final @NotNull PoolListener listener;
     private final @NotNull Log log;
-    private final @NotNull MinHeap<@NotNull PooledObject> queue;
-    private final int size;
+    private final long maxIdleNanos;
+    private final long maxLifetimeNanos;
+    private final AtomicInteger nextShard=new AtomicInteger();
+    private final @NotNull List<@NotNull Shard> shards;
     private final @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap;
+    private final Deque<@NotNull Waiter> waiters=new ArrayDeque<>();
+    private final AtomicInteger waiting=new AtomicInteger();
+    private final Lock waitLock=new Lock();
     private final @NotNull Function<T, @NotNull Lava<U>> wrap;
 
     public Pool(
             @NotNull Function<T, @NotNull Lava<Void>> close,
-            @NotNull Supplier<@NotNull Lava<T>> create,
+            @NotNull Supplier<@NotNull Lava<T>> create, int initialSize,
             @NotNull Function<T, @NotNull Lava<Void>> keepAlive, long keepAlivePeriodNanos,
-            long keepAliveTimeoutNanos, @NotNull Log log, int size,
+            long keepAliveTimeoutNanos, @NotNull PoolListener listener, @NotNull Log log, long maxIdleNanos,
+            long maxLifetimeNanos, int minIdle, int shards, int size,
             @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap,
             @NotNull Function<T, @NotNull Lava<U>> wrap) {
         if (0L>keepAlivePeriodNanos) {
@@ -234,147 +533,328 @@ public class Pool<T, U> implements Closeable {
         if (0L>keepAliveTimeoutNanos) {
             throw new IllegalArgumentException("0 >= keepAliveTimeoutNanos %,d".formatted(keepAliveTimeoutNanos));
         }
+        if (0L>maxIdleNanos) {
+            throw new IllegalArgumentException("0 > maxIdleNanos %,d".formatted(maxIdleNanos));
+        }
+        if (0L>maxLifetimeNanos) {
+            throw new IllegalArgumentException("0 > maxLifetimeNanos %,d".formatted(maxLifetimeNanos));
+        }
         if (0>=size) {
             throw new IllegalArgumentException("0 >= size %d".formatted(size));
         }
+        if (0>=shards) {
+            throw new IllegalArgumentException("0 >= shards %d".formatted(shards));
+        }
+        if (size<shards) {
+            throw new IllegalArgumentException("size %d < shards %d".formatted(size, shards));
+        }
+        if ((0>initialSize) || (size<initialSize)) {
+            throw new IllegalArgumentException("initialSize %d, size %d".formatted(initialSize, size));
+        }
+        if ((0>minIdle) || (size<minIdle)) {
+            throw new IllegalArgumentException("minIdle %d, size %d".formatted(minIdle, size));
+        }
         this.close=Objects.requireNonNull(close, "close");
         this.create=Objects.requireNonNull(create, "create");
         this.keepAlive=Objects.requireNonNull(keepAlive, "keepAlive");
         this.keepAlivePeriodNanos=keepAlivePeriodNanos;
         this.keepAliveTimeoutNanos=keepAliveTimeoutNanos;
+        this.listener=Objects.requireNonNull(listener, "listener");
         this.log=Objects.requireNonNull(log, "log");
-        this.size=size;
+        this.maxIdleNanos=maxIdleNanos;
+        this.maxLifetimeNanos=maxLifetimeNanos;
         this.unwrap=Objects.requireNonNull(unwrap, "unwrap");
         this.wrap=Objects.requireNonNull(wrap, "wrap");
-        queue=new MinHeap<>(size, (pooledObject)->pooledObject.nextKeepAliveNanos);
+        List<@NotNull Shard> shards2=new ArrayList<>(shards);
+        for (int ii=0; shards>ii; ++ii) {
+            shards2.add(new Shard(
+                    share(initialSize, ii, shards),
+                    share(minIdle, ii, shards),
+                    share(size, ii, shards)));
+        }
+        this.shards=List.copyOf(shards2);
+    }
+
+    public Pool(
+            @NotNull Function<T, @NotNull Lava<Void>> close,
+            @NotNull Supplier<@NotNull Lava<T>> create, int initialSize,
+            @NotNull Function<T, @NotNull Lava<Void>> keepAlive, long keepAlivePeriodNanos,
+            long keepAliveTimeoutNanos, @NotNull Log log, long maxIdleNanos, long maxLifetimeNanos,
+            int minIdle, int shards, int size,
+            @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap,
+            @NotNull Function<T, @NotNull Lava<U>> wrap) {
+        this(
+                close, create, initialSize, keepAlive, keepAlivePeriodNanos, keepAliveTimeoutNanos,
+                PoolListener.NOOP, log, maxIdleNanos, maxLifetimeNanos, minIdle, shards, size, unwrap, wrap);
+    }
+
+    public Pool(
+            @NotNull Function<T, @NotNull Lava<Void>> close,
+            @NotNull Supplier<@NotNull Lava<T>> create, int initialSize,
+            @NotNull Function<T, @NotNull Lava<Void>> keepAlive, long keepAlivePeriodNanos,
+            long keepAliveTimeoutNanos, @NotNull Log log, int minIdle, int shards, int size,
+            @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap,
+            @NotNull Function<T, @NotNull Lava<U>> wrap) {
+        this(
+                close, create, initialSize, keepAlive, keepAlivePeriodNanos, keepAliveTimeoutNanos, log, 0L, 0L,
+                minIdle, shards, size, unwrap, wrap);
+    }
+
+    public Pool(
+            @NotNull Function<T, @NotNull Lava<Void>> close,
+            @NotNull Supplier<@NotNull Lava<T>> create,
+            @NotNull Function<T, @NotNull Lava<Void>> keepAlive, long keepAlivePeriodNanos,
+            long keepAliveTimeoutNanos, @NotNull Log log, int size,
+            @NotNull Function<U, @NotNull Lava<@NotNull Boolean>> unwrap,
+            @NotNull Function<T, @NotNull Lava<U>> wrap) {
+        this(
+                close, create, 0, keepAlive, keepAlivePeriodNanos, keepAliveTimeoutNanos, log, 0, 1, size,
+                unwrap, wrap);
     }
 
     @Override
     public @NotNull Lava<Void> close() {
-        return lock.enter(()->{
+        return waitLock.enter(()->{
                     closed=true;
-                    return Lava.nowNanos()
-                            .compose((nowNanos)->{
-                                List<T> objects=new ArrayList<>(queue.size());
-                                while (!queue.isEmpty()) {
-                                    objects.add(queue.removeMin(nowNanos).object);
-                                }
-                                return lockCondition.signalAll()
-                                        .composeIgnoreResult(()->Lava.complete(objects));
-                            });
+                    for (Waiter waiter: waiters) {
+                        waiter.condition.signalSync();
+                    }
+                    return Lava.VOID;
                 })
-                .compose(this::closePooled);
-    }
-
-    private @NotNull Lava<Void> closeKeepAliveLeasedCriticalSection() {
-        if ((!keepAliveRunning) && (0>=leasedObjects)) {
-            return Lava.VOID;
-        }
-        return Lava.checkEndNanos(Pool.class+".close() lease timeout")
-                .composeIgnoreResult(lockCondition::awaitEndNanos)
-                .composeIgnoreResult(this::closeKeepAliveLeasedCriticalSection);
+                .composeIgnoreResult(()->Lava.forkJoin(
+                        shards.stream()
+                                .<@NotNull Supplier<@NotNull Lava<Void>>>map((shard)->shard::close)
+                                .toList()))
+                .composeIgnoreResult(()->Lava.VOID);
     }
 
-    private @NotNull Lava<Void> closePooled(@NotNull List<T> objects) {
-        return Lava.finallyGet(
-                ()->lock.enter(this::closeKeepAliveLeasedCriticalSection),
-                ()->Lava.forkJoin(
-                                objects.stream()
-                                        .<@NotNull Supplier<@NotNull Lava<Void>>>map(
-                                                (object)->()->close.apply(object))
-                                        .toList())
-                        .composeIgnoreResult(()->Lava.VOID));
+    private @NotNull Lava<Void> closeObject(T object) {
+        return listen(listener::closed, ()->close.apply(object));
     }
 
-    private @NotNull Lava<Void> keepAlive() {
-        return lock.enter(this::keepAliveCriticalSection)
-                .compose(Function::identity);
+    private @NotNull Lava<T> createObject() {
+        return listen(listener::created, create);
     }
 
-    private @NotNull Lava<@NotNull Lava<Void>> keepAliveCriticalSection() {
-        if (closed) {
-            return Lava.complete(Lava.VOID);
+    private @NotNull Lava<Void> fill(@NotNull Shard shard) {
+        if (0>=shard.minIdle) {
+            return Lava.VOID;
         }
-        return Lava.checkEndNanos(Pool.class+".startKeepAlive() context timeout")
-                .composeIgnoreResult(()->{
-                    if (queue.isEmpty()) {
-                        return lockCondition.awaitEndNanos()
-                                .composeIgnoreResult(this::keepAliveCriticalSection);
+        return shard.lock.enter(()->shard.fillCriticalSection(shard.minIdle))
+                .compose((fills)->{
+                    if (fills.isEmpty()) {
+                        return Lava.VOID;
                     }
-                    return Lava.nowNanos()
-                            .compose((nowNanos)->{
-                                PooledObject object=queue.peekMin();
-                                if (Clock.isEndNanosInTheFuture(object.nextKeepAliveNanos, nowNanos)) {
-                                    return Lava.endNanos(
-                                                    object.nextKeepAliveNanos,
-                                                    lockCondition::awaitEndNanos)
-                                            .composeIgnoreResult(this::keepAliveCriticalSection);
-                                }
-                                KeepAliveLease keepAliveLease=new KeepAliveLease();
-                                keepAliveLease.leased=true;
-                                keepAliveLease.object=queue.removeMin(nowNanos);
-                                ++leasedObjects;
-                                return Lava.complete(Lava.supplier(
-                                        ()->Lava.catchErrors(
-                                                        (throwable)->{
-                                                            log.error(Pool.class, throwable);
-                                                            return Lava.VOID;
-                                                        },
-                                                        keepAliveLease::keepAlive,
-                                                        Throwable.class
-                                                )
-                                                .composeIgnoreResult(this::keepAlive)));
+                    return Lava.context()
+                            .compose((context)->{
+                                context.get(
+                                        new Callback.AbstractSingleRunCallback<>() {
+                                            @Override
+                                            protected void completedImpl(Void value) {
+                                            }
+
+                                            @Override
+                                            protected void failedImpl(@NotNull Throwable throwable) {
+                                                log.error(Pool.class, throwable);
+                                            }
+                                        },
+                                        fill(fills));
+                                return Lava.VOID;
                             });
                 });
     }
 
+    private @NotNull Lava<Void> fill(@NotNull List<@NotNull FillLease> fills) {
+        return Lava.forkJoin(
+                        fills.stream()
+                                .<@NotNull Supplier<@NotNull Lava<Void>>>map((fill)->()->Lava.catchErrors(
+                                        (throwable)->{
+                                            log.error(Pool.class, throwable);
+                                            return Lava.VOID;
+                                        },
+                                        fill::fill,
+                                        Throwable.class))
+                                .toList())
+                .composeIgnoreResult(()->Lava.VOID);
+    }
+
+    /**
+     * Hands the object just returned to the shard, or the capacity just freed, to the first waiter.
+     */
+    private @NotNull Lava<Void> handOff(@NotNull Shard shard) {
+        if (0>=waiting.get()) {
+            return Lava.VOID;
+        }
+        return waitLock.enter(()->{
+            if (closed || waiters.isEmpty()) {
+                return Lava.VOID;
+            }
+            Waiter waiter=waiters.getFirst();
+            return shard.lock.enter(()->shard.leaseCriticalSection(true, waiter.lease))
+                    .compose((factory)->{
+                        if (null==factory) {
+                            return Lava.VOID;
+                        }
+                        waiters.removeFirst();
+                        waiting.decrementAndGet();
+                        waiter.factory=factory;
+                        return waiter.condition.signal();
+                    });
+        });
+    }
+
+    @Override
     public <V> @NotNull Lava<V> lease(@NotNull Function<U, @NotNull Lava<V>> function) {
         Objects.requireNonNull(function, "function");
         return new Lease()
                 .lease(function);
     }
 
-    public @NotNull Lava<Void> startKeepAlive() {
-        return lock.enter(()->{
-                    if (closed) {
-                        throw new ClosedException();
-                    }
-                    if (keepAliveRunning) {
-                        throw new RuntimeException("keep-alive already started");
-                    }
-                    keepAliveRunning=true;
-                    return Lava.VOID;
-                })
-                .composeIgnoreResult(Lava::context)
-                .compose((context)->{
-                    context.get(
-                            new Callback.AbstractSingleRunCallback<>() {
-                                private void completed() {
-                                    lock.enterSync(
-                                            context,
-                                            ()->{
-                                                keepAliveRunning=false;
-                                                lockCondition.signalAllSync();
-                                            });
-                                }
+    /**
+     * Measures the supplier only when there's a listener.
+     */
+    private <V> @NotNull Lava<V> listen(@NotNull Event event, @NotNull Supplier<@NotNull Lava<V>> supplier) {
+        if (PoolListener.NOOP==listener) {
+            return Lava.supplier(supplier);
+        }
+        return Lava.nowNanos()
+                .compose((startNanos)->Lava.catchErrors(
+                                (throwable)->Lava.nowNanos()
+                                        .compose((endNanos)->{
+                                            listenerEvent(()->event.event(endNanos-startNanos, throwable));
+                                            return Lava.fail(throwable);
+                                        }),
+                                ()->Lava.supplier(supplier),
+                                Throwable.class)
+                        .compose((value)->Lava.nowNanos()
+                                .compose((endNanos)->{
+                                    listenerEvent(()->event.event(endNanos-startNanos, null));
+                                    return Lava.complete(value);
+                                })));
+    }
 
-                                @Override
-                                protected void completedImpl(Void value) {
-                                    completed();
-                                }
+    /**
+     * The errors of the listener are logged, they must not change the outcome of the operation reported.
+     */
+    private void listenerEvent(@NotNull Runnable event) {
+        try {
+            event.run();
+        }
+        catch (Throwable throwable) {
+            log.error(Pool.class, throwable);
+        }
+    }
 
-                                @Override
-                                protected void failedImpl(@NotNull Throwable throwable) {
-                                    try {
-                                        log.error(getClass(), throwable);
-                                    }
-                                    finally {
-                                        completed();
-                                    }
-                                }
-                            },
-                            Lava.supplier(this::keepAlive));
-                    return Lava.VOID;
+    /**
+     * Tries the idle objects of all the shards first, starting with the home shard, then tries to create a new one.
+     */
+    private @NotNull Lava<@Nullable Lava<@NotNull PooledObject>> leaseShards(
+            int attempt, int home, @NotNull Lease lease) {
+        if (2*shards.size()<=attempt) {
+            return Lava.complete(null);
+        }
+        Shard shard=shards.get((home+attempt)%shards.size());
+        return shard.lock.enter(()->shard.leaseCriticalSection(shards.size()<=attempt, lease))
+                .compose((factory)->(null==factory)
+                        ?leaseShards(attempt+1, home, lease)
+                        :Lava.complete(factory));
+    }
+
+    private @NotNull Lava<@NotNull Lava<@NotNull PooledObject>> leaseWait(int home, @NotNull Lease lease) {
+        return waitLock.enter(()->{
+            if (closed) {
+                throw new ClosedException();
+            }
+            // counted before the shards are checked, so an object returned meanwhile is handed off
+            waiting.incrementAndGet();
+            Lava<@Nullable Lava<@NotNull PooledObject>> factory=waiters.isEmpty()
+                    ?leaseShards(0, home, lease)
+                    :Lava.complete(null);
+            return factory.compose((factory2)->{
+                if (null!=factory2) {
+                    waiting.decrementAndGet();
+                    return Lava.complete(factory2);
+                }
+                Waiter waiter=new Waiter(lease);
+                waiters.addLast(waiter);
+                int waiting2=waiters.size();
+                listenerEvent(()->listener.saturated(waiting2));
+                return leaseWaitCriticalSection(waiter);
+            });
+        });
+    }
+
+    private @NotNull Lava<@NotNull Lava<@NotNull PooledObject>> leaseWaitCriticalSection(@NotNull Waiter waiter) {
+        if (null!=waiter.factory) {
+            return Lava.complete(waiter.factory);
+        }
+        return Lava.context()
+                .compose((context)->{
+                    long nowNanos=context.clock().nowNanos();
+                    if (closed || (!context.isEndNanosInTheFuture(nowNanos))) {
+                        waiters.remove(waiter);
+                        waiting.decrementAndGet();
+                        if (closed) {
+                            throw new ClosedException();
+                        }
+                        context.checkEndNanos(nowNanos, Pool.class+".lease() factory timeout");
+                        throw new IllegalStateException();
+                    }
+                    return waiter.condition.awaitEndNanos()
+                            .composeIgnoreResult(()->leaseWaitCriticalSection(waiter));
                 });
     }
+
+    private static int share(int value, int index, int shards) {
+        return value/shards+((value%shards>index)?1:0);
+    }
+
+    public @NotNull Lava<Void> startKeepAlive() {
+        return Lava.context()
+                .compose(this::startKeepAlive);
+    }
+
+    /**
+     * The keep-alive loops run in the context given, until the pool is closed or the context times out.
+     */
+    public @NotNull Lava<Void> startKeepAlive(@NotNull Context context) {
+        Objects.requireNonNull(context, "context");
+        return Lava.forkJoin(
+                        shards.stream()
+                                .<@NotNull Supplier<@NotNull Lava<Void>>>map(
+                                        (shard)->()->shard.startKeepAlive(context))
+                                .toList())
+                .composeIgnoreResult(()->Lava.VOID);
+    }
+
+    @Override
+    public @NotNull Lava<@NotNull PoolStatistics> statistics() {
+        return Lava.forkJoin(
+                        shards.stream()
+                                .<@NotNull Supplier<@NotNull Lava<@NotNull PoolStatistics>>>map(
+                                        (shard)->()->shard.lock.enter(()->Lava.complete(new PoolStatistics(
+                                                shard.queue.size(), shard.leasedObjects, 0))))
+                                .toList())
+                .compose((statistics)->Lava.complete(new PoolStatistics(
+                        statistics.stream().mapToInt(PoolStatistics::idle).sum(),
+                        statistics.stream().mapToInt(PoolStatistics::leased).sum(),
+                        waiting.get())));
+    }
+
+    /**
+     * Creates the initial and the min-idle objects in parallel, and waits for them.
+     * Failures are logged, the pool creates the missing objects later.
+     */
+    @Override
+    public @NotNull Lava<Void> warmUp() {
+        return Lava.forkJoin(
+                        shards.stream()
+                                .<@NotNull Supplier<@NotNull Lava<@NotNull List<@NotNull FillLease>>>>map(
+                                        (shard)->()->shard.lock.enter(()->shard.fillCriticalSection(
+                                                Math.max(shard.initialSize, shard.minIdle))))
+                                .toList())
+                .compose((fills)->fill(fills.stream()
+                        .flatMap(List::stream)
+                        .toList()));
+    }
 }
@@ -0,0 +1,44 @@
+package hu.gds.ldap4j.lava;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the events of a pool, the times are in nanoseconds.
+ * The throwable is null when the operation succeeded.
+ * Methods are called by the threads of the pool's context, they must not block.
+ * Exceptions thrown by the methods are logged, and don't affect the pool.
+ * The pool doesn't measure anything when its listener is {@link #NOOP}.
+ */
+public interface PoolListener {
+    @NotNull PoolListener NOOP=new PoolListener() {
+    };
+
+    default void closed(long closeNanos, @Nullable Throwable throwable) {
+    }
+
+    default void created(long createNanos, @Nullable Throwable throwable) {
+    }
+
+    /**
+     * Objects evicted by max-idle or max-lifetime.
+     */
+    default void expired() {
+    }
+
+    default void keepAlive(long keepAliveNanos, @Nullable Throwable throwable) {
+    }
+
+    /**
+     * @param waitNanos the time from the start of the lease until the object was ready to use,
+     *                  including the creation of the object
+     */
+    default void leased(long waitNanos, @Nullable Throwable throwable) {
+    }
+
+    /**
+     * A lease found the pool exhausted, and joined the waiting leases.
+     */
+    default void saturated(int waiting) {
+    }
+}
@@ -0,0 +1,12 @@
+package hu.gds.ldap4j.lava;
+
+/**
+ * @param idle the idle objects
+ * @param leased the leases in flight, including the objects being created or kept alive
+ * @param waiting the leases waiting for an object
+ */
+public record PoolStatistics(
+        int idle,
+        int leased,
+        int waiting) {
+}
@@ -84,6 +84,15 @@ public class SynchronizedWait {
         }
     }
 
+    /**
+     * Whether an await is parked on this wait, a signal would wake it up.
+     */
+    public boolean hasWaiters() {
+        synchronized (lock) {
+            return !deque.isEmpty();
+        }
+    }
+
     public void signal() {
         synchronized (lock) {
             if (!deque.isEmpty()) {
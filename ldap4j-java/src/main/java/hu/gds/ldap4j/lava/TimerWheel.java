@@ -0,0 +1,293 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Hashed hierarchical timer wheel.
+ * Arming and cancelling a timer is O(1), timers are kept in doubly linked buckets,
+ * there's no heap, and no per timer task in a scheduled executor.
+ * <p>
+ * Each of the {@value #LEVELS} levels has {@value #WHEEL_SIZE} buckets,
+ * a bucket of level n covers {@value #WHEEL_SIZE}^n ticks.
+ * When the wheel turns, the buckets of the higher levels are cascaded down to the lower ones.
+ * Timers further away than the last level are parked in the last level, and re-cascaded until they're due.
+ * <p>
+ * Timers never fire before their deadline, and fire at most a tick later.
+ * A single thread drives the wheel, it runs all the timers expired in a tick in one batch,
+ * the timers should only hand their work over to an executor.
+ * The thread sleeps while there's no timer armed.
+ */
+public class TimerWheel implements AutoCloseable {
+    private static class Timer {
+        private int bucket=-1;
+        private final long deadlineTick;
+        private @Nullable Timer next;
+        private @Nullable Timer previous;
+        private final @NotNull Runnable runnable;
+
+        public Timer(long deadlineTick, @NotNull Runnable runnable) {
+            this.deadlineTick=deadlineTick;
+            this.runnable=runnable;
+        }
+    }
+
+    public static final long DEFAULT_TICK_NANOS=1_000_000L;
+    public static final int LEVELS=6;
+    public static final int WHEEL_BITS=6;
+    public static final int WHEEL_SIZE=1<<WHEEL_BITS;
+    private static final long HORIZON_TICKS=1L<<(LEVELS*WHEEL_BITS);
+    private static final int WHEEL_MASK=WHEEL_SIZE-1;
+
+    private final @Nullable Timer @NotNull [] buckets=new Timer[LEVELS*WHEEL_SIZE];
+    private boolean closed;
+    private long currentTick;
+    private final Object lock=new Object();
+    private final @NotNull Log log;
+    private boolean sleeping;
+    private int size;
+    private final long startNanos;
+    private @Nullable Thread thread;
+    private final @Nullable ThreadFactory threadFactory;
+    private final long tickNanos;
+
+    public TimerWheel(@NotNull Log log, @Nullable ThreadFactory threadFactory, long tickNanos) {
+        if (0L>=tickNanos) {
+            throw new IllegalArgumentException("0 >= tickNanos %,d".formatted(tickNanos));
+        }
+        this.log=Objects.requireNonNull(log, "log");
+        this.threadFactory=threadFactory;
+        this.tickNanos=tickNanos;
+        startNanos=Clock.SYSTEM_NANO_TIME.nowNanos();
+    }
+
+    private void add(@NotNull Timer timer) {
+        long delta=timer.deadlineTick-currentTick;
+        long tick=timer.deadlineTick;
+        if (HORIZON_TICKS<=delta) {
+            tick=currentTick+HORIZON_TICKS-1L;
+            delta=HORIZON_TICKS-1L;
+        }
+        int level=0;
+        while ((LEVELS-1>level) && ((1L<<((level+1)*WHEEL_BITS))<=delta)) {
+            ++level;
+        }
+        int bucket=level*WHEEL_SIZE+(int)((tick>>>(level*WHEEL_BITS))&WHEEL_MASK);
+        timer.bucket=bucket;
+        timer.previous=null;
+        timer.next=buckets[bucket];
+        if (null!=timer.next) {
+            timer.next.previous=timer;
+        }
+        buckets[bucket]=timer;
+    }
+
+    /**
+     * Moves the timers of a bucket to the lower levels.
+     */
+    private void cascade(int bucket, @NotNull List<@NotNull Runnable> expired) {
+        @Nullable Timer timer=buckets[bucket];
+        buckets[bucket]=null;
+        while (null!=timer) {
+            @Nullable Timer next=timer.next;
+            if (currentTick>=timer.deadlineTick) {
+                expire(timer, expired);
+            }
+            else {
+                add(timer);
+            }
+            timer=next;
+        }
+    }
+
+    /**
+     * Stops the thread, the armed timers are dropped, and cancelling them is a no-op.
+     */
+    @Override
+    public void close() {
+        @Nullable Thread thread2;
+        synchronized (lock) {
+            closed=true;
+            thread2=thread;
+            thread=null;
+            for (int ii=buckets.length-1; 0<=ii; --ii) {
+                buckets[ii]=null;
+            }
+            size=0;
+        }
+        if (null!=thread2) {
+            LockSupport.unpark(thread2);
+        }
+    }
+
+    private void expire(@NotNull Timer timer, @NotNull List<@NotNull Runnable> expired) {
+        timer.bucket=-1;
+        timer.next=null;
+        timer.previous=null;
+        --size;
+        expired.add(timer.runnable);
+    }
+
+    private void remove(@NotNull Timer timer) {
+        if (0>timer.bucket) {
+            return;
+        }
+        if (null==timer.previous) {
+            buckets[timer.bucket]=timer.next;
+        }
+        else {
+            timer.previous.next=timer.next;
+        }
+        if (null!=timer.next) {
+            timer.next.previous=timer.previous;
+        }
+        timer.bucket=-1;
+        timer.next=null;
+        timer.previous=null;
+        --size;
+    }
+
+    private void run() {
+        List<@NotNull Runnable> expired=new ArrayList<>();
+        while (true) {
+            long parkNanos;
+            synchronized (lock) {
+                if (closed) {
+                    return;
+                }
+                long nowNanos=Clock.SYSTEM_NANO_TIME.nowNanos();
+                long nowTick=(nowNanos-startNanos)/tickNanos;
+                while ((0<size) && (currentTick<nowTick)) {
+                    turn(expired);
+                }
+                if (0>=size) {
+                    currentTick=Math.max(currentTick, nowTick);
+                    sleeping=true;
+                    parkNanos=-1L;
+                }
+                else {
+                    parkNanos=Math.max(1L, startNanos+(currentTick+1L)*tickNanos-nowNanos);
+                }
+            }
+            for (Runnable runnable: expired) {
+                try {
+                    runnable.run();
+                }
+                catch (Throwable throwable) {
+                    log.error(getClass(), throwable);
+                }
+            }
+            expired.clear();
+            if (0L>parkNanos) {
+                LockSupport.park(this);
+            }
+            else {
+                LockSupport.parkNanos(this, parkNanos);
+            }
+        }
+    }
+
+    /**
+     * @return cancels the timer, a no-op after the timer fired or the wheel closed
+     */
+    public @NotNull Runnable schedule(long delayNanos, @NotNull Runnable runnable) {
+        Objects.requireNonNull(runnable, "runnable");
+        long nowNanos=Clock.SYSTEM_NANO_TIME.nowNanos();
+        long endNanos=nowNanos+Math.max(0L, delayNanos);
+        // rounded up, timers must not fire early
+        long deadlineTick=(endNanos-startNanos+tickNanos-1L)/tickNanos;
+        Timer timer;
+        @Nullable Thread wakeUp=null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("timer wheel closed");
+            }
+            if (null==thread) {
+                throw new IllegalStateException("timer wheel not started");
+            }
+            if ((0>=size) || sleeping) {
+                // an empty wheel can skip the ticks of the idle period,
+                // otherwise the driver would turn through all of them holding the lock
+                currentTick=Math.max(currentTick, (nowNanos-startNanos)/tickNanos);
+            }
+            timer=new Timer(Math.max(currentTick+1L, deadlineTick), runnable);
+            add(timer);
+            ++size;
+            if (sleeping) {
+                sleeping=false;
+                wakeUp=thread;
+            }
+        }
+        if (null!=wakeUp) {
+            LockSupport.unpark(wakeUp);
+        }
+        return ()->{
+            synchronized (lock) {
+                // the buckets are dropped by close, the links of the timer are stale
+                if (!closed) {
+                    remove(timer);
+                }
+            }
+        };
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("timer wheel closed");
+            }
+            if (null!=thread) {
+                throw new IllegalStateException("timer wheel already started");
+            }
+            Runnable runnable=this::run;
+            Thread thread2;
+            if (null==threadFactory) {
+                thread2=new Thread(runnable, TimerWheel.class.getSimpleName());
+                thread2.setDaemon(true);
+            }
+            else {
+                thread2=threadFactory.newThread(runnable);
+            }
+            thread=thread2;
+            thread2.start();
+        }
+    }
+
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Advances the wheel by one tick, cascades the higher levels when a lower level wrapped around,
+     * and expires the current bucket of the first level.
+     */
+    private void turn(@NotNull List<@NotNull Runnable> expired) {
+        ++currentTick;
+        for (int level=1; LEVELS>level; ++level) {
+            if (0L!=(currentTick&((1L<<(level*WHEEL_BITS))-1L))) {
+                break;
+            }
+            cascade(level*WHEEL_SIZE+(int)((currentTick>>>(level*WHEEL_BITS))&WHEEL_MASK), expired);
+        }
+        int bucket=(int)(currentTick&WHEEL_MASK);
+        @Nullable Timer timer=buckets[bucket];
+        buckets[bucket]=null;
+        while (null!=timer) {
+            @Nullable Timer next=timer.next;
+            expire(timer, expired);
+            timer=next;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Log;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs on an executor, and schedules the timeouts on a {@link TimerWheel}.
+ * Arming and cancelling a timeout is O(1), and doesn't touch the executor,
+ * only the expired timeouts are submitted to it.
+ * A single timer wheel can be shared by any number of executors.
+ */
+public class TimerWheelContext extends ExecutorContext {
+    private final @NotNull Executor executor;
+    private final @NotNull TimerWheel timerWheel;
+
+    public TimerWheelContext(
+            @NotNull String debugMagic,
+            @Nullable Long endNanos,
+            @NotNull Executor executor,
+            @NotNull Log log,
+            int parallelism,
+            @NotNull TimerWheel timerWheel) {
+        super(Clock.SYSTEM_NANO_TIME, debugMagic, endNanos, log, parallelism);
+        this.executor=Objects.requireNonNull(executor, "executor");
+        this.timerWheel=Objects.requireNonNull(timerWheel, "timerWheel");
+    }
+
+    @Override
+    protected void checkClosedAndExecute(@NotNull Runnable runnable) {
+        Objects.requireNonNull(runnable, "runnable");
+        executor.execute(runnable);
+    }
+
+    @Override
+    protected @NotNull Runnable checkClosedAndSchedule(long delayNanos, @NotNull Runnable runnable) {
+        Objects.requireNonNull(runnable, "runnable");
+        if (0L<delayNanos) {
+            return timerWheel.schedule(delayNanos, ()->executor.execute(runnable));
+        }
+        else {
+            checkClosedAndExecute(runnable);
+            return ()->{
+            };
+        }
+    }
+
+    @Override
+    protected @NotNull Context context(@NotNull String debugMagic, @Nullable Long endNanos, @NotNull Log log) {
+        return new TimerWheelContext(debugMagic, endNanos, executor, log, parallelism(), timerWheel);
+    }
+
+    public static @NotNull TimerWheelContext createDelayNanos(
+            long delayNanos,
+            @NotNull Executor executor,
+            @NotNull Log log,
+            int parallelism,
+            @NotNull TimerWheel timerWheel) {
+        return createEndNanos(
+                Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(delayNanos), executor, log, parallelism, timerWheel);
+    }
+
+    public static @NotNull TimerWheelContext createEndNanos(
+            @Nullable Long endNanos,
+            @NotNull Executor executor,
+            @NotNull Log log,
+            int parallelism,
+            @NotNull TimerWheel timerWheel) {
+        return new TimerWheelContext(
+                TimerWheel.class.getSimpleName(), endNanos, executor, log, parallelism, timerWheel);
+    }
+}
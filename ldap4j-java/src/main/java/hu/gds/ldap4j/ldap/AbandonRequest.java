@@ -6,7 +6,7 @@ import org.jetbrains.annotations.NotNull;
 public record AbandonRequest(
         int messageId)
         implements Message<AbandonRequest> {
-    public static final byte REQUEST_TAG=0x70;
+    public static final byte REQUEST_TAG=0x50;
 
     @Override
     public @NotNull AbandonRequest self() {
@@ -19,4 +19,10 @@ public record AbandonRequest(
                 REQUEST_TAG,
                 BER.writeIntegerNoTag(messageId));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) {
+        writer.writeTagAndLength(REQUEST_TAG, BERWriter.integerSize(messageId));
+        writer.writeIntegerNoTag(messageId);
+    }
 }
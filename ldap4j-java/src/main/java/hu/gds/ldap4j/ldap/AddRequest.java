@@ -45,4 +45,18 @@ public record AddRequest(
                         .append(BER.writeSequence(
                                 attributesBuffer)));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeOctetStringTag(entry);
+                    writer2.writeSequence((writer3)->{
+                        for (PartialAttribute attribute: attributes) {
+                            attribute.write(writer3);
+                        }
+                    });
+                });
+    }
 }
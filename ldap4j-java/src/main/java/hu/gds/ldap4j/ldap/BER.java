@@ -55,6 +55,29 @@ public abstract class BER {
         return readTag(BER::readEnumeratedNoTag, reader, ENUMERATED);
     }
 
+    /**
+     * Reads only the tag and the length of the next value.
+     *
+     * @return the size of the next value including its tag and length, or -1 if the tag and length are incomplete
+     */
+    public static int readFrameSize(@NotNull ByteBuffer.Reader reader) throws Throwable {
+        int offset=reader.offset();
+        if (2>reader.remainingBytes()) {
+            return -1;
+        }
+        readTag(false, reader);
+        byte bb=reader.peekByte();
+        if ((0!=(bb&128)) && (reader.remainingBytes()<=(bb&127))) {
+            return -1;
+        }
+        long size=readLength(reader);
+        size+=reader.offset()-offset;
+        if (Integer.MAX_VALUE<size) {
+            throw new RuntimeException("frame too large, size: %,d bytes".formatted(size));
+        }
+        return (int)size;
+    }
+
     public static int readIntegerNoTag(boolean nonNegative, @NotNull ByteBuffer.Reader reader) throws Throwable {
         if (4<reader.remainingBytes()) {
             throw new RuntimeException("integer too large, size: %,d bytes".formatted(reader.remainingBytes()));
@@ -0,0 +1,249 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.Consumer;
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Two pass BER encoder.
+ * The first pass only measures the content length of every tag,
+ * the second pass writes the whole encoding into a single buffer of the exact size.
+ * The same consumer is run in both passes, it must write the same values both times.
+ */
+public final class BERWriter {
+    private @Nullable java.nio.ByteBuffer buffer;
+    private @Nullable ByteBuffer.Write.NioBuffer bufferWrite;
+    private int lengthIndex;
+    private int[] lengths=new int[16];
+    private int lengthsSize;
+    private int size;
+
+    private BERWriter() {
+    }
+
+    public static int integerSize(int value) {
+        if (0>value) {
+            value=~value;
+        }
+        if (0x80>value) {
+            return 1;
+        }
+        if (0x8000>value) {
+            return 2;
+        }
+        if (0x800000>value) {
+            return 3;
+        }
+        return 4;
+    }
+
+    public static int lengthSize(int length) {
+        if ((0>length)) {
+            throw new IllegalArgumentException("invalid length %d".formatted(length));
+        }
+        if (127>=length) {
+            return 1;
+        }
+        if (0xff>=length) {
+            return 2;
+        }
+        if (0xffff>=length) {
+            return 3;
+        }
+        if (0xffffff>=length) {
+            return 4;
+        }
+        return 5;
+    }
+
+    private void measure(@NotNull Consumer<@NotNull BERWriter> consumer) throws Throwable {
+        Objects.requireNonNull(consumer, "consumer");
+        consumer.accept(this);
+    }
+
+    /**
+     * @return the encoding in a new array buffer
+     */
+    public static @NotNull ByteBuffer write(@NotNull Consumer<@NotNull BERWriter> consumer) throws Throwable {
+        return ByteBuffer.create(writeArray(consumer));
+    }
+
+    /**
+     * @return the encoding in a new array buffer, or in a new direct nio buffer
+     */
+    public static @NotNull ByteBuffer write(
+            @NotNull Consumer<@NotNull BERWriter> consumer, boolean direct) throws Throwable {
+        if (direct) {
+            return ByteBuffer.create(writeNioBuffer(consumer, true));
+        }
+        return write(consumer);
+    }
+
+    public static byte @NotNull [] writeArray(@NotNull Consumer<@NotNull BERWriter> consumer) throws Throwable {
+        @NotNull BERWriter writer=new BERWriter();
+        writer.measure(consumer);
+        byte[] array=new byte[writer.size];
+        writer.writeSecondPass(consumer, java.nio.ByteBuffer.wrap(array));
+        return array;
+    }
+
+    public void writeBooleanNoTag(boolean value) {
+        writeByte((byte)(value?1:0));
+    }
+
+    public void writeBooleanTag(boolean value) {
+        writeTagAndLength(BER.BOOLEAN, 1);
+        writeBooleanNoTag(value);
+    }
+
+    private void writeByte(byte value) {
+        if (null==buffer) {
+            ++size;
+        }
+        else {
+            buffer.put(value);
+        }
+    }
+
+    public void writeByteBuffer(@NotNull ByteBuffer value) {
+        if (null==buffer) {
+            size+=value.size();
+        }
+        else {
+            value.write(Objects.requireNonNull(bufferWrite, "bufferWrite"));
+        }
+    }
+
+    public void writeEnumeratedNoTag(int value) {
+        writeIntegerNoTag(value);
+    }
+
+    public void writeEnumeratedTag(int value) {
+        writeTagAndLength(BER.ENUMERATED, integerSize(value));
+        writeEnumeratedNoTag(value);
+    }
+
+    public void writeIntegerNoTag(int value) {
+        if (null==buffer) {
+            size+=integerSize(value);
+        }
+        else {
+            for (int shift=8*(integerSize(value)-1); 0<=shift; shift-=8) {
+                buffer.put((byte)(value>>shift));
+            }
+        }
+    }
+
+    public void writeIntegerTag(int value) {
+        writeTagAndLength(BER.INTEGER, integerSize(value));
+        writeIntegerNoTag(value);
+    }
+
+    public static <T> void writeIterable(
+            @NotNull Consumer<T> consumer, @NotNull Iterable<T> iterable) throws Throwable {
+        for (T value: iterable) {
+            consumer.accept(value);
+        }
+    }
+
+    private void writeLength(int length) {
+        int lengthSize=lengthSize(length);
+        if (null==buffer) {
+            size+=lengthSize;
+        }
+        else if (1==lengthSize) {
+            buffer.put((byte)length);
+        }
+        else {
+            buffer.put((byte)(0x80+lengthSize-1));
+            for (int shift=8*(lengthSize-2); 0<=shift; shift-=8) {
+                buffer.put((byte)(length>>shift));
+            }
+        }
+    }
+
+    public static @NotNull java.nio.ByteBuffer writeNioBuffer(
+            @NotNull Consumer<@NotNull BERWriter> consumer, boolean direct) throws Throwable {
+        @NotNull BERWriter writer=new BERWriter();
+        writer.measure(consumer);
+        @NotNull java.nio.ByteBuffer buffer=direct
+                ?java.nio.ByteBuffer.allocateDirect(writer.size)
+                :java.nio.ByteBuffer.allocate(writer.size);
+        writer.writeSecondPass(consumer, buffer);
+        return buffer.flip();
+    }
+
+    public void writeOctetStringNoTag(@NotNull ByteBuffer value) {
+        writeByteBuffer(value);
+    }
+
+    public void writeOctetStringTag(@NotNull ByteBuffer value) {
+        writeTagAndLength(BER.OCTET_STRING, value.size());
+        writeOctetStringNoTag(value);
+    }
+
+    private void writeSecondPass(
+            @NotNull Consumer<@NotNull BERWriter> consumer, @NotNull java.nio.ByteBuffer buffer) throws Throwable {
+        this.buffer=buffer;
+        bufferWrite=new ByteBuffer.Write.NioBuffer(buffer);
+        lengthIndex=0;
+        consumer.accept(this);
+        if ((buffer.hasRemaining()) || (lengthsSize!=lengthIndex)) {
+            throw new IllegalStateException(
+                    "second pass differs from the first, remaining bytes %,d, remaining lengths %,d"
+                            .formatted(buffer.remaining(), lengthsSize-lengthIndex));
+        }
+    }
+
+    public void writeSequence(@NotNull Consumer<@NotNull BERWriter> content) throws Throwable {
+        writeTag(BER.SEQUENCE, content);
+    }
+
+    public void writeTag(byte tag, @NotNull Consumer<@NotNull BERWriter> content) throws Throwable {
+        if (31==(tag&31)) {
+            throw new RuntimeException("long form tags are not supported yet, first byte: 0x%x".formatted(tag));
+        }
+        if (null==buffer) {
+            if (lengths.length<=lengthsSize) {
+                lengths=Arrays.copyOf(lengths, 2*lengths.length);
+            }
+            int index=lengthsSize;
+            ++lengthsSize;
+            int start=size;
+            content.accept(this);
+            int length=size-start;
+            lengths[index]=length;
+            size+=1+lengthSize(length);
+        }
+        else {
+            if (lengthsSize<=lengthIndex) {
+                throw new IllegalStateException("second pass differs from the first, too many tags");
+            }
+            int length=lengths[lengthIndex];
+            ++lengthIndex;
+            buffer.put(tag);
+            writeLength(length);
+            int start=buffer.position();
+            content.accept(this);
+            if (buffer.position()-start!=length) {
+                throw new IllegalStateException(
+                        "second pass differs from the first, tag 0x%x, expected length %,d, actual length %,d"
+                                .formatted(tag, length, buffer.position()-start));
+            }
+        }
+    }
+
+    /**
+     * Writes a tag with a known content length, the content must be written by the caller.
+     */
+    public void writeTagAndLength(byte tag, int length) {
+        if (31==(tag&31)) {
+            throw new RuntimeException("long form tags are not supported yet, first byte: 0x%x".formatted(tag));
+        }
+        writeByte(tag);
+        writeLength(length);
+    }
+}
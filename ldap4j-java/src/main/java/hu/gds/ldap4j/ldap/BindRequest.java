@@ -35,6 +35,18 @@ public record BindRequest(
                         AUTHENTICATION_CHOICE_SASL_TAG,
                         saslBuffer);
             }
+
+            @Override
+            public void write(@NotNull BERWriter writer) throws Throwable {
+                writer.writeTag(
+                        AUTHENTICATION_CHOICE_SASL_TAG,
+                        (writer2)->{
+                            writer2.writeOctetStringTag(mechanism);
+                            if (null!=credentials) {
+                                writer2.writeOctetStringTag(credentials);
+                            }
+                        });
+            }
         }
 
         record Simple(
@@ -55,11 +67,19 @@ public record BindRequest(
                         AUTHENTICATION_CHOICE_SIMPLE_TAG,
                         BER.writeOctetStringNoTag(password));
             }
+
+            @Override
+            public void write(@NotNull BERWriter writer) {
+                writer.writeTagAndLength(AUTHENTICATION_CHOICE_SIMPLE_TAG, password.size());
+                writer.writeOctetStringNoTag(password);
+            }
         }
 
         @NotNull MessageReader<BindResponse> responseReader();
 
         @NotNull ByteBuffer write();
+
+        void write(@NotNull BERWriter writer) throws Throwable;
     }
     
     public static final byte AUTHENTICATION_CHOICE_SASL_TAG=(byte)0xa3;
@@ -128,4 +148,15 @@ public record BindRequest(
                         .append(BER.writeOctetStringTag(name))
                         .append(authentication.write()));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeIntegerTag(version);
+                    writer2.writeOctetStringTag(name);
+                    authentication.write(writer2);
+                });
+    }
 }
@@ -37,4 +37,14 @@ public record CompareRequest(
                 BER.writeOctetStringTag(entry)
                         .append(attributeValueAssertion.write()));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeOctetStringTag(entry);
+                    attributeValueAssertion.write(writer2);
+                });
+    }
 }
@@ -100,6 +100,18 @@ public record Control(
         return BER.writeSequence(buffer);
     }
 
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeSequence((writer2)->{
+            writer2.writeOctetStringTag(controlType);
+            if (criticality || (null!=controlValue)) {
+                writer2.writeBooleanTag(criticality);
+            }
+            if (null!=controlValue) {
+                writer2.writeOctetStringTag(controlValue);
+            }
+        });
+    }
+
     public static @NotNull ByteBuffer writeControls(@NotNull List<@NotNull Control> controls) {
         if (controls.isEmpty()) {
             return ByteBuffer.empty();
@@ -110,4 +122,18 @@ public record Control(
         }
         return BER.writeTag(CONTROLS_TAG, buffer);
     }
+
+    public static void writeControls(
+            @NotNull List<@NotNull Control> controls, @NotNull BERWriter writer) throws Throwable {
+        if (controls.isEmpty()) {
+            return;
+        }
+        writer.writeTag(
+                CONTROLS_TAG,
+                (writer2)->{
+                    for (Control control: controls) {
+                        control.write(writer2);
+                    }
+                });
+    }
 }
@@ -34,4 +34,10 @@ public record DeleteRequest(
                 REQUEST_TAG,
                 BER.writeOctetStringNoTag(entry));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) {
+        writer.writeTagAndLength(REQUEST_TAG, entry.size());
+        writer.writeOctetStringNoTag(entry);
+    }
 }
@@ -18,4 +18,8 @@ public enum DerefAliases {
     public @NotNull ByteBuffer write() {
         return BER.writeEnumeratedTag(value);
     }
+
+    public void write(@NotNull BERWriter writer) {
+        writer.writeEnumeratedTag(value);
+    }
 }
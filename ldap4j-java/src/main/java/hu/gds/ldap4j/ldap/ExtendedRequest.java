@@ -78,4 +78,18 @@ public record ExtendedRequest(
         }
         return BER.writeTag(REQUEST_TAG, byteBuffer);
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeTagAndLength(REQUEST_NAME_TAG, requestName.size());
+                    writer2.writeOctetStringNoTag(requestName);
+                    if (null!=requestValue) {
+                        writer2.writeTagAndLength(REQUEST_VALUE_TAG, requestValue.size());
+                        writer2.writeOctetStringNoTag(requestValue);
+                    }
+                });
+    }
 }
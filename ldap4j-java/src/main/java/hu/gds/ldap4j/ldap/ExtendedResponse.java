@@ -85,4 +85,21 @@ public record ExtendedResponse(
                 RESPONSE_TAG,
                 contentBuffer);
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                RESPONSE_TAG,
+                (writer2)->{
+                    ldapResult.write(writer2);
+                    if (null!=responseName) {
+                        writer2.writeTagAndLength(RESPONSE_NAME_TAG, responseName.size());
+                        writer2.writeOctetStringNoTag(responseName);
+                    }
+                    if (null!=responseValue) {
+                        writer2.writeTagAndLength(RESPONSE_VALUE_TAG, responseValue.size());
+                        writer2.writeOctetStringNoTag(responseValue);
+                    }
+                });
+    }
 }
@@ -84,6 +84,12 @@ public abstract class Filter {
             return BER.writeOctetStringTag(attributeDescription)
                     .append(BER.writeOctetStringTag(assertionValue));
         }
+
+        @Override
+        protected void writeContent(@NotNull BERWriter writer) {
+            writer.writeOctetStringTag(attributeDescription);
+            writer.writeOctetStringTag(assertionValue);
+        }
     }
 
     public static class EqualityMatch extends AttributeValueAssertion {
@@ -169,6 +175,24 @@ public abstract class Filter {
             }
             return result;
         }
+
+        @Override
+        protected void writeContent(@NotNull BERWriter writer) {
+            if (null!=matchingRule) {
+                writer.writeTagAndLength(EXTENSIBLE_MATCH_MATCHING_RULE_TAG, matchingRule.size());
+                writer.writeOctetStringNoTag(matchingRule);
+            }
+            if (null!=type) {
+                writer.writeTagAndLength(EXTENSIBLE_MATCH_TYPE_TAG, type.size());
+                writer.writeOctetStringNoTag(type);
+            }
+            writer.writeTagAndLength(EXTENSIBLE_MATCH_MATCH_VALUE_TAG, matchValue.size());
+            writer.writeOctetStringNoTag(matchValue);
+            if (dnAttributes) {
+                writer.writeTagAndLength(EXTENSIBLE_MATCH_DN_ATTRIBUTES_TAG, 1);
+                writer.writeBooleanNoTag(true);
+            }
+        }
     }
 
     public static class GreaterOrEqual extends AttributeValueAssertion {
@@ -236,6 +260,13 @@ public abstract class Filter {
             }
             return result;
         }
+
+        @Override
+        protected void writeContent(@NotNull BERWriter writer) throws Throwable {
+            for (Filter filter : filters) {
+                filter.write(writer);
+            }
+        }
     }
 
     public static class Not extends Filter {
@@ -259,6 +290,11 @@ public abstract class Filter {
         protected @NotNull ByteBuffer writeContent() throws Throwable {
             return filter.write();
         }
+
+        @Override
+        protected void writeContent(@NotNull BERWriter writer) throws Throwable {
+            filter.write(writer);
+        }
     }
 
     public static class Present extends Filter {
@@ -282,6 +318,11 @@ public abstract class Filter {
         protected @NotNull ByteBuffer writeContent() {
             return BER.writeOctetStringNoTag(attribute);
         }
+
+        @Override
+        protected void writeContent(@NotNull BERWriter writer) {
+            writer.writeOctetStringNoTag(attribute);
+        }
     }
 
     public static class Substrings extends Filter {
@@ -346,6 +387,27 @@ public abstract class Filter {
             return BER.writeOctetStringTag(type)
                     .append(BER.writeSequence(substrings));
         }
+
+        @Override
+        protected void writeContent(@NotNull BERWriter writer) throws Throwable {
+            writer.writeOctetStringTag(type);
+            writer.writeSequence((writer2)->{
+                if (null!=initial) {
+                    writer2.writeTagAndLength(SUBSTRINGS_INITIAL_TAG, initial.size());
+                    writer2.writeOctetStringNoTag(initial);
+                }
+                if (null!=any) {
+                    for (@NotNull ByteBuffer any2: any) {
+                        writer2.writeTagAndLength(SUBSTRINGS_ANY_TAG, any2.size());
+                        writer2.writeOctetStringNoTag(any2);
+                    }
+                }
+                if (null!=final2) {
+                    writer2.writeTagAndLength(SUBSTRINGS_FINAL_TAG, final2.size());
+                    writer2.writeOctetStringNoTag(final2);
+                }
+            });
+        }
     }
     
     public static final byte AND_TAG=(byte)0xa0;
@@ -560,5 +622,16 @@ public abstract class Filter {
         return BER.writeTag(tag(), writeContent());
     }
 
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(tag(), this::writeContent);
+    }
+
     protected abstract @NotNull ByteBuffer writeContent() throws Throwable;
+
+    /**
+     * Sized encoding, defaults to writing the result of {@link #writeContent()}.
+     */
+    protected void writeContent(@NotNull BERWriter writer) throws Throwable {
+        writer.writeByteBuffer(writeContent());
+    }
 }
@@ -1,10 +1,14 @@
 package hu.gds.ldap4j.ldap;
 
 import hu.gds.ldap4j.Consumer;
+import hu.gds.ldap4j.Either;
 import hu.gds.ldap4j.Exceptions;
 import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Supplier;
 import hu.gds.ldap4j.lava.Closeable;
 import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.Lock;
+import hu.gds.ldap4j.lava.SynchronizedWait;
 import hu.gds.ldap4j.net.ByteBuffer;
 import hu.gds.ldap4j.net.ClosedException;
 import hu.gds.ldap4j.net.Connection;
@@ -12,14 +16,22 @@ import hu.gds.ldap4j.net.DuplexConnection;
 import hu.gds.ldap4j.net.TlsConnection;
 import hu.gds.ldap4j.net.TlsHandshakeRestartNeededException;
 import hu.gds.ldap4j.net.TlsSettings;
+import hu.gds.ldap4j.net.WriteCoalescer;
 import java.io.EOFException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 import javax.net.ssl.SSLEngine;
@@ -28,20 +40,112 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class LdapConnection implements Connection {
+    private static class Dispatched {
+        private final @NotNull Deque<@NotNull Frame> frames=new LinkedList<>();
+        private boolean released;
+        private final @NotNull SynchronizedWait wait;
+
+        private Dispatched(@NotNull Object lock) {
+            wait=new SynchronizedWait(lock);
+        }
+    }
+
+    /**
+     * @param last no more messages will arrive with this message id
+     */
+    private record Frame(
+            @NotNull ByteBuffer frame,
+            boolean last,
+            int messageId) {
+    }
+
+    /**
+     * @param bufferedBytes bytes received but not yet decoded
+     * @param neededBytes size of the message being received, or -1 if its tag and length are not yet known
+     */
+    public record ReadProgress(
+            int bufferedBytes,
+            int neededBytes) {
+    }
+
+    private static final byte INTERMEDIATE_RESPONSE_TAG=0x79;
+
     private @Nullable TlsConnection connection;
+    private @Nullable Throwable dispatchError;
+    private boolean dispatchReading;
+    /**
+     * The dispatched requests that found no frame and no free reader role, in the order they started waiting.
+     * Entries of requests not waiting anymore are dropped when the reader role is handed off.
+     */
+    private final @NotNull LinkedHashSet<@NotNull Dispatched> dispatchReaderCandidates=new LinkedHashSet<>();
+    private final @NotNull Map<@NotNull Integer, @NotNull Dispatched> dispatched=new HashMap<>();
     private boolean failed;
     private final boolean ldaps;
     private final Object lock=new Object();
     private final @NotNull MessageIdGenerator messageIdGenerator;
+    /**
+     * The ids of the requests written by {@link #writeMessage(ControlsMessage)},
+     * until their last response is read by {@link #readMessageCheckedParallel(Function)},
+     * the read of {@link #readMessageChecked(int, MessageReader)} fails, or {@link #releaseMessageId(int)} is called.
+     */
+    private final @NotNull Set<@NotNull Integer> messageIdsInFlight=new HashSet<>();
+    /**
+     * The leases of a multiplexed pool check the connection in parallel, the tls connection accepts one check at a time.
+     */
+    private final @NotNull Lock openAndNotFailedLock=new Lock();
     private ByteBuffer readBuffer=ByteBuffer.empty();
+    private int readFrameSize=-1;
     private boolean usingTls;
+    /**
+     * Replaces the write lock when writes are coalesced.
+     */
+    private final @Nullable WriteCoalescer writeCoalescer;
+    /**
+     * Dispatched requests are written in parallel, the tls connection accepts one write at a time.
+     */
+    private final @NotNull Lock writeLock=new Lock();
 
+    /**
+     * @param maxWriteBatchSize 0 writes messages one by one,
+     *                          a positive value coalesces messages written in parallel into batches of this size,
+     *                          a batch is written until the latest end nanos of its messages,
+     *                          and a failed batch, timeouts included, fails all of its messages and the connection
+     */
     public LdapConnection(
-            @NotNull TlsConnection connection, boolean ldaps, @NotNull MessageIdGenerator messageIdGenerator) {
+            @NotNull TlsConnection connection, boolean ldaps, int maxWriteBatchSize,
+            @NotNull MessageIdGenerator messageIdGenerator) {
+        if (0>maxWriteBatchSize) {
+            throw new IllegalArgumentException("0 > maxWriteBatchSize %,d".formatted(maxWriteBatchSize));
+        }
         this.connection=Objects.requireNonNull(connection, "connection");
         this.ldaps=ldaps;
         this.messageIdGenerator=Objects.requireNonNull(messageIdGenerator, "messageIdGenerator");
         usingTls=ldaps;
+        writeCoalescer=(0==maxWriteBatchSize)
+                ?null
+                :new WriteCoalescer(maxWriteBatchSize, connection::write);
+    }
+
+    public LdapConnection(
+            @NotNull TlsConnection connection, boolean ldaps, @NotNull MessageIdGenerator messageIdGenerator) {
+        this(connection, ldaps, 0, messageIdGenerator);
+    }
+
+    /**
+     * Sends a best effort abandon request, and fails the connection.
+     */
+    private @NotNull Lava<Void> abandonSearchStream(int messageId, @NotNull Throwable throwable) {
+        return Lava.catchErrors(
+                        (throwable2)->Lava.VOID,
+                        ()->writeMessage(new AbandonRequest(messageId).controlsEmpty())
+                                .composeIgnoreResult(()->Lava.VOID),
+                        Throwable.class)
+                .composeIgnoreResult(()->{
+                    synchronized (lock) {
+                        failed=true;
+                    }
+                    return Lava.fail(throwable);
+                });
     }
 
     @Override
@@ -76,6 +180,7 @@ public class LdapConnection implements Connection {
                                             },
                                             ()->writeMessage(
                                                     connection2,
+                                                    false,
                                                     new UnbindRequest()
                                                             .controlsEmpty(),
                                                     messageIdGenerator)
@@ -100,6 +205,141 @@ public class LdapConnection implements Connection {
         return connection2;
     }
 
+    /**
+     * Routes a frame read by the current reader.
+     *
+     * @return whether the frame belongs to the reader
+     */
+    private boolean dispatchFrame(@NotNull Frame frame, int messageId) throws Throwable {
+        if (0==frame.messageId()) {
+            try {
+                frame.frame().read(LdapMessage.readCheckedParallel((messageId2)->null));
+                throw new UnexpectedMessageIdException("expected message id 0");
+            }
+            catch (Throwable throwable) {
+                dispatchFailed(throwable);
+                throw throwable;
+            }
+        }
+        synchronized (lock) {
+            @Nullable Dispatched dispatched2=dispatched.get(frame.messageId());
+            if (null==dispatched2) {
+                failed=true;
+                @NotNull Throwable throwable=new UnexpectedMessageIdException(
+                        "unexpected message id %,d".formatted(frame.messageId()));
+                dispatchError=throwable;
+                dispatchReading=false;
+                signalAllDispatched();
+                throw throwable;
+            }
+            if (dispatched2.released) {
+                if (frame.last()) {
+                    dispatched.remove(frame.messageId());
+                }
+                return false;
+            }
+            if (messageId==frame.messageId()) {
+                if (frame.last()) {
+                    dispatched.remove(messageId);
+                }
+                dispatchReading=false;
+                signalNextDispatchedReader();
+                return true;
+            }
+            dispatched2.frames.addLast(frame);
+            dispatched2.wait.signal();
+            return false;
+        }
+    }
+
+    private void dispatchFailed(@NotNull Throwable throwable) {
+        synchronized (lock) {
+            failed=true;
+            dispatchError=Exceptions.join(dispatchError, throwable);
+            dispatchReading=false;
+            signalAllDispatched();
+        }
+    }
+
+    /**
+     * Reads frames until one arrives for the message id, other frames are queued for their owners.
+     */
+    private @NotNull Lava<@NotNull Frame> dispatchRead(int messageId) {
+        return Lava.catchErrors(
+                        (throwable)->{
+                            if (isConnectionFailure(throwable)) {
+                                dispatchFailed(throwable);
+                            }
+                            else {
+                                synchronized (lock) {
+                                    dispatchReading=false;
+                                    signalNextDispatchedReader();
+                                }
+                            }
+                            return Lava.fail(throwable);
+                        },
+                        ()->readMessage(this::readFrame)
+                                .compose(Function::identity),
+                        Throwable.class)
+                .compose((frame)->{
+                    if (dispatchFrame(frame, messageId)) {
+                        return Lava.complete(frame);
+                    }
+                    return dispatchRead(messageId);
+                });
+    }
+
+    /**
+     * Takes the next queued frame of the message id, or becomes the reader of the connection,
+     * or waits for one of these to happen.
+     */
+    private @NotNull Lava<@NotNull Frame> dispatchTake(int messageId) {
+        return Lava.supplier(()->{
+                    @Nullable Dispatched dispatched2;
+                    synchronized (lock) {
+                        dispatched2=dispatched.get(messageId);
+                    }
+                    if ((null==dispatched2) || dispatched2.released) {
+                        throw new IllegalStateException("message id %,d is not dispatched".formatted(messageId));
+                    }
+                    return Lava.catchErrors(
+                            (throwable)->{
+                                // a hand-off may have picked this request just as it timed out
+                                synchronized (lock) {
+                                    dispatchReaderCandidates.remove(dispatched2);
+                                    if (!dispatchReading) {
+                                        signalNextDispatchedReader();
+                                    }
+                                }
+                                return Lava.fail(throwable);
+                            },
+                            ()->dispatched2.wait.<@Nullable Frame>await((context)->{
+                                dispatchReaderCandidates.remove(dispatched2);
+                                if (null!=dispatchError) {
+                                    throw new RuntimeException("ldap connection failed", dispatchError);
+                                }
+                                if (!dispatched2.frames.isEmpty()) {
+                                    @NotNull Frame frame=dispatched2.frames.removeFirst();
+                                    if (frame.last()) {
+                                        dispatched.remove(messageId);
+                                    }
+                                    return Either.left(frame);
+                                }
+                                if (!dispatchReading) {
+                                    dispatchReading=true;
+                                    return Either.left(null);
+                                }
+                                context.checkEndNanos(LdapConnection.class+".dispatchTake() timeout");
+                                dispatchReaderCandidates.add(dispatched2);
+                                return Either.right(null);
+                            }),
+                            Throwable.class);
+                })
+                .compose((frame)->(null==frame)
+                        ?dispatchRead(messageId)
+                        :Lava.complete(frame));
+    }
+
     public static @NotNull Lava<@NotNull LdapConnection> factory(
             boolean explicitTlsRenegotiation,
             @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory,
@@ -122,6 +362,27 @@ public class LdapConnection implements Connection {
             @NotNull MessageIdGenerator messageIdGenerator,
             @NotNull InetSocketAddress remoteAddress,
             @NotNull TlsSettings tlsSettings) {
+        return factory(
+                explicitTlsRenegotiation,
+                factory,
+                handshakeExecutor,
+                0,
+                messageIdGenerator,
+                remoteAddress,
+                tlsSettings);
+    }
+
+    /**
+     * @param maxWriteBatchSize see {@link #LdapConnection(TlsConnection, boolean, int, MessageIdGenerator)}
+     */
+    public static @NotNull Lava<@NotNull LdapConnection> factory(
+            boolean explicitTlsRenegotiation,
+            @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory,
+            @Nullable Executor handshakeExecutor,
+            int maxWriteBatchSize,
+            @NotNull MessageIdGenerator messageIdGenerator,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull TlsSettings tlsSettings) {
         Objects.requireNonNull(factory, "factory");
         Objects.requireNonNull(messageIdGenerator, "messageIdGenerator");
         Objects.requireNonNull(tlsSettings, "tlsSettings");
@@ -131,18 +392,21 @@ public class LdapConnection implements Connection {
                     if (tlsSettings.isTls()) {
                         if (tlsSettings.isStarttls()) {
                             return Closeable.wrapOrClose(
-                                    ()->Lava.complete(new LdapConnection(connection, false, messageIdGenerator)),
+                                    ()->Lava.complete(new LdapConnection(
+                                            connection, false, maxWriteBatchSize, messageIdGenerator)),
                                     (connection2)->connection2.startTls(handshakeExecutor, tlsSettings.asTls())
                                             .composeIgnoreResult(()->Lava.complete(connection2)));
                         }
                         else {
                             return connection.startTlsHandshake(handshakeExecutor, tlsSettings.asTls())
                                     .composeIgnoreResult(()->Lava.complete(
-                                            new LdapConnection(connection, true, messageIdGenerator)));
+                                            new LdapConnection(
+                                                    connection, true, maxWriteBatchSize, messageIdGenerator)));
                         }
                     }
                     else {
-                        return Lava.complete(new LdapConnection(connection, false, messageIdGenerator));
+                        return Lava.complete(new LdapConnection(
+                                connection, false, maxWriteBatchSize, messageIdGenerator));
                     }
                 });
     }
@@ -171,6 +435,22 @@ public class LdapConnection implements Connection {
                 tlsSettings);
     }
 
+    /**
+     * @return completes when all the messages written before it are written to the network
+     */
+    public @NotNull Lava<Void> flushWrites() {
+        return Lava.supplier(()->(null==writeCoalescer)
+                ?writeLock.enter(()->Lava.VOID)
+                :writeCoalescer.flush());
+    }
+
+    private static boolean isConnectionFailure(@NotNull Throwable throwable) {
+        return (!(throwable instanceof EOFException))
+                && (!(throwable instanceof LdapException))
+                && (!(throwable instanceof TimeoutException))
+                && (!(throwable instanceof TlsHandshakeRestartNeededException));
+    }
+
     @Override
     public @NotNull Lava<@NotNull Boolean> isOpenAndNotFailed() {
         return Lava.supplier(()->{
@@ -184,10 +464,14 @@ public class LdapConnection implements Connection {
                     return Lava.complete(false);
                 }
             }
-            return connection2.isOpenAndNotFailed();
+            return openAndNotFailedLock.enter(connection2::isOpenAndNotFailed);
         });
     }
 
+    private static boolean hasResponse(@NotNull Message<?> message) {
+        return (message instanceof Request<?, ?>) || (message instanceof SearchRequest);
+    }
+
     public @NotNull Lava<@NotNull InetSocketAddress> localAddress() {
         return Lava.supplier(()->connection().localAddress());
     }
@@ -196,26 +480,44 @@ public class LdapConnection implements Connection {
         return messageIdGenerator;
     }
 
+    /**
+     * An id of the generator of this connection not in flight right now.
+     * The id is not reserved, a request written later may get it.
+     */
+    public int nextFreeMessageId() {
+        synchronized (lock) {
+            return nextFreeMessageId(messageIdGenerator);
+        }
+    }
+
+    private int nextFreeMessageId(@NotNull MessageIdGenerator messageIdGenerator) {
+        synchronized (lock) {
+            int messageId=messageIdGenerator.nextFree(
+                    (messageId2)->dispatched.containsKey(messageId2) || messageIdsInFlight.contains(messageId2));
+            if (0==messageId) {
+                throw new IllegalStateException("no free message id, too many requests in flight");
+            }
+            return messageId;
+        }
+    }
+
     private <T> @NotNull Lava<@NotNull Lava<T>> readMessage(
             @NotNull Function<ByteBuffer.@NotNull Reader, @NotNull Lava<T>> function) {
         return Lava.checkEndNanos(LdapConnection.class+"readMessage() timeout")
                 .composeIgnoreResult(()->{
-                    ByteBuffer.Reader reader=readBuffer.reader();
-                    @NotNull Lava<T> checkPhase;
+                    @Nullable Lava<T> checkPhase=null;
+                    ByteBuffer.@Nullable Reader reader=null;
                     try {
-                        checkPhase=function.apply(reader);
-                    }
-                    catch (EOFException ex) {
-                        return connection().read()
-                                .compose((readResult)->{
-                                    if (null==readResult) {
-                                        throw new EOFException();
-                                    }
-                                    else {
-                                        readBuffer=readBuffer.append(readResult);
-                                        return readMessage(function);
-                                    }
-                                });
+                        if (0>readFrameSize) {
+                            int frameSize=BER.readFrameSize(readBuffer.reader());
+                            synchronized (lock) {
+                                readFrameSize=frameSize;
+                            }
+                        }
+                        if ((0<=readFrameSize) && (readBuffer.size()>=readFrameSize)) {
+                            reader=readBuffer.reader();
+                            checkPhase=function.apply(reader);
+                        }
                     }
                     catch (ExtendedLdapException ex) {
                         throw ex;
@@ -235,14 +537,38 @@ public class LdapConnection implements Connection {
                             throw new RuntimeException(writer.toString(), throwable);
                         }
                     }
-                    readBuffer=reader.readReaminingByteBuffer();
+                    if ((null==reader) || (null==checkPhase)) {
+                        return connection().read()
+                                .compose((readResult)->{
+                                    if (null==readResult) {
+                                        throw new EOFException();
+                                    }
+                                    else {
+                                        synchronized (lock) {
+                                            readBuffer=readBuffer.append(readResult);
+                                        }
+                                        return readMessage(function);
+                                    }
+                                });
+                    }
+                    ByteBuffer remaining=reader.readReaminingByteBuffer();
+                    synchronized (lock) {
+                        readBuffer=remaining;
+                        readFrameSize=-1;
+                    }
                     return Lava.complete(checkPhase);
                 });
     }
 
     public <T> @NotNull Lava<@NotNull LdapMessage<@NotNull T>> readMessageChecked(
             int messageId, @NotNull MessageReader<T> messageReader) {
-        return readMessageCheckedParallel(Map.of(messageId, messageReader.parallel(Function::identity))::get);
+        return Lava.catchErrors(
+                (throwable)->{
+                    releaseMessageId(messageId);
+                    return Lava.fail(throwable);
+                },
+                ()->readMessageCheckedParallel(Map.of(messageId, messageReader.parallel(Function::identity))::get),
+                Throwable.class);
     }
 
     public <T> @NotNull Lava<T> readMessageCheckedParallel(
@@ -250,21 +576,129 @@ public class LdapConnection implements Connection {
         Objects.requireNonNull(messageReadersByMessageId, "messageReadersByMessageId");
         return Lava.catchErrors(
                 (throwable)->{
-                    if ((!(throwable instanceof EOFException))
-                            && (!(throwable instanceof LdapException))
-                            && (!(throwable instanceof TimeoutException))
-                            && (!(throwable instanceof TlsHandshakeRestartNeededException))) {
+                    if (isConnectionFailure(throwable)) {
                         synchronized (lock) {
                             failed=true;
                         }
                     }
                     return Lava.fail(throwable);
                 },
-                ()->readMessage(LdapMessage.readCheckedParallel(messageReadersByMessageId))
+                ()->readMessage((reader)->{
+                            @NotNull Frame frame=readFrameNow(reader);
+                            try {
+                                return frame.frame().read(LdapMessage.readCheckedParallel(messageReadersByMessageId));
+                            }
+                            finally {
+                                if (frame.last()) {
+                                    synchronized (lock) {
+                                        messageIdsInFlight.remove(frame.messageId());
+                                    }
+                                }
+                            }
+                        })
                         .compose(Function::identity),
                 Throwable.class);
     }
 
+    private @NotNull Lava<@NotNull Frame> readFrame(@NotNull ByteBuffer.Reader reader) throws Throwable {
+        return Lava.complete(readFrameNow(reader));
+    }
+
+    private @NotNull Frame readFrameNow(@NotNull ByteBuffer.Reader reader) throws Throwable {
+        @NotNull ByteBuffer frame=reader.readByteBuffer(readFrameSize);
+        return frame.read((reader2)->BER.readSequence(
+                (reader3)->{
+                    int messageId=BER.readIntegerTag(true, reader3);
+                    byte tag=BER.readTag(true, reader3);
+                    reader3.dropBytes(reader3.remainingBytes());
+                    return new Frame(
+                            frame,
+                            (INTERMEDIATE_RESPONSE_TAG!=tag)
+                                    && (SearchResult.RESULT_ENTRY_TAG!=tag)
+                                    && (SearchResult.RESULT_REFERRAL_TAG!=tag),
+                            messageId);
+                },
+                reader2));
+    }
+
+    /**
+     * Reads the next message of a request written by {@link #writeMessageDispatched(ControlsMessage)}.
+     * Any number of these can wait on the connection in parallel,
+     * one of them reads the connection and hands the messages of the others over to them.
+     * This must not be mixed with {@link #readMessageCheckedParallel(Function)} while dispatched requests are in flight.
+     */
+    public <T> @NotNull Lava<@NotNull LdapMessage<@NotNull T>> readMessageDispatched(
+            int messageId, @NotNull MessageReader<T> messageReader) {
+        Objects.requireNonNull(messageReader, "messageReader");
+        return dispatchTake(messageId)
+                .compose((frame)->frame.frame().read(LdapMessage.readCheckedParallel(
+                        Map.of(messageId, messageReader.parallel(Function::identity))::get)));
+    }
+
+    /**
+     * Reads the messages of a dispatched request, and releases its message id afterward.
+     * The id is released only while it's still reserved for the same request,
+     * once the last message is read the id can be handed out to another request.
+     */
+    private <T> @NotNull Lava<T> readMessagesDispatched(
+            int messageId, @NotNull Supplier<@NotNull Lava<T>> supplier) {
+        return Lava.supplier(()->{
+            @Nullable Dispatched dispatched2;
+            synchronized (lock) {
+                dispatched2=dispatched.get(messageId);
+            }
+            return Lava.finallyGet(
+                    ()->{
+                        if (null!=dispatched2) {
+                            releaseMessageId(dispatched2, messageId);
+                        }
+                        return Lava.VOID;
+                    },
+                    supplier);
+        });
+    }
+
+    public @NotNull ReadProgress readProgress() {
+        synchronized (lock) {
+            return new ReadProgress(readBuffer.size(), readFrameSize);
+        }
+    }
+
+    /**
+     * Stops dispatching the messages of a request written by {@link #writeMessageDispatched(ControlsMessage)}.
+     * Messages still arriving with this id are dropped, the id is reserved until the last one arrives.
+     * For a request written by {@link #writeMessage(ControlsMessage)} the id is freed immediately,
+     * after giving up reading its responses.
+     * This must not be called after the last message of the request was read,
+     * the id may already belong to another request by then.
+     */
+    public void releaseMessageId(int messageId) {
+        synchronized (lock) {
+            @Nullable Dispatched dispatched2=dispatched.get(messageId);
+            if (null==dispatched2) {
+                messageIdsInFlight.remove(messageId);
+            }
+            else {
+                releaseMessageId(dispatched2, messageId);
+            }
+        }
+    }
+
+    private void releaseMessageId(@NotNull Dispatched dispatched2, int messageId) {
+        synchronized (lock) {
+            if (dispatched2!=dispatched.get(messageId)) {
+                return;
+            }
+            if ((!dispatched2.frames.isEmpty()) && dispatched2.frames.getLast().last()) {
+                dispatched.remove(messageId);
+            }
+            else {
+                dispatched2.frames.clear();
+                dispatched2.released=true;
+            }
+        }
+    }
+
     public @NotNull Lava<@NotNull InetSocketAddress> remoteAddress() {
         return Lava.supplier(()->connection().remoteAddress());
     }
@@ -286,22 +720,135 @@ public class LdapConnection implements Connection {
     public @NotNull Lava<@NotNull List<@NotNull ControlsMessage<SearchResult>>> search(
             @NotNull MessageIdGenerator messageIdGenerator,
             @NotNull ControlsMessage<SearchRequest> request) {
+        return Lava.supplier(()->{
+            @NotNull List<@NotNull ControlsMessage<SearchResult>> result=new ArrayList<>();
+            return searchStream(
+                    (searchResult)->{
+                        result.add(searchResult);
+                        return Lava.VOID;
+                    },
+                    messageIdGenerator,
+                    request)
+                    .composeIgnoreResult(()->Lava.complete(result));
+        });
+    }
+
+    /**
+     * Same as {@link #search(ControlsMessage)}, but other dispatched requests can be in flight
+     * on the connection at the same time.
+     */
+    public @NotNull Lava<@NotNull List<@NotNull ControlsMessage<SearchResult>>> searchDispatched(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return Lava.supplier(()->{
+            @NotNull List<@NotNull ControlsMessage<SearchResult>> result=new ArrayList<>();
+            return searchStreamDispatched(
+                    (searchResult)->{
+                        result.add(searchResult);
+                        return Lava.VOID;
+                    },
+                    request)
+                    .composeIgnoreResult(()->Lava.complete(result));
+        });
+    }
+
+    /**
+     * Passes the results to the consumer one by one, in the order they arrive, the last one being the done message.
+     * The next result is not read until the lava returned by the consumer completes,
+     * a slow consumer stops reading the connection.
+     * If the consumer fails before the done message the search is abandoned,
+     * and the connection is marked failed, as the rest of the results may still arrive on it.
+     */
+    public @NotNull Lava<Void> searchStream(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull Lava<Void>> consumer,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return searchStream(consumer, messageIdGenerator, request);
+    }
+
+    public @NotNull Lava<Void> searchStream(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull Lava<Void>> consumer,
+            @NotNull MessageIdGenerator messageIdGenerator,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        Objects.requireNonNull(consumer, "consumer");
         return writeMessage(request, messageIdGenerator)
-                .compose((messageId)->search(messageId, new ArrayList<>()));
+                .compose((messageId)->searchStream(consumer, messageId));
     }
 
-    private @NotNull Lava<@NotNull List<@NotNull ControlsMessage<SearchResult>>> search(
-            int messageId, @NotNull List<@NotNull ControlsMessage<SearchResult>> result) {
+    private @NotNull Lava<Void> searchStream(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull Lava<Void>> consumer, int messageId) {
         return readMessageChecked(messageId, SearchResult.READER)
-                .compose((searchResult)->{
-                    result.add(new ControlsMessage<>(searchResult.controls(), searchResult.message()));
-                    if (searchResult.message().isDone()) {
-                        return Lava.complete(result);
-                    }
-                    else {
-                        return search(messageId, result);
-                    }
-                });
+                .compose((searchResult)->Lava.catchErrors(
+                                (throwable)->searchResult.message().isDone()
+                                        ?Lava.fail(throwable)
+                                        :abandonSearchStream(messageId, throwable),
+                                ()->consumer.apply(
+                                        new ControlsMessage<>(searchResult.controls(), searchResult.message())),
+                                Throwable.class)
+                        .composeIgnoreResult(()->{
+                            if (searchResult.message().isDone()) {
+                                return Lava.VOID;
+                            }
+                            else {
+                                return searchStream(consumer, messageId);
+                            }
+                        }));
+    }
+
+    /**
+     * Same as {@link #searchStream(Function, ControlsMessage)}, but other dispatched requests can be in flight
+     * on the connection at the same time.
+     */
+    public @NotNull Lava<Void> searchStreamDispatched(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull Lava<Void>> consumer,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        Objects.requireNonNull(consumer, "consumer");
+        return writeMessageDispatched(request)
+                .compose((messageId)->readMessagesDispatched(
+                        messageId,
+                        ()->searchStreamDispatched(consumer, messageId)));
+    }
+
+    private @NotNull Lava<Void> searchStreamDispatched(
+            @NotNull Function<@NotNull ControlsMessage<SearchResult>, @NotNull Lava<Void>> consumer, int messageId) {
+        return readMessageDispatched(messageId, SearchResult.READER)
+                .compose((searchResult)->consumer.apply(
+                                new ControlsMessage<>(searchResult.controls(), searchResult.message()))
+                        .composeIgnoreResult(()->{
+                            if (searchResult.message().isDone()) {
+                                return Lava.VOID;
+                            }
+                            else {
+                                return searchStreamDispatched(consumer, messageId);
+                            }
+                        }));
+    }
+
+    /**
+     * Wakes up all the waiting readers of dispatched messages when the connection failed.
+     */
+    private void signalAllDispatched() {
+        synchronized (lock) {
+            dispatchReaderCandidates.clear();
+            for (@NotNull Dispatched dispatched2: dispatched.values()) {
+                dispatched2.wait.signalAll();
+            }
+        }
+    }
+
+    /**
+     * Wakes up a single waiting request without queued frames to take over reading the connection.
+     * Requests with queued frames were already woken up when their frames were queued.
+     */
+    private void signalNextDispatchedReader() {
+        synchronized (lock) {
+            for (Iterator<@NotNull Dispatched> iterator=dispatchReaderCandidates.iterator(); iterator.hasNext(); ) {
+                @NotNull Dispatched dispatched2=iterator.next();
+                iterator.remove();
+                if (dispatched2.frames.isEmpty() && dispatched2.wait.hasWaiters()) {
+                    dispatched2.wait.signal();
+                    return;
+                }
+            }
+        }
     }
 
     public @NotNull Lava<Void> startTls(
@@ -331,10 +878,16 @@ public class LdapConnection implements Connection {
     }
 
     /**
+     * The id of a request written this way is in flight until its last response is read
+     * by {@link #readMessageCheckedParallel(Function)}, the generator skips it until then.
+     * A caller giving up the read before that has to {@link #releaseMessageId(int)} the id,
+     * {@link #readMessageChecked(int, MessageReader)} does this when it fails.
+     * Abandon and unbind requests have no response, their ids are not kept.
+     *
      * @return messageId
      */
     public <M extends Message<M>> @NotNull Lava<@NotNull Integer> writeMessage(@NotNull ControlsMessage<M> message) {
-        return Lava.supplier(()->writeMessage(connection(), message, messageIdGenerator));
+        return Lava.supplier(()->writeMessage(connection(), false, message, messageIdGenerator));
     }
 
     /**
@@ -342,37 +895,81 @@ public class LdapConnection implements Connection {
      */
     public <M extends Message<M>> @NotNull Lava<@NotNull Integer> writeMessage(
             @NotNull ControlsMessage<M> message, @NotNull MessageIdGenerator messageIdGenerator) {
-        return Lava.supplier(()->writeMessage(connection(), message, messageIdGenerator));
+        return Lava.supplier(()->writeMessage(connection(), false, message, messageIdGenerator));
     }
 
     /**
      * @return messageId
      */
     private <M extends Message<M>> @NotNull Lava<@NotNull Integer> writeMessage(
-            @NotNull TlsConnection connection, @NotNull ControlsMessage<M> message,
+            @NotNull TlsConnection connection, boolean dispatch, @NotNull ControlsMessage<M> message,
             @NotNull MessageIdGenerator messageIdGenerator) {
         return Lava.supplier(()->{
-            int messageId=messageIdGenerator.next();
-            ByteBuffer byteBuffer=new LdapMessage<>(
+            boolean track=(!dispatch) && hasResponse(message.message());
+            int messageId;
+            synchronized (lock) {
+                messageId=nextFreeMessageId(messageIdGenerator);
+                if (dispatch) {
+                    dispatched.put(messageId, new Dispatched(lock));
+                }
+                else if (track) {
+                    messageIdsInFlight.add(messageId);
+                }
+            }
+            @NotNull LdapMessage<M> ldapMessage=new LdapMessage<>(
                     message.controls(),
                     message.message(),
-                    messageId)
-                    .write(Message::write);
+                    messageId);
+            ByteBuffer byteBuffer;
+            try {
+                byteBuffer=BERWriter.write((writer)->ldapMessage.write(message.message()::write, writer));
+            }
+            catch (Throwable throwable) {
+                synchronized (lock) {
+                    if (dispatch) {
+                        dispatched.remove(messageId);
+                    }
+                    else if (track) {
+                        messageIdsInFlight.remove(messageId);
+                    }
+                }
+                throw throwable;
+            }
             return Lava.catchErrors(
                             (throwable)->{
-                                if (!(throwable instanceof TlsHandshakeRestartNeededException)) {
-                                    synchronized (lock) {
+                                synchronized (lock) {
+                                    if (!(throwable instanceof TlsHandshakeRestartNeededException)) {
                                         failed=true;
                                     }
+                                    if (dispatch) {
+                                        dispatched.remove(messageId);
+                                    }
+                                    else if (track) {
+                                        messageIdsInFlight.remove(messageId);
+                                    }
                                 }
                                 return Lava.fail(throwable);
                             },
-                            ()->connection.write(byteBuffer),
+                            ()->(null==writeCoalescer)
+                                    ?writeLock.enter(()->connection.write(byteBuffer))
+                                    :writeCoalescer.write(byteBuffer),
                             Throwable.class)
                     .composeIgnoreResult(()->Lava.complete(messageId));
         });
     }
 
+    /**
+     * Writes a message whose responses are read by {@link #readMessageDispatched(int, MessageReader)}.
+     * The message id is reserved until its last response is read,
+     * or until {@link #releaseMessageId(int)} is called.
+     *
+     * @return messageId
+     */
+    public <M extends Message<M>> @NotNull Lava<@NotNull Integer> writeMessageDispatched(
+            @NotNull ControlsMessage<M> message) {
+        return Lava.supplier(()->writeMessage(connection(), true, message, messageIdGenerator));
+    }
+
     public <M extends Request<M, R>, R extends Response>
     @NotNull Lava<@NotNull ControlsMessage<R>> writeRequestReadResponseChecked(
             @NotNull ControlsMessage<M> request) {
@@ -382,4 +979,20 @@ public class LdapConnection implements Connection {
                         response.controls(),
                         response.message())));
     }
+
+    /**
+     * Same as {@link #writeRequestReadResponseChecked(ControlsMessage)},
+     * but any number of these can be in flight on the connection at the same time.
+     */
+    public <M extends Request<M, R>, R extends Response>
+    @NotNull Lava<@NotNull ControlsMessage<R>> writeRequestReadResponseDispatched(
+            @NotNull ControlsMessage<M> request) {
+        return writeMessageDispatched(request)
+                .compose((messageId)->readMessagesDispatched(
+                        messageId,
+                        ()->readMessageDispatched(messageId, request.message().responseReader())))
+                .compose((response)->Lava.complete(new ControlsMessage<>(
+                        response.controls(),
+                        response.message())));
+    }
 }
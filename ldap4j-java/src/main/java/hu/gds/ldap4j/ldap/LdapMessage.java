@@ -1,5 +1,6 @@
 package hu.gds.ldap4j.ldap;
 
+import hu.gds.ldap4j.Consumer;
 import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.lava.Lava;
 import hu.gds.ldap4j.net.ByteBuffer;
@@ -19,6 +20,33 @@ public record LdapMessage<T>(
         this.messageId=messageId;
     }
 
+    /**
+     * Same as {@link #readCheckedParallel(Function)} with a single reader, but reads and checks without lava.
+     */
+    public static <T> @NotNull Function<ByteBuffer.Reader, @NotNull LdapMessage<T>> readChecked(
+            int messageId, @NotNull MessageReader<T> messageReader) {
+        Objects.requireNonNull(messageReader, "messageReader");
+        return (reader)->BER.readSequence(
+                (reader2)->{
+                    int messageId2=BER.readIntegerTag(true, reader2);
+                    if (messageId==messageId2) {
+                        @NotNull T message=messageReader.read(reader2);
+                        @NotNull List<@NotNull Control> controls=Control.readControls(reader2);
+                        messageReader.check(controls, message, messageId2);
+                        return new LdapMessage<>(controls, message, messageId2);
+                    }
+                    else if (0==messageId2) {
+                        ExtendedResponse response=ExtendedResponse.READER_SUCCESS.read(reader2);
+                        @NotNull List<@NotNull Control> controls=Control.readControls(reader2);
+                        throw new ExtendedLdapException(new LdapMessage<>(controls, response, messageId2));
+                    }
+                    else {
+                        throw new UnexpectedMessageIdException("expected message id %,d".formatted(messageId));
+                    }
+                },
+                reader);
+    }
+
     public static <T> @NotNull Function<ByteBuffer.Reader, @NotNull Lava<T>> readCheckedParallel(
             @NotNull Function<@NotNull Integer, @Nullable ParallelMessageReader<?, T>> messageReadersByMessageId) {
         Objects.requireNonNull(messageReadersByMessageId, "messageReadersByMessageId");
@@ -47,4 +75,14 @@ public record LdapMessage<T>(
                         .append(function.apply(message))
                         .append(Control.writeControls(controls)));
     }
+
+    public void write(
+            @NotNull Consumer<@NotNull BERWriter> messageWriter, @NotNull BERWriter writer) throws Throwable {
+        Objects.requireNonNull(messageWriter, "messageWriter");
+        writer.writeSequence((writer2)->{
+            writer2.writeIntegerTag(messageId);
+            messageWriter.accept(writer2);
+            Control.writeControls(controls, writer2);
+        });
+    }
 }
@@ -0,0 +1,136 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.PoolListener;
+import hu.gds.ldap4j.ldap.extension.KeepAlive;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The settings of a pool of ldap connections.
+ * 0 max idle nanos and 0 max lifetime nanos disable idle and lifetime eviction.
+ * The keep-alive timeout bounds a single probe, it should be much shorter than the timeout of the requests,
+ * a connection failing its probe is closed.
+ */
+public record LdapPoolSettings(
+        int initialSize,
+        @NotNull Function<@NotNull LdapConnection, @NotNull Lava<Void>> keepAlive,
+        long keepAlivePeriodNanos,
+        long keepAliveTimeoutNanos,
+        @NotNull PoolListener listener,
+        long maxIdleNanos,
+        long maxLifetimeNanos,
+        int minIdle,
+        int shards,
+        int size) {
+    public static final long DEFAULT_KEEP_ALIVE_PERIOD_NANOS=TimeUnit.SECONDS.toNanos(30L);
+    public static final long DEFAULT_KEEP_ALIVE_TIMEOUT_NANOS=TimeUnit.SECONDS.toNanos(5L);
+
+    public static class Builder {
+        private int initialSize;
+        private @NotNull Function<@NotNull LdapConnection, @NotNull Lava<Void>> keepAlive;
+        private long keepAlivePeriodNanos;
+        private long keepAliveTimeoutNanos;
+        private @NotNull PoolListener listener;
+        private long maxIdleNanos;
+        private long maxLifetimeNanos;
+        private int minIdle;
+        private int shards;
+        private int size;
+
+        public Builder(
+                int initialSize, @NotNull Function<@NotNull LdapConnection, @NotNull Lava<Void>> keepAlive,
+                long keepAlivePeriodNanos, long keepAliveTimeoutNanos, @NotNull PoolListener listener,
+                long maxIdleNanos, long maxLifetimeNanos, int minIdle, int shards, int size) {
+            this.initialSize=initialSize;
+            this.keepAlive=Objects.requireNonNull(keepAlive, "keepAlive");
+            this.keepAlivePeriodNanos=keepAlivePeriodNanos;
+            this.keepAliveTimeoutNanos=keepAliveTimeoutNanos;
+            this.listener=Objects.requireNonNull(listener, "listener");
+            this.maxIdleNanos=maxIdleNanos;
+            this.maxLifetimeNanos=maxLifetimeNanos;
+            this.minIdle=minIdle;
+            this.shards=shards;
+            this.size=size;
+        }
+
+        public @NotNull LdapPoolSettings build() {
+            return new LdapPoolSettings(
+                    initialSize, keepAlive, keepAlivePeriodNanos, keepAliveTimeoutNanos, listener, maxIdleNanos,
+                    maxLifetimeNanos, minIdle, shards, size);
+        }
+
+        public @NotNull Builder copy() {
+            return new Builder(
+                    initialSize, keepAlive, keepAlivePeriodNanos, keepAliveTimeoutNanos, listener, maxIdleNanos,
+                    maxLifetimeNanos, minIdle, shards, size);
+        }
+
+        public @NotNull Builder initialSize(int initialSize) {
+            this.initialSize=initialSize;
+            return this;
+        }
+
+        public @NotNull Builder keepAlive(@NotNull Function<@NotNull LdapConnection, @NotNull Lava<Void>> keepAlive) {
+            this.keepAlive=Objects.requireNonNull(keepAlive, "keepAlive");
+            return this;
+        }
+
+        public @NotNull Builder keepAlivePeriodNanos(long keepAlivePeriodNanos) {
+            this.keepAlivePeriodNanos=keepAlivePeriodNanos;
+            return this;
+        }
+
+        public @NotNull Builder keepAliveTimeoutNanos(long keepAliveTimeoutNanos) {
+            this.keepAliveTimeoutNanos=keepAliveTimeoutNanos;
+            return this;
+        }
+
+        public @NotNull Builder listener(@NotNull PoolListener listener) {
+            this.listener=Objects.requireNonNull(listener, "listener");
+            return this;
+        }
+
+        public @NotNull Builder maxIdleNanos(long maxIdleNanos) {
+            this.maxIdleNanos=maxIdleNanos;
+            return this;
+        }
+
+        public @NotNull Builder maxLifetimeNanos(long maxLifetimeNanos) {
+            this.maxLifetimeNanos=maxLifetimeNanos;
+            return this;
+        }
+
+        public @NotNull Builder minIdle(int minIdle) {
+            this.minIdle=minIdle;
+            return this;
+        }
+
+        public @NotNull Builder shards(int shards) {
+            this.shards=shards;
+            return this;
+        }
+
+        public @NotNull Builder size(int size) {
+            this.size=size;
+            return this;
+        }
+    }
+
+    public LdapPoolSettings {
+        Objects.requireNonNull(keepAlive, "keepAlive");
+        Objects.requireNonNull(listener, "listener");
+    }
+
+    /**
+     * No initial connections, no min idle connections, a single shard,
+     * local keep-alive with the default period and timeout, and no idle or lifetime eviction.
+     */
+    public static @NotNull Builder builder(int size) {
+        return new Builder(
+                0, KeepAlive.LOCAL, DEFAULT_KEEP_ALIVE_PERIOD_NANOS, DEFAULT_KEEP_ALIVE_TIMEOUT_NANOS,
+                PoolListener.NOOP, 0L, 0L, 0, 1, size);
+    }
+}
@@ -104,4 +104,19 @@ public record LdapResult(
         }
         return resultBuffer;
     }
+
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeEnumeratedTag(resultCode);
+        writer.writeOctetStringTag(matchedDn);
+        writer.writeOctetStringTag(diagnosticMessages);
+        if (!referrals.isEmpty()) {
+            writer.writeTag(
+                    REFERRALS_TAG,
+                    (writer2)->{
+                        for (@NotNull ByteBuffer referral: referrals) {
+                            writer2.writeOctetStringTag(referral);
+                        }
+                    });
+        }
+    }
 }
@@ -16,4 +16,11 @@ public interface Message<M> {
     @NotNull M self();
 
     @NotNull ByteBuffer write() throws Throwable;
+
+    /**
+     * Sized encoding, defaults to writing the result of {@link #write()}.
+     */
+    default void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeByteBuffer(write());
+    }
 }
@@ -1,5 +1,12 @@
 package hu.gds.ldap4j.ldap;
 
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implementations must be thread safe, a generator may be shared between connections.
+ */
 public interface MessageIdGenerator {
     class Interval implements MessageIdGenerator {
         private final int max;
@@ -19,7 +26,7 @@ public interface MessageIdGenerator {
         }
 
         @Override
-        public int next() {
+        public synchronized int next() {
             int result=next;
             if (max==next) {
                 next=min;
@@ -29,19 +36,97 @@ public interface MessageIdGenerator {
             }
             return result;
         }
+
+        /**
+         * Skips the ids in flight, tries every id of the interval at most once,
+         * and at most {@link #MAX_NEXT_FREE_TRIES} ids, the next call continues where this one stopped.
+         */
+        @Override
+        public synchronized int nextFree(@NotNull IntPredicate inFlight) {
+            Objects.requireNonNull(inFlight, "inFlight");
+            for (long ii=Math.min((long)max-min, MAX_NEXT_FREE_TRIES-1L); 0L<=ii; --ii) {
+                int result=next();
+                if (!inFlight.test(result)) {
+                    return result;
+                }
+            }
+            return 0;
+        }
     }
 
+    /**
+     * Uses the preferred ids while one of them is free, the fallback ids otherwise.
+     */
+    record Overflow(
+            @NotNull MessageIdGenerator fallback,
+            @NotNull MessageIdGenerator preferred)
+            implements MessageIdGenerator {
+        public Overflow(@NotNull MessageIdGenerator fallback, @NotNull MessageIdGenerator preferred) {
+            this.fallback=Objects.requireNonNull(fallback, "fallback");
+            this.preferred=Objects.requireNonNull(preferred, "preferred");
+        }
+
+        @Override
+        public int next() {
+            return preferred.next();
+        }
+
+        @Override
+        public int nextFree(@NotNull IntPredicate inFlight) {
+            int result=preferred.nextFree(inFlight);
+            if (0==result) {
+                result=fallback.nextFree(inFlight);
+            }
+            return result;
+        }
+    }
+
+    int MAX_MESSAGE_ID=Integer.MAX_VALUE;
+    /**
+     * Bounds the time a generator lock is held, the interval of all the valid ids is too large to scan.
+     */
+    int MAX_NEXT_FREE_TRIES=1<<16;
+    int MAX_SMALL_MESSAGE_ID=127;
+
     static MessageIdGenerator constant(int value) {
         return new Interval(value, value);
     }
 
+    /**
+     * Every valid message id in order, the encoded ids are up to 4 bytes long.
+     */
+    static MessageIdGenerator fullRange() {
+        return interval(MAX_MESSAGE_ID, 1);
+    }
+
     static MessageIdGenerator interval(int max, int min) {
         return new Interval(max, min);
     }
 
     int next();
 
+    /**
+     * @param inFlight tells whether an id is still in use on the connection
+     * @return an id not in flight, or 0 if all the ids tried are in flight
+     */
+    default int nextFree(@NotNull IntPredicate inFlight) {
+        int result=next();
+        return inFlight.test(result)
+                ?0
+                :result;
+    }
+
+    static MessageIdGenerator overflow(@NotNull MessageIdGenerator fallback, @NotNull MessageIdGenerator preferred) {
+        return new Overflow(fallback, preferred);
+    }
+
+    /**
+     * Message ids encoded in a single byte while there are less than 128 requests in flight,
+     * larger ids otherwise.
+     */
     static MessageIdGenerator smallValues() {
-        return interval(127, 1);
+        return overflow(
+                interval(MAX_MESSAGE_ID, MAX_SMALL_MESSAGE_ID+1),
+                interval(MAX_SMALL_MESSAGE_ID, 1));
     }
 }
@@ -55,4 +55,19 @@ public record ModifyDNRequest(
                 REQUEST_TAG,
                 requestBuffer);
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeOctetStringTag(entry);
+                    writer2.writeOctetStringTag(newRDN);
+                    writer2.writeBooleanTag(deleteOldRDN);
+                    if (null!=newSuperior) {
+                        writer2.writeTagAndLength(NEW_SUPERIOR_TAG, newSuperior.size());
+                        writer2.writeOctetStringNoTag(newSuperior);
+                    }
+                });
+    }
 }
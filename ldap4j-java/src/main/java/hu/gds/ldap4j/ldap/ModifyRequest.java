@@ -24,6 +24,13 @@ public record ModifyRequest(
                     BER.writeEnumeratedTag(operation)
                             .append(modification.write()));
         }
+
+        public void write(@NotNull BERWriter writer) throws Throwable {
+            writer.writeSequence((writer2)->{
+                writer2.writeEnumeratedTag(operation);
+                modification.write(writer2);
+            });
+        }
     }
 
     public static final int OPERATION_ADD=0;
@@ -64,4 +71,18 @@ public record ModifyRequest(
                 BER.writeOctetStringTag(object)
                         .append(BER.writeSequence(changesBuffer)));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeOctetStringTag(object);
+                    writer2.writeSequence((writer3)->{
+                        for (Change change: changes) {
+                            change.write(writer3);
+                        }
+                    });
+                });
+    }
 }
@@ -76,4 +76,17 @@ public record PartialAttribute(
                                 BER.SET,
                                 valuesBuffer)));
     }
+
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeSequence((writer2)->{
+            writer2.writeOctetStringTag(type);
+            writer2.writeTag(
+                    BER.SET,
+                    (writer3)->{
+                        for (ByteBuffer value: values) {
+                            writer3.writeOctetStringTag(value);
+                        }
+                    });
+        });
+    }
 }
@@ -17,4 +17,8 @@ public enum Scope {
     public @NotNull ByteBuffer write() {
         return BER.writeEnumeratedTag(value);
     }
+
+    public void write(@NotNull BERWriter writer) {
+        writer.writeEnumeratedTag(value);
+    }
 }
@@ -84,4 +84,21 @@ public record SearchRequest(
                         .append(filter.write())
                         .append(BER.writeSequence(BER.writeIterable(BER::writeOctetStringTag, attributes))));
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) throws Throwable {
+        writer.writeTag(
+                REQUEST_TAG,
+                (writer2)->{
+                    writer2.writeOctetStringTag(baseObject);
+                    scope.write(writer2);
+                    derefAliases.write(writer2);
+                    writer2.writeIntegerTag(sizeLimitEntries);
+                    writer2.writeIntegerTag(timeLimitSeconds);
+                    writer2.writeBooleanTag(typesOnly);
+                    filter.write(writer2);
+                    writer2.writeSequence((writer3)->
+                            BERWriter.writeIterable(writer3::writeOctetStringTag, attributes));
+                });
+    }
 }
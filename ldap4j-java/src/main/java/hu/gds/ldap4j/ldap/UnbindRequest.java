@@ -31,4 +31,9 @@ public record UnbindRequest() implements Message<UnbindRequest> {
     public @NotNull ByteBuffer write() {
         return BER.writeTag(REQUEST_TAG, ByteBuffer.empty());
     }
+
+    @Override
+    public void write(@NotNull BERWriter writer) {
+        writer.writeTagAndLength(REQUEST_TAG, 0);
+    }
 }
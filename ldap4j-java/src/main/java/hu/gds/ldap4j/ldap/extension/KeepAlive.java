@@ -0,0 +1,81 @@
+package hu.gds.ldap4j.ldap.extension;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.ldap.AbandonRequest;
+import hu.gds.ldap4j.ldap.DerefAliases;
+import hu.gds.ldap4j.ldap.Filter;
+import hu.gds.ldap4j.ldap.LdapConnection;
+import hu.gds.ldap4j.ldap.Scope;
+import hu.gds.ldap4j.ldap.SearchRequest;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keep-alive checks of idle pooled connections.
+ * All of them check the local state of the connection first.
+ * The operations sent over the wire detect half-open connections,
+ * the ones with a response within the keep-alive timeout of the pool.
+ */
+public enum KeepAlive implements Function<@NotNull LdapConnection, @NotNull Lava<Void>> {
+    /**
+     * Abandons an unused message id. The server doesn't respond,
+     * this only detects connections already reset by the peer.
+     */
+    ABANDON {
+        @Override
+        protected @NotNull Lava<Void> probe(@NotNull LdapConnection connection) {
+            return connection.writeMessage(
+                            new AbandonRequest(connection.nextFreeMessageId())
+                                    .controlsEmpty())
+                    .composeIgnoreResult(()->Lava.VOID);
+        }
+    },
+    /**
+     * Checks only the local state of the connection.
+     */
+    LOCAL {
+        @Override
+        protected @NotNull Lava<Void> probe(@NotNull LdapConnection connection) {
+            return Lava.VOID;
+        }
+    },
+    /**
+     * Reads the root DSE, without attributes.
+     */
+    ROOT_DSE {
+        @Override
+        protected @NotNull Lava<Void> probe(@NotNull LdapConnection connection) throws Throwable {
+            return connection.search(
+                            new SearchRequest(
+                                    List.of(SearchRequest.NO_ATTRIBUTES),
+                                    "",
+                                    DerefAliases.NEVER_DEREF_ALIASES,
+                                    Filter.parse("(objectClass=*)"),
+                                    Scope.BASE_OBJECT,
+                                    1,
+                                    0,
+                                    false)
+                                    .controlsEmpty())
+                    .composeIgnoreResult(()->Lava.VOID);
+        }
+    },
+    /**
+     * RFC 4532, the server must support the who am I extended operation.
+     */
+    WHO_AM_I {
+        @Override
+        protected @NotNull Lava<Void> probe(@NotNull LdapConnection connection) {
+            return connection.writeRequestReadResponseChecked(WhoAmI.REQUEST.controlsEmpty())
+                    .composeIgnoreResult(()->Lava.VOID);
+        }
+    };
+
+    @Override
+    public @NotNull Lava<Void> apply(@NotNull LdapConnection value) {
+        return value.checkOpenAndNotFailed()
+                .composeIgnoreResult(()->probe(value));
+    }
+
+    protected abstract @NotNull Lava<Void> probe(@NotNull LdapConnection connection) throws Throwable;
+}
@@ -2,11 +2,14 @@ package hu.gds.ldap4j.net;
 
 import hu.gds.ldap4j.Function;
 import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -18,7 +21,7 @@ public sealed abstract class ByteBuffer {
         private final byte @NotNull [] array;
 
         public Array(byte @NotNull [] array, int from, int to) {
-            super(from, hashCode(array, from, to), array.length, to);
+            super(from, array.length, to);
             this.array=Objects.requireNonNull(array, "buffer");
         }
 
@@ -27,6 +30,11 @@ public sealed abstract class ByteBuffer {
             return array[index];
         }
 
+        @Override
+        protected int hashCodeDirect(int from, int to) {
+            return hashCode(array, this.from+from, this.from+to);
+        }
+
         public static int hashCode(byte @NotNull [] array, int from, int to) {
             int result=0;
             for (int ii=to-1; from<=ii; --ii) {
@@ -36,33 +44,214 @@ public sealed abstract class ByteBuffer {
         }
 
         @Override
-        protected @NotNull ByteBuffer subBufferRaw(int from, int to) {
+        public @NotNull java.nio.ByteBuffer nioByteBufferReadOnly() {
+            return java.nio.ByteBuffer.wrap(array, from, size)
+                    .asReadOnlyBuffer();
+        }
+
+        @Override
+        protected @NotNull Direct subBufferRaw(int from, int to) {
             return new Array(array, from, to);
         }
 
         @Override
-        protected void writeDirect(@NotNull Write write) {
-            write.array(array, from, to);
+        protected void writeDirect(@NotNull Write write, int from, int to) {
+            write.array(array, this.from+from, this.from+to);
         }
     }
 
-    protected static final class Concat extends ByteBuffer {
-        private final @NotNull ByteBuffer left;
-        private final @NotNull ByteBuffer right;
+    /**
+     * A range of a shared, append only array of chunks.
+     * Appending to the buffer that ends at the end of the shared chunks adds the new chunks in place,
+     * every other append copies the chunk references into new shared chunks.
+     * Chunk i covers the bytes [ends[i]-chunks[i].size, ends[i]) of the shared chunks.
+     */
+    protected static final class Chunks extends ByteBuffer {
+        private static final int INITIAL_CAPACITY=8;
+        private static final int MIN_COMPACT_CHUNKS=16;
+
+        private static final class Shared {
+            private @NotNull Direct @NotNull [] chunks;
+            private long @NotNull [] ends;
+            private int size;
+
+            private Shared(int capacity) {
+                chunks=new Direct[capacity];
+                ends=new long[capacity];
+            }
+
+            private void add(@NotNull Direct chunk) {
+                if (chunks.length<=size) {
+                    chunks=Arrays.copyOf(chunks, 2*chunks.length);
+                    ends=Arrays.copyOf(ends, 2*ends.length);
+                }
+                ends[size]=end()+chunk.size;
+                chunks[size]=chunk;
+                ++size;
+            }
+
+            private void addAll(@NotNull ByteBuffer buffer) {
+                if (buffer instanceof Direct direct) {
+                    add(direct);
+                }
+                else {
+                    @NotNull Chunks chunks2=(Chunks)buffer;
+                    for (int ii=chunks2.firstChunk; chunks2.lastChunk>ii; ++ii) {
+                        @NotNull Direct chunk=chunks2.chunks[ii];
+                        long start=chunks2.start(ii);
+                        int from=(int)Math.max(0L, chunks2.from-start);
+                        int to=(int)Math.min(chunk.size, chunks2.to-start);
+                        add(((0==from) && (chunk.size==to))
+                                ?chunk
+                                :chunk.subBufferImpl(from, to));
+                    }
+                }
+            }
+
+            private long end() {
+                return (0>=size)
+                        ?0L
+                        :ends[size-1];
+            }
+        }
+
+        private final @NotNull Direct @NotNull [] chunks;
+        private final long @NotNull [] ends;
+        private final int firstChunk;
+        private final long from;
+        private final int lastChunk;
+        private final @NotNull Shared shared;
+        private final long to;
+
+        private Chunks(
+                @NotNull Direct @NotNull [] chunks, long @NotNull [] ends, int firstChunk, long from, int lastChunk,
+                @NotNull Shared shared, long to) {
+            super(Math.toIntExact(to-from));
+            this.chunks=chunks;
+            this.ends=ends;
+            this.firstChunk=firstChunk;
+            this.from=from;
+            this.lastChunk=lastChunk;
+            this.shared=shared;
+            this.to=to;
+        }
+
+        private static @NotNull Chunks append(@NotNull ByteBuffer left, @NotNull ByteBuffer right) {
+            if (left instanceof Chunks chunks) {
+                @NotNull Shared shared=chunks.shared;
+                synchronized (shared) {
+                    if ((shared.size==chunks.lastChunk)
+                            && (shared.end()==chunks.to)
+                            && ((MIN_COMPACT_CHUNKS>chunks.firstChunk)
+                            || (chunks.firstChunk<=shared.size-chunks.firstChunk))) {
+                        shared.addAll(right);
+                        return new Chunks(
+                                shared.chunks,
+                                shared.ends,
+                                chunks.firstChunk,
+                                chunks.from,
+                                shared.size,
+                                shared,
+                                shared.end());
+                    }
+                }
+            }
+            @NotNull Shared shared=new Shared(Math.max(
+                    INITIAL_CAPACITY,
+                    2*(left.chunkCount()+right.chunkCount())));
+            shared.addAll(left);
+            shared.addAll(right);
+            return new Chunks(shared.chunks, shared.ends, 0, 0L, shared.size, shared, shared.end());
+        }
 
-        public Concat(@NotNull ByteBuffer left, @NotNull ByteBuffer right) {
-            super(
-                    left.hashCode+hashMultiplierPower(left.size())*right.hashCode,
-                    left.size()+right.size());
-            this.left=Objects.requireNonNull(left, "left");
-            this.right=Objects.requireNonNull(right, "right");
+        @Override
+        protected int chunkCount() {
+            return lastChunk-firstChunk;
+        }
+
+        /**
+         * @return the index of the chunk containing the shared position
+         */
+        private int chunkIndex(long position) {
+            int low=firstChunk;
+            int high=lastChunk-1;
+            while (low<high) {
+                int middle=(low+high)>>>1;
+                if (ends[middle]<=position) {
+                    low=middle+1;
+                }
+                else {
+                    high=middle;
+                }
+            }
+            return low;
         }
 
         @Override
-        protected @NotNull ByteBuffer subBufferImpl(int from, int to) throws EOFException {
-            @NotNull Reader reader=reader();
-            reader.dropBytes(from);
-            return reader.readByteBuffer(to-from);
+        protected int hashCodeImpl() {
+            int power=1;
+            int result=0;
+            for (int ii=firstChunk; lastChunk>ii; ++ii) {
+                @NotNull Direct chunk=chunks[ii];
+                long start=start(ii);
+                int from2=(int)Math.max(0L, from-start);
+                int to2=(int)Math.min(chunk.size, to-start);
+                result+=power*chunk.hashCodeDirect(from2, to2);
+                power*=hashMultiplierPower(to2-from2);
+            }
+            return result;
+        }
+
+        private void seek(@NotNull Reader reader, int offset) {
+            long position=from+offset;
+            int index=chunkIndex(position);
+            long start=start(index);
+            reader.chunk=chunks[index];
+            reader.chunkIndex=index+1;
+            reader.chunkOffset=(int)(position-start);
+            reader.chunkTo=(int)(Math.min(ends[index], to)-start);
+        }
+
+        private boolean seekNext(@NotNull Reader reader) {
+            int index=reader.chunkIndex;
+            if (lastChunk<=index) {
+                return false;
+            }
+            long start=start(index);
+            reader.chunk=chunks[index];
+            reader.chunkIndex=index+1;
+            reader.chunkOffset=0;
+            reader.chunkTo=(int)(Math.min(ends[index], to)-start);
+            return true;
+        }
+
+        private long start(int index) {
+            return ends[index]-chunks[index].size;
+        }
+
+        @Override
+        protected @NotNull ByteBuffer subBufferImpl(int from, int to) {
+            long from2=this.from+from;
+            long to2=this.from+to;
+            int firstChunk2=chunkIndex(from2);
+            int lastChunk2=chunkIndex(to2-1);
+            if (firstChunk2==lastChunk2) {
+                long start=start(firstChunk2);
+                return chunks[firstChunk2].subBufferImpl((int)(from2-start), (int)(to2-start));
+            }
+            return new Chunks(chunks, ends, firstChunk2, from2, lastChunk2+1, shared, to2);
+        }
+
+        @Override
+        public void write(@NotNull Write write) {
+            for (int ii=firstChunk; lastChunk>ii; ++ii) {
+                @NotNull Direct chunk=chunks[ii];
+                long start=start(ii);
+                chunk.writeDirect(
+                        write,
+                        (int)Math.max(0L, from-start),
+                        (int)Math.min(chunk.size, to-start));
+            }
         }
     }
 
@@ -70,8 +259,8 @@ public sealed abstract class ByteBuffer {
         protected final int from;
         protected final int to;
 
-        public Direct(int from, int hashCode, int length, int to) {
-            super(hashCode, checkIndicesAndSize(from, length, to));
+        public Direct(int from, int length, int to) {
+            super(checkIndicesAndSize(from, length, to));
             this.from=from;
             this.to=to;
         }
@@ -86,8 +275,13 @@ public sealed abstract class ByteBuffer {
             return to-from;
         }
 
+        @Override
+        protected int chunkCount() {
+            return 1;
+        }
+
         protected byte getDirect(int index) {
-            if ((0>index) || (size<index)) {
+            if ((0>index) || (size<=index)) {
                 throw new IndexOutOfBoundsException("size: %,d, index: %,d".formatted(size, index));
             }
             return getRaw(from+index);
@@ -95,21 +289,33 @@ public sealed abstract class ByteBuffer {
 
         protected abstract byte getRaw(int index);
 
+        protected abstract int hashCodeDirect(int from, int to);
+
         @Override
-        protected @NotNull ByteBuffer subBufferImpl(int from, int to) {
+        protected int hashCodeImpl() {
+            return hashCodeDirect(0, size);
+        }
+
+        @Override
+        protected @NotNull Direct subBufferImpl(int from, int to) {
             return subBufferRaw(this.from+from, this.from+to);
         }
 
-        protected abstract @NotNull ByteBuffer subBufferRaw(int from, int to);
+        protected abstract @NotNull Direct subBufferRaw(int from, int to);
 
-        protected abstract void writeDirect(@NotNull Write write);
+        @Override
+        public void write(@NotNull Write write) {
+            writeDirect(write, 0, size);
+        }
+
+        protected abstract void writeDirect(@NotNull Write write, int from, int to);
     }
 
     protected static final class NioBuffer extends Direct {
         private final @NotNull java.nio.ByteBuffer buffer;
 
         public NioBuffer(@NotNull java.nio.ByteBuffer buffer, int from, int to) {
-            super(from, hashCode(buffer, from, to), buffer.capacity(), to);
+            super(from, buffer.capacity(), to);
             this.buffer=Objects.requireNonNull(buffer, "buffer");
         }
 
@@ -118,6 +324,11 @@ public sealed abstract class ByteBuffer {
             return buffer.get(index);
         }
 
+        @Override
+        protected int hashCodeDirect(int from, int to) {
+            return hashCode(buffer, this.from+from, this.from+to);
+        }
+
         public static int hashCode(@NotNull java.nio.ByteBuffer buffer, int from, int to) {
             int result=0;
             for (int ii=to-1; from<=ii; --ii) {
@@ -127,30 +338,99 @@ public sealed abstract class ByteBuffer {
         }
 
         @Override
-        protected @NotNull ByteBuffer subBufferRaw(int from, int to) {
+        public @NotNull java.nio.ByteBuffer nioByteBufferReadOnly() {
+            return buffer.asReadOnlyBuffer()
+                    .limit(to)
+                    .position(from);
+        }
+
+        @Override
+        protected @NotNull Direct subBufferRaw(int from, int to) {
             return new NioBuffer(buffer, from, to);
         }
 
         @Override
-        protected void writeDirect(@NotNull Write write) {
+        protected void writeDirect(@NotNull Write write, int from, int to) {
             @NotNull java.nio.ByteBuffer buffer2=this.buffer.duplicate();
-            buffer2.limit(to);
-            buffer2.position(from);
+            buffer2.limit(this.from+to);
+            buffer2.position(this.from+from);
             write.nioBuffer(buffer2);
         }
     }
 
+    private static final class OutputStreamWrite implements Write {
+        private static final int BUFFER_SIZE=1<<13;
+
+        private final byte @NotNull [] buffer;
+        private int bufferSize;
+        private final @NotNull OutputStream outputStream;
+
+        public OutputStreamWrite(@NotNull OutputStream outputStream, int size) {
+            this.outputStream=Objects.requireNonNull(outputStream, "outputStream");
+            buffer=new byte[Math.min(BUFFER_SIZE, size)];
+        }
+
+        @Override
+        public void array(byte @NotNull [] array, int from, int to) {
+            try {
+                int size=to-from;
+                if (buffer.length-bufferSize>=size) {
+                    System.arraycopy(array, from, buffer, bufferSize, size);
+                    bufferSize+=size;
+                }
+                else {
+                    flush();
+                    if (buffer.length>size) {
+                        System.arraycopy(array, from, buffer, 0, size);
+                        bufferSize=size;
+                    }
+                    else {
+                        outputStream.write(array, from, size);
+                    }
+                }
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        public void flush() throws IOException {
+            if (0<bufferSize) {
+                outputStream.write(buffer, 0, bufferSize);
+                bufferSize=0;
+            }
+        }
+
+        @Override
+        public void nioBuffer(java.nio.@NotNull ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                array(
+                        buffer.array(),
+                        buffer.arrayOffset()+buffer.position(),
+                        buffer.arrayOffset()+buffer.limit());
+            }
+            else {
+                byte[] array=new byte[Math.min(BUFFER_SIZE, buffer.remaining())];
+                while (buffer.hasRemaining()) {
+                    int size=Math.min(array.length, buffer.remaining());
+                    buffer.get(array, 0, size);
+                    array(array, 0, size);
+                }
+            }
+        }
+    }
+
     public static final class Reader {
-        private @Nullable Direct first;
+        private final @NotNull ByteBuffer buffer;
+        private @Nullable Direct chunk;
+        private int chunkIndex;
+        private int chunkOffset;
+        private int chunkTo;
         private int offset;
-        private int remainingFirst;
-        private int remaining;
-        private final @NotNull Deque<@NotNull ByteBuffer> rest=new LinkedList<>();
 
         public Reader(@NotNull ByteBuffer buffer) {
-            Objects.requireNonNull(buffer, "buffer");
-            rest.addLast(buffer);
-            remaining=buffer.size;
+            this.buffer=Objects.requireNonNull(buffer, "buffer");
+            seek(0);
         }
 
         public void assertNoRemainingBytes() {
@@ -160,51 +440,23 @@ public sealed abstract class ByteBuffer {
         }
 
         public void dropBytes(int bytes) throws EOFException {
-            while (0<bytes) {
-                if (0>=remainingFirst) {
-                    if (rest.isEmpty()) {
-                        throw new EOFException();
-                    }
-                    @NotNull ByteBuffer buffer=rest.removeFirst();
-                    while ((buffer.size>bytes) && (buffer instanceof Concat concat)) {
-                        rest.addFirst(concat.right);
-                        buffer=concat.left;
-                    }
-                    if (buffer.size<=bytes) {
-                        bytes-=buffer.size;
-                        offset+=buffer.size;
-                        remaining-=buffer.size;
-                        continue;
-                    }
-                    first=(Direct)buffer;
-                    remainingFirst=buffer.size;
-                }
-                Objects.requireNonNull(first, "first");
-                int size2=Math.min(bytes, remainingFirst);
-                bytes-=size2;
-                offset+=size2;
-                remaining-=size2;
-                remainingFirst-=size2;
-                if (0==remainingFirst) {
-                    first=null;
-                }
+            if (0>=bytes) {
+                return;
+            }
+            if (remainingBytes()<bytes) {
+                seek(buffer.size);
+                throw new EOFException();
             }
+            seek(offset+bytes);
         }
 
-        private void ensureFirst() throws EOFException {
-            while (0>=remainingFirst) {
-                first=null;
-                if (rest.isEmpty()) {
+        private @NotNull Direct ensureChunk() throws EOFException {
+            while ((null==chunk) || (chunkTo<=chunkOffset)) {
+                if ((!(buffer instanceof Chunks chunks)) || (!chunks.seekNext(this))) {
                     throw new EOFException();
                 }
-                @NotNull ByteBuffer buffer=rest.removeFirst();
-                while (buffer instanceof Concat concat) {
-                    rest.addFirst(concat.right);
-                    buffer=concat.left;
-                }
-                first=(Direct)buffer;
-                remainingFirst=first.size;
             }
+            return chunk;
         }
 
         public boolean hasRemainingBytes() {
@@ -216,57 +468,26 @@ public sealed abstract class ByteBuffer {
         }
 
         public byte peekByte() throws EOFException {
-            ensureFirst();
-            Objects.requireNonNull(first, "first");
-            return first.getDirect(first.size-remainingFirst);
+            return ensureChunk().getDirect(chunkOffset);
         }
 
         public byte readByte() throws EOFException {
-            ensureFirst();
-            Objects.requireNonNull(first, "first");
-            byte result=first.getDirect(first.size-remainingFirst);
+            byte result=ensureChunk().getDirect(chunkOffset);
+            ++chunkOffset;
             ++offset;
-            --remainingFirst;
-            --remaining;
-            if (0>=remainingFirst) {
-                first=null;
-            }
             return result;
         }
 
         public @NotNull ByteBuffer readByteBuffer(int bytes) throws EOFException {
-            @NotNull ByteBuffer result=empty();
-            while (0<bytes) {
-                if (0>=remainingFirst) {
-                    if (rest.isEmpty()) {
-                        throw new EOFException();
-                    }
-                    @NotNull ByteBuffer buffer=rest.removeFirst();
-                    while ((buffer.size>bytes) && (buffer instanceof Concat concat)) {
-                        rest.addFirst(concat.right);
-                        buffer=concat.left;
-                    }
-                    if (buffer.size<=bytes) {
-                        result=result.append(buffer);
-                        bytes-=buffer.size;
-                        offset+=buffer.size;
-                        remaining-=buffer.size;
-                        continue;
-                    }
-                    first=(Direct)buffer;
-                    remainingFirst=buffer.size;
-                }
-                Objects.requireNonNull(first, "first");
-                int size2=Math.min(bytes, remainingFirst);
-                result=result.append(first.subBufferImpl(first.size-remainingFirst, first.size-remainingFirst+size2));
-                bytes-=size2;
-                offset+=size2;
-                remaining-=size2;
-                remainingFirst-=size2;
-                if (0>=remainingFirst) {
-                    first=null;
-                }
+            if (0>=bytes) {
+                return empty();
             }
+            if (remainingBytes()<bytes) {
+                seek(buffer.size);
+                throw new EOFException();
+            }
+            @NotNull ByteBuffer result=buffer.subBuffer(offset, offset+bytes);
+            seek(offset+bytes);
             return result;
         }
 
@@ -286,7 +507,22 @@ public sealed abstract class ByteBuffer {
         }
 
         public int remainingBytes() {
-            return remaining;
+            return buffer.size-offset;
+        }
+
+        private void seek(int offset) {
+            this.offset=offset;
+            if ((offset>=buffer.size) || (buffer instanceof Direct)) {
+                chunk=(buffer instanceof Direct direct)
+                        ?direct
+                        :null;
+                chunkIndex=Integer.MAX_VALUE;
+                chunkOffset=offset;
+                chunkTo=buffer.size;
+            }
+            else {
+                ((Chunks)buffer).seek(this, offset);
+            }
         }
     }
 
@@ -340,14 +576,14 @@ public sealed abstract class ByteBuffer {
 
     static final int HASHCODE_MULTIPLIER=13;
 
-    protected final int hashCode;
+    private int hashCode;
+    private boolean hashCodeZero;
     protected final int size;
 
-    private ByteBuffer(int hashCode, int size) {
+    private ByteBuffer(int size) {
         if (0>size) {
             throw new IllegalArgumentException("0 > size %,d".formatted(size));
         }
-        this.hashCode=hashCode;
         this.size=size;
     }
 
@@ -358,7 +594,11 @@ public sealed abstract class ByteBuffer {
         if (buffer.isEmpty()) {
             return this;
         }
-        return new Concat(this, buffer);
+        @NotNull ByteBuffer result=Chunks.append(this, buffer);
+        if (isHashCodeComputed() && buffer.isHashCodeComputed()) {
+            result.setHashCode(hashCode()+hashMultiplierPower(size)*buffer.hashCode());
+        }
+        return result;
     }
 
     public byte@NotNull[] arrayCopy() {
@@ -367,6 +607,8 @@ public sealed abstract class ByteBuffer {
         return write.array;
     }
 
+    protected abstract int chunkCount();
+
     public static @NotNull ByteBuffer create(byte @NotNull ... array) {
         return create(array, 0, array.length);
     }
@@ -443,13 +685,13 @@ public sealed abstract class ByteBuffer {
         if (!(obj instanceof ByteBuffer buffer)) {
             return false;
         }
-        if ((hashCode!=buffer.hashCode) || (size!=buffer.size)) {
+        if ((size!=buffer.size) || (hashCode()!=buffer.hashCode())) {
             return false;
         }
         try {
+            @NotNull Reader reader0=reader();
+            @NotNull Reader reader1=buffer.reader();
             for (int ii=size; 0<ii; --ii) {
-                @NotNull Reader reader0=reader();
-                @NotNull Reader reader1=buffer.reader();
                 if (reader0.readByte()!=reader1.readByte()) {
                     return false;
                 }
@@ -465,11 +707,21 @@ public sealed abstract class ByteBuffer {
         return Array.EMPTY;
     }
 
+    /**
+     * The hash is computed on first use and cached, racy like {@link String#hashCode()}.
+     */
     @Override
     public int hashCode() {
-        return hashCode;
+        int result=hashCode;
+        if ((0==result) && (!hashCodeZero)) {
+            result=hashCodeImpl();
+            setHashCode(result);
+        }
+        return result;
     }
 
+    protected abstract int hashCodeImpl();
+
     private static int hashMultiplierPower(int exponent) {
         int base=HASHCODE_MULTIPLIER;
         int result=1;
@@ -486,16 +738,50 @@ public sealed abstract class ByteBuffer {
         return result;
     }
 
+    protected boolean isHashCodeComputed() {
+        return (0!=hashCode) || hashCodeZero;
+    }
+
     public boolean isEmpty() {
         return 0>=size();
     }
 
+    /**
+     * @return read only views of the chunks, in order, without copying the bytes,
+     *         suitable for gathering writes
+     */
+    public @NotNull java.nio.ByteBuffer @NotNull [] nioBuffers() {
+        @NotNull List<java.nio.@NotNull ByteBuffer> buffers=new ArrayList<>(chunkCount());
+        write(new Write() {
+            @Override
+            public void array(byte @NotNull [] array, int from, int to) {
+                buffers.add(java.nio.ByteBuffer.wrap(array, from, to-from)
+                        .asReadOnlyBuffer());
+            }
+
+            @Override
+            public void nioBuffer(java.nio.@NotNull ByteBuffer buffer) {
+                buffers.add(buffer.asReadOnlyBuffer());
+            }
+        });
+        return buffers.toArray(new java.nio.ByteBuffer[0]);
+    }
+
     public @NotNull java.nio.ByteBuffer nioByteBufferCopy() {
         @NotNull Write.NioBuffer write=new Write.NioBuffer(java.nio.ByteBuffer.allocate(size));
         write(write);
         return write.buffer.flip();
     }
 
+    /**
+     * @return a read only view of the bytes when this is backed by a single array or nio buffer,
+     *         a read only copy otherwise
+     */
+    public @NotNull java.nio.ByteBuffer nioByteBufferReadOnly() {
+        return nioByteBufferCopy()
+                .asReadOnlyBuffer();
+    }
+
     public <T> T read(@NotNull Function<@NotNull Reader, T> function) throws Throwable {
         @NotNull Reader reader=reader();
         T result=function.apply(reader);
@@ -541,6 +827,15 @@ public sealed abstract class ByteBuffer {
         }
     }
 
+    private void setHashCode(int hashCode) {
+        if (0==hashCode) {
+            hashCodeZero=true;
+        }
+        else {
+            this.hashCode=hashCode;
+        }
+    }
+
     public int size() {
         return size;
     }
@@ -549,17 +844,19 @@ public sealed abstract class ByteBuffer {
         return new String(arrayCopy(), StandardCharsets.UTF_8);
     }
 
-    public void write(@NotNull Write write) {
-        @NotNull Deque<@NotNull ByteBuffer> rest=new LinkedList<>();
-        rest.add(this);
-        while (!rest.isEmpty()) {
-            @NotNull ByteBuffer buffer2=rest.removeFirst();
-            while (buffer2 instanceof Concat concat) {
-                rest.addFirst(concat.right);
-                buffer2=concat.left;
-            }
-            @NotNull Direct direct=(Direct)buffer2;
-            direct.writeDirect(write);
+    /**
+     * Large array chunks are written without a copy, small chunks are collected into a single write.
+     */
+    public void write(@NotNull OutputStream outputStream) throws IOException {
+        @NotNull OutputStreamWrite write=new OutputStreamWrite(outputStream, size);
+        try {
+            write(write);
+            write.flush();
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
         }
     }
+
+    public abstract void write(@NotNull Write write);
 }
@@ -21,6 +21,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -389,23 +390,30 @@ public class JavaAsyncChannelConnection implements DuplexConnection {
         }
     }
 
-    private class WriteHandler extends Handler<Integer> {
-        private final @NotNull java.nio.ByteBuffer byteBuffer;
+    private class WriteHandler extends Handler<Long> {
+        private final @NotNull java.nio.ByteBuffer @NotNull [] buffers;
+        private final int offset;
         private final @NotNull SynchronizedWork<Void, Void> work;
 
         public WriteHandler(
-                @NotNull java.nio.ByteBuffer byteBuffer,
+                @NotNull java.nio.ByteBuffer @NotNull [] buffers,
                 @NotNull Context context,
+                int offset,
                 @NotNull SynchronizedWork<Void, Void> work) {
             super(context, work.wait);
-            this.byteBuffer=Objects.requireNonNull(byteBuffer, "byteBuffer");
+            this.buffers=Objects.requireNonNull(buffers, "buffers");
+            this.offset=offset;
             this.work=Objects.requireNonNull(work, "work");
         }
 
         @Override
-        protected void completedSynchronized(Integer result) {
-            if (byteBuffer.hasRemaining()) {
-                new WriteHandler(byteBuffer, context, work)
+        protected void completedSynchronized(Long result) {
+            int offset2=offset;
+            while ((buffers.length>offset2) && (!buffers[offset2].hasRemaining())) {
+                ++offset2;
+            }
+            if (buffers.length>offset2) {
+                new WriteHandler(buffers, context, offset2, work)
                         .write();
             }
             else {
@@ -420,7 +428,7 @@ public class JavaAsyncChannelConnection implements DuplexConnection {
 
         public void write() {
             try {
-                channel.write(byteBuffer, null, this);
+                channel.write(buffers, offset, buffers.length-offset, 0L, TimeUnit.NANOSECONDS, null, this);
             }
             catch (Throwable throwable) {
                 failed(throwable, null);
@@ -524,7 +532,7 @@ public class JavaAsyncChannelConnection implements DuplexConnection {
     @Override
     public @NotNull Lava<Void> write(@NotNull ByteBuffer value) {
         return Write.writeStatic(
-                (context, work)->new WriteHandler(value.nioByteBufferCopy(), context, work)
+                (context, work)->new WriteHandler(value.nioBuffers(), context, 0, work)
                         .write());
     }
 }
@@ -101,6 +101,35 @@ public class JavaBlockingSocketConnection implements DuplexConnection {
         });
     }
 
+    /**
+     * Creates a blocking socket, and connects it to the remote address.
+     */
+    public static @NotNull Socket connect(
+            int delayMillis,
+            @NotNull InetSocketAddress remoteAddress,
+            @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions) throws Throwable {
+        Objects.requireNonNull(remoteAddress, "remoteAddress");
+        Objects.requireNonNull(socketOptions, "socketOptions");
+        boolean error=true;
+        Socket socket=new Socket();
+        try {
+            DuplexConnection.visitSocketOptions(socket, socketOptions, new SocketOptionSetter());
+            try {
+                socket.connect(remoteAddress, delayMillis);
+            }
+            catch (SocketTimeoutException ex) {
+                throw new TimeoutException(ex.toString());
+            }
+            error=false;
+            return socket;
+        }
+        finally {
+            if (error) {
+                socket.close();
+            }
+        }
+    }
+
     public static @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory(
             @NotNull Executor blockingIoExecutor,
             @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions) {
@@ -117,15 +146,8 @@ public class JavaBlockingSocketConnection implements DuplexConnection {
                             int delayMillis=context.clock().checkDelayMillis(
                                     endNanos, JavaBlockingSocketConnection.class+" connect timeout 2");
                             boolean error=true;
-                            Socket socket=new Socket();
+                            Socket socket=connect(delayMillis, remoteAddress, socketOptions);
                             try {
-                                DuplexConnection.visitSocketOptions(socket, socketOptions, new SocketOptionSetter());
-                                try {
-                                    socket.connect(remoteAddress, delayMillis);
-                                }
-                                catch (SocketTimeoutException ex) {
-                                    throw new TimeoutException(ex.toString());
-                                }
                                 InputStream inputStream=socket.getInputStream();
                                 try {
                                     OutputStream outputStream=socket.getOutputStream();
@@ -212,8 +234,7 @@ public class JavaBlockingSocketConnection implements DuplexConnection {
         return Write.writeStatic(
                 (context, work)->blockingRun(()->{
                     try {
-                        byte[] array=value.arrayCopy();
-                        outputStream.write(array);
+                        value.write(outputStream);
                         outputStream.flush();
                         work.completed(null);
                     }
@@ -11,6 +11,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
 import java.util.Map;
@@ -19,6 +20,11 @@ import java.util.concurrent.TimeoutException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Non-blocking socket channel.
+ * Without a {@link SelectorLoop} a channel that's not ready is polled with an exponential backoff.
+ * With a selector loop the lava waits for the selector, and there's no polling.
+ */
 public class JavaChannelPollConnection implements DuplexConnection {
     private static class SocketOptionSetter extends SocketOptionVisitor.SameObject<SocketChannel> {
         @Override
@@ -53,21 +59,51 @@ public class JavaChannelPollConnection implements DuplexConnection {
     }
 
     private final @NotNull SocketChannel channel;
+    private final @Nullable SelectorLoop.Registration registration;
 
-    public JavaChannelPollConnection(@NotNull SocketChannel channel) {
+    public JavaChannelPollConnection(
+            @NotNull SocketChannel channel, @Nullable SelectorLoop.Registration registration) {
         this.channel=Objects.requireNonNull(channel, "channel");
+        this.registration=registration;
+    }
+
+    public JavaChannelPollConnection(@NotNull SocketChannel channel) {
+        this(channel, null);
+    }
+
+    private static @Nullable Lava<Void> await(@Nullable SelectorLoop.Registration registration, int operation) {
+        return (null==registration)
+                ?null
+                :registration.await(operation);
     }
 
     @Override
     public @NotNull Lava<Void> close() {
         return Lava.supplier(()->{
-            channel.close();
+            try {
+                channel.close();
+            }
+            finally {
+                if (null!=registration) {
+                    registration.close();
+                }
+            }
             return Lava.VOID;
         });
     }
 
     public static @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory(
             @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions) {
+        return factory(null, socketOptions);
+    }
+
+    /**
+     * @param selectorLoop null polls the channels
+     */
+    public static @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory(
+            @Nullable SelectorLoop selectorLoop,
+            @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions) {
+        Objects.requireNonNull(socketOptions, "socketOptions");
         return (remoteAddress)->{
             Objects.requireNonNull(remoteAddress, "remoteAddress");
             return Lava.checkEndNanos(JavaChannelPollConnection.class+" connect timeout")
@@ -77,9 +113,11 @@ public class JavaChannelPollConnection implements DuplexConnection {
                         try {
                             channel.configureBlocking(false);
                             DuplexConnection.visitSocketOptions(channel, socketOptions, new SocketOptionSetter());
+                            @Nullable SelectorLoop.Registration registration
+                                    =(null==selectorLoop)?null:selectorLoop.register(channel);
                             Lava<@NotNull DuplexConnection> result;
                             if (channel.connect(remoteAddress)) {
-                                result=Lava.complete(new JavaChannelPollConnection(channel));
+                                result=Lava.complete(new JavaChannelPollConnection(channel, registration));
                             }
                             else {
                                 result=Closeable.wrapOrClose(
@@ -89,10 +127,11 @@ public class JavaChannelPollConnection implements DuplexConnection {
                                         },
                                         ()->Lava.complete(channel),
                                         (channel2)->poll(
+                                                await(registration, SelectionKey.OP_CONNECT),
                                                 ()->{
                                                     if (channel.finishConnect()) {
                                                         return Either.left(Lava.complete(
-                                                                new JavaChannelPollConnection(channel)));
+                                                                new JavaChannelPollConnection(channel, registration)));
                                                     }
                                                     return Either.right(false);
                                                 },
@@ -125,7 +164,11 @@ public class JavaChannelPollConnection implements DuplexConnection {
         return Lava.supplier(()->Lava.complete((InetSocketAddress)channel.getLocalAddress()));
     }
 
+    /**
+     * @param await null polls with backoff
+     */
     private static <T> @NotNull Lava<T> poll(
+            @Nullable Lava<Void> await,
             @NotNull Supplier<@NotNull Either<@NotNull Lava<T>, @NotNull Boolean>> poll,
             @NotNull Supplier<@NotNull Lava<T>> timeout) {
         Objects.requireNonNull(poll, "poll");
@@ -154,6 +197,9 @@ public class JavaChannelPollConnection implements DuplexConnection {
                                 if (either.right()) {
                                     return loop(nowNanos);
                                 }
+                                if (null!=await) {
+                                    return await.composeIgnoreResult(()->loop(startNanos));
+                                }
                                 long elapsedNanos=Clock.endNanosToDelayNanos(nowNanos, startNanos);
                                 return Lava.endNanos(
                                                 Clock.delayNanosToEndNanos(
@@ -172,6 +218,7 @@ public class JavaChannelPollConnection implements DuplexConnection {
         return Lava.supplier(()->{
             java.nio.ByteBuffer buffer=java.nio.ByteBuffer.allocate(DuplexConnection.PAGE_SIZE);
             return poll(
+                    await(registration, SelectionKey.OP_READ),
                     ()->{
                         int read=channel.read(buffer);
                         if (0>read) {
@@ -203,14 +250,20 @@ public class JavaChannelPollConnection implements DuplexConnection {
     @Override
     public @NotNull Lava<Void> write(@NotNull ByteBuffer value) {
         return Lava.supplier(()->{
-            java.nio.ByteBuffer buffer=value.nioByteBufferCopy();
+            java.nio.ByteBuffer[] buffers=value.nioBuffers();
+            class Offset {
+                int index;
+            }
+            Offset offset=new Offset();
             return poll(
+                    await(registration, SelectionKey.OP_WRITE),
                     ()->{
-                        int remaining0=buffer.remaining();
-                        channel.write(buffer);
-                        int remaining1=buffer.remaining();
-                        if (0<remaining1) {
-                            return Either.right(remaining0!=remaining1);
+                        long written=channel.write(buffers, offset.index, buffers.length-offset.index);
+                        while ((buffers.length>offset.index) && (!buffers[offset.index].hasRemaining())) {
+                            ++offset.index;
+                        }
+                        if (buffers.length>offset.index) {
+                            return Either.right(0L<written);
                         }
                         return Either.left(Lava.VOID);
                     },
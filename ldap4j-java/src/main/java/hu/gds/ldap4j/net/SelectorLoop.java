@@ -0,0 +1,300 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.lava.Lava;
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Selector threads for non-blocking channels.
+ * A lava waiting for a channel registers its interest, and parks until the selector finds the channel ready,
+ * or the end nanos of its context.
+ * The waiting lavas are resumed by {@link hu.gds.ldap4j.lava.Context#awaitEndNanos(hu.gds.ldap4j.lava.Callback)},
+ * on their own context, the selector threads run no lava code.
+ * Selection is level triggered, an interest registered after the channel became ready is woken up on the next select.
+ * <p>
+ * A channel is always served by the same selector thread, channels are distributed by their identity hash codes.
+ */
+public class SelectorLoop implements AutoCloseable {
+    /**
+     * The interest of a single channel. There can be one waiting lava for every operation.
+     */
+    public static class Registration {
+        private final @NotNull SelectableChannel channel;
+        private @Nullable Runnable connect;
+        private @Nullable Runnable read;
+        private final @NotNull Worker worker;
+        private @Nullable Runnable write;
+
+        private Registration(@NotNull SelectableChannel channel, @NotNull Worker worker) {
+            this.channel=Objects.requireNonNull(channel, "channel");
+            this.worker=Objects.requireNonNull(worker, "worker");
+        }
+
+        /**
+         * @param operation one of {@link SelectionKey#OP_CONNECT}, {@link SelectionKey#OP_READ},
+         *                  {@link SelectionKey#OP_WRITE}
+         * @return completes when the channel is ready, or at the end nanos of the context
+         */
+        public @NotNull Lava<Void> await(int operation) {
+            if ((SelectionKey.OP_CONNECT!=operation)
+                    && (SelectionKey.OP_READ!=operation)
+                    && (SelectionKey.OP_WRITE!=operation)) {
+                throw new IllegalArgumentException("invalid operation %d".formatted(operation));
+            }
+            return (callback, context)->{
+                if (worker.closed()) {
+                    throw new ClosedException();
+                }
+                @NotNull Runnable wakeUp=context.awaitEndNanos(callback);
+                @Nullable Runnable wakeUp2;
+                synchronized (this) {
+                    switch (operation) {
+                        case SelectionKey.OP_CONNECT -> {
+                            wakeUp2=connect;
+                            connect=wakeUp;
+                        }
+                        case SelectionKey.OP_READ -> {
+                            wakeUp2=read;
+                            read=wakeUp;
+                        }
+                        default -> {
+                            wakeUp2=write;
+                            write=wakeUp;
+                        }
+                    }
+                }
+                // a timed out wait of the same operation
+                worker.wakeUp(wakeUp2);
+                worker.update(this);
+            };
+        }
+
+        /**
+         * Wakes up all the waiting lavas, the channel should be closed before this.
+         */
+        public void close() {
+            List<@NotNull Runnable> wakeUps=new ArrayList<>(3);
+            synchronized (this) {
+                removeReadySynchronized(ALL_OPERATIONS, wakeUps);
+            }
+            wakeUps.forEach(worker::wakeUp);
+        }
+
+        private int interestOpsSynchronized() {
+            return ((null==connect)?0:SelectionKey.OP_CONNECT)
+                    | ((null==read)?0:SelectionKey.OP_READ)
+                    | ((null==write)?0:SelectionKey.OP_WRITE);
+        }
+
+        private void removeReadySynchronized(int readyOps, @NotNull List<@NotNull Runnable> wakeUps) {
+            if ((0!=(readyOps&SelectionKey.OP_CONNECT)) && (null!=connect)) {
+                wakeUps.add(connect);
+                connect=null;
+            }
+            if ((0!=(readyOps&SelectionKey.OP_READ)) && (null!=read)) {
+                wakeUps.add(read);
+                read=null;
+            }
+            if ((0!=(readyOps&SelectionKey.OP_WRITE)) && (null!=write)) {
+                wakeUps.add(write);
+                write=null;
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final @NotNull Selector selector;
+        private final @NotNull AtomicBoolean selectorWokenUp=new AtomicBoolean();
+        /**
+         * The thread has stopped, or is about to stop, because of close or a failed select.
+         */
+        private volatile boolean stopped;
+        private final @NotNull Queue<@NotNull Registration> updates=new ConcurrentLinkedQueue<>();
+
+        public Worker(@NotNull Selector selector) {
+            this.selector=Objects.requireNonNull(selector, "selector");
+        }
+
+        private boolean closed() {
+            return closed || stopped;
+        }
+
+        @Override
+        public void run() {
+            List<@NotNull Runnable> wakeUps=new ArrayList<>();
+            try {
+                while (!closed) {
+                    selector.select();
+                    selectorWokenUp.set(false);
+                    for (@Nullable Registration registration; null!=(registration=updates.poll()); ) {
+                        update(registration, wakeUps);
+                    }
+                    for (SelectionKey key: selector.selectedKeys()) {
+                        Registration registration=(Registration)key.attachment();
+                        synchronized (registration) {
+                            try {
+                                registration.removeReadySynchronized(key.readyOps(), wakeUps);
+                                key.interestOps(registration.interestOpsSynchronized());
+                            }
+                            catch (CancelledKeyException ex) {
+                                registration.removeReadySynchronized(ALL_OPERATIONS, wakeUps);
+                            }
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                    wakeUps.forEach(this::wakeUp);
+                    wakeUps.clear();
+                }
+            }
+            catch (Throwable throwable) {
+                log.error(getClass(), throwable);
+            }
+            finally {
+                // new awaits and updates fail fast from here
+                stopped=true;
+                for (SelectionKey key: selector.keys()) {
+                    if (key.attachment() instanceof Registration registration) {
+                        registration.close();
+                    }
+                }
+                for (@Nullable Registration registration; null!=(registration=updates.poll()); ) {
+                    registration.close();
+                }
+                try {
+                    selector.close();
+                }
+                catch (Throwable throwable) {
+                    log.error(getClass(), throwable);
+                }
+            }
+        }
+
+        public void update(@NotNull Registration registration) {
+            updates.add(registration);
+            if (closed()) {
+                // the thread may have already stopped
+                for (@Nullable Registration registration2; null!=(registration2=updates.poll()); ) {
+                    registration2.close();
+                }
+            }
+            else if (selectorWokenUp.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        private void update(@NotNull Registration registration, @NotNull List<@NotNull Runnable> wakeUps) {
+            synchronized (registration) {
+                int interestOps=registration.interestOpsSynchronized();
+                try {
+                    @Nullable SelectionKey key=registration.channel.keyFor(selector);
+                    if ((null==key) || (!key.isValid())) {
+                        if (0!=interestOps) {
+                            registration.channel.register(selector, interestOps, registration);
+                        }
+                    }
+                    else {
+                        key.interestOps(interestOps);
+                    }
+                }
+                catch (CancelledKeyException|ClosedChannelException ex) {
+                    // the waiting lavas will fail on the closed channel
+                    registration.removeReadySynchronized(interestOps, wakeUps);
+                }
+            }
+        }
+
+        private void wakeUp(@Nullable Runnable wakeUp) {
+            if (null!=wakeUp) {
+                try {
+                    wakeUp.run();
+                }
+                catch (Throwable throwable) {
+                    log.error(getClass(), throwable);
+                }
+            }
+        }
+    }
+
+    private static final int ALL_OPERATIONS=SelectionKey.OP_CONNECT | SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+
+    private volatile boolean closed;
+    private final @NotNull Log log;
+    private final @NotNull Worker @NotNull [] workers;
+
+    /**
+     * Starts the threads.
+     *
+     * @param threadFactory null creates daemon threads
+     */
+    public SelectorLoop(@NotNull Log log, @Nullable ThreadFactory threadFactory, int threads) throws IOException {
+        if (0>=threads) {
+            throw new IllegalArgumentException("0 >= threads %,d".formatted(threads));
+        }
+        this.log=Objects.requireNonNull(log, "log");
+        workers=new Worker[threads];
+        try {
+            for (int ii=0; threads>ii; ++ii) {
+                workers[ii]=new Worker(Selector.open());
+            }
+        }
+        catch (Throwable throwable) {
+            for (Worker worker: workers) {
+                if (null!=worker) {
+                    try {
+                        worker.selector.close();
+                    }
+                    catch (Throwable throwable2) {
+                        throwable.addSuppressed(throwable2);
+                    }
+                }
+            }
+            throw throwable;
+        }
+        for (int ii=0; threads>ii; ++ii) {
+            Thread thread;
+            if (null==threadFactory) {
+                thread=new Thread(workers[ii], "%s-%d".formatted(SelectorLoop.class.getSimpleName(), ii));
+                thread.setDaemon(true);
+            }
+            else {
+                thread=threadFactory.newThread(workers[ii]);
+            }
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the threads, and wakes up all the waiting lavas.
+     * A thread also stops when its selector fails, the channels of that thread cannot be registered after that.
+     */
+    @Override
+    public void close() {
+        closed=true;
+        for (Worker worker: workers) {
+            worker.selector.wakeup();
+        }
+    }
+
+    public @NotNull Registration register(@NotNull SelectableChannel channel) {
+        Objects.requireNonNull(channel, "channel");
+        Worker worker=workers[Math.floorMod(System.identityHashCode(channel), workers.length)];
+        if (worker.closed()) {
+            throw new ClosedException();
+        }
+        return new Registration(channel, worker);
+    }
+}
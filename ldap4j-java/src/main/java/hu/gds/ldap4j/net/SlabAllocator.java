@@ -0,0 +1,77 @@
+package hu.gds.ldap4j.net;
+
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Hands out consecutive regions of larger nio buffers.
+ * A region is never handed out twice, so the bytes written into it can be shared as an immutable {@link ByteBuffer}
+ * without copying.
+ * A slab is dropped when its free space gets smaller than requested,
+ * its memory is reclaimed when all the buffers sharing it become unreachable.
+ * This is thread safe, a slab is used by at most one thread between {@link #allocate(int)} and
+ * {@link #release(java.nio.ByteBuffer, int)}.
+ */
+public class SlabAllocator {
+    public static final int DEFAULT_SLAB_SIZE=1<<16;
+
+    private final boolean direct;
+    private @Nullable java.nio.ByteBuffer slab;
+    private final int slabSize;
+
+    public SlabAllocator(boolean direct, int slabSize) {
+        if (0>=slabSize) {
+            throw new IllegalArgumentException("0 >= slabSize %,d".formatted(slabSize));
+        }
+        this.direct=direct;
+        this.slabSize=slabSize;
+    }
+
+    /**
+     * @return a buffer with at least size bytes remaining, the caller must give it back with
+     *         {@link #release(java.nio.ByteBuffer, int)}
+     */
+    public @NotNull java.nio.ByteBuffer allocate(int size) {
+        if (0>size) {
+            throw new IllegalArgumentException("0 > size %,d".formatted(size));
+        }
+        synchronized (this) {
+            @Nullable java.nio.ByteBuffer slab2=slab;
+            if ((null!=slab2) && (size<=slab2.remaining())) {
+                slab=null;
+                return slab2;
+            }
+        }
+        int capacity=Math.max(size, slabSize);
+        return direct
+                ?java.nio.ByteBuffer.allocateDirect(capacity)
+                :java.nio.ByteBuffer.allocate(capacity);
+    }
+
+    public static @NotNull SlabAllocator create() {
+        return new SlabAllocator(false, DEFAULT_SLAB_SIZE);
+    }
+
+    public boolean direct() {
+        return direct;
+    }
+
+    /**
+     * @return the bytes written into the buffer from start to its current position
+     */
+    public @NotNull ByteBuffer release(@NotNull java.nio.ByteBuffer buffer, int start) {
+        Objects.requireNonNull(buffer, "buffer");
+        int end=buffer.position();
+        @NotNull ByteBuffer result=(start>=end)
+                ?ByteBuffer.empty()
+                :new ByteBuffer.NioBuffer(buffer, start, end);
+        buffer.limit(buffer.capacity());
+        synchronized (this) {
+            if ((null==slab) || (slab.remaining()<buffer.remaining())) {
+                slab=buffer;
+            }
+        }
+        return result;
+    }
+}
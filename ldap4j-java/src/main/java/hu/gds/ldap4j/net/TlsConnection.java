@@ -454,10 +454,14 @@ public class TlsConnection implements DuplexConnection {
                             return Lava.complete(ByteBuffer.empty());
                         }
                         java.nio.ByteBuffer appBuffer
-                                =java.nio.ByteBuffer.allocate(sslEngine.getSession().getApplicationBufferSize());
-                        java.nio.ByteBuffer netBuffer=netReadBuffer.nioByteBufferCopy();
+                                =allocator.allocate(sslEngine.getSession().getApplicationBufferSize());
+                        int appStart=appBuffer.position();
+                        java.nio.ByteBuffer netBuffer=netScratchCopy(netReadBuffer);
                         return lock.leave(()->Lava.complete(sslEngine.unwrap(netBuffer, appBuffer)))
                                 .compose((result)->{
+                                    ByteBuffer app=allocator.release(appBuffer, appStart);
+                                    int netRemaining=netBuffer.remaining();
+                                    netScratch=netBuffer;
                                     SSLEngineResult.Status status=result.getStatus();
                                     return switch (status) {
                                         case BUFFER_OVERFLOW -> throw new IllegalStateException();
@@ -472,14 +476,13 @@ public class TlsConnection implements DuplexConnection {
                                         case CLOSED, OK -> {
                                             boolean closed=SSLEngineResult.Status.CLOSED.equals(status);
                                             netReadBuffer=netReadBuffer.subBuffer(
-                                                    netReadBuffer.size()-netBuffer.remaining(),
+                                                    netReadBuffer.size()-netRemaining,
                                                     netReadBuffer.size());
                                             if (closed && (!netReadBuffer.isEmpty())) {
                                                 throw new RuntimeException(
                                                         "unexpected data after tls engine close %s"
                                                                 .formatted(netReadBuffer));
                                             }
-                                            ByteBuffer app=ByteBuffer.create(appBuffer.flip());
                                             if ((!closed) || (!app.isEmpty())) {
                                                 yield Lava.complete(app);
                                             }
@@ -513,19 +516,18 @@ public class TlsConnection implements DuplexConnection {
                         if ((!force) && app.isEmpty()) {
                             return Lava.VOID;
                         }
-                        java.nio.ByteBuffer appBuffer=app.nioByteBufferCopy();
+                        java.nio.ByteBuffer[] appBuffers=app.nioBuffers();
                         java.nio.ByteBuffer netBuffer
-                                =java.nio.ByteBuffer.allocate(sslEngine.getSession().getPacketBufferSize());
-                        return lock.leave(()->Lava.complete(sslEngine.wrap(appBuffer, netBuffer)))
+                                =allocator.allocate(sslEngine.getSession().getPacketBufferSize());
+                        int netStart=netBuffer.position();
+                        return lock.leave(()->Lava.complete(sslEngine.wrap(appBuffers, netBuffer)))
                                 .compose((result)->{
+                                    ByteBuffer net=allocator.release(netBuffer, netStart);
                                     SSLEngineResult.Status status=result.getStatus();
                                     return switch (status) {
                                         case BUFFER_OVERFLOW, BUFFER_UNDERFLOW -> throw new IllegalStateException();
                                         case CLOSED, OK -> {
-                                            ByteBuffer net=ByteBuffer.create(netBuffer.flip());
-                                            ByteBuffer app2=app.subBuffer(
-                                                    app.size()-appBuffer.remaining(),
-                                                    app.size());
+                                            ByteBuffer app2=app.subBuffer(result.bytesConsumed(), app.size());
                                             yield lock.leave(()->connection.write(net))
                                                     .composeIgnoreResult(()->wrap(false, app2));
                                         }
@@ -835,19 +837,38 @@ public class TlsConnection implements DuplexConnection {
     }
 
     public static final boolean DEFAULT_EXPLICIT_TLS_RENEGOTIATION=false;
+    public static final int MIN_NET_SCRATCH_SIZE=2*PAGE_SIZE;
 
+    private final @NotNull SlabAllocator allocator;
     private final @NotNull DuplexConnection connection;
     private final boolean explicitTlsRenegotiation;
     private final Lock lock=new Lock();
+    /**
+     * The engine decrypts in place, it gets a private copy of the received bytes.
+     * The engine unwraps outside the lock, {@link #netScratchCopy(ByteBuffer)} detaches the buffer before that,
+     * and it's put back only after the lock is taken again, so two unwraps never share it.
+     */
+    private @Nullable java.nio.ByteBuffer netScratch;
     private @NotNull State state=new Plaintext(false, false, false, false, false, false);
 
+    /**
+     * @param allocator unwrapped and wrapped bytes are written into slabs of this, it may be shared between connections
+     */
+    public TlsConnection(
+            @NotNull SlabAllocator allocator,
+            @NotNull DuplexConnection connection,
+            boolean explicitTlsRenegotiation) {
+        this.allocator=Objects.requireNonNull(allocator, "allocator");
+        this.connection=Objects.requireNonNull(connection, "connection");
+        this.explicitTlsRenegotiation=explicitTlsRenegotiation;
+    }
+
     public TlsConnection(@NotNull DuplexConnection connection) {
         this(connection, DEFAULT_EXPLICIT_TLS_RENEGOTIATION);
     }
 
     public TlsConnection(@NotNull DuplexConnection connection, boolean explicitTlsRenegotiation) {
-        this.connection=Objects.requireNonNull(connection, "connection");
-        this.explicitTlsRenegotiation=explicitTlsRenegotiation;
+        this(SlabAllocator.create(), connection, explicitTlsRenegotiation);
     }
 
     @Override
@@ -864,12 +885,27 @@ public class TlsConnection implements DuplexConnection {
     public static @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull TlsConnection>> factory(
             boolean explicitTlsRenegotiation,
             @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory) {
+        return factory(null, explicitTlsRenegotiation, factory);
+    }
+
+    /**
+     * @param allocator shared between the connections, or null to create one for each connection
+     */
+    public static @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull TlsConnection>> factory(
+            @Nullable SlabAllocator allocator,
+            boolean explicitTlsRenegotiation,
+            @NotNull Function<@NotNull InetSocketAddress, @NotNull Lava<@NotNull DuplexConnection>> factory) {
         Objects.requireNonNull(factory, "factory");
         return (remoteAddress)->{
             Objects.requireNonNull(remoteAddress, "remoteAddress");
             return Closeable.wrapOrClose(
                     ()->factory.apply(remoteAddress),
-                    (connection)->Lava.complete(new TlsConnection(connection, explicitTlsRenegotiation)));
+                    (connection)->Lava.complete(new TlsConnection(
+                            (null==allocator)
+                                    ?SlabAllocator.create()
+                                    :allocator,
+                            connection,
+                            explicitTlsRenegotiation)));
         };
     }
 
@@ -906,6 +942,20 @@ public class TlsConnection implements DuplexConnection {
         return getGuardedLock(()->state.readLocked());
     }
 
+    private @NotNull java.nio.ByteBuffer netScratchCopy(@NotNull ByteBuffer value) {
+        @Nullable java.nio.ByteBuffer buffer=netScratch;
+        netScratch=null;
+        if ((null==buffer) || (buffer.capacity()<value.size())) {
+            int capacity=Math.max(MIN_NET_SCRATCH_SIZE, value.size());
+            buffer=allocator.direct()
+                    ?java.nio.ByteBuffer.allocateDirect(capacity)
+                    :java.nio.ByteBuffer.allocate(capacity);
+        }
+        buffer.clear();
+        value.write(new ByteBuffer.Write.NioBuffer(buffer));
+        return buffer.flip();
+    }
+
     @Override
     public @NotNull Lava<@NotNull InetSocketAddress> remoteAddress() {
         return connection.remoteAddress();
@@ -14,6 +14,7 @@ import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
@@ -132,6 +133,23 @@ public sealed interface TlsSettings {
                 }
             }
         }
+
+        public void set(SSLSocket socket) {
+            switch (this) {
+                case NONE -> {
+                    socket.setNeedClientAuth(false);
+                    socket.setWantClientAuth(false);
+                }
+                case OPTIONAL -> {
+                    socket.setNeedClientAuth(true);
+                    socket.setWantClientAuth(false);
+                }
+                case REQUIRED -> {
+                    socket.setNeedClientAuth(true);
+                    socket.setWantClientAuth(true);
+                }
+            }
+        }
     }
 
     record NoTls() implements TlsSettings {
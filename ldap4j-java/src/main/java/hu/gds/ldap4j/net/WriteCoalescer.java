@@ -0,0 +1,177 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.lava.Callback;
+import hu.gds.ldap4j.lava.Clock;
+import hu.gds.ldap4j.lava.Context;
+import hu.gds.ldap4j.lava.Lava;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Coalesces the writes of a connection.
+ * A write started while an other one is in progress is queued,
+ * and the queued writes are written together when the connection becomes free,
+ * many small pipelined messages become a single tls wrap, and a single socket write.
+ * A lone write is written immediately, it doesn't wait for other writes to join it.
+ * <p>
+ * A batch is at most max batch size bytes, unless it's a single larger write.
+ * Writes are not reordered, and there's at most one batch written at a time.
+ * A write completes when its batch is written, and fails with its batch.
+ * A batch is written on the context of its write with the latest end nanos,
+ * a write may complete after its own end nanos, when it's batched with writes of later end nanos.
+ */
+public class WriteCoalescer {
+    private class Batch implements Callback<Void> {
+        private final @NotNull List<@NotNull Pending> pendings;
+
+        public Batch(@NotNull List<@NotNull Pending> pendings) {
+            this.pendings=Objects.requireNonNull(pendings, "pendings");
+        }
+
+        @Override
+        public void completed(Void value) {
+            end(null);
+        }
+
+        /**
+         * Starts the next batch, and ends every write of this batch.
+         */
+        private void end(@Nullable Throwable throwable) {
+            try {
+                writeBatch();
+            }
+            finally {
+                for (Pending pending: pendings) {
+                    try {
+                        if (null==throwable) {
+                            pending.context.complete(pending.callback, null);
+                        }
+                        else {
+                            pending.context.fail(pending.callback, throwable);
+                        }
+                    }
+                    catch (Throwable throwable2) {
+                        // the context of the write is closed, the other writes still end
+                        pending.context.log().error(getClass(), throwable2);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void failed(@NotNull Throwable throwable) {
+            end(throwable);
+        }
+    }
+
+    /**
+     * @param value null for flushes
+     */
+    private record Pending(@NotNull Callback<Void> callback, @NotNull Context context, @Nullable ByteBuffer value) {
+    }
+
+    public static final int DEFAULT_MAX_BATCH_SIZE=1<<16;
+
+    private final Object lock=new Object();
+    private final int maxBatchSize;
+    private final @NotNull Deque<@NotNull Pending> queue=new ArrayDeque<>();
+    private final @NotNull Function<@NotNull ByteBuffer, @NotNull Lava<Void>> write;
+    private boolean writing;
+
+    public WriteCoalescer(int maxBatchSize, @NotNull Function<@NotNull ByteBuffer, @NotNull Lava<Void>> write) {
+        if (0>=maxBatchSize) {
+            throw new IllegalArgumentException("0 >= maxBatchSize %,d".formatted(maxBatchSize));
+        }
+        this.maxBatchSize=maxBatchSize;
+        this.write=Objects.requireNonNull(write, "write");
+    }
+
+    public WriteCoalescer(@NotNull Function<@NotNull ByteBuffer, @NotNull Lava<Void>> write) {
+        this(DEFAULT_MAX_BATCH_SIZE, write);
+    }
+
+    /**
+     * @return the context of the write with the latest end nanos,
+     *         a write with a short timeout doesn't time out the other writes of its batch
+     */
+    private static @NotNull Context context(@NotNull List<@NotNull Pending> pendings) {
+        @NotNull Context context=pendings.get(0).context;
+        long endNanos=context.endNanos();
+        for (Pending pending: pendings) {
+            long endNanos2=pending.context.endNanos();
+            if (0<Clock.compareEndNanos(endNanos2, endNanos, context.clock().nowNanos())) {
+                context=pending.context;
+                endNanos=endNanos2;
+            }
+        }
+        return context;
+    }
+
+    private @NotNull Lava<Void> enqueue(@Nullable ByteBuffer value) {
+        return (callback, context)->{
+            boolean writeBatch;
+            synchronized (lock) {
+                queue.addLast(new Pending(callback, context, value));
+                writeBatch=!writing;
+                writing=true;
+            }
+            if (writeBatch) {
+                writeBatch();
+            }
+        };
+    }
+
+    /**
+     * @return completes when all the writes queued before it are written
+     */
+    public @NotNull Lava<Void> flush() {
+        return enqueue(null);
+    }
+
+    public @NotNull Lava<Void> write(@NotNull ByteBuffer value) {
+        Objects.requireNonNull(value, "value");
+        return enqueue(value);
+    }
+
+    private void writeBatch() {
+        @NotNull List<@NotNull Pending> pendings=new ArrayList<>();
+        @NotNull ByteBuffer buffer=ByteBuffer.empty();
+        boolean write2=false;
+        synchronized (lock) {
+            for (@Nullable Pending pending; null!=(pending=queue.peekFirst()); ) {
+                if (null!=pending.value) {
+                    if (write2 && (maxBatchSize-buffer.size()<pending.value.size())) {
+                        break;
+                    }
+                    buffer=buffer.append(pending.value);
+                    write2=true;
+                }
+                pendings.add(queue.removeFirst());
+            }
+            if (pendings.isEmpty()) {
+                writing=false;
+                return;
+            }
+        }
+        @NotNull Batch batch=new Batch(pendings);
+        if (write2) {
+            @NotNull ByteBuffer buffer2=buffer;
+            try {
+                context(pendings).get(batch, Lava.supplier(()->write.apply(buffer2)));
+            }
+            catch (Throwable throwable) {
+                // the context rejected the write, nothing was written
+                batch.failed(throwable);
+            }
+        }
+        else {
+            batch.completed(null);
+        }
+    }
+}
@@ -7,9 +7,10 @@ import hu.gds.ldap4j.lava.Clock;
 import hu.gds.ldap4j.lava.Context;
 import hu.gds.ldap4j.lava.MinHeap;
 import hu.gds.ldap4j.net.ClosedException;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
 import java.util.function.LongPredicate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -54,7 +55,7 @@ public abstract class AbstractTrampoline<C extends AbstractTrampoline.AbstractCo
     private boolean closed;
     protected final @NotNull Object lock=new Object();
     protected final @NotNull Log log;
-    private final @NotNull Deque<@NotNull Runnable> runnableQueue=new LinkedList<>();
+    private @NotNull Deque<@NotNull Runnable> runnableQueue=new ArrayDeque<>();
     private final @NotNull MinHeap<@NotNull CallbackContext<Void>> waitQueue=new MinHeap<>(
             1, (callbackContext)->callbackContext.context().endNanos());
 
@@ -124,31 +125,91 @@ public abstract class AbstractTrampoline<C extends AbstractTrampoline.AbstractCo
         }
     }
 
-    protected boolean runOne(Long waitEndNanos) throws Throwable {
-        @NotNull Runnable runnable;
+    /**
+     * Moves the expired timers to the queue of tasks, and waits when there's nothing to run.
+     *
+     * @return the queue of tasks is not empty
+     */
+    private boolean readyOrWaitSynchronized(Long waitEndNanos) throws Throwable {
+        checkClosedSynchronized();
+        long nowNanos=clock().nowNanos();
+        while (!waitQueue.isEmpty()
+                && (!waitQueue.peekMin().context().isEndNanosInTheFuture(nowNanos))) {
+            CallbackContext<Void> wait=waitQueue.removeMin(nowNanos);
+            runnableQueue.addLast(new WakeUp(wait));
+        }
+        if (!runnableQueue.isEmpty()) {
+            return true;
+        }
+        if (null!=waitEndNanos) {
+            if (!waitQueue.isEmpty()) {
+                long minWaitEndNanos=waitQueue.peekMin().context().endNanos();
+                if (0<Clock.compareEndNanos(waitEndNanos, minWaitEndNanos, nowNanos)) {
+                    waitEndNanos=minWaitEndNanos;
+                }
+            }
+            Clock.synchronizedWaitDelayNanos(waitEndNanos-nowNanos, lock);
+        }
+        return false;
+    }
+
+    /**
+     * Takes all the ready tasks and the expired timers in one critical section, and runs them outside of it.
+     * Waits only when there's nothing to run.
+     * The batch stops early when done, the rest of the batch is put back to the head of the queue,
+     * the order of the tasks is the same as running them one by one.
+     *
+     * @param done checked after every task, without holding the lock
+     * @return false, when there was nothing to run, and waitEndNanos is null
+     */
+    protected boolean runBatch(@NotNull BooleanSupplier done, Long waitEndNanos) throws Throwable {
+        Objects.requireNonNull(done, "done");
+        @Nullable Deque<@NotNull Runnable> batch;
+        @Nullable Runnable runnable;
         synchronized (lock) {
-            checkClosedSynchronized();
-            long nowNanos=clock().nowNanos();
-            while (!waitQueue.isEmpty()
-                    && (!waitQueue.peekMin().context().isEndNanosInTheFuture(nowNanos))) {
-                CallbackContext<Void> wait=waitQueue.removeMin(nowNanos);
-                runnableQueue.addLast(new WakeUp(wait));
+            if (!readyOrWaitSynchronized(waitEndNanos)) {
+                return null!=waitEndNanos;
+            }
+            if (1==runnableQueue.size()) {
+                runnable=runnableQueue.removeFirst();
+                batch=null;
+            }
+            else {
+                runnable=null;
+                batch=runnableQueue;
+                runnableQueue=new ArrayDeque<>();
             }
-            if (runnableQueue.isEmpty()) {
-                if (null==waitEndNanos) {
-                    return false;
+        }
+        if (null!=runnable) {
+            runnable.run();
+            return true;
+        }
+        try {
+            while (null!=(runnable=batch.pollFirst())) {
+                runnable.run();
+                if (done.getAsBoolean()) {
+                    break;
                 }
-                else {
-                    if (!waitQueue.isEmpty()) {
-                        long minWaitEndNanos=waitQueue.peekMin().context().endNanos();
-                        if (0<Clock.compareEndNanos(waitEndNanos, minWaitEndNanos, nowNanos)) {
-                            waitEndNanos=minWaitEndNanos;
-                        }
+            }
+        }
+        finally {
+            if (!batch.isEmpty()) {
+                synchronized (lock) {
+                    while (null!=(runnable=batch.pollLast())) {
+                        runnableQueue.addFirst(runnable);
                     }
-                    Clock.synchronizedWaitDelayNanos(waitEndNanos-nowNanos, lock);
-                    return true;
                 }
             }
+        }
+        return true;
+    }
+
+    protected boolean runOne(Long waitEndNanos) throws Throwable {
+        @NotNull Runnable runnable;
+        synchronized (lock) {
+            if (!readyOrWaitSynchronized(waitEndNanos)) {
+                return null!=waitEndNanos;
+            }
             runnable=runnableQueue.removeFirst();
         }
         runnable.run();
@@ -68,7 +68,7 @@ public class LavaEngine extends AbstractTrampoline<LavaEngine.Context> {
     }
 
     public void runAll() throws Throwable {
-        while (runOne(null)) {
+        while (runBatch(()->false, null)) {
         }
     }
 }
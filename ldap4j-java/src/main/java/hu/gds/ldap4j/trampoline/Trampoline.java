@@ -27,7 +27,7 @@ public class Trampoline extends AbstractTrampoline<Trampoline.Context> {
                 boolean assertNoResidueIn, boolean assertNoResidueOut, @NotNull Lava<T> lava) throws Throwable {
             Objects.requireNonNull(lava, "lava");
             class Get extends Callback.AbstractSingleRunCallback<T> {
-                boolean completed;
+                volatile boolean completed;
                 T result;
                 @Nullable Throwable throwable;
 
@@ -55,9 +55,10 @@ public class Trampoline extends AbstractTrampoline<Trampoline.Context> {
                         execute(()->Trampoline.Context.this.get(this, lava));
                     }
                     while (true) {
-                        synchronized (trampoline.lock) {
-                            trampoline.checkClosedSynchronized();
-                            if (completed) {
+                        // the batch checks whether the trampoline is closed
+                        if (completed) {
+                            synchronized (trampoline.lock) {
+                                trampoline.checkClosedSynchronized();
                                 trampoline.assertNoResidueSynchronized(assertNoResidueOut);
                                 if (null==throwable) {
                                     return result;
@@ -66,7 +67,7 @@ public class Trampoline extends AbstractTrampoline<Trampoline.Context> {
                             }
                         }
                         checkEndNanos("computation timeout");
-                        if (!trampoline.runOne(endNanos())) {
+                        if (!trampoline.runBatch(()->completed, endNanos())) {
                             throw new IllegalStateException();
                         }
                     }
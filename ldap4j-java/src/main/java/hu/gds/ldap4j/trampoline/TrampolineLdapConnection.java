@@ -150,6 +150,26 @@ public record TrampolineLdapConnection(
                 .get(true, true, connection.search(request));
     }
 
+    /**
+     * The consumer is called on the calling thread, the next result is not read until it returns.
+     */
+    public void searchStream(
+            @NotNull Consumer<@NotNull ControlsMessage<SearchResult>> consumer,
+            long endNanos,
+            @NotNull ControlsMessage<SearchRequest> request) throws Throwable {
+        Objects.requireNonNull(consumer, "consumer");
+        trampoline.contextEndNanos(endNanos)
+                .get(
+                        true,
+                        true,
+                        connection.searchStream(
+                                (searchResult)->{
+                                    consumer.accept(searchResult);
+                                    return Lava.VOID;
+                                },
+                                request));
+    }
+
     public void startTls(long endNanos, @NotNull TlsSettings.Tls tls) throws Throwable {
         trampoline.contextEndNanos(endNanos)
                 .get(true, true, connection.startTls(null, tls));
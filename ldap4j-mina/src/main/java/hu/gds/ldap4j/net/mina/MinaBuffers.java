@@ -0,0 +1,107 @@
+package hu.gds.ldap4j.net.mina;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.Objects;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public class MinaBuffers {
+    /**
+     * Wraps a buffer made of a single chunk, copies the chunks of every other buffer into one io buffer.
+     */
+    private static class ToMina implements ByteBuffer.Write {
+        private boolean copy;
+        private @Nullable IoBuffer result;
+        private final int size;
+
+        public ToMina(int size) {
+            this.size=size;
+        }
+
+        @Override
+        public void array(byte @NotNull [] array, int from, int to) {
+            if (from>=to) {
+                return;
+            }
+            if ((null==result) && (size==to-from)) {
+                result=IoBuffer.wrap(array, from, to-from);
+            }
+            else {
+                copy().put(array, from, to-from);
+            }
+        }
+
+        private @NotNull IoBuffer copy() {
+            if (null==result) {
+                copy=true;
+                result=IoBuffer.allocate(size);
+            }
+            return result;
+        }
+
+        @Override
+        public void nioBuffer(java.nio.@NotNull ByteBuffer buffer) {
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+            if ((null==result) && (size==buffer.remaining())) {
+                result=IoBuffer.wrap(buffer);
+            }
+            else {
+                copy().put(buffer);
+            }
+        }
+
+        public @NotNull IoBuffer result() {
+            @NotNull IoBuffer result2=Objects.requireNonNull(result, "result");
+            if (copy) {
+                result2.flip();
+            }
+            return result2;
+        }
+    }
+
+    private MinaBuffers() {
+    }
+
+    /**
+     * Wraps the remaining bytes of the io buffer without copying them.
+     * The buffer must not be modified or reused after this.
+     * The nio processor of mina-core 2.2 allocates a new buffer for every read,
+     * and drops it after firing messageReceived, it frees only the buffers of empty reads.
+     * This doesn't hold for filters that reuse their buffers, the connection of ldap4j has no filters.
+     * Mostly empty buffers are copied, a few bytes shouldn't keep a whole read buffer alive.
+     */
+    public static @NotNull ByteBuffer fromMina(@NotNull IoBuffer ioBuffer) {
+        Objects.requireNonNull(ioBuffer, "ioBuffer");
+        int size=ioBuffer.remaining();
+        if (0>=size) {
+            return ByteBuffer.empty();
+        }
+        if (2*size<ioBuffer.capacity()) {
+            byte[] array=new byte[size];
+            ioBuffer.get(array);
+            return ByteBuffer.create(array);
+        }
+        if (ioBuffer.hasArray()) {
+            int from=ioBuffer.arrayOffset()+ioBuffer.position();
+            return ByteBuffer.create(ioBuffer.array(), from, from+size);
+        }
+        return ByteBuffer.create(ioBuffer.buf().slice());
+    }
+
+    /**
+     * @return wraps the byte buffer when it's a single chunk,
+     *         copies it into a buffer of the io buffer allocator otherwise
+     */
+    public static @NotNull IoBuffer toMina(@NotNull ByteBuffer byteBuffer) {
+        Objects.requireNonNull(byteBuffer, "byteBuffer");
+        if (byteBuffer.isEmpty()) {
+            return IoBuffer.allocate(0);
+        }
+        @NotNull ToMina toMina=new ToMina(byteBuffer.size());
+        byteBuffer.write(toMina);
+        return toMina.result();
+    }
+}
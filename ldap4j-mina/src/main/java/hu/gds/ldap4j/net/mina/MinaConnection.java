@@ -106,11 +106,7 @@ public class MinaConnection implements DuplexConnection {
         public void messageReceived(IoSession ioSession, Object object) {
             try {
                 Objects.requireNonNull(object, "object");
-                IoBuffer buffer=(IoBuffer)object;
-                byte[] array=new byte[buffer.remaining()];
-                buffer.get(array);
-                ByteBuffer byteBuffer=ByteBuffer.create(array);
-                read.completed(byteBuffer);
+                read.completed(MinaBuffers.fromMina((IoBuffer)object));
             }
             catch (Throwable throwable) {
                 log.error(getClass(), throwable);
@@ -337,7 +333,7 @@ public class MinaConnection implements DuplexConnection {
                             }
                             writes.add(work);
                         }
-                        session.write(IoBuffer.wrap(value.arrayCopy()))
+                        session.write(MinaBuffers.toMina(value))
                                 .addListener(new ErrorListener<WriteFuture>(log) {
                                     @Override
                                     protected void operationCompleteImpl(WriteFuture future) {
@@ -2,32 +2,139 @@ package hu.gds.ldap4j.net.netty;
 
 import hu.gds.ldap4j.net.ByteBuffer;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class NettyBuffers {
+    /**
+     * Collects the chunks of a buffer into the components of a composite buffer.
+     * Direct nio chunks are wrapped as they are,
+     * consecutive heap chunks are copied into a single io buffer of the allocator.
+     * Netty copies heap buffers into direct ones before writing them to a socket anyway,
+     * this way the heap bytes are copied once, and the direct bytes are not copied.
+     */
+    private static class Components implements ByteBuffer.Write {
+        private final @NotNull ByteBufAllocator allocator;
+        private final @NotNull List<@NotNull ByteBuf> components=new ArrayList<>();
+        private @Nullable ByteBuf copy;
+        private int remaining;
+
+        public Components(@NotNull ByteBufAllocator allocator, int remaining) {
+            this.allocator=Objects.requireNonNull(allocator, "allocator");
+            this.remaining=remaining;
+        }
+
+        @Override
+        public void array(byte @NotNull [] array, int from, int to) {
+            copy().writeBytes(array, from, to-from);
+            remaining-=to-from;
+        }
+
+        private @NotNull ByteBuf copy() {
+            if (null==copy) {
+                copy=allocator.ioBuffer(remaining);
+            }
+            return copy;
+        }
+
+        private void flushCopy() {
+            if (null!=copy) {
+                components.add(copy);
+                copy=null;
+            }
+        }
+
+        @Override
+        public void nioBuffer(java.nio.@NotNull ByteBuffer buffer) {
+            int size=buffer.remaining();
+            if (buffer.isDirect()) {
+                flushCopy();
+                components.add(Unpooled.wrappedBuffer(buffer));
+            }
+            else {
+                copy().writeBytes(buffer);
+            }
+            remaining-=size;
+        }
+
+        public void release() {
+            flushCopy();
+            for (ByteBuf component: components) {
+                component.release();
+            }
+            components.clear();
+        }
+
+        public @NotNull ByteBuf result() {
+            flushCopy();
+            return switch (components.size()) {
+                case 0 -> Unpooled.EMPTY_BUFFER;
+                case 1 -> components.get(0);
+                default -> allocator.compositeBuffer(components.size())
+                        .addComponents(true, components);
+            };
+        }
+    }
+
     private NettyBuffers() {
     }
 
+    /**
+     * Consumes the readable bytes, the byte buf is still owned by the caller.
+     * Decoded values share the memory of the returned buffer, and may outlive the read,
+     * so the memory must stay valid after the caller releases the byte buf.
+     * The array of an unpooled heap byte buf is only dropped on release, it's wrapped without copying.
+     * A pooled byte buf returns its memory to the pool, and an unpooled direct one frees its memory on release,
+     * these are copied.
+     * Mostly empty buffers are copied too, a few bytes shouldn't keep a whole read buffer alive.
+     */
     public static @NotNull ByteBuffer fromNetty(@NotNull ByteBuf byteBuf) {
-        byte[] array=new byte[byteBuf.readableBytes()];
+        Objects.requireNonNull(byteBuf, "byteBuf");
+        int size=byteBuf.readableBytes();
+        if (0>=size) {
+            return ByteBuffer.empty();
+        }
+        if ((byteBuf.alloc() instanceof UnpooledByteBufAllocator)
+                && byteBuf.hasArray()
+                && (1==byteBuf.nioBufferCount())
+                && (2*size>=byteBuf.capacity())) {
+            @NotNull ByteBuffer result=ByteBuffer.create(byteBuf.nioBuffer());
+            byteBuf.skipBytes(size);
+            return result;
+        }
+        byte[] array=new byte[size];
         byteBuf.readBytes(array);
         return ByteBuffer.create(array);
     }
 
     public static @NotNull ByteBuf toNetty(@NotNull ByteBuffer byteBuffer) {
-        ByteBuf byteBuf=Unpooled.buffer(byteBuffer.size());
-        byteBuffer.write(new ByteBuffer.Write() {
-            @Override
-            public void array(byte @NotNull [] array, int from, int to) {
-                byteBuf.writeBytes(array, from, to-from);
-            }
+        return toNetty(UnpooledByteBufAllocator.DEFAULT, byteBuffer);
+    }
 
-            @Override
-            public void nioBuffer(java.nio.@NotNull ByteBuffer buffer) {
-                byteBuf.writeBytes(buffer);
-            }
-        });
-        return byteBuf;
+    /**
+     * @return a buffer allocated from the allocator, composed of the chunks of the byte buffer,
+     *         owned by the caller
+     */
+    public static @NotNull ByteBuf toNetty(@NotNull ByteBufAllocator allocator, @NotNull ByteBuffer byteBuffer) {
+        Objects.requireNonNull(allocator, "allocator");
+        Objects.requireNonNull(byteBuffer, "byteBuffer");
+        if (byteBuffer.isEmpty()) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        @NotNull Components components=new Components(allocator, byteBuffer.size());
+        try {
+            byteBuffer.write(components);
+            return components.result();
+        }
+        catch (Throwable throwable) {
+            components.release();
+            throw throwable;
+        }
     }
 }
@@ -262,7 +262,7 @@ public class NettyConnection implements DuplexConnection {
     @Override
     public @NotNull Lava<Void> write(@NotNull ByteBuffer value) {
         return Write.writeStatic(
-                (context, work)->channel.writeAndFlush(NettyBuffers.toNetty(value))
+                (context, work)->channel.writeAndFlush(NettyBuffers.toNetty(channel.alloc(), value))
                         .addListener(new ErrorListener(log) {
                             @Override
                             protected void completed() {
@@ -180,7 +180,7 @@ public class NettyLdapCodec extends ChannelDuplexHandler {
                 ((DuplexChannel)ctx.channel()).shutdownOutput();
             }
             else if (!byteBuffer.isEmpty()) {
-                ctx.writeAndFlush(NettyBuffers.toNetty(byteBuffer));
+                ctx.writeAndFlush(NettyBuffers.toNetty(ctx.alloc(), byteBuffer));
             }
         }
     }
@@ -574,7 +574,13 @@ public class NettyLdapCodec extends ChannelDuplexHandler {
         try {
             Objects.requireNonNull(msg);
             ByteBuf byteBuf=(ByteBuf)msg;
-            @NotNull ByteBuffer value=NettyBuffers.fromNetty(byteBuf);
+            @NotNull ByteBuffer value;
+            try {
+                value=NettyBuffers.fromNetty(byteBuf);
+            }
+            finally {
+                byteBuf.release();
+            }
             @NotNull List<@NotNull Event> events=new ArrayList<>();
             state=state.channelRead(events, value);
             crankEngine(ctx, events);
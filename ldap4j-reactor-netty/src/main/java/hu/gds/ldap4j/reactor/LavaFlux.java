@@ -0,0 +1,175 @@
+package hu.gds.ldap4j.reactor;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.lava.Callback;
+import hu.gds.ldap4j.lava.Context;
+import hu.gds.ldap4j.lava.Lava;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+
+/**
+ * Runs a lava that emits values one by one.
+ * The lava is started on the first request.
+ * The lava returned by the emitter completes when the value was passed to the subscriber,
+ * it waits while the subscriber has no outstanding demand.
+ * Cancelling fails the pending and the subsequent emits with a {@link CancellationException},
+ * the subscriber is not signalled after that.
+ * Requesting a non-positive number of values cancels the subscription, and fails the subscriber.
+ */
+public class LavaFlux<T> extends Flux<T> {
+    private class SubscriptionImpl extends Callback.AbstractSingleRunCallback<Void> implements Subscription {
+        private boolean cancelled;
+        private final Object lock=new Object();
+        private @Nullable Callback<Void> pendingCallback;
+        private @Nullable Context pendingContext;
+        private T pendingValue;
+        private long requested;
+        private boolean started;
+        private final @NotNull CoreSubscriber<? super T> subscriber;
+
+        public SubscriptionImpl(@NotNull CoreSubscriber<? super T> subscriber) {
+            this.subscriber=Objects.requireNonNull(subscriber, "subscriber");
+        }
+
+        @Override
+        public void cancel() {
+            cancelImpl();
+        }
+
+        /**
+         * @return whether this call cancelled the subscription
+         */
+        private boolean cancelImpl() {
+            @Nullable Callback<Void> callback;
+            @Nullable Context context2;
+            synchronized (lock) {
+                if (cancelled) {
+                    return false;
+                }
+                cancelled=true;
+                callback=pendingCallback;
+                context2=pendingContext;
+                pendingCallback=null;
+                pendingContext=null;
+                pendingValue=null;
+            }
+            if (null!=callback) {
+                Objects.requireNonNull(context2, "context2")
+                        .fail(callback, new CancellationException());
+            }
+            return true;
+        }
+
+        @Override
+        protected void completedImpl(Void value) {
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled=true;
+            }
+            context.execute(subscriber::onComplete);
+        }
+
+        private @NotNull Lava<Void> emit(T value) {
+            Objects.requireNonNull(value, "value");
+            return (callback, context2)->{
+                synchronized (lock) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                    if (0L>=requested) {
+                        pendingCallback=callback;
+                        pendingContext=context2;
+                        pendingValue=value;
+                        return;
+                    }
+                    --requested;
+                }
+                subscriber.onNext(value);
+                context2.complete(callback, null);
+            };
+        }
+
+        @Override
+        protected void failedImpl(@NotNull Throwable throwable) {
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled=true;
+            }
+            context.execute(()->subscriber.onError(throwable));
+        }
+
+        @Override
+        public void request(long values) {
+            if (0L>=values) {
+                if (cancelImpl()) {
+                    subscriber.onError(new IllegalArgumentException("0 >= values %,d".formatted(values)));
+                }
+                return;
+            }
+            boolean start;
+            @Nullable Callback<Void> callback;
+            @Nullable Context context2;
+            T value;
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                requested=(Long.MAX_VALUE-requested<=values)
+                        ?Long.MAX_VALUE
+                        :(requested+values);
+                start=!started;
+                started=true;
+                callback=pendingCallback;
+                context2=pendingContext;
+                value=pendingValue;
+                if (null!=callback) {
+                    --requested;
+                    pendingCallback=null;
+                    pendingContext=null;
+                    pendingValue=null;
+                }
+            }
+            if (start) {
+                context.get(this, Lava.supplier(()->function.apply(this::emit)));
+            }
+            if (null!=callback) {
+                subscriber.onNext(value);
+                Objects.requireNonNull(context2, "context2")
+                        .complete(callback, null);
+            }
+        }
+    }
+
+    private final @NotNull Context context;
+    private final @NotNull Function<@NotNull Function<T, @NotNull Lava<Void>>, @NotNull Lava<Void>> function;
+
+    /**
+     * @param function gets the emitter and returns the lava that emits the values
+     */
+    public LavaFlux(
+            @NotNull Context context,
+            @NotNull Function<@NotNull Function<T, @NotNull Lava<Void>>, @NotNull Lava<Void>> function) {
+        this.context=Objects.requireNonNull(context, "context");
+        this.function=Objects.requireNonNull(function, "function");
+    }
+
+    public static <T> @NotNull Flux<T> create(
+            @NotNull Context context,
+            @NotNull Function<@NotNull Function<T, @NotNull Lava<Void>>, @NotNull Lava<Void>> function) {
+        return new LavaFlux<>(context, function);
+    }
+
+    @Override
+    public void subscribe(@NotNull CoreSubscriber<? super T> coreSubscriber) {
+        coreSubscriber.onSubscribe(new SubscriptionImpl(coreSubscriber));
+    }
+}
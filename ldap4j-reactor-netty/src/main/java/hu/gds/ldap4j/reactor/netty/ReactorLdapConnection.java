@@ -19,6 +19,7 @@ import hu.gds.ldap4j.ldap.SearchRequest;
 import hu.gds.ldap4j.ldap.SearchResult;
 import hu.gds.ldap4j.net.TlsSettings;
 import hu.gds.ldap4j.net.netty.NettyConnection;
+import hu.gds.ldap4j.reactor.LavaFlux;
 import hu.gds.ldap4j.reactor.LavaMono;
 import hu.gds.ldap4j.reactor.MonoLava;
 import hu.gds.ldap4j.reactor.ReactorContext;
@@ -32,6 +33,7 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -93,6 +95,31 @@ public class ReactorLdapConnection {
         return lavaToMono(connection.search(request));
     }
 
+    public @NotNull Mono<@NotNull List<@NotNull ControlsMessage<SearchResult>>> searchDispatched(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return lavaToMono(connection.searchDispatched(request));
+    }
+
+    /**
+     * Results are read from the connection as the subscriber requests them.
+     * Cancelling before the done message abandons the search, and fails the connection.
+     */
+    public @NotNull Flux<@NotNull ControlsMessage<SearchResult>> searchStream(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        Objects.requireNonNull(request, "request");
+        return LavaFlux.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                (emitter)->connection.searchStream(emitter, request));
+    }
+
+    public @NotNull Flux<@NotNull ControlsMessage<SearchResult>> searchStreamDispatched(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        Objects.requireNonNull(request, "request");
+        return LavaFlux.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                (emitter)->connection.searchStreamDispatched(emitter, request));
+    }
+
     public @NotNull Mono<Void> startTls(@NotNull TlsSettings.Tls tls) {
         return lavaToMono(connection.startTls(Schedulers.boundedElastic()::schedule, tls));
     }
@@ -166,4 +193,10 @@ public class ReactorLdapConnection {
             @NotNull ControlsMessage<M> request) {
         return lavaToMono(connection.writeRequestReadResponseChecked(request));
     }
+
+    public <M extends Request<M, R>, R extends Response>
+    @NotNull Mono<@NotNull ControlsMessage<R>> writeRequestReadResponseDispatched(
+            @NotNull ControlsMessage<M> request) {
+        return lavaToMono(connection.writeRequestReadResponseDispatched(request));
+    }
 }
@@ -3,12 +3,15 @@ package hu.gds.ldap4j.reactor.netty;
 import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.Log;
 import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.lava.Callback;
 import hu.gds.ldap4j.lava.Closeable;
 import hu.gds.ldap4j.lava.Context;
 import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.LeasePool;
 import hu.gds.ldap4j.lava.Pool;
+import hu.gds.ldap4j.lava.PoolStatistics;
 import hu.gds.ldap4j.ldap.LdapConnection;
-import hu.gds.ldap4j.net.Connection;
+import hu.gds.ldap4j.ldap.LdapPoolSettings;
 import hu.gds.ldap4j.net.TlsSettings;
 import hu.gds.ldap4j.net.netty.NettyConnection;
 import hu.gds.ldap4j.reactor.LavaMono;
@@ -27,14 +30,14 @@ public class ReactorLdapPool {
     private final @NotNull EventLoopGroup eventLoopGroup;
     private final @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose;
     private final int parallelism;
-    private final @NotNull Pool<LdapConnection, ReactorLdapConnection> pool;
+    private final @NotNull LeasePool<ReactorLdapConnection> pool;
     private final long timeoutNanos;
 
     public ReactorLdapPool(
             @NotNull EventLoopGroup eventLoopGroup,
             @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
             int parallelism,
-            @NotNull Pool<LdapConnection, ReactorLdapConnection> pool,
+            @NotNull LeasePool<ReactorLdapConnection> pool,
             long timeoutNanos) {
         this.eventLoopGroup=Objects.requireNonNull(eventLoopGroup, "eventLoopGroup");
         this.eventLoopGroupClose=Objects.requireNonNull(eventLoopGroupClose, "eventLoopGroupClose");
@@ -56,35 +59,78 @@ public class ReactorLdapPool {
             @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
             @NotNull Log log,
             int parallelism,
-            int poolSize,
+            @NotNull LdapPoolSettings poolSettings,
             @NotNull InetSocketAddress remoteAddress,
             long timeoutNanos,
             @NotNull TlsSettings tlsSettings) {
+        Objects.requireNonNull(poolSettings, "poolSettings");
+        Pool<@NotNull LdapConnection, @NotNull ReactorLdapConnection> pool=new Pool<>(
+                LdapConnection::close,
+                ()->LdapConnection.factory(
+                        NettyConnection.factory(
+                                NioSocketChannel.class,
+                                eventLoopGroup,
+                                Map.of()),
+                        Schedulers.boundedElastic()::schedule,
+                        remoteAddress,
+                        tlsSettings),
+                poolSettings.initialSize(),
+                poolSettings.keepAlive(),
+                poolSettings.keepAlivePeriodNanos(),
+                poolSettings.keepAliveTimeoutNanos(),
+                poolSettings.listener(),
+                log,
+                poolSettings.maxIdleNanos(),
+                poolSettings.maxLifetimeNanos(),
+                poolSettings.minIdle(),
+                poolSettings.shards(),
+                poolSettings.size(),
+                (connection)->connection.connection().isOpenAndNotFailed(),
+                (connection)->Lava.complete(
+                        new ReactorLdapConnection(connection, parallelism, timeoutNanos)));
+        // the keep-alive loop outlives the timeout of the operations
+        ReactorContext keepAliveContext=new ReactorContext(
+                ReactorContext.class.getSimpleName(), null, log, parallelism);
+        keepAliveContext.get(
+                new Callback.AbstractSingleRunCallback<>() {
+                    @Override
+                    protected void completedImpl(Void value) {
+                    }
+
+                    @Override
+                    protected void failedImpl(@NotNull Throwable throwable) {
+                        log.error(ReactorLdapPool.class, throwable);
+                    }
+                },
+                pool.startKeepAlive(keepAliveContext));
         return new ReactorLdapPool(
                 eventLoopGroup,
                 eventLoopGroupClose,
                 parallelism,
-                new Pool<>(
-                        LdapConnection::close,
-                        ()->LdapConnection.factory(
-                                NettyConnection.factory(
-                                        NioSocketChannel.class,
-                                        eventLoopGroup,
-                                        Map.of()),
-                                Schedulers.boundedElastic()::schedule,
-                                remoteAddress,
-                                tlsSettings),
-                        Connection::checkOpenAndNotFailed,
-                        timeoutNanos,
-                        timeoutNanos,
-                        log,
-                        poolSize,
-                        (connection)->connection.connection().isOpenAndNotFailed(),
-                        (connection)->Lava.complete(
-                                new ReactorLdapConnection(connection, parallelism, timeoutNanos))),
+                pool,
                 timeoutNanos);
     }
 
+    public static @NotNull ReactorLdapPool create(
+            EventLoopGroup eventLoopGroup,
+            @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
+            @NotNull Log log,
+            int parallelism,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return create(
+                eventLoopGroup,
+                eventLoopGroupClose,
+                log,
+                parallelism,
+                LdapPoolSettings.builder(poolSize).build(),
+                remoteAddress,
+                timeoutNanos,
+                tlsSettings);
+    }
+
     public static @NotNull ReactorLdapPool create(
             EventLoopGroup eventLoopGroup,
             @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
@@ -108,7 +154,7 @@ public class ReactorLdapPool {
             @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
             @NotNull Supplier<@NotNull Mono<@NotNull EventLoopGroup>> eventLoopGroupFactory,
             int parallelism,
-            int poolSize,
+            @NotNull LdapPoolSettings poolSettings,
             @NotNull InetSocketAddress remoteAddress,
             long timeoutNanos,
             @NotNull TlsSettings tlsSettings) {
@@ -118,16 +164,37 @@ public class ReactorLdapPool {
                         (eventLoopGroup)->MonoLava.create(eventLoopGroupClose.apply(eventLoopGroup)),
                         ()->MonoLava.create(eventLoopGroupFactory.get()),
                         (eventLoopGroup)->Lava.context()
-                                .compose((context)->Lava.complete(
-                                        create(
-                                                eventLoopGroup,
-                                                eventLoopGroupClose,
-                                                context.log(),
-                                                parallelism,
-                                                poolSize,
-                                                remoteAddress,
-                                                timeoutNanos,
-                                                tlsSettings))))));
+                                .compose((context)->{
+                                    ReactorLdapPool pool=create(
+                                            eventLoopGroup,
+                                            eventLoopGroupClose,
+                                            context.log(),
+                                            parallelism,
+                                            poolSettings,
+                                            remoteAddress,
+                                            timeoutNanos,
+                                            tlsSettings);
+                                    return pool.pool.warmUp()
+                                            .composeIgnoreResult(()->Lava.complete(pool));
+                                }))));
+    }
+
+    public static @NotNull Mono<@NotNull ReactorLdapPool> create(
+            @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
+            @NotNull Supplier<@NotNull Mono<@NotNull EventLoopGroup>> eventLoopGroupFactory,
+            int parallelism,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return create(
+                eventLoopGroupClose,
+                eventLoopGroupFactory,
+                parallelism,
+                LdapPoolSettings.builder(poolSize).build(),
+                remoteAddress,
+                timeoutNanos,
+                tlsSettings);
     }
 
     public static @NotNull Mono<@NotNull ReactorLdapPool> create(
@@ -152,4 +219,19 @@ public class ReactorLdapPool {
                 ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
                 pool.lease((connection)->MonoLava.create(function.apply(connection))));
     }
+
+    public @NotNull Mono<@NotNull PoolStatistics> statistics() {
+        return LavaMono.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                pool.statistics());
+    }
+
+    /**
+     * Creates the initial and the min-idle connections.
+     */
+    public @NotNull Mono<Void> warmUp() {
+        return LavaMono.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                pool.warmUp());
+    }
 }
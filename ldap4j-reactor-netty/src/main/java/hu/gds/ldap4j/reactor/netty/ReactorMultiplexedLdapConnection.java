@@ -0,0 +1,67 @@
+package hu.gds.ldap4j.reactor.netty;
+
+import hu.gds.ldap4j.ldap.ControlsMessage;
+import hu.gds.ldap4j.ldap.LdapConnection;
+import hu.gds.ldap4j.ldap.Request;
+import hu.gds.ldap4j.ldap.Response;
+import hu.gds.ldap4j.ldap.SearchRequest;
+import hu.gds.ldap4j.ldap.SearchResult;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Objects;
+import javax.net.ssl.SSLSession;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A connection shared by the leases of a multiplexed pool.
+ * Every request goes through the dispatcher of the connection,
+ * the requests of the leases are in flight on the connection at the same time.
+ */
+public class ReactorMultiplexedLdapConnection {
+    private final @NotNull ReactorLdapConnection connection;
+
+    public ReactorMultiplexedLdapConnection(@NotNull ReactorLdapConnection connection) {
+        this.connection=Objects.requireNonNull(connection, "connection");
+    }
+
+    @NotNull LdapConnection connection() {
+        return connection.connection();
+    }
+
+    public @NotNull Mono<@NotNull Boolean> isOpenAndNotFailed() {
+        return connection.isOpenAndNotFailed();
+    }
+
+    public @NotNull Mono<@NotNull InetSocketAddress> localAddress() {
+        return connection.localAddress();
+    }
+
+    public @NotNull Mono<@NotNull InetSocketAddress> remoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    public @NotNull Mono<@NotNull List<@NotNull ControlsMessage<SearchResult>>> search(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return connection.searchDispatched(request);
+    }
+
+    /**
+     * Results are read from the connection as the subscriber requests them.
+     */
+    public @NotNull Flux<@NotNull ControlsMessage<SearchResult>> searchStream(
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return connection.searchStreamDispatched(request);
+    }
+
+    public @NotNull Mono<@Nullable SSLSession> tlsSession() {
+        return connection.tlsSession();
+    }
+
+    public <M extends Request<M, R>, R extends Response>
+    @NotNull Mono<@NotNull ControlsMessage<R>> writeRequestReadResponse(@NotNull ControlsMessage<M> request) {
+        return connection.writeRequestReadResponseDispatched(request);
+    }
+}
@@ -0,0 +1,141 @@
+package hu.gds.ldap4j.reactor.netty;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.lava.Closeable;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.lava.LeasePool;
+import hu.gds.ldap4j.lava.MultiplexedPool;
+import hu.gds.ldap4j.lava.PoolStatistics;
+import hu.gds.ldap4j.ldap.LdapConnection;
+import hu.gds.ldap4j.net.TlsSettings;
+import hu.gds.ldap4j.net.netty.NettyConnection;
+import hu.gds.ldap4j.reactor.LavaMono;
+import hu.gds.ldap4j.reactor.MonoLava;
+import hu.gds.ldap4j.reactor.ReactorContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Leases share the connections, up to poolMaxLeasesPerConnection leases use a connection at the same time.
+ * The pool counts leases, not requests, a lease should wait for each of its requests before starting the next one,
+ * so that poolMaxLeasesPerConnection caps the requests in flight on a connection.
+ * A connection failed by a lease is evicted from the pool when that lease ends.
+ */
+public class ReactorMultiplexedLdapPool {
+    private final @NotNull EventLoopGroup eventLoopGroup;
+    private final @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose;
+    private final int parallelism;
+    private final @NotNull LeasePool<ReactorMultiplexedLdapConnection> pool;
+    private final long timeoutNanos;
+
+    public ReactorMultiplexedLdapPool(
+            @NotNull EventLoopGroup eventLoopGroup,
+            @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
+            int parallelism,
+            @NotNull LeasePool<ReactorMultiplexedLdapConnection> pool,
+            long timeoutNanos) {
+        this.eventLoopGroup=Objects.requireNonNull(eventLoopGroup, "eventLoopGroup");
+        this.eventLoopGroupClose=Objects.requireNonNull(eventLoopGroupClose, "eventLoopGroupClose");
+        this.parallelism=parallelism;
+        this.pool=Objects.requireNonNull(pool, "pool");
+        this.timeoutNanos=timeoutNanos;
+    }
+
+    public @NotNull Mono<Void> close() {
+        return LavaMono.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                Lava.finallyGet(
+                        ()->MonoLava.create(eventLoopGroupClose.apply(eventLoopGroup)),
+                        pool::close));
+    }
+
+    /**
+     * poolMaxLeasesPerConnection counts leases, not the requests in flight on a connection,
+     * it bounds those only while every lease runs one request at a time.
+     */
+    public static @NotNull ReactorMultiplexedLdapPool create(
+            EventLoopGroup eventLoopGroup,
+            @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
+            @NotNull Log log,
+            int parallelism,
+            int poolMaxLeasesPerConnection,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return new ReactorMultiplexedLdapPool(
+                eventLoopGroup,
+                eventLoopGroupClose,
+                parallelism,
+                new MultiplexedPool<>(
+                        LdapConnection::close,
+                        ()->LdapConnection.factory(
+                                NettyConnection.factory(
+                                        NioSocketChannel.class,
+                                        eventLoopGroup,
+                                        Map.of()),
+                                Schedulers.boundedElastic()::schedule,
+                                remoteAddress,
+                                tlsSettings),
+                        log,
+                        poolMaxLeasesPerConnection,
+                        poolSize,
+                        (connection)->connection.connection().isOpenAndNotFailed(),
+                        (connection)->Lava.complete(
+                                new ReactorMultiplexedLdapConnection(
+                                        new ReactorLdapConnection(connection, parallelism, timeoutNanos)))),
+                timeoutNanos);
+    }
+
+    /**
+     * poolMaxLeasesPerConnection counts leases, not the requests in flight on a connection,
+     * it bounds those only while every lease runs one request at a time.
+     */
+    public static @NotNull Mono<@NotNull ReactorMultiplexedLdapPool> create(
+            @NotNull Function<@NotNull EventLoopGroup, @NotNull Mono<Void>> eventLoopGroupClose,
+            @NotNull Supplier<@NotNull Mono<@NotNull EventLoopGroup>> eventLoopGroupFactory,
+            int parallelism,
+            int poolMaxLeasesPerConnection,
+            int poolSize,
+            @NotNull InetSocketAddress remoteAddress,
+            long timeoutNanos,
+            @NotNull TlsSettings tlsSettings) {
+        return LavaMono.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                Lava.supplier(()->Closeable.wrapOrClose(
+                        (eventLoopGroup)->MonoLava.create(eventLoopGroupClose.apply(eventLoopGroup)),
+                        ()->MonoLava.create(eventLoopGroupFactory.get()),
+                        (eventLoopGroup)->Lava.context()
+                                .compose((context)->Lava.complete(create(
+                                        eventLoopGroup,
+                                        eventLoopGroupClose,
+                                        context.log(),
+                                        parallelism,
+                                        poolMaxLeasesPerConnection,
+                                        poolSize,
+                                        remoteAddress,
+                                        timeoutNanos,
+                                        tlsSettings))))));
+    }
+
+    public <T> @NotNull Mono<T> lease(
+            @NotNull Function<@NotNull ReactorMultiplexedLdapConnection, @NotNull Mono<T>> function) {
+        return new LavaMono<>(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                pool.lease((connection)->MonoLava.create(function.apply(connection))));
+    }
+
+    public @NotNull Mono<@NotNull PoolStatistics> statistics() {
+        return LavaMono.create(
+                ReactorContext.createTimeoutNanos(parallelism, timeoutNanos),
+                pool.statistics());
+    }
+}
@@ -0,0 +1,185 @@
+package hu.gds.ldap4j.reactor;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.lava.Lava;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LavaFluxTest {
+    private static final Object COMPLETE=new Object();
+    private static final long QUIET_MILLIS=100L;
+
+    /**
+     * Records the signals, and fails on signals out of order.
+     */
+    private static class Signals implements CoreSubscriber<Integer> {
+        private final @NotNull List<@NotNull Object> signals=new ArrayList<>();
+        private @Nullable Subscription subscription;
+        private boolean terminated;
+
+        public @NotNull List<@NotNull Object> await(int size) throws Throwable {
+            long endNanos=System.nanoTime()+AbstractTest.TIMEOUT_NANOS;
+            synchronized (signals) {
+                while (size>signals.size()) {
+                    long delayNanos=endNanos-System.nanoTime();
+                    if (0L>=delayNanos) {
+                        throw new AssertionError("timeout, signals: %s".formatted(signals));
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(signals, delayNanos);
+                }
+                return new ArrayList<>(signals);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            signal(COMPLETE);
+        }
+
+        @Override
+        public void onError(@NotNull Throwable throwable) {
+            signal(throwable);
+        }
+
+        @Override
+        public void onNext(@NotNull Integer value) {
+            signal(value);
+        }
+
+        @Override
+        public void onSubscribe(@NotNull Subscription subscription) {
+            this.subscription=subscription;
+        }
+
+        /**
+         * @return the signals received in a while
+         */
+        public @NotNull List<@NotNull Object> quiet() throws Throwable {
+            Thread.sleep(QUIET_MILLIS);
+            synchronized (signals) {
+                return new ArrayList<>(signals);
+            }
+        }
+
+        private void signal(@NotNull Object signal) {
+            synchronized (signals) {
+                if (terminated) {
+                    signals.add(new AssertionError("signal after termination %s".formatted(signal)));
+                }
+                terminated=!(signal instanceof Integer);
+                signals.add(signal);
+                signals.notifyAll();
+            }
+        }
+
+        public @NotNull Subscription subscription() {
+            return Objects.requireNonNull(subscription, "subscription");
+        }
+    }
+
+    private static @NotNull Lava<Void> emit(
+            @NotNull Function<Integer, @NotNull Lava<Void>> emitter,
+            int from,
+            @NotNull AtomicInteger started,
+            int to) {
+        if (from>=to) {
+            return Lava.VOID;
+        }
+        return Lava.supplier(()->{
+                    started.incrementAndGet();
+                    return emitter.apply(from);
+                })
+                .composeIgnoreResult(()->emit(emitter, from+1, started, to));
+    }
+
+    private static @NotNull Signals subscribe(
+            @NotNull Function<@NotNull Function<Integer, @NotNull Lava<Void>>, @NotNull Lava<Void>> function) {
+        Signals signals=new Signals();
+        Flux<Integer> flux=LavaFlux.create(
+                ReactorContext.createTimeoutNanos(AbstractTest.PARALLELISM, AbstractTest.TIMEOUT_NANOS),
+                function);
+        flux.subscribe(signals);
+        return signals;
+    }
+
+    @Test
+    public void testBackpressure() throws Throwable {
+        AtomicInteger started=new AtomicInteger();
+        Signals signals=subscribe((emitter)->emit(emitter, 0, started, 10));
+        assertEquals(List.of(), signals.quiet());
+        assertEquals(0, started.get());
+        signals.subscription().request(3);
+        assertEquals(List.of(0, 1, 2), signals.await(3));
+        assertEquals(List.of(0, 1, 2), signals.quiet());
+        assertEquals(4, started.get());
+        signals.subscription().request(7);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, COMPLETE), signals.await(11));
+        assertEquals(11, signals.quiet().size());
+    }
+
+    @Test
+    public void testCancel() throws Throwable {
+        AtomicInteger started=new AtomicInteger();
+        CompletableFuture<@NotNull Throwable> failure=new CompletableFuture<>();
+        Signals signals=subscribe((emitter)->Lava.catchErrors(
+                (throwable)->{
+                    failure.complete(throwable);
+                    return Lava.fail(throwable);
+                },
+                ()->emit(emitter, 0, started, Integer.MAX_VALUE),
+                Throwable.class));
+        signals.subscription().request(2);
+        assertEquals(List.of(0, 1), signals.await(2));
+        signals.subscription().cancel();
+        Exceptions.findCauseOrThrow(
+                CancellationException.class,
+                failure.get(AbstractTest.TIMEOUT_NANOS, TimeUnit.NANOSECONDS));
+        signals.subscription().request(5);
+        signals.subscription().cancel();
+        assertEquals(List.of(0, 1), signals.quiet());
+        assertEquals(3, started.get());
+    }
+
+    @Test
+    public void testError() throws Throwable {
+        AtomicInteger started=new AtomicInteger();
+        IllegalStateException exception=new IllegalStateException("emitter failed");
+        Signals signals=subscribe((emitter)->emit(emitter, 0, started, 2)
+                .composeIgnoreResult(()->Lava.fail(exception)));
+        signals.subscription().request(Long.MAX_VALUE);
+        List<@NotNull Object> signals2=signals.await(3);
+        assertEquals(List.of(0, 1), signals2.subList(0, 2));
+        assertTrue(signals2.get(2) instanceof Throwable, signals2.toString());
+        Exceptions.findCauseOrThrow(IllegalStateException.class, (Throwable)signals2.get(2));
+        assertEquals(3, signals.quiet().size());
+    }
+
+    @Test
+    public void testRequestNonPositive() throws Throwable {
+        AtomicInteger started=new AtomicInteger();
+        Signals signals=subscribe((emitter)->emit(emitter, 0, started, 10));
+        signals.subscription().request(0L);
+        List<@NotNull Object> signals2=signals.await(1);
+        assertTrue(signals2.get(0) instanceof IllegalArgumentException, signals2.toString());
+        signals.subscription().request(1L);
+        signals.subscription().request(-1L);
+        assertEquals(1, signals.quiet().size());
+        assertEquals(0, started.get());
+    }
+}
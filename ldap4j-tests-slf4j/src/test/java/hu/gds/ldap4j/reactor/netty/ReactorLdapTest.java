@@ -1,6 +1,7 @@
 package hu.gds.ldap4j.reactor.netty;
 
 import hu.gds.ldap4j.ldap.BindRequest;
+import hu.gds.ldap4j.ldap.ControlsMessage;
 import hu.gds.ldap4j.ldap.DerefAliases;
 import hu.gds.ldap4j.ldap.Filter;
 import hu.gds.ldap4j.ldap.PartialAttribute;
@@ -10,6 +11,7 @@ import hu.gds.ldap4j.ldap.SearchResult;
 import hu.gds.ldap4j.ldap.UnboundidDirectoryServer;
 import hu.gds.ldap4j.reactor.Monos;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,6 +36,7 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.HttpResources;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -141,6 +144,58 @@ public class ReactorLdapTest {
                 });
     }
 
+    /**
+     * Streams the results one by one, then cancels the stream after the first result.
+     */
+    private static @NotNull Mono<Void> testConnectionSearchStream(ReactorLdapConnection connection)
+            throws Throwable {
+        ControlsMessage<SearchRequest> request=new SearchRequest(
+                List.of("cn", "objectClass"),
+                UnboundidDirectoryServer.BASE_DN,
+                DerefAliases.DEREF_ALWAYS,
+                Filter.parse("(objectClass=*)"),
+                Scope.WHOLE_SUBTREE,
+                0,
+                10,
+                false)
+                .controlsEmpty();
+        return Monos.compose(
+                connection.writeRequestReadResponseChecked(
+                        BindRequest.simple(
+                                        UnboundidDirectoryServer.ADMIN_USER,
+                                        UnboundidDirectoryServer.ADMIN_PASSWORD.toCharArray())
+                                .controlsEmpty()),
+                (bindResponse)->Monos.compose(
+                        connection.search(request),
+                        (results)->{
+                            assertTrue(1<results.size());
+                            return Monos.compose(
+                                    connection.searchStream(request)
+                                            .limitRate(1)
+                                            .collectList(),
+                                    (streamed)->{
+                                        assertEquals(results, streamed);
+                                        return Monos.compose(
+                                                connection.searchStream(request)
+                                                        .take(1)
+                                                        .collectList(),
+                                                (first)->{
+                                                    assertEquals(results.subList(0, 1), first);
+                                                    return Monos.compose(
+                                                            Mono.defer(connection::isOpenAndNotFailed)
+                                                                    .filter((openAndNotFailed)->!openAndNotFailed)
+                                                                    .repeatWhenEmpty((repeat)->repeat
+                                                                            .delayElements(Duration.ofMillis(10L)))
+                                                                    .timeout(Duration.ofNanos(TIMEOUT_NANOS)),
+                                                            (openAndNotFailed)->{
+                                                                assertFalse(openAndNotFailed);
+                                                                return Mono.empty();
+                                                            });
+                                                });
+                                    });
+                        }));
+    }
+
     private static @NotNull Mono<Void> testDirect(
             InetSocketAddress ldapClearTextAddress) throws Throwable {
         return ReactorLdapConnection.withConnection(
@@ -173,4 +228,19 @@ public class ReactorLdapTest {
                         pool::close,
                         ()->pool.lease(ReactorLdapTest::testConnection)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSearchStream() throws Throwable {
+        try (UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(false, 0, 0)) {
+            ldapServer.start();
+            ReactorLdapConnection.withConnection(
+                            (eventLoopGroup)->Mono.empty(),
+                            ()->Mono.just(HttpResources.get().onClient(false)),
+                            ReactorLdapTest::testConnectionSearchStream,
+                            ldapServer.localAddressClearText(),
+                            TIMEOUT_NANOS,
+                            UnboundidDirectoryServer.clientTls(false, true, true))
+                    .block(Duration.ofNanos(TIMEOUT_NANOS));
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package hu.gds.ldap4j;
 
 import hu.gds.ldap4j.lava.ContextHolder;
+import hu.gds.ldap4j.lava.ForkJoinPoolContextHolder;
 import hu.gds.ldap4j.lava.NewThreadContextHolder;
 import hu.gds.ldap4j.lava.RandomTrampolineContextHolder;
 import hu.gds.ldap4j.lava.ThreadPoolContextHolder;
+import hu.gds.ldap4j.lava.TimerWheelContextHolder;
 import hu.gds.ldap4j.lava.TrampolineContextHolder;
 import hu.gds.ldap4j.net.NetworkConnectionFactory;
 import java.util.ArrayList;
@@ -38,12 +40,14 @@ public class TestParameters {
 
     public static @NotNull Stream<@NotNull Function<@NotNull Log, @NotNull ContextHolder>> contextHolderFactories() {
         List<@NotNull Function<@NotNull Log, @NotNull ContextHolder>> contextHolderFactories=new ArrayList<>();
+        contextHolderFactories.add(ForkJoinPoolContextHolder.factory(AbstractTest.PARALLELISM));
         contextHolderFactories.add(NewThreadContextHolder.factory(AbstractTest.PARALLELISM, null));
         contextHolderFactories.add(RandomTrampolineContextHolder.factory(null));
         contextHolderFactories.add(RandomTrampolineContextHolder.factory(System.nanoTime()));
         contextHolderFactories.add(ThreadPoolContextHolder.factory(1, null, false));
         contextHolderFactories.add(ThreadPoolContextHolder.factory(AbstractTest.PARALLELISM, null, false));
         contextHolderFactories.add(ThreadPoolContextHolder.factory(AbstractTest.PARALLELISM, null, true));
+        contextHolderFactories.add(TimerWheelContextHolder.factory(AbstractTest.PARALLELISM, 100_000L));
         contextHolderFactories.add(TrampolineContextHolder.factory());
         return contextHolderFactories.stream();
     }
@@ -64,6 +68,7 @@ public class TestParameters {
         networkConnectionFactories.add(NetworkConnectionFactory.javaAsyncChannel());
         networkConnectionFactories.add(NetworkConnectionFactory.javaBlockingSocket());
         networkConnectionFactories.add(NetworkConnectionFactory.javaChannelPoll());
+        networkConnectionFactories.add(NetworkConnectionFactory.javaChannelSelector());
         networkConnectionFactories.add(NetworkConnectionFactory.mina());
         if (linux()) {
             networkConnectionFactories.add(NetworkConnectionFactory.nettyEpoll());
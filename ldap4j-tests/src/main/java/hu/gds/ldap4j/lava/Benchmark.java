@@ -4,6 +4,7 @@ import hu.gds.ldap4j.Log;
 import hu.gds.ldap4j.Supplier;
 import java.util.Random;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import org.jetbrains.annotations.NotNull;
 
@@ -30,26 +31,49 @@ public class Benchmark {
 
     private void main2() throws Throwable {
         ScheduledExecutorService executor=Executors.newScheduledThreadPool(Context.defaultParallelism());
+        ForkJoinPool pool=ForkJoinPoolContext.createPool(Context.defaultParallelism());
         try {
+            @NotNull Supplier<@NotNull Context> forkJoinPool=forkJoinPool(pool);
             @NotNull Supplier<@NotNull Context> scheduled=scheduled(executor);
             @NotNull Supplier<@NotNull Context> threadLocal16=threadLocal(executor, 16);
             @NotNull Supplier<@NotNull Context> threadLocal256=threadLocal(executor, 256);
             for (int ii=ITERATIONS; 0<ii; --ii) {
                 System.out.println();
                 line=0;
+                measureAndPrint(forkJoinPool, mergesort());
                 measureAndPrint(scheduled, mergesort());
                 measureAndPrint(threadLocal16, mergesort());
                 measureAndPrint(threadLocal256, mergesort());
+                measureAndPrint(forkJoinPool, quicksort());
                 measureAndPrint(scheduled, quicksort());
                 measureAndPrint(threadLocal16, quicksort());
                 measureAndPrint(threadLocal256, quicksort());
             }
         }
         finally {
-            executor.shutdown();
+            try {
+                pool.shutdown();
+            }
+            finally {
+                executor.shutdown();
+            }
         }
     }
 
+    private static @NotNull Supplier<@NotNull Context> forkJoinPool(@NotNull ForkJoinPool pool) {
+        return new Supplier<>() {
+            @Override
+            public @NotNull Context get() {
+                return ForkJoinPoolContext.createDelayNanos(Benchmark.TIMEOUT_NANOS, Log.systemErr(), pool);
+            }
+
+            @Override
+            public String toString() {
+                return "forkJoinPool";
+            }
+        };
+    }
+
     private void measureAndPrint(
             @NotNull Supplier<@NotNull Context> contextFactory,
             @NotNull Supplier<@NotNull Lava<Void>> lavaSupplier) throws Throwable {
@@ -0,0 +1,82 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jetbrains.annotations.NotNull;
+
+public class ForkJoinPoolContextHolder extends ContextHolder {
+    private final @NotNull AtomicReference<ForkJoinPool> pool=new AtomicReference<>();
+    private final int poolSize;
+
+    public ForkJoinPoolContextHolder(@NotNull Log log, int poolSize) {
+        super(log);
+        if (0>=poolSize) {
+            throw new IllegalArgumentException("0 >= poolSize %,d".formatted(poolSize));
+        }
+        this.poolSize=poolSize;
+    }
+
+    @Override
+    public @NotNull Clock clock() {
+        return Clock.SYSTEM_NANO_TIME;
+    }
+
+    @Override
+    public void close() {
+        ForkJoinPool pool2=pool.getAndSet(null);
+        if (null!=pool2) {
+            pool2.shutdownNow();
+        }
+    }
+
+    @Override
+    public @NotNull Context context() {
+        ForkJoinPool pool2=pool.get();
+        if (null==pool2) {
+            throw new RuntimeException("pool not running");
+        }
+        return ForkJoinPoolContext.createEndNanos(null, log, pool2);
+    }
+
+    public static @NotNull Function<@NotNull Log, @NotNull ContextHolder> factory(int poolSize) {
+        if (0>=poolSize) {
+            throw new IllegalArgumentException("0 >= poolSize %,d".formatted(poolSize));
+        }
+        return new Function<>() {
+            @Override
+            public ContextHolder apply(@NotNull Log value) {
+                Objects.requireNonNull(value, "value");
+                return new ForkJoinPoolContextHolder(value, poolSize);
+            }
+
+            @Override
+            public String toString() {
+                return "ForkJoinPoolContextHolder.factory(poolSize: %,d)".formatted(poolSize);
+            }
+        };
+    }
+
+    @Override
+    public <T> T getOrTimeoutEndNanos(long endNanos, Lava<T> supplier) throws Throwable {
+        JoinCallback<T> callback=Callback.join(clock());
+        context().endNanos(endNanos).get(callback, supplier);
+        return callback.joinEndNanos(endNanos);
+    }
+
+    @Override
+    public void start() {
+        ForkJoinPool pool2=ForkJoinPoolContext.createPool(poolSize);
+        if (!pool.compareAndSet(null, pool2)) {
+            pool2.shutdownNow();
+            throw new RuntimeException("pool already running");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ForkJoinPoolContextHolder(log: %s, poolSize: %,d)".formatted(log, poolSize);
+    }
+}
@@ -0,0 +1,105 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public class TimerWheelContextHolder extends ContextHolder {
+    private record Running(@NotNull ExecutorService executor, @NotNull TimerWheel timerWheel) {
+        public void close() {
+            try {
+                timerWheel.close();
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private final int poolSize;
+    private final @NotNull AtomicReference<@Nullable Running> running=new AtomicReference<>();
+    private final long tickNanos;
+
+    public TimerWheelContextHolder(@NotNull Log log, int poolSize, long tickNanos) {
+        super(log);
+        if (0>=poolSize) {
+            throw new IllegalArgumentException("0 >= poolSize %,d".formatted(poolSize));
+        }
+        if (0L>=tickNanos) {
+            throw new IllegalArgumentException("0 >= tickNanos %,d".formatted(tickNanos));
+        }
+        this.poolSize=poolSize;
+        this.tickNanos=tickNanos;
+    }
+
+    @Override
+    public @NotNull Clock clock() {
+        return Clock.SYSTEM_NANO_TIME;
+    }
+
+    @Override
+    public void close() {
+        @Nullable Running running2=running.getAndSet(null);
+        if (null!=running2) {
+            running2.close();
+        }
+    }
+
+    @Override
+    public @NotNull Context context() {
+        @Nullable Running running2=running.get();
+        if (null==running2) {
+            throw new RuntimeException("timer wheel not running");
+        }
+        return TimerWheelContext.createEndNanos(null, running2.executor, log, poolSize, running2.timerWheel);
+    }
+
+    public static @NotNull Function<@NotNull Log, @NotNull ContextHolder> factory(int poolSize, long tickNanos) {
+        if (0>=poolSize) {
+            throw new IllegalArgumentException("0 >= poolSize %,d".formatted(poolSize));
+        }
+        if (0L>=tickNanos) {
+            throw new IllegalArgumentException("0 >= tickNanos %,d".formatted(tickNanos));
+        }
+        return new Function<>() {
+            @Override
+            public ContextHolder apply(@NotNull Log value) {
+                Objects.requireNonNull(value, "value");
+                return new TimerWheelContextHolder(value, poolSize, tickNanos);
+            }
+
+            @Override
+            public String toString() {
+                return "TimerWheelContextHolder.factory(poolSize: %,d, tickNanos: %,d)".formatted(poolSize, tickNanos);
+            }
+        };
+    }
+
+    @Override
+    public <T> T getOrTimeoutEndNanos(long endNanos, Lava<T> supplier) throws Throwable {
+        JoinCallback<T> callback=Callback.join(clock());
+        context().endNanos(endNanos).get(callback, supplier);
+        return callback.joinEndNanos(endNanos);
+    }
+
+    @Override
+    public void start() {
+        TimerWheel timerWheel=new TimerWheel(log, null, tickNanos);
+        Running running2=new Running(Executors.newFixedThreadPool(poolSize), timerWheel);
+        if (!running.compareAndSet(null, running2)) {
+            running2.close();
+            throw new RuntimeException("timer wheel already running");
+        }
+        timerWheel.start();
+    }
+
+    @Override
+    public String toString() {
+        return "TimerWheelContextHolder(log: %s, poolSize: %,d, tickNanos: %,d)".formatted(log, poolSize, tickNanos);
+    }
+}
@@ -95,6 +95,42 @@ public class LdapTestParameters extends TestParameters {
             @NotNull Supplier<@NotNull InetSocketAddress> remoteTlsAddress,
             @Nullable Pair<@NotNull String, @NotNull String> simpleBind)
             throws Throwable {
+        return connectionFactory(
+                context,
+                explicitTlsRenegotiation,
+                0,
+                remoteClearTextAddress,
+                remoteTlsAddress,
+                simpleBind);
+    }
+
+    public @NotNull Lava<@NotNull LdapConnection> connectionFactory(
+            @NotNull TestContext<LdapTestParameters> context,
+            boolean explicitTlsRenegotiation,
+            int maxWriteBatchSize,
+            @NotNull Supplier<@NotNull InetSocketAddress> remoteClearTextAddress,
+            @NotNull Supplier<@NotNull InetSocketAddress> remoteTlsAddress,
+            @Nullable Pair<@NotNull String, @NotNull String> simpleBind)
+            throws Throwable {
+        return connectionFactory(
+                context,
+                explicitTlsRenegotiation,
+                maxWriteBatchSize,
+                MessageIdGenerator.smallValues(),
+                remoteClearTextAddress,
+                remoteTlsAddress,
+                simpleBind);
+    }
+
+    public @NotNull Lava<@NotNull LdapConnection> connectionFactory(
+            @NotNull TestContext<LdapTestParameters> context,
+            boolean explicitTlsRenegotiation,
+            int maxWriteBatchSize,
+            @NotNull MessageIdGenerator messageIdGenerator,
+            @NotNull Supplier<@NotNull InetSocketAddress> remoteClearTextAddress,
+            @NotNull Supplier<@NotNull InetSocketAddress> remoteTlsAddress,
+            @Nullable Pair<@NotNull String, @NotNull String> simpleBind)
+            throws Throwable {
         @NotNull Pair<@NotNull InetSocketAddress, @NotNull TlsSettings> addressTlsSettings
                 =addressTlsSettings(remoteClearTextAddress, remoteTlsAddress, tls);
         @NotNull Lava<@NotNull LdapConnection> connectionFactory0=LdapConnection.factory(
@@ -104,6 +140,8 @@ public class LdapTestParameters extends TestParameters {
                         context.log(),
                         Map.of()),
                 null,
+                maxWriteBatchSize,
+                messageIdGenerator,
                 addressTlsSettings.first(),
                 addressTlsSettings.second());
         @NotNull Lava<@NotNull LdapConnection> connectionFactory1;
@@ -1,9 +1,11 @@
 package hu.gds.ldap4j.net;
 
+import java.io.ByteArrayOutputStream;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ByteBufferTest {
     @Test
@@ -53,5 +55,65 @@ public class ByteBufferTest {
         assertEquals(hash1, hash3);
         assertNotEquals(hash0, hash1);
         assertNotEquals(hash2, hash3);
+
+        ByteBuffer hash4=ByteBuffer.create((byte)1, (byte)ByteBuffer.HASHCODE_MULTIPLIER, (byte)0);
+        ByteBuffer hash5=ByteBuffer.create((byte)1).append(ByteBuffer.create((byte)0, (byte)1));
+        assertEquals(hash4.hashCode(), hash5.hashCode());
+        assertNotEquals(hash4, hash5);
+        assertEquals(hash5.hashCode(), hash4.subBuffer(0, 1).append(hash5.subBuffer(1, 3)).hashCode());
+
+        ByteBuffer chunks=ByteBuffer.empty();
+        byte[] array=new byte[10_000];
+        for (int ii=0; array.length>ii; ++ii) {
+            array[ii]=(byte)ii;
+            chunks=chunks.append(ByteBuffer.create((byte)ii));
+        }
+        assertEquals(ByteBuffer.create(array), chunks);
+        for (int from=0; array.length>from; from+=997) {
+            for (int to=from; array.length>=to; to+=1_009) {
+                ByteBuffer expected=ByteBuffer.create(array, from, to);
+                ByteBuffer subBuffer=chunks.subBuffer(from, to);
+                assertEquals(expected.hashCode(), subBuffer.hashCode());
+                assertEquals(expected, subBuffer);
+                ByteBuffer.Reader reader=chunks.reader();
+                reader.dropBytes(from);
+                assertEquals(expected, reader.readByteBuffer(to-from));
+                assertEquals(array.length-to, reader.remainingBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testGather() throws Throwable {
+        byte[] array=new byte[100_000];
+        for (int ii=0; array.length>ii; ++ii) {
+            array[ii]=(byte)(ii*31);
+        }
+        java.nio.ByteBuffer direct=java.nio.ByteBuffer.allocateDirect(30_000);
+        direct.put(array, 40_000, 30_000);
+        direct.flip();
+        ByteBuffer chunks=ByteBuffer.create(array, 0, 10)
+                .append(ByteBuffer.create(array, 10, 40_000))
+                .append(ByteBuffer.create(direct))
+                .append(ByteBuffer.create(array, 70_000, 70_005))
+                .append(ByteBuffer.create(array, 70_005, 100_000));
+        assertEquals(ByteBuffer.create(array), chunks);
+        for (int from=0; array.length>from; from+=9_973) {
+            for (int to=from; array.length>=to; to+=19_997) {
+                ByteBuffer subBuffer=chunks.subBuffer(from, to);
+                java.nio.ByteBuffer[] buffers=subBuffer.nioBuffers();
+                java.nio.ByteBuffer gathered=java.nio.ByteBuffer.allocate(to-from);
+                for (java.nio.ByteBuffer buffer: buffers) {
+                    assertTrue(buffer.isReadOnly());
+                    gathered.put(buffer);
+                }
+                assertEquals(ByteBuffer.create(array, from, to), ByteBuffer.create(gathered.flip()));
+                ByteArrayOutputStream stream=new ByteArrayOutputStream();
+                subBuffer.write(stream);
+                assertEquals(ByteBuffer.create(array, from, to), ByteBuffer.create(stream.toByteArray()));
+            }
+        }
+        assertEquals(5, chunks.nioBuffers().length);
+        assertEquals(1, ByteBuffer.create(array).nioBuffers().length);
     }
 }
@@ -163,6 +163,51 @@ public interface NetworkConnectionFactory extends AutoCloseable {
         };
     }
 
+    static @NotNull Supplier<@NotNull NetworkConnectionFactory> javaChannelSelector() {
+        return new Supplier<>() {
+            @Override
+            public NetworkConnectionFactory get() {
+                return new NetworkConnectionFactory() {
+                    private SelectorLoop selectorLoop;
+
+                    @Override
+                    public void close() {
+                        try {
+                            if (null!=selectorLoop) {
+                                selectorLoop.close();
+                            }
+                        }
+                        finally {
+                            selectorLoop=null;
+                        }
+                    }
+
+                    @Override
+                    public @NotNull Function<@NotNull InetSocketAddress, Lava<@NotNull DuplexConnection>> factory(
+                            @NotNull Context blockingIoContext,
+                            @NotNull Log log,
+                            @NotNull Map<@NotNull SocketOption<?>, @NotNull Object> socketOptions)
+                            throws Throwable {
+                        if (null==selectorLoop) {
+                            selectorLoop=new SelectorLoop(log, null, AbstractTest.PARALLELISM);
+                        }
+                        return JavaChannelPollConnection.factory(selectorLoop, socketOptions);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return "NetworkConnectionFactory.javaChannelSelector()";
+                    }
+                };
+            }
+
+            @Override
+            public String toString() {
+                return "NetworkConnectionFactory.javaChannelSelector()";
+            }
+        };
+    }
+
     default boolean mayCloseOnEof() {
         return false;
     }
@@ -0,0 +1,271 @@
+package hu.gds.ldap4j.blocking;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.TestLog;
+import hu.gds.ldap4j.lava.Clock;
+import hu.gds.ldap4j.lava.PoolStatistics;
+import hu.gds.ldap4j.ldap.BindRequest;
+import hu.gds.ldap4j.ldap.BindResponse;
+import hu.gds.ldap4j.ldap.ControlsMessage;
+import hu.gds.ldap4j.ldap.DerefAliases;
+import hu.gds.ldap4j.ldap.Filter;
+import hu.gds.ldap4j.ldap.LdapException;
+import hu.gds.ldap4j.ldap.PartialAttribute;
+import hu.gds.ldap4j.ldap.Scope;
+import hu.gds.ldap4j.ldap.SearchRequest;
+import hu.gds.ldap4j.ldap.SearchResult;
+import hu.gds.ldap4j.ldap.UnboundidDirectoryServer;
+import hu.gds.ldap4j.net.TlsSettings;
+import java.io.EOFException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class BlockingLdapTest {
+    private static final int CALLERS=1_000;
+
+    @Test
+    public void testConnection() throws Throwable {
+        try (UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(false, 0, 0)) {
+            ldapServer.start();
+            long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS);
+            for (TlsSettings tlsSettings: List.of(
+                    TlsSettings.noTls(),
+                    UnboundidDirectoryServer.clientTls(false, true, true))) {
+                BlockingLdapConnection connection=BlockingLdapConnection.create(
+                        endNanos, ldapServer.localAddressClearText(), tlsSettings);
+                try {
+                    if (tlsSettings.isTls()) {
+                        assertNotNull(connection.tlsSession());
+                    }
+                    else {
+                        assertNull(connection.tlsSession());
+                    }
+                    testConnection(connection, endNanos);
+                    assertTrue(connection.isOpenAndNotFailed());
+                }
+                finally {
+                    connection.close(endNanos);
+                }
+                assertFalse(connection.isOpenAndNotFailed());
+            }
+        }
+    }
+
+    private void testConnection(@NotNull BlockingLdapConnection connection, long endNanos) throws Throwable {
+        Map.Entry<String, String> user=UnboundidDirectoryServer.USERS.entrySet().iterator().next();
+        connection.writeRequestReadResponseChecked(
+                endNanos,
+                BindRequest.simple(
+                                user.getKey(),
+                                user.getValue().toCharArray())
+                        .controlsEmpty());
+        int index=user.getKey().indexOf(',');
+        assertTrue(0<index);
+        String first=user.getKey().substring(0, index);
+        String base=user.getKey().substring(index+1);
+        index=first.indexOf('=');
+        assertTrue(0<index);
+        String attribute=first.substring(0, index);
+        String value=first.substring(index+1);
+        @NotNull List<@NotNull ControlsMessage<SearchResult>> searchResults=connection.search(
+                endNanos,
+                new SearchRequest(
+                        List.of(attribute),
+                        base,
+                        DerefAliases.DEREF_ALWAYS,
+                        Filter.parse("(&(objectClass=*)(%s=%s))".formatted(attribute, value)),
+                        Scope.WHOLE_SUBTREE,
+                        128,
+                        10,
+                        false)
+                        .controlsEmpty());
+        assertEquals(2, searchResults.size(), searchResults.toString());
+        assertTrue(searchResults.get(0).message().isEntry());
+        SearchResult.Entry entry=searchResults.get(0).message().asEntry();
+        assertEquals(user.getKey(), entry.objectName().utf8());
+        assertEquals(1, entry.attributes().size());
+        PartialAttribute attribute2=entry.attributes().get(0);
+        assertNotNull(attribute2);
+        assertEquals(attribute, attribute2.type().utf8());
+        assertEquals(List.of(value), attribute2.valuesUtf8());
+        assertTrue(searchResults.get(1).message().isDone());
+    }
+
+    @Test
+    public void testHugeFrameLength() throws Throwable {
+        long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS);
+        try (ServerSocket serverSocket=new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            ExecutorService executor=Executors.newSingleThreadExecutor();
+            try {
+                Future<Void> server=executor.submit(()->{
+                    try (Socket socket=serverSocket.accept();
+                         OutputStream outputStream=socket.getOutputStream()) {
+                        // the length of a sequence of almost 2 GiB, and more than a page of it
+                        outputStream.write(new byte[]{0x30, (byte)0x84, 0x7f, (byte)0xff, (byte)0xff, (byte)0xf0});
+                        outputStream.write(new byte[1<<16]);
+                    }
+                    return null;
+                });
+                BlockingLdapConnection connection=BlockingLdapConnection.create(
+                        endNanos,
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()),
+                        TlsSettings.noTls());
+                try {
+                    connection.readMessageChecked(endNanos, 1, BindResponse.READER_SUCCESS);
+                    fail("should have failed");
+                }
+                catch (EOFException ignore) {
+                }
+                finally {
+                    connection.close(endNanos);
+                }
+                assertTrue(1<<20>connection.readBufferCapacity());
+                server.get();
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testPoolReuse() throws Throwable {
+        try (UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(false, 0, 0)) {
+            ldapServer.start();
+            TestLog log=new TestLog();
+            BlockingLdapPool pool=BlockingLdapPool.create(
+                    log,
+                    1,
+                    ldapServer.localAddressClearText(),
+                    AbstractTest.TIMEOUT_NANOS,
+                    TlsSettings.noTls());
+            try {
+                List<@NotNull BlockingLdapConnection> leased=new ArrayList<>();
+                try {
+                    pool.lease((connection)->{
+                        leased.add(connection);
+                        return connection.writeRequestReadResponseChecked(
+                                Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS),
+                                BindRequest.simple(
+                                                UnboundidDirectoryServer.ADMIN_USER,
+                                                "bad password".toCharArray())
+                                        .controlsEmpty());
+                    });
+                    fail("should have failed");
+                }
+                catch (LdapException ignore) {
+                }
+                assertEquals(new PoolStatistics(1, 0, 0), pool.statistics());
+                IllegalStateException exception=new IllegalStateException("consumer failed");
+                try {
+                    pool.lease((connection)->{
+                        leased.add(connection);
+                        connection.searchStream(
+                                (searchResult)->{
+                                    throw exception;
+                                },
+                                Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS),
+                                new SearchRequest(
+                                        List.of("objectClass"),
+                                        UnboundidDirectoryServer.BASE_DN,
+                                        DerefAliases.DEREF_ALWAYS,
+                                        Filter.parse("(objectClass=*)"),
+                                        Scope.WHOLE_SUBTREE,
+                                        0,
+                                        10,
+                                        false)
+                                        .controlsEmpty());
+                        return null;
+                    });
+                    fail("should have failed");
+                }
+                catch (IllegalStateException ex) {
+                    assertSame(exception, ex);
+                }
+                assertFalse(leased.get(1).isOpenAndNotFailed());
+                assertEquals(new PoolStatistics(0, 0, 0), pool.statistics());
+                pool.lease((connection)->leased.add(connection));
+                assertEquals(3, leased.size());
+                assertSame(leased.get(0), leased.get(1));
+                assertNotSame(leased.get(1), leased.get(2));
+            }
+            finally {
+                pool.close();
+            }
+            log.assertEmpty();
+        }
+    }
+
+    @Test
+    public void testPool() throws Throwable {
+        try (UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(false, 0, 0)) {
+            ldapServer.start();
+            TestLog log=new TestLog();
+            BlockingLdapPool pool=BlockingLdapPool.create(
+                    log,
+                    AbstractTest.PARALLELISM,
+                    ldapServer.localAddressClearText(),
+                    AbstractTest.TIMEOUT_NANOS,
+                    TlsSettings.noTls());
+            try {
+                ExecutorService executor=VirtualThreads.isSupported()
+                        ?VirtualThreads.newVirtualThreadPerTaskExecutor()
+                        :Executors.newFixedThreadPool(4*AbstractTest.PARALLELISM);
+                try {
+                    List<@NotNull Future<?>> futures=new ArrayList<>(CALLERS);
+                    for (int ii=CALLERS; 0<ii; --ii) {
+                        futures.add(executor.submit(()->{
+                            try {
+                                return pool.lease((connection)->connection.writeRequestReadResponseChecked(
+                                        Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS),
+                                        BindRequest.simple(
+                                                        UnboundidDirectoryServer.ADMIN_USER,
+                                                        UnboundidDirectoryServer.ADMIN_PASSWORD.toCharArray())
+                                                .controlsEmpty()));
+                            }
+                            catch (Throwable throwable) {
+                                throw new RuntimeException(throwable);
+                            }
+                        }));
+                    }
+                    for (Future<?> future: futures) {
+                        future.get(AbstractTest.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+                    }
+                }
+                finally {
+                    executor.shutdown();
+                }
+                PoolStatistics statistics=pool.statistics();
+                assertEquals(0, statistics.leased());
+                assertEquals(0, statistics.waiting());
+                assertTrue(0<statistics.idle());
+                assertTrue(AbstractTest.PARALLELISM>=statistics.idle());
+            }
+            finally {
+                pool.close();
+            }
+            assertEquals(new PoolStatistics(0, 0, 0), pool.statistics());
+            log.assertEmpty();
+        }
+    }
+}
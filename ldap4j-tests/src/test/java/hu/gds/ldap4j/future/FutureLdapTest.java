@@ -1,12 +1,16 @@
 package hu.gds.ldap4j.future;
 
 import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.Log;
 import hu.gds.ldap4j.lava.Callback;
 import hu.gds.ldap4j.lava.Context;
 import hu.gds.ldap4j.lava.JoinCallback;
+import hu.gds.ldap4j.lava.PoolStatistics;
 import hu.gds.ldap4j.lava.ThreadLocalScheduledExecutorContext;
 import hu.gds.ldap4j.ldap.BindRequest;
+import hu.gds.ldap4j.ldap.ControlsMessage;
 import hu.gds.ldap4j.ldap.DerefAliases;
 import hu.gds.ldap4j.ldap.Filter;
 import hu.gds.ldap4j.ldap.PartialAttribute;
@@ -15,16 +19,21 @@ import hu.gds.ldap4j.ldap.SearchRequest;
 import hu.gds.ldap4j.ldap.SearchResult;
 import hu.gds.ldap4j.ldap.UnboundidDirectoryServer;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FutureLdapTest {
@@ -93,6 +102,81 @@ public class FutureLdapTest {
                                 .controlsEmpty()));
     }
 
+    /**
+     * Streams the results with a slow consumer, then fails the consumer on the first result.
+     */
+    private @NotNull CompletableFuture<Void> testConnectionSearchStream(
+            @NotNull FutureLdapConnection connection, @NotNull ScheduledExecutorService executor) throws Throwable {
+        ControlsMessage<SearchRequest> request=new SearchRequest(
+                List.of("cn", "objectClass"),
+                UnboundidDirectoryServer.BASE_DN,
+                DerefAliases.DEREF_ALWAYS,
+                Filter.parse("(objectClass=*)"),
+                Scope.WHOLE_SUBTREE,
+                0,
+                10,
+                false)
+                .controlsEmpty();
+        List<ControlsMessage<SearchResult>> streamed=new ArrayList<>();
+        IllegalStateException exception=new IllegalStateException("consumer failed");
+        return Futures.compose(
+                (results)->Futures.compose(
+                        (ignore0)->{
+                            assertTrue(1<results.size());
+                            synchronized (streamed) {
+                                assertEquals(results, streamed);
+                            }
+                            return Futures.compose(
+                                    (either)->{
+                                        assertTrue(either.isRight());
+                                        assertSame(
+                                                exception,
+                                                Exceptions.findCauseOrThrow(IllegalStateException.class, either.right()));
+                                        return Futures.compose(
+                                                (openAndNotFailed)->{
+                                                    assertFalse(openAndNotFailed);
+                                                    return CompletableFuture.completedFuture(null);
+                                                },
+                                                connection::isOpenAndNotFailed);
+                                    },
+                                    ()->Futures.capture(connection.searchStream(
+                                            (result)->CompletableFuture.failedFuture(exception),
+                                            request)));
+                        },
+                        ()->connection.searchStream(
+                                (result)->{
+                                    int size;
+                                    synchronized (streamed) {
+                                        streamed.add(result);
+                                        size=streamed.size();
+                                    }
+                                    CompletableFuture<Void> future=new CompletableFuture<>();
+                                    executor.schedule(
+                                            ()->{
+                                                synchronized (streamed) {
+                                                    if (size==streamed.size()) {
+                                                        future.complete(null);
+                                                    }
+                                                    else {
+                                                        future.completeExceptionally(new AssertionError(
+                                                                "next result read before the consumer completed"));
+                                                    }
+                                                }
+                                            },
+                                            10L,
+                                            TimeUnit.MILLISECONDS);
+                                    return future;
+                                },
+                                request)),
+                ()->Futures.compose(
+                        (bindResponse)->connection.search(request),
+                        ()->connection.writeRequestReadResponseChecked(
+                                BindRequest.simple(
+                                                UnboundidDirectoryServer.ADMIN_USER,
+                                                UnboundidDirectoryServer.ADMIN_PASSWORD.toCharArray())
+                                        .controlsEmpty())));
+    }
+
     private @NotNull CompletableFuture<Void> testDirect(
             @NotNull ScheduledExecutorService executor,
             @NotNull InetSocketAddress ldapClearTextAddress,
@@ -110,6 +194,128 @@ public class FutureLdapTest {
                 this::testConnection);
     }
 
+    private static void multiplexedPool(
+            int poolMaxLeasesPerConnection,
+            @NotNull Function<@NotNull FutureMultiplexedLdapPool, @NotNull CompletableFuture<Void>> function)
+            throws Throwable {
+        ScheduledExecutorService executor=Executors.newScheduledThreadPool(AbstractTest.PARALLELISM);
+        try (UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(false, 0, 0)) {
+            ldapServer.start();
+            Log log=Log.systemErr();
+            Context context=ThreadLocalScheduledExecutorContext.createDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS, executor, log, AbstractTest.PARALLELISM);
+            CompletableFuture<Void> stage=Futures.withClose(
+                    FutureMultiplexedLdapPool::close,
+                    ()->FutureMultiplexedLdapPool.createJavaAsync(
+                            (loopGroup)->CompletableFuture.completedFuture(null),
+                            ()->CompletableFuture.completedFuture(null),
+                            executor,
+                            null,
+                            ThreadLocalScheduledExecutorContext.DEFAULT_LOCAL_SIZE,
+                            log,
+                            AbstractTest.PARALLELISM,
+                            poolMaxLeasesPerConnection,
+                            1,
+                            ldapServer.localAddressClearText(),
+                            new ThreadLocal<>(),
+                            AbstractTest.TIMEOUT_NANOS,
+                            UnboundidDirectoryServer.clientTls(false, true, true)),
+                    function);
+            JoinCallback<Void> join=Callback.join(context);
+            Futures.handle(join, context, stage);
+            join.joinDelayNanos(AbstractTest.TIMEOUT_NANOS);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static @NotNull CompletableFuture<@NotNull InetSocketAddress> multiplexedSearch(
+            @NotNull FutureMultiplexedLdapConnection connection,
+            @NotNull ControlsMessage<SearchRequest> request) {
+        return Futures.compose(
+                (searchResults)->{
+                    assertEquals(2, searchResults.size(), searchResults.toString());
+                    assertTrue(searchResults.get(0).message().isEntry());
+                    assertTrue(searchResults.get(1).message().isDone());
+                    return connection.localAddress();
+                },
+                ()->connection.search(request));
+    }
+
+    private static @NotNull CompletableFuture<Void> multiplexedSingleConnection(
+            @NotNull List<@NotNull CompletableFuture<@NotNull InetSocketAddress>> leases,
+            @NotNull FutureMultiplexedLdapPool pool) {
+        return CompletableFuture.allOf(leases.toArray(CompletableFuture[]::new))
+                .thenCompose((ignore)->{
+                    assertEquals(
+                            1,
+                            leases.stream()
+                                    .map(CompletableFuture::join)
+                                    .distinct()
+                                    .count());
+                    return pool.statistics();
+                })
+                .thenAccept((statistics)->assertEquals(
+                        new PoolStatistics(1, 0, 0), statistics));
+    }
+
+    private static @NotNull ControlsMessage<SearchRequest> searchRequest() throws Throwable {
+        return new SearchRequest(
+                List.of("objectClass"),
+                UnboundidDirectoryServer.BASE_DN,
+                DerefAliases.DEREF_ALWAYS,
+                Filter.parse("(objectClass=*)"),
+                Scope.BASE_OBJECT,
+                0,
+                10,
+                false)
+                .controlsEmpty();
+    }
+
+    @Test
+    public void testMultiplexedPool() throws Throwable {
+        ControlsMessage<SearchRequest> request=searchRequest();
+        multiplexedPool(
+                4,
+                (pool)->{
+                    List<@NotNull CompletableFuture<@NotNull InetSocketAddress>> leases=new ArrayList<>();
+                    for (int ii=0; 8>ii; ++ii) {
+                        leases.add(pool.lease((connection)->multiplexedSearch(connection, request)));
+                    }
+                    return multiplexedSingleConnection(leases, pool);
+                });
+    }
+
+    @Test
+    public void testMultiplexedPoolManyInFlight() throws Throwable {
+        // more than the 127 small message ids, the ids are reused while other requests are still in flight
+        int size=256;
+        int rounds=4;
+        ControlsMessage<SearchRequest> request=searchRequest();
+        multiplexedPool(
+                size,
+                (pool)->{
+                    AtomicInteger leased=new AtomicInteger();
+                    CompletableFuture<Void> allLeased=new CompletableFuture<>();
+                    List<@NotNull CompletableFuture<@NotNull InetSocketAddress>> leases=new ArrayList<>();
+                    for (int ii=0; size>ii; ++ii) {
+                        leases.add(pool.lease((connection)->{
+                            if (size==leased.incrementAndGet()) {
+                                allLeased.complete(null);
+                            }
+                            CompletableFuture<@NotNull InetSocketAddress> result
+                                    =allLeased.thenCompose((ignore)->multiplexedSearch(connection, request));
+                            for (int jj=1; rounds>jj; ++jj) {
+                                result=result.thenCompose((ignore)->multiplexedSearch(connection, request));
+                            }
+                            return result;
+                        }));
+                    }
+                    return multiplexedSingleConnection(leases, pool);
+                });
+    }
+
     private @NotNull CompletableFuture<Void> testPool(
             @NotNull ScheduledExecutorService executor,
             @NotNull InetSocketAddress ldapClearTextAddress,
@@ -131,4 +337,32 @@ public class FutureLdapTest {
                         UnboundidDirectoryServer.clientTls(false, true, true)),
                 (pool)->pool.lease(this::testConnection));
     }
+
+    @Test
+    public void testSearchStream() throws Throwable {
+        ScheduledExecutorService executor=Executors.newScheduledThreadPool(AbstractTest.PARALLELISM);
+        try (UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(false, 0, 0)) {
+            ldapServer.start();
+            Log log=Log.systemErr();
+            Context context=ThreadLocalScheduledExecutorContext.createDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS, executor, log, AbstractTest.PARALLELISM);
+            CompletableFuture<Void> stage=Futures.withClose(
+                    FutureLdapConnection::close,
+                    FutureLdapConnection.factoryJavaAsync(
+                            null,
+                            executor,
+                            log,
+                            AbstractTest.PARALLELISM,
+                            ldapServer.localAddressClearText(),
+                            AbstractTest.TIMEOUT_NANOS,
+                            UnboundidDirectoryServer.clientTls(false, true, true)),
+                    (connection)->testConnectionSearchStream(connection, executor));
+            JoinCallback<Void> join=Callback.join(context);
+            Futures.handle(join, context, stage);
+            join.joinDelayNanos(AbstractTest.TIMEOUT_NANOS);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
 }
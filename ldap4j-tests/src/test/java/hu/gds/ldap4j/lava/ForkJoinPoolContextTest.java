@@ -0,0 +1,96 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.TestLog;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ForkJoinPoolContextTest {
+    @Test
+    public void testErrorLogged() throws Throwable {
+        TestLog log=new TestLog();
+        ForkJoinPool pool=ForkJoinPoolContext.createPool(2);
+        try {
+            ForkJoinPoolContext context=ForkJoinPoolContext.createEndNanos(null, log, pool);
+            CountDownLatch latch=new CountDownLatch(2);
+            // from outside the pool, and forked from a worker
+            context.execute(()->{
+                try {
+                    context.execute(()->{
+                        latch.countDown();
+                        throw new RuntimeException("forked failed");
+                    });
+                }
+                finally {
+                    latch.countDown();
+                }
+                throw new RuntimeException("executed failed");
+            });
+            assertTrue(latch.await(10L, TimeUnit.SECONDS));
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10L, TimeUnit.SECONDS));
+            assertTrue(log.removeError((throwable)->throwable.toString().contains("executed failed")));
+            assertTrue(log.removeError((throwable)->throwable.toString().contains("forked failed")));
+            log.assertEmpty();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectAfterShutdown() throws Throwable {
+        TestLog log=new TestLog();
+        ForkJoinPool pool=ForkJoinPoolContext.createPool(2);
+        try {
+            ForkJoinPoolContext context=ForkJoinPoolContext.createEndNanos(null, log, pool);
+            CountDownLatch shutDown=new CountDownLatch(1);
+            CompletableFuture<Throwable> worker=new CompletableFuture<>();
+            context.checkClosedAndExecute(()->{
+                try {
+                    assertTrue(shutDown.await(10L, TimeUnit.SECONDS));
+                    context.checkClosedAndExecute(()->{
+                    });
+                    worker.complete(null);
+                }
+                catch (Throwable throwable) {
+                    worker.complete(throwable);
+                }
+            });
+            pool.shutdown();
+            shutDown.countDown();
+            assertInstanceOf(RejectedExecutionException.class, worker.get(10L, TimeUnit.SECONDS));
+            assertThrows(RejectedExecutionException.class, ()->context.checkClosedAndExecute(()->{
+            }));
+            log.assertEmpty();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testScheduleAfterShutdown() throws Throwable {
+        TestLog log=new TestLog();
+        ForkJoinPool pool=ForkJoinPoolContext.createPool(2);
+        try {
+            ForkJoinPoolContext context=ForkJoinPoolContext.createEndNanos(null, log, pool);
+            CountDownLatch ran=new CountDownLatch(1);
+            context.checkClosedAndSchedule(TimeUnit.MILLISECONDS.toNanos(100L), ran::countDown);
+            pool.shutdown();
+            assertFalse(ran.await(1L, TimeUnit.SECONDS));
+            assertTrue(log.removeError((throwable)->throwable.getCause() instanceof RejectedExecutionException));
+            log.assertEmpty();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.TestLog;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class MultiplexedPoolTest {
+    /**
+     * Keeps the leases in flight until parties of them are in flight, or all of them arrived.
+     */
+    private static class Gate {
+        private int arrived;
+        private int generation;
+        private int inFlight;
+        private final Map<@NotNull Object, @NotNull Integer> inFlightByObject=new HashMap<>();
+        private final Lock lock=new Lock();
+        private final Lock.Condition lockCondition=lock.newCondition();
+        private final Map<@NotNull Object, @NotNull Integer> maxInFlightByObject=new HashMap<>();
+        private final int parties;
+        private final int total;
+
+        public Gate(int parties, int total) {
+            this.parties=parties;
+            this.total=total;
+        }
+
+        public @NotNull Lava<Void> pass(@NotNull Object object) {
+            return lock.enter(()->{
+                        ++arrived;
+                        ++inFlight;
+                        int inFlight2=inFlightByObject.merge(object, 1, Integer::sum);
+                        maxInFlightByObject.merge(object, inFlight2, Math::max);
+                        int generation2=generation;
+                        if ((parties==inFlight) || (total==arrived)) {
+                            ++generation;
+                            return lockCondition.signalAll();
+                        }
+                        return passCriticalSection(generation2);
+                    })
+                    .composeIgnoreResult(()->lock.enter(()->{
+                        --inFlight;
+                        inFlightByObject.merge(object, -1, Integer::sum);
+                        return Lava.VOID;
+                    }));
+        }
+
+        private @NotNull Lava<Void> passCriticalSection(int generation2) {
+            if ((generation!=generation2) || (total==arrived)) {
+                return Lava.VOID;
+            }
+            return Lava.checkEndNanos("gate timeout")
+                    .composeIgnoreResult(lockCondition::awaitEndNanos)
+                    .composeIgnoreResult(()->passCriticalSection(generation2));
+        }
+    }
+
+    private static class ObjectFactory {
+        private final @NotNull Set<@NotNull Object> closedObjects=new HashSet<>();
+        private final @NotNull Set<@NotNull Object> createdObjects=new HashSet<>();
+        private final Object lock=new Object();
+
+        public void assertObjects(int created) {
+            synchronized (lock) {
+                assertEquals(created, closedObjects.size());
+                assertEquals(created, createdObjects.size());
+            }
+        }
+
+        private @NotNull Lava<Void> closeObject(@NotNull Object object) {
+            return Lava.supplier(()->{
+                synchronized (lock) {
+                    assertTrue(closedObjects.add(object));
+                }
+                return Lava.VOID;
+            });
+        }
+
+        private @NotNull Lava<@NotNull Object> createObject() {
+            return Lava.supplier(()->{
+                Object object=new Object();
+                synchronized (lock) {
+                    createdObjects.add(object);
+                }
+                return Lava.complete(object);
+            });
+        }
+
+        public @NotNull MultiplexedPool<@NotNull Object, @NotNull Object> createPool(
+                @NotNull Log log, int maxLeasesPerObject, int size,
+                @NotNull Function<@NotNull Object, @NotNull Lava<@NotNull Boolean>> unwrap) {
+            return new MultiplexedPool<>(
+                    this::closeObject,
+                    this::createObject,
+                    log,
+                    maxLeasesPerObject,
+                    size,
+                    unwrap,
+                    Lava::complete);
+        }
+    }
+
+    private static @NotNull Lava<Void> awaitClosing(boolean @NotNull [] closing, @NotNull Lock.Condition condition) {
+        if (closing[0]) {
+            return Lava.VOID;
+        }
+        return Lava.checkEndNanos("closing timeout")
+                .composeIgnoreResult(condition::awaitEndNanos)
+                .composeIgnoreResult(()->awaitClosing(closing, condition));
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testCloseWaitsForLeases(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        Lock lock=new Lock();
+        Lock.Condition lockCondition=lock.newCondition();
+        boolean[] closing={false};
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            MultiplexedPool<@NotNull Object, @NotNull Object> pool
+                    =objectFactory.createPool(log, 2, 1, (object)->Lava.complete(true));
+            context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    Lava.forkJoin(
+                            ()->pool.lease((object)->lock.enter(()->awaitClosing(closing, lockCondition))),
+                            ()->pool.lease((object)->Lava.VOID)
+                                    .composeIgnoreResult(()->lock.enter(()->{
+                                        closing[0]=true;
+                                        return lockCondition.signalAll();
+                                    }))
+                                    .composeIgnoreResult(pool::close)));
+        }
+        objectFactory.assertObjects(1);
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testEvictFailed(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        Set<@NotNull Object> failed=new HashSet<>();
+        List<@NotNull Object> leased=new ArrayList<>();
+        IllegalStateException exception=new IllegalStateException("dispatch failed");
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            MultiplexedPool<@NotNull Object, @NotNull Object> pool=objectFactory.createPool(
+                    log,
+                    2,
+                    1,
+                    (object)->Lava.supplier(()->{
+                        synchronized (failed) {
+                            return Lava.complete(!failed.contains(object));
+                        }
+                    }));
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        pool.lease((object)->{
+                            synchronized (failed) {
+                                failed.add(object);
+                                leased.add(object);
+                            }
+                            return Lava.fail(exception);
+                        }));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                assertSame(exception, Exceptions.findCauseOrThrow(IllegalStateException.class, throwable));
+            }
+            assertEquals(
+                    new PoolStatistics(0, 0, 0),
+                    context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, pool.statistics()));
+            objectFactory.assertObjects(1);
+            context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    pool.lease((object)->{
+                        synchronized (failed) {
+                            leased.add(object);
+                        }
+                        return Lava.VOID;
+                    }));
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, pool.close());
+        }
+        assertEquals(2, leased.size());
+        assertNotSame(leased.get(0), leased.get(1));
+        objectFactory.assertObjects(2);
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testLeastLeased(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        Gate gate=new Gate(12, 12);
+        ObjectFactory objectFactory=testWithPool(contextHolderFactory, gate, 12, 4, 3);
+        objectFactory.assertObjects(3);
+        assertEquals(3, gate.maxInFlightByObject.size());
+        for (int maxInFlight: gate.maxInFlightByObject.values()) {
+            assertEquals(4, maxInFlight);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testRemove(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        List<@NotNull Object> leased=new ArrayList<>();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    Closeable.withCloseable(
+                            ()->Lava.complete(objectFactory.createPool(
+                                    log,
+                                    2,
+                                    1,
+                                    (object)->Lava.complete(1<leased.size()))),
+                            (pool)->pool.lease((object)->{
+                                        leased.add(object);
+                                        return Lava.VOID;
+                                    })
+                                    .composeIgnoreResult(()->pool.lease((object)->{
+                                        leased.add(object);
+                                        return Lava.VOID;
+                                    }))));
+        }
+        assertEquals(2, leased.size());
+        assertTrue(leased.get(0)!=leased.get(1));
+        objectFactory.assertObjects(2);
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testWait(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        Gate gate=new Gate(4, 40);
+        ObjectFactory objectFactory=testWithPool(contextHolderFactory, gate, 40, 2, 2);
+        objectFactory.assertObjects(2);
+        assertEquals(2, gate.maxInFlightByObject.size());
+        for (int maxInFlight: gate.maxInFlightByObject.values()) {
+            assertEquals(2, maxInFlight);
+        }
+    }
+
+    private @NotNull ObjectFactory testWithPool(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory,
+            @NotNull Gate gate,
+            int leases,
+            int maxLeasesPerObject,
+            int size) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    Closeable.withCloseable(
+                            ()->Lava.complete(objectFactory.createPool(
+                                    log, maxLeasesPerObject, size, (object)->Lava.complete(true))),
+                            (pool)->{
+                                List<@NotNull Supplier<@NotNull Lava<Void>>> suppliers=new ArrayList<>(leases);
+                                for (int ii=leases; 0<ii; --ii) {
+                                    suppliers.add(()->pool.lease(gate::pass));
+                                }
+                                return Lava.forkJoin(suppliers)
+                                        .composeIgnoreResult(()->Lava.VOID);
+                            }));
+        }
+        log.assertEmpty();
+        return objectFactory;
+    }
+}
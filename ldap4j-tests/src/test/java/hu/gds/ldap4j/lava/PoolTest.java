@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -20,6 +21,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class PoolTest {
@@ -27,6 +29,7 @@ public class PoolTest {
         private final @NotNull Set<@NotNull PrivateObject> closedObjects=new HashSet<>();
         private final @NotNull Set<@NotNull PrivateObject> createdObjects=new HashSet<>();
         private final @NotNull List<@NotNull PublicObject> leasedObjects=new ArrayList<>();
+        public @NotNull PoolListener listener=PoolListener.NOOP;
         private final Object lock=new Object();
 
         public void assertObjects(int created, int leased) {
@@ -38,6 +41,12 @@ public class PoolTest {
             }
         }
 
+        public int closedObjects() {
+            synchronized (lock) {
+                return closedObjects.size();
+            }
+        }
+
         private @NotNull Lava<Void> closeObject(@NotNull PrivateObject object) {
             return Lava.supplier(()->{
                 synchronized (lock) {
@@ -47,6 +56,12 @@ public class PoolTest {
             });
         }
 
+        public int createdObjects() {
+            synchronized (lock) {
+                return createdObjects.size();
+            }
+        }
+
         private @NotNull Lava<@NotNull PrivateObject> createObject() {
             return Lava.supplier(()->{
                 PrivateObject object=new PrivateObject();
@@ -58,14 +73,21 @@ public class PoolTest {
         }
 
         public @NotNull Pool<@NotNull PrivateObject, @NotNull PublicObject> createPool(
-                long keepAlivePeriodNanos, long keepAliveTimeoutNanos, @NotNull Log log, int size) {
+                int initialSize, long keepAlivePeriodNanos, long keepAliveTimeoutNanos, @NotNull Log log,
+                long maxIdleNanos, long maxLifetimeNanos, int minIdle, int shards, int size) {
             return new Pool<>(
                     this::closeObject,
                     this::createObject,
+                    initialSize,
                     PrivateObject::keepAlive,
                     keepAlivePeriodNanos,
                     keepAliveTimeoutNanos,
+                    listener,
                     log,
+                    maxIdleNanos,
+                    maxLifetimeNanos,
+                    minIdle,
+                    shards,
                     size,
                     PublicObject::unwrap,
                     (object)->Lava.complete(new PublicObject(object)));
@@ -78,6 +100,41 @@ public class PoolTest {
         }
     }
 
+    private static class Listener implements PoolListener {
+        private final @NotNull List<@NotNull String> events=new ArrayList<>();
+
+        @Override
+        public synchronized void closed(long closeNanos, @Nullable Throwable throwable) {
+            event("closed", closeNanos, throwable);
+        }
+
+        @Override
+        public synchronized void created(long createNanos, @Nullable Throwable throwable) {
+            event("created", createNanos, throwable);
+        }
+
+        private void event(@NotNull String event, long nanos, @Nullable Throwable throwable) {
+            assertTrue(0L<=nanos);
+            events.add((null==throwable)
+                    ?event
+                    :event+" failed");
+        }
+
+        public synchronized @NotNull List<@NotNull String> events() {
+            return new ArrayList<>(events);
+        }
+
+        @Override
+        public synchronized void keepAlive(long keepAliveNanos, @Nullable Throwable throwable) {
+            event("keep-alive", keepAliveNanos, throwable);
+        }
+
+        @Override
+        public synchronized void leased(long waitNanos, @Nullable Throwable throwable) {
+            event("leased", waitNanos, throwable);
+        }
+    }
+
     private static class PrivateObject {
         public int keepAliveSuccesses=Integer.MAX_VALUE;
 
@@ -113,6 +170,50 @@ public class PoolTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testInitialSize(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            testWithPool(
+                    context,
+                    new Function<>() {
+                        @Override
+                        public Lava<Void> apply(Pool<PrivateObject, PublicObject> value) {
+                            assertEquals(3, objectFactory.createdObjects());
+                            return loop(5, value);
+                        }
+
+                        private @NotNull Lava<Void> loop(
+                                int index, @NotNull Pool<@NotNull PrivateObject, @NotNull PublicObject> pool) {
+                            if (0>=index) {
+                                return Lava.VOID;
+                            }
+                            return pool.lease((object)->{
+                                        objectFactory.leased(object);
+                                        return Lava.VOID;
+                                    })
+                                    .composeIgnoreResult(()->loop(index-1, pool));
+                        }
+                    },
+                    3,
+                    AbstractTest.TIMEOUT_NANOS,
+                    log,
+                    0L,
+                    0L,
+                    0,
+                    objectFactory,
+                    2,
+                    5,
+                    true);
+        }
+        objectFactory.assertObjects(3, 5);
+        log.assertEmpty();
+    }
+
     @ParameterizedTest
     @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
     public void testKeepAliveAfter(
@@ -176,14 +277,14 @@ public class PoolTest {
             @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
         testLeaseSequence(
                 contextHolderFactory,
-                1,
-                (throwable)->throwable.toString().contains("keep-alive failed"),
+                2,
+                null,
                 (object)->{
                     object.object.keepAliveSuccesses=1;
                     return Lava.VOID;
                 },
                 0L,
-                1,
+                2,
                 false);
     }
 
@@ -276,12 +377,242 @@ public class PoolTest {
         log.assertEmpty();
     }
 
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testListener(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        Listener listener=new Listener();
+        ObjectFactory objectFactory=new ObjectFactory();
+        objectFactory.listener=listener;
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            testWithPool(
+                    context,
+                    (pool)->Lava.catchErrors(
+                                    (throwable)->{
+                                        assertTrue(throwable.toString().contains("keep-alive failed"));
+                                        return Lava.VOID;
+                                    },
+                                    ()->pool.lease((object)->{
+                                        objectFactory.leased(object);
+                                        return pool.statistics()
+                                                .compose((statistics)->{
+                                                    assertEquals(new PoolStatistics(0, 1, 0), statistics);
+                                                    object.object.keepAliveSuccesses=0;
+                                                    return Lava.VOID;
+                                                });
+                                    }),
+                                    RuntimeException.class)
+                            .composeIgnoreResult(pool::statistics)
+                            .compose((statistics)->{
+                                assertEquals(new PoolStatistics(0, 0, 0), statistics);
+                                return pool.lease((object)->{
+                                    objectFactory.leased(object);
+                                    return Lava.VOID;
+                                });
+                            })
+                            .composeIgnoreResult(pool::statistics)
+                            .compose((statistics)->{
+                                assertEquals(new PoolStatistics(1, 0, 0), statistics);
+                                return Lava.VOID;
+                            }),
+                    0L,
+                    log,
+                    objectFactory,
+                    1,
+                    false);
+        }
+        objectFactory.assertObjects(2, 2);
+        assertEquals(
+                List.of(
+                        "created", "keep-alive", "leased", "keep-alive failed", "closed",
+                        "created", "keep-alive", "leased", "keep-alive", "closed"),
+                listener.events());
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testListenerFailure(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        objectFactory.listener=new PoolListener() {
+            @Override
+            public void closed(long closeNanos, @Nullable Throwable throwable) {
+                throw new RuntimeException("listener failed");
+            }
+
+            @Override
+            public void created(long createNanos, @Nullable Throwable throwable) {
+                throw new RuntimeException("listener failed");
+            }
+
+            @Override
+            public void keepAlive(long keepAliveNanos, @Nullable Throwable throwable) {
+                throw new RuntimeException("listener failed");
+            }
+
+            @Override
+            public void leased(long waitNanos, @Nullable Throwable throwable) {
+                throw new RuntimeException("listener failed");
+            }
+        };
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            testWithPool(
+                    context,
+                    (pool)->pool.lease((object)->{
+                                objectFactory.leased(object);
+                                return Lava.VOID;
+                            })
+                            .composeIgnoreResult(()->pool.lease((object)->{
+                                objectFactory.leased(object);
+                                return Lava.VOID;
+                            }))
+                            .composeIgnoreResult(pool::statistics)
+                            .compose((statistics)->{
+                                assertEquals(new PoolStatistics(1, 0, 0), statistics);
+                                return Lava.VOID;
+                            }),
+                    0L,
+                    log,
+                    objectFactory,
+                    1,
+                    false);
+        }
+        objectFactory.assertObjects(1, 2);
+        assertTrue(log.removeError((throwable)->throwable.toString().contains("listener failed")));
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testMaxIdle(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            testWithPool(
+                    context,
+                    (pool)->pool.lease((object)->{
+                                objectFactory.leased(object);
+                                return Lava.VOID;
+                            })
+                            .composeIgnoreResult(()->waitFor(
+                                    ()->1==objectFactory.closedObjects(),
+                                    "max-idle timeout")),
+                    0,
+                    AbstractTest.TIMEOUT_NANOS,
+                    log,
+                    AbstractTest.TIMEOUT_NANOS_SMALL,
+                    0L,
+                    0,
+                    objectFactory,
+                    1,
+                    1,
+                    true);
+        }
+        objectFactory.assertObjects(1, 1);
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testMaxLifetime(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            testWithPool(
+                    context,
+                    (pool)->pool.lease((object)->{
+                                objectFactory.leased(object);
+                                return Lava.VOID;
+                            })
+                            .composeIgnoreResult(Lava::clock)
+                            .compose((clock)->{
+                                long endNanos=clock.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS_SMALL);
+                                return waitFor(
+                                        ()->!clock.isEndNanosInTheFuture(endNanos),
+                                        "max-lifetime timeout");
+                            })
+                            .composeIgnoreResult(()->pool.lease((object)->{
+                                objectFactory.leased(object);
+                                assertEquals(1, objectFactory.closedObjects());
+                                return Lava.VOID;
+                            })),
+                    0,
+                    AbstractTest.TIMEOUT_NANOS,
+                    log,
+                    0L,
+                    AbstractTest.TIMEOUT_NANOS_SMALL,
+                    0,
+                    objectFactory,
+                    1,
+                    1,
+                    false);
+        }
+        objectFactory.assertObjects(2, 2);
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testMinIdle(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        ObjectFactory objectFactory=new ObjectFactory();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            testWithPool(
+                    context,
+                    (pool)->{
+                        assertEquals(2, objectFactory.createdObjects());
+                        return pool.lease((object)->{
+                            objectFactory.leased(object);
+                            return new Supplier<Lava<Void>>() {
+                                @Override
+                                public Lava<Void> get() {
+                                    return Lava.checkEndNanos("min-idle timeout")
+                                            .composeIgnoreResult(()->{
+                                                if (3==objectFactory.createdObjects()) {
+                                                    return Lava.VOID;
+                                                }
+                                                return get();
+                                            });
+                                }
+                            }.get();
+                        });
+                    },
+                    0,
+                    AbstractTest.TIMEOUT_NANOS,
+                    log,
+                    0L,
+                    0L,
+                    2,
+                    objectFactory,
+                    1,
+                    5,
+                    false);
+        }
+        objectFactory.assertObjects(3, 1);
+        log.assertEmpty();
+    }
+
     @ParameterizedTest
     @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
     public void testParallel(
             @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
-        final int sizePool=5;
-        final int sizeThreads=25;
+        testParallel(contextHolderFactory, 1, 5, 25);
+    }
+
+    private void testParallel(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory,
+            int shards, int sizePool, int sizeThreads) throws Throwable {
         TestLog log=new TestLog();
         ObjectFactory objectFactory=new ObjectFactory();
         try (ContextHolder context=contextHolderFactory.apply(log)) {
@@ -300,14 +631,24 @@ public class PoolTest {
                         return Lava.forkJoin(suppliers)
                                 .composeIgnoreResult(()->Lava.VOID);
                     },
+                    AbstractTest.TIMEOUT_NANOS,
                     log,
                     objectFactory,
-                    sizePool);
+                    shards,
+                    sizePool,
+                    true);
         }
         objectFactory.assertObjects(sizePool, sizeThreads);
         log.assertEmpty();
     }
 
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testParallelSharded(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        testParallel(contextHolderFactory, 3, 7, 100);
+    }
+
     @ParameterizedTest
     @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
     public void testReuseAll(
@@ -357,6 +698,12 @@ public class PoolTest {
     @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
     public void testReuseOne(
             @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        testReuseOne(contextHolderFactory, 1);
+    }
+
+    private void testReuseOne(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory,
+            int shards) throws Throwable {
         final int size=5;
         TestLog log=new TestLog();
         ObjectFactory objectFactory=new ObjectFactory();
@@ -382,14 +729,24 @@ public class PoolTest {
                                     .composeIgnoreResult(()->loop(index-1, pool));
                         }
                     },
+                    AbstractTest.TIMEOUT_NANOS,
                     log,
                     objectFactory,
-                    size);
+                    shards,
+                    size,
+                    true);
         }
         objectFactory.assertObjects(1, size);
         log.assertEmpty();
     }
 
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testReuseOneSharded(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        testReuseOne(contextHolderFactory, 5);
+    }
+
     private void testUnwrap(
             @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory,
             int creates,
@@ -501,13 +858,53 @@ public class PoolTest {
             @NotNull ObjectFactory objectFactory,
             int size,
             boolean startKeepAlive) throws Throwable {
+        testWithPool(context, function, keepAlivePeriodNanos, log, objectFactory, 1, size, startKeepAlive);
+    }
+
+    private void testWithPool(
+            @NotNull ContextHolder context,
+            @NotNull Function<@NotNull Pool<@NotNull PrivateObject, @NotNull PublicObject>, @NotNull Lava<Void>> function,
+            long keepAlivePeriodNanos,
+            @NotNull Log log,
+            @NotNull ObjectFactory objectFactory,
+            int shards,
+            int size,
+            boolean startKeepAlive) throws Throwable {
+        testWithPool(
+                context, function, 0, keepAlivePeriodNanos, log, 0L, 0L, 0, objectFactory, shards, size,
+                startKeepAlive);
+    }
+
+    private void testWithPool(
+            @NotNull ContextHolder context,
+            @NotNull Function<@NotNull Pool<@NotNull PrivateObject, @NotNull PublicObject>, @NotNull Lava<Void>> function,
+            int initialSize,
+            long keepAlivePeriodNanos,
+            @NotNull Log log,
+            long maxIdleNanos,
+            long maxLifetimeNanos,
+            int minIdle,
+            @NotNull ObjectFactory objectFactory,
+            int shards,
+            int size,
+            boolean startKeepAlive) throws Throwable {
         context.getOrTimeoutDelayNanos(
                 AbstractTest.TIMEOUT_NANOS,
                 Closeable.withCloseable(
-                        ()->Lava.complete(objectFactory.createPool(keepAlivePeriodNanos, 0L, log, size)),
-                        (pool)->Lava.supplier(()->startKeepAlive
+                        ()->Lava.complete(objectFactory.createPool(
+                                initialSize, keepAlivePeriodNanos, 0L, log, maxIdleNanos, maxLifetimeNanos,
+                                minIdle, shards, size)),
+                        (pool)->pool.warmUp()
+                                .composeIgnoreResult(()->startKeepAlive
                                         ?pool.startKeepAlive()
                                         :Lava.VOID)
                                 .composeIgnoreResult(()->function.apply(pool))));
     }
+
+    private static @NotNull Lava<Void> waitFor(@NotNull BooleanSupplier condition, @NotNull String message) {
+        return Lava.checkEndNanos(message)
+                .composeIgnoreResult(()->condition.getAsBoolean()
+                        ?Lava.VOID
+                        :waitFor(condition, message));
+    }
 }
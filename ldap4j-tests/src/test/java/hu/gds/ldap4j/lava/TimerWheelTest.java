@@ -0,0 +1,145 @@
+package hu.gds.ldap4j.lava;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.TestLog;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimerWheelTest {
+    /**
+     * Timers fire at most a tick late, plus the time it takes for the wheel thread to wake up and run.
+     */
+    private static final long SCHEDULING_SLACK_NANOS=TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final int TIMERS=2_000;
+    private static final long TICK_NANOS=100_000L;
+
+    @Test
+    public void testCancel() throws Throwable {
+        TestLog log=new TestLog();
+        try (TimerWheel timerWheel=new TimerWheel(log, null, TICK_NANOS)) {
+            timerWheel.start();
+            AtomicInteger fired=new AtomicInteger();
+            List<@NotNull Runnable> cancels=new ArrayList<>();
+            cancels.add(timerWheel.schedule(TimeUnit.MILLISECONDS.toNanos(50L), fired::incrementAndGet));
+            cancels.add(timerWheel.schedule(TimeUnit.SECONDS.toNanos(1L), fired::incrementAndGet));
+            cancels.add(timerWheel.schedule(TimeUnit.DAYS.toNanos(1_000L), fired::incrementAndGet));
+            cancels.add(timerWheel.schedule(Long.MAX_VALUE/4L, fired::incrementAndGet));
+            assertEquals(4, timerWheel.size());
+            for (Runnable cancel: cancels) {
+                cancel.run();
+                cancel.run();
+            }
+            assertEquals(0, timerWheel.size());
+            Thread.sleep(100L);
+            assertEquals(0, fired.get());
+        }
+        log.assertEmpty();
+    }
+
+    @Test
+    public void testCancelAfterClose() throws Throwable {
+        TestLog log=new TestLog();
+        TimerWheel timerWheel=new TimerWheel(log, null, TICK_NANOS);
+        List<@NotNull Runnable> cancels=new ArrayList<>();
+        try {
+            timerWheel.start();
+            for (int ii=0; 3>ii; ++ii) {
+                cancels.add(timerWheel.schedule(TimeUnit.SECONDS.toNanos(10L), ()->{
+                }));
+            }
+            assertEquals(3, timerWheel.size());
+        }
+        finally {
+            timerWheel.close();
+        }
+        assertEquals(0, timerWheel.size());
+        cancels.forEach(Runnable::run);
+        assertEquals(0, timerWheel.size());
+        log.assertEmpty();
+    }
+
+    @Test
+    public void testExpiryAfterIdle() throws Throwable {
+        TestLog log=new TestLog();
+        // a short tick, so that turning through the ticks of the idle period would make the timer late
+        try (TimerWheel timerWheel=new TimerWheel(log, null, 10L)) {
+            timerWheel.start();
+            CountDownLatch latch0=new CountDownLatch(1);
+            timerWheel.schedule(TimeUnit.MILLISECONDS.toNanos(1L), latch0::countDown);
+            assertTrue(latch0.await(AbstractTest.TIMEOUT_NANOS, TimeUnit.NANOSECONDS));
+            Thread.sleep(1_000L);
+            long delayNanos=TimeUnit.MILLISECONDS.toNanos(1L);
+            long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(delayNanos);
+            AtomicLong lateNanos=new AtomicLong();
+            CountDownLatch latch1=new CountDownLatch(1);
+            timerWheel.schedule(delayNanos, ()->{
+                lateNanos.set(Clock.SYSTEM_NANO_TIME.nowNanos()-endNanos);
+                latch1.countDown();
+            });
+            assertTrue(latch1.await(AbstractTest.TIMEOUT_NANOS, TimeUnit.NANOSECONDS));
+            assertTrue(0L<=lateNanos.get(), "late nanos %,d".formatted(lateNanos.get()));
+            assertTrue(
+                    SCHEDULING_SLACK_NANOS>=lateNanos.get(),
+                    "late nanos %,d".formatted(lateNanos.get()));
+        }
+        log.assertEmpty();
+    }
+
+    @Test
+    public void testExpiry() throws Throwable {
+        TestLog log=new TestLog();
+        try (TimerWheel timerWheel=new TimerWheel(log, null, TICK_NANOS)) {
+            timerWheel.start();
+            Random random=new Random(1234L);
+            AtomicInteger cancelledFired=new AtomicInteger();
+            AtomicInteger early=new AtomicInteger();
+            AtomicLong maxLateNanos=new AtomicLong();
+            List<@NotNull Runnable> cancels=new ArrayList<>();
+            CountDownLatch latch=new CountDownLatch(TIMERS-TIMERS/3);
+            for (int ii=0; TIMERS>ii; ++ii) {
+                // levels 0, 1, and 2, the cancelled timers are on level 2
+                long delayNanos=switch (ii%3) {
+                    case 0 -> random.nextLong(64L*TICK_NANOS);
+                    case 1 -> random.nextLong(64L*64L*TICK_NANOS);
+                    default -> 64L*64L*TICK_NANOS+random.nextLong(64L*64L*TICK_NANOS);
+                };
+                long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(delayNanos);
+                boolean cancel=2==ii%3;
+                Runnable cancel2=timerWheel.schedule(delayNanos, ()->{
+                    long lateNanos=Clock.SYSTEM_NANO_TIME.nowNanos()-endNanos;
+                    if (0L>lateNanos) {
+                        early.incrementAndGet();
+                    }
+                    maxLateNanos.accumulateAndGet(lateNanos, Math::max);
+                    if (cancel) {
+                        cancelledFired.incrementAndGet();
+                    }
+                    else {
+                        latch.countDown();
+                    }
+                });
+                if (cancel) {
+                    cancels.add(cancel2);
+                }
+            }
+            cancels.forEach(Runnable::run);
+            assertTrue(latch.await(AbstractTest.TIMEOUT_NANOS, TimeUnit.NANOSECONDS));
+            assertEquals(0, timerWheel.size());
+            assertEquals(0, early.get());
+            assertEquals(0, cancelledFired.get());
+            assertTrue(
+                    TICK_NANOS+SCHEDULING_SLACK_NANOS>=maxLateNanos.get(),
+                    "max late nanos %,d".formatted(maxLateNanos.get()));
+        }
+        log.assertEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BERWriterTest {
+    private static <M extends Message<M>> void assertSameEncoding(
+            @NotNull List<@NotNull Control> controls, @NotNull M message, int messageId) throws Throwable {
+        @NotNull LdapMessage<M> ldapMessage=new LdapMessage<>(controls, message, messageId);
+        @NotNull ByteBuffer expected=ldapMessage.write(Message::write);
+        assertEquals(
+                expected,
+                BERWriter.write((writer)->ldapMessage.write(message::write, writer)));
+        assertEquals(
+                expected,
+                BERWriter.write((writer)->ldapMessage.write(message::write, writer), true));
+    }
+
+    private static @NotNull ByteBuffer bytes(int size) {
+        byte[] array=new byte[size];
+        for (int ii=0; size>ii; ++ii) {
+            array[ii]=(byte)ii;
+        }
+        return ByteBuffer.create(array);
+    }
+
+    @Test
+    public void test() throws Throwable {
+        List<@NotNull Control> controls=List.of(
+                Control.create("1.2.3", null, false),
+                Control.create("1.2.4", null, true),
+                Control.create("1.2.5", bytes(300), false));
+        for (int messageId: LdapConnectionTest.interestingIntegers().toList()) {
+            assertSameEncoding(List.of(), new AbandonRequest(messageId), messageId);
+            assertSameEncoding(controls, new AbandonRequest(-messageId), messageId);
+        }
+        for (int size: new int[]{0, 1, 127, 128, 255, 256, 65_535, 65_536, 70_000}) {
+            ByteBuffer value=bytes(size);
+            List<@NotNull PartialAttribute> attributes=new ArrayList<>();
+            for (int ii=0; 3>ii; ++ii) {
+                attributes.add(new PartialAttribute(ByteBuffer.create("attribute"+ii), List.of(value, value)));
+            }
+            assertSameEncoding(controls, new AddRequest(attributes, value), 1);
+            assertSameEncoding(controls, BindRequest.simple(value, value), 2);
+            assertSameEncoding(controls, BindRequest.sasl(value, ByteBuffer.create("PLAIN"), value), 3);
+            assertSameEncoding(List.of(), BindRequest.sasl(null, ByteBuffer.create("EXTERNAL"), value), 4);
+            assertSameEncoding(
+                    controls,
+                    new CompareRequest(new Filter.EqualityMatch(value, ByteBuffer.create("cn")), value),
+                    5);
+            assertSameEncoding(controls, new DeleteRequest(value), 6);
+            assertSameEncoding(controls, new ExtendedRequest(value, null, ExtendedResponse.READER_SUCCESS), 7);
+            assertSameEncoding(controls, new ExtendedRequest(value, value, ExtendedResponse.READER_SUCCESS), 8);
+            assertSameEncoding(
+                    controls,
+                    new ExtendedResponse(
+                            new LdapResult(value, value, List.of(value), 1, null),
+                            value,
+                            value),
+                    9);
+            assertSameEncoding(controls, new ModifyDNRequest(true, value, value, null), 10);
+            assertSameEncoding(controls, new ModifyDNRequest(false, value, value, value), 11);
+            assertSameEncoding(
+                    controls,
+                    new ModifyRequest(
+                            List.of(
+                                    new ModifyRequest.Change(attributes.get(0), ModifyRequest.OPERATION_ADD),
+                                    new ModifyRequest.Change(attributes.get(1), ModifyRequest.OPERATION_DELETE)),
+                            value),
+                    12);
+            for (Filter filter: List.of(
+                    Filter.parse("(&(cn=a*b*c*d)(!(|(sn>=x)(sn<=y)(sn~=z)))(objectClass=*)(cn:dn:1.2.3:=v))"),
+                    new Filter.Substrings(List.of(value), value, value, value),
+                    new Filter.ExtensibleMatch(true, value, value, value))) {
+                assertSameEncoding(
+                        controls,
+                        new SearchRequest(
+                                List.of(value, ByteBuffer.create(SearchRequest.ALL_ATTRIBUTES)),
+                                value,
+                                DerefAliases.DEREF_ALWAYS,
+                                filter,
+                                Scope.WHOLE_SUBTREE,
+                                size,
+                                size,
+                                true),
+                        13);
+            }
+            assertSameEncoding(controls, new UnbindRequest(), 14);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package hu.gds.ldap4j.ldap;
 
 import hu.gds.ldap4j.Function;
 import hu.gds.ldap4j.Pair;
+import hu.gds.ldap4j.Supplier;
 import hu.gds.ldap4j.TestContext;
 import hu.gds.ldap4j.lava.Closeable;
 import hu.gds.ldap4j.lava.Lava;
@@ -32,6 +33,59 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LdapConnectionTest {
+    private static void dispatched(
+            int maxWriteBatchSize, @NotNull LdapTestParameters testParameters) throws Throwable {
+        try (TestContext<LdapTestParameters> context=TestContext.create(testParameters);
+             UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(
+                     false, testParameters.serverPortClearText, testParameters.serverPortTls)) {
+            ldapServer.start();
+            ControlsMessage<SearchRequest> request=new SearchRequest(
+                    List.of(),
+                    "ou=users,ou=test,dc=ldap4j,dc=gds,dc=hu",
+                    DerefAliases.NEVER_DEREF_ALIASES,
+                    Filter.parse("(objectClass=person)"),
+                    Scope.WHOLE_SUBTREE,
+                    100,
+                    10,
+                    true)
+                    .controlsEmpty();
+            int size=50;
+            Pair<List<ControlsMessage<SearchResult>>, List<Integer>> results=context.get(
+                    Closeable.withCloseable(
+                            ()->context.parameters().connectionFactory(
+                                    context,
+                                    TlsConnection.DEFAULT_EXPLICIT_TLS_RENEGOTIATION,
+                                    maxWriteBatchSize,
+                                    ldapServer::localAddressClearText,
+                                    ldapServer::localAddressTls,
+                                    UnboundidDirectoryServer.adminBind()),
+                            (connection)->{
+                                List<@NotNull Supplier<@NotNull Lava<@NotNull Integer>>> searches=new ArrayList<>();
+                                for (int ii=size; 0<ii; --ii) {
+                                    searches.add(()->{
+                                        int[] count=new int[1];
+                                        return connection.searchStreamDispatched(
+                                                        (searchResult)->{
+                                                            ++count[0];
+                                                            return Lava.VOID;
+                                                        },
+                                                        request)
+                                                .composeIgnoreResult(()->Lava.complete(count[0]));
+                                    });
+                                }
+                                return connection.search(request)
+                                        .compose((expected)->Lava.forkJoin(searches)
+                                                .compose((counts)->connection.flushWrites()
+                                                        .composeIgnoreResult(
+                                                                ()->Lava.complete(Pair.of(expected, counts)))));
+                            }));
+            assertEquals(size, results.second().size());
+            for (int count: results.second()) {
+                assertEquals(results.first().size(), count);
+            }
+        }
+    }
+
     public static @NotNull Stream<@NotNull Integer> interestingIntegers() {
         List<Integer> limits=new ArrayList<>();
         limits.add(0);
@@ -61,6 +115,77 @@ public class LdapConnectionTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
+    public void testDispatched(LdapTestParameters testParameters) throws Throwable {
+        dispatched(0, testParameters);
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
+    public void testDispatchedCoalesced(LdapTestParameters testParameters) throws Throwable {
+        dispatched(256, testParameters);
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
+    public void testDispatchedMessageIdReuse(LdapTestParameters testParameters) throws Throwable {
+        try (TestContext<LdapTestParameters> context=TestContext.create(testParameters);
+             UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(
+                     false, testParameters.serverPortClearText, testParameters.serverPortTls)) {
+            ldapServer.start();
+            ControlsMessage<SearchRequest> request=new SearchRequest(
+                    List.of(),
+                    "cn=group0,ou=groups,ou=test,dc=ldap4j,dc=gds,dc=hu",
+                    DerefAliases.NEVER_DEREF_ALIASES,
+                    Filter.parse("(objectClass=*)"),
+                    Scope.BASE_OBJECT,
+                    10,
+                    1,
+                    true)
+                    .controlsEmpty();
+            int parallel=2;
+            int size=64;
+            List<Integer> counts=context.get(
+                    Closeable.withCloseable(
+                            ()->context.parameters().connectionFactory(
+                                    context,
+                                    TlsConnection.DEFAULT_EXPLICIT_TLS_RENEGOTIATION,
+                                    0,
+                                    MessageIdGenerator.interval(parallel, 1),
+                                    ldapServer::localAddressClearText,
+                                    ldapServer::localAddressTls,
+                                    UnboundidDirectoryServer.adminBind()),
+                            (connection)->{
+                                List<@NotNull Supplier<@NotNull Lava<@NotNull Integer>>> loops=new ArrayList<>();
+                                for (int ii=parallel; 0<ii; --ii) {
+                                    loops.add(new Supplier<>() {
+                                        private int count;
+
+                                        @Override
+                                        public @NotNull Lava<@NotNull Integer> get() throws Throwable {
+                                            if (size<=count) {
+                                                return Lava.complete(count);
+                                            }
+                                            return connection.searchDispatched(request)
+                                                    .compose((results)->{
+                                                        assertEquals(2, results.size());
+                                                        assertTrue(results.get(1).message().isDone());
+                                                        ++count;
+                                                        return get();
+                                                    });
+                                        }
+                                    });
+                                }
+                                return Lava.forkJoin(loops);
+                            }));
+            assertEquals(parallel, counts.size());
+            for (int count: counts) {
+                assertEquals(size, count);
+            }
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
     public void testMessageId(LdapTestParameters testParameters) throws Throwable {
@@ -205,6 +330,123 @@ public class LdapConnectionTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
+    public void testPipelinedMessageIds(LdapTestParameters testParameters) throws Throwable {
+        try (TestContext<LdapTestParameters> context=TestContext.create(testParameters);
+             UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(
+                     false, testParameters.serverPortClearText, testParameters.serverPortTls)) {
+            ldapServer.start();
+            ControlsMessage<SearchRequest> request=new SearchRequest(
+                    List.of(),
+                    "cn=group0,ou=groups,ou=test,dc=ldap4j,dc=gds,dc=hu",
+                    DerefAliases.NEVER_DEREF_ALIASES,
+                    Filter.parse("(objectClass=*)"),
+                    Scope.BASE_OBJECT,
+                    10,
+                    1,
+                    true)
+                    .controlsEmpty();
+            int size=2*MessageIdGenerator.MAX_SMALL_MESSAGE_ID;
+            Map<Integer, Integer> counts=context.get(
+                    Closeable.withCloseable(
+                            ()->context.parameters().connectionFactory(
+                                    context,
+                                    TlsConnection.DEFAULT_EXPLICIT_TLS_RENEGOTIATION,
+                                    0,
+                                    MessageIdGenerator.smallValues(),
+                                    ldapServer::localAddressClearText,
+                                    ldapServer::localAddressTls,
+                                    UnboundidDirectoryServer.adminBind()),
+                            new Function<@NotNull LdapConnection, @NotNull Lava<Map<Integer, Integer>>>() {
+                                private final @NotNull Map<@NotNull Integer, @NotNull Integer> counts=new HashMap<>();
+
+                                @Override
+                                public @NotNull Lava<Map<Integer, Integer>> apply(
+                                        @NotNull LdapConnection connection) {
+                                    return writeSearches(connection, size)
+                                            .composeIgnoreResult(()->readResults(connection))
+                                            .composeIgnoreResult(()->Lava.complete(counts));
+                                }
+
+                                private @NotNull Lava<Void> readResults(@NotNull LdapConnection connection) {
+                                    return Lava.checkEndNanos("readResults")
+                                            .composeIgnoreResult(()->{
+                                                if (counts.values().stream().allMatch((count)->2<=count)) {
+                                                    return Lava.VOID;
+                                                }
+                                                return connection.readMessageCheckedParallel(
+                                                                (messageId)->counts.containsKey(messageId)
+                                                                        ?SearchResult.READER.parallel(
+                                                                                Function::identity)
+                                                                        :null)
+                                                        .compose((searchResult)->{
+                                                            counts.merge(searchResult.messageId(), 1, Integer::sum);
+                                                            return readResults(connection);
+                                                        });
+                                            });
+                                }
+
+                                private @NotNull Lava<Void> writeSearches(
+                                        @NotNull LdapConnection connection, int remaining) {
+                                    return Lava.checkEndNanos("writeSearches")
+                                            .composeIgnoreResult(()->{
+                                                if (0>=remaining) {
+                                                    return Lava.VOID;
+                                                }
+                                                return connection.writeMessage(request)
+                                                        .compose((messageId)->{
+                                                            assertNull(counts.put(messageId, 0));
+                                                            return writeSearches(connection, remaining-1);
+                                                        });
+                                            });
+                                }
+                            }));
+            assertEquals(size, counts.size());
+            for (int count: counts.values()) {
+                assertEquals(2, count);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
+    public void testSearchStream(LdapTestParameters testParameters) throws Throwable {
+        try (TestContext<LdapTestParameters> context=TestContext.create(testParameters);
+             UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(
+                     false, testParameters.serverPortClearText, testParameters.serverPortTls)) {
+            ldapServer.start();
+            ControlsMessage<SearchRequest> request=new SearchRequest(
+                    List.of("cn", "objectClass"),
+                    "ou=test,dc=ldap4j,dc=gds,dc=hu",
+                    DerefAliases.DEREF_ALWAYS,
+                    Filter.parse("(objectClass=*)"),
+                    Scope.WHOLE_SUBTREE,
+                    0,
+                    10,
+                    false)
+                    .controlsEmpty();
+            List<ControlsMessage<SearchResult>> streamed=new ArrayList<>();
+            List<ControlsMessage<SearchResult>> results=context.get(
+                    Closeable.withCloseable(
+                            ()->context.parameters().connectionFactory(
+                                    context,
+                                    ldapServer,
+                                    UnboundidDirectoryServer.adminBind()),
+                            (connection)->connection.searchStream(
+                                            (result)->{
+                                                synchronized (streamed) {
+                                                    streamed.add(result);
+                                                }
+                                                return Lava.VOID;
+                                            },
+                                            request)
+                                    .composeIgnoreResult(()->connection.search(request))));
+            assertTrue(1<results.size());
+            assertEquals(results, streamed);
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("hu.gds.ldap4j.ldap.LdapTestParameters#streamLdap")
     public void testSearchSuccess(LdapTestParameters testParameters) throws Throwable {
@@ -0,0 +1,370 @@
+package hu.gds.ldap4j.ldap;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.TestLog;
+import hu.gds.ldap4j.lava.ContextHolder;
+import hu.gds.ldap4j.lava.Lava;
+import hu.gds.ldap4j.net.ByteBuffer;
+import hu.gds.ldap4j.net.DuplexConnection;
+import hu.gds.ldap4j.net.TlsConnection;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class LdapFramingTest {
+    /**
+     * Returns the scripted reads one by one, and records the read progress of the ldap connection before every read.
+     */
+    private static class ScriptedConnection implements DuplexConnection {
+        private final @NotNull AtomicReference<@Nullable LdapConnection> ldapConnection=new AtomicReference<>();
+        private final @NotNull List<LdapConnection.@NotNull ReadProgress> readProgresses=new ArrayList<>();
+        private final @NotNull Deque<@NotNull ByteBuffer> reads;
+
+        public ScriptedConnection(@NotNull List<@NotNull ByteBuffer> reads) {
+            this.reads=new ArrayDeque<>(reads);
+        }
+
+        @Override
+        public @NotNull Lava<Void> close() {
+            return Lava.VOID;
+        }
+
+        @Override
+        public @NotNull Lava<@NotNull Boolean> isOpenAndNotFailed() {
+            return Lava.complete(true);
+        }
+
+        @Override
+        public @NotNull Lava<@NotNull InetSocketAddress> localAddress() {
+            return Lava.fail(new UnsupportedOperationException());
+        }
+
+        @Override
+        public @NotNull Lava<@Nullable ByteBuffer> read() {
+            return Lava.supplier(()->{
+                synchronized (readProgresses) {
+                    readProgresses.add(Objects.requireNonNull(ldapConnection.get(), "ldapConnection")
+                            .readProgress());
+                    return Lava.complete(reads.pollFirst());
+                }
+            });
+        }
+
+        public @NotNull List<LdapConnection.@NotNull ReadProgress> readProgresses() {
+            synchronized (readProgresses) {
+                return new ArrayList<>(readProgresses);
+            }
+        }
+
+        @Override
+        public @NotNull Lava<@NotNull InetSocketAddress> remoteAddress() {
+            return Lava.fail(new UnsupportedOperationException());
+        }
+
+        @Override
+        public @NotNull Lava<Void> shutDownOutput() {
+            return Lava.VOID;
+        }
+
+        @Override
+        public @NotNull Lava<@NotNull Boolean> supportsShutDownOutput() {
+            return Lava.complete(false);
+        }
+
+        @Override
+        public @NotNull Lava<Void> write(@NotNull ByteBuffer value) {
+            return Lava.VOID;
+        }
+    }
+
+    private static <T> @NotNull Lava<T> awaitTimeout() {
+        Lava<Void> awaitEndNanos=(callback, context)->context.awaitEndNanos(callback);
+        return awaitEndNanos
+                .compose((ignore)->Lava.checkEndNanos("read timeout"))
+                .compose((ignore)->awaitTimeout());
+    }
+
+    private static int frameSize(int... bytes) throws Throwable {
+        byte[] array=new byte[bytes.length];
+        for (int ii=0; bytes.length>ii; ++ii) {
+            array[ii]=(byte)bytes[ii];
+        }
+        return BER.readFrameSize(ByteBuffer.create(array).reader());
+    }
+
+    private static @NotNull ByteBuffer message(int messageId, int valueSize) throws Throwable {
+        byte[] value=new byte[valueSize];
+        for (int ii=0; valueSize>ii; ++ii) {
+            value[ii]=(byte)(ii+messageId);
+        }
+        return new LdapMessage<>(
+                List.of(),
+                new ExtendedResponse(
+                        new LdapResult(
+                                ByteBuffer.empty(),
+                                ByteBuffer.empty(),
+                                List.of(),
+                                LdapResultCode.SUCCESS.code,
+                                LdapResultCode.SUCCESS),
+                        null,
+                        ByteBuffer.create(value)),
+                messageId)
+                .write(Message::write);
+    }
+
+    private static @NotNull LdapConnection open(@NotNull ScriptedConnection connection) {
+        LdapConnection ldapConnection=new LdapConnection(
+                new TlsConnection(connection),
+                false,
+                MessageIdGenerator.smallValues());
+        connection.ldapConnection.set(ldapConnection);
+        return ldapConnection;
+    }
+
+    private static void readMessage(
+            @NotNull ContextHolder context, @NotNull LdapConnection ldapConnection, int messageId, int valueSize)
+            throws Throwable {
+        @NotNull LdapMessage<ExtendedResponse> message=context.getOrTimeoutDelayNanos(
+                AbstractTest.TIMEOUT_NANOS,
+                ldapConnection.readMessageChecked(messageId, ExtendedResponse.READER_SUCCESS));
+        assertEquals(messageId, message.messageId());
+        assertEquals(
+                message(messageId, valueSize),
+                new LdapMessage<>(message.controls(), message.message(), messageId).write(Message::write));
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testDispatchedReadFailure(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            ScriptedConnection connection=new ScriptedConnection(List.of(
+                    ByteBuffer.create((byte)0x30, (byte)0x85, (byte)1, (byte)2, (byte)3, (byte)4, (byte)5)));
+            LdapConnection ldapConnection=open(connection);
+            int messageId=context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    ldapConnection.writeMessageDispatched(new AbandonRequest(1).controlsEmpty()));
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        ldapConnection.readMessageDispatched(messageId, ExtendedResponse.READER_SUCCESS));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                Exceptions.findCauseOrThrow(RuntimeException.class, throwable);
+            }
+            assertFalse(context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    ldapConnection.isOpenAndNotFailed()));
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, ldapConnection.close());
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testMalformedLength(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            ScriptedConnection connection=new ScriptedConnection(List.of(
+                    ByteBuffer.create((byte)0x30, (byte)0x85, (byte)1, (byte)2, (byte)3, (byte)4, (byte)5)));
+            LdapConnection ldapConnection=open(connection);
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        ldapConnection.readMessageChecked(1, ExtendedResponse.READER_SUCCESS));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                Exceptions.findCauseOrThrow(RuntimeException.class, throwable);
+            }
+            assertFalse(context.getOrTimeoutDelayNanos(
+                    AbstractTest.TIMEOUT_NANOS,
+                    ldapConnection.isOpenAndNotFailed()));
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, ldapConnection.close());
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testReadFailure(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            IOException failure=new IOException("read failed");
+            ByteBuffer message=message(1, 10);
+            ScriptedConnection connection=new ScriptedConnection(List.of(message.subBuffer(0, 5))) {
+                @Override
+                public @NotNull Lava<@Nullable ByteBuffer> read() {
+                    return super.read()
+                            .compose((readResult)->(null==readResult)
+                                    ?Lava.fail(failure)
+                                    :Lava.complete(readResult));
+                }
+            };
+            LdapConnection ldapConnection=open(connection);
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        ldapConnection.readMessageChecked(1, ExtendedResponse.READER_SUCCESS));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                assertSame(failure, throwable.getCause());
+            }
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        ldapConnection.readMessageChecked(1, ExtendedResponse.READER_SUCCESS));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                // not wrapped in a hex dump of the partial frame
+                assertEquals("ldap connection failed", throwable.getCause().getMessage());
+            }
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, ldapConnection.close());
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testReadTimeoutReleasesMessageId(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            ScriptedConnection connection=new ScriptedConnection(List.of()) {
+                @Override
+                public @NotNull Lava<@Nullable ByteBuffer> read() {
+                    return awaitTimeout();
+                }
+            };
+            LdapConnection ldapConnection=new LdapConnection(
+                    new TlsConnection(connection),
+                    false,
+                    MessageIdGenerator.constant(7));
+            connection.ldapConnection.set(ldapConnection);
+            assertEquals(
+                    7,
+                    context.getOrTimeoutDelayNanos(
+                            AbstractTest.TIMEOUT_NANOS,
+                            ldapConnection.writeMessage(StartTls.REQUEST.controlsEmpty())));
+            assertThrows(IllegalStateException.class, ldapConnection::nextFreeMessageId);
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        Lava.context()
+                                .compose((context2)->Lava.endNanos(
+                                        context2.clock().delayNanosToEndNanos(100_000_000L),
+                                        ()->ldapConnection.readMessageChecked(
+                                                7, ExtendedResponse.READER_SUCCESS))));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                Exceptions.findCauseOrThrow(TimeoutException.class, throwable);
+            }
+            assertEquals(7, ldapConnection.nextFreeMessageId());
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, ldapConnection.close());
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testReadMessage(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            ByteBuffer message1=message(1, 10);
+            ByteBuffer message2=message(2, 300);
+            ByteBuffer message3=message(3, 70_000);
+            ByteBuffer message4=message(4, 0);
+            ScriptedConnection connection=new ScriptedConnection(List.of(
+                    message1.subBuffer(0, 1),
+                    message1.subBuffer(1, message1.size())
+                            .append(message2.subBuffer(0, 3)),
+                    message2.subBuffer(3, 100),
+                    message2.subBuffer(100, message2.size())
+                            .append(message3)
+                            .append(message4)));
+            LdapConnection ldapConnection=open(connection);
+            readMessage(context, ldapConnection, 1, 10);
+            assertEquals(new LdapConnection.ReadProgress(3, -1), ldapConnection.readProgress());
+            readMessage(context, ldapConnection, 2, 300);
+            assertEquals(
+                    new LdapConnection.ReadProgress(message3.size()+message4.size(), -1),
+                    ldapConnection.readProgress());
+            readMessage(context, ldapConnection, 3, 70_000);
+            readMessage(context, ldapConnection, 4, 0);
+            assertEquals(new LdapConnection.ReadProgress(0, -1), ldapConnection.readProgress());
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        ldapConnection.readMessageChecked(5, ExtendedResponse.READER_SUCCESS));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                Exceptions.findCauseOrThrow(EOFException.class, throwable);
+            }
+            assertEquals(
+                    List.of(
+                            new LdapConnection.ReadProgress(0, -1),
+                            new LdapConnection.ReadProgress(1, -1),
+                            new LdapConnection.ReadProgress(3, -1),
+                            new LdapConnection.ReadProgress(100, message2.size()),
+                            new LdapConnection.ReadProgress(0, -1)),
+                    connection.readProgresses());
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, ldapConnection.close());
+        }
+        log.assertEmpty();
+    }
+
+    @Test
+    public void testReadFrameSize() throws Throwable {
+        assertEquals(-1, frameSize());
+        assertEquals(-1, frameSize(0x30));
+        assertEquals(2, frameSize(0x30, 0x00));
+        assertEquals(7, frameSize(0x30, 0x05));
+        assertEquals(7, frameSize(0x30, 0x05, 1, 2, 3, 4, 5, 0x30, 0x01));
+        assertEquals(129, frameSize(0x30, 0x7f));
+        assertEquals(-1, frameSize(0x30, 0x81));
+        assertEquals(131, frameSize(0x30, 0x81, 0x80));
+        assertEquals(-1, frameSize(0x30, 0x82, 0x01));
+        assertEquals(260, frameSize(0x30, 0x82, 0x01, 0x00));
+        assertEquals(-1, frameSize(0x30, 0x84, 0x00, 0x01, 0x00));
+        assertEquals(65_542, frameSize(0x30, 0x84, 0x00, 0x01, 0x00, 0x00));
+        assertThrows(RuntimeException.class, ()->frameSize(0x30, 0x80));
+        assertThrows(RuntimeException.class, ()->frameSize(0x30, 0x85, 0, 0, 0, 0, 1));
+        assertThrows(RuntimeException.class, ()->frameSize(0x30, 0x84, 0x80, 0, 0, 0));
+        assertThrows(RuntimeException.class, ()->frameSize(0x30, 0x84, 0x7f, 0xff, 0xff, 0xff));
+    }
+}
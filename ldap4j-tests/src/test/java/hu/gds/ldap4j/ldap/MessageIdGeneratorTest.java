@@ -0,0 +1,104 @@
+package hu.gds.ldap4j.ldap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageIdGeneratorTest {
+    @Test
+    public void testBoundedScan() {
+        MessageIdGenerator generator=MessageIdGenerator.fullRange();
+        AtomicInteger tries=new AtomicInteger();
+        assertEquals(
+                0,
+                generator.nextFree((messageId)->{
+                    tries.incrementAndGet();
+                    return true;
+                }));
+        assertEquals(MessageIdGenerator.MAX_NEXT_FREE_TRIES, tries.get());
+        int inFlight=MessageIdGenerator.MAX_NEXT_FREE_TRIES+MessageIdGenerator.MAX_NEXT_FREE_TRIES/2;
+        generator=MessageIdGenerator.fullRange();
+        assertEquals(0, generator.nextFree((messageId)->inFlight>=messageId));
+        assertEquals(inFlight+1, generator.nextFree((messageId)->inFlight>=messageId));
+    }
+
+    @Test
+    public void testFullRange() {
+        MessageIdGenerator generator=MessageIdGenerator.interval(MessageIdGenerator.MAX_MESSAGE_ID-1, 1);
+        Set<Integer> inFlight=new HashSet<>();
+        for (int ii=1; 10>=ii; ++ii) {
+            inFlight.add(ii);
+        }
+        assertEquals(11, generator.nextFree(inFlight::contains));
+        generator=MessageIdGenerator.interval(MessageIdGenerator.MAX_MESSAGE_ID, MessageIdGenerator.MAX_MESSAGE_ID-1);
+        assertEquals(MessageIdGenerator.MAX_MESSAGE_ID-1, generator.next());
+        assertEquals(MessageIdGenerator.MAX_MESSAGE_ID, generator.next());
+        assertEquals(MessageIdGenerator.MAX_MESSAGE_ID-1, generator.next());
+    }
+
+    @Test
+    public void testInFlight() {
+        MessageIdGenerator generator=MessageIdGenerator.interval(5, 1);
+        Set<Integer> inFlight=new HashSet<>();
+        for (int ii=1; 5>=ii; ++ii) {
+            int messageId=generator.nextFree(inFlight::contains);
+            assertEquals(ii, messageId);
+            inFlight.add(messageId);
+        }
+        assertEquals(0, generator.nextFree(inFlight::contains));
+        inFlight.remove(3);
+        assertEquals(3, generator.nextFree(inFlight::contains));
+        assertEquals(0, MessageIdGenerator.constant(7).nextFree((messageId)->true));
+    }
+
+    @Test
+    public void testSmallValues() {
+        MessageIdGenerator generator=MessageIdGenerator.smallValues();
+        Set<Integer> inFlight=new HashSet<>();
+        for (int ii=1; MessageIdGenerator.MAX_SMALL_MESSAGE_ID>=ii; ++ii) {
+            assertEquals(ii, generator.next());
+        }
+        assertEquals(1, generator.next());
+        for (int ii=0; 200>ii; ++ii) {
+            int messageId=generator.nextFree(inFlight::contains);
+            assertTrue(inFlight.add(messageId));
+            assertEquals(
+                    (MessageIdGenerator.MAX_SMALL_MESSAGE_ID>ii)
+                            ?1
+                            :2,
+                    BERWriter.integerSize(messageId));
+        }
+        inFlight.remove(42);
+        assertEquals(42, generator.nextFree(inFlight::contains));
+    }
+
+    @Test
+    public void testThreads() throws Throwable {
+        MessageIdGenerator generator=MessageIdGenerator.fullRange();
+        Set<Integer> messageIds=ConcurrentHashMap.newKeySet();
+        List<@NotNull Thread> threads=new ArrayList<>();
+        for (int ii=0; 4>ii; ++ii) {
+            // a duplicate id is caught by the size check, an assert would only fail the thread
+            threads.add(new Thread(()->{
+                for (int jj=0; 10_000>jj; ++jj) {
+                    messageIds.add(generator.next());
+                }
+            }));
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        assertEquals(40_000, messageIds.size());
+    }
+}
@@ -13,6 +13,7 @@ import hu.gds.ldap4j.ldap.extension.AssertionControl;
 import hu.gds.ldap4j.ldap.extension.AttributesByObjectClass;
 import hu.gds.ldap4j.ldap.extension.DonTUseCopyControl;
 import hu.gds.ldap4j.ldap.extension.FeatureDiscovery;
+import hu.gds.ldap4j.ldap.extension.KeepAlive;
 import hu.gds.ldap4j.ldap.extension.ManageDsaIt;
 import hu.gds.ldap4j.ldap.extension.ModifyIncrement;
 import hu.gds.ldap4j.ldap.extension.PasswordModify;
@@ -641,6 +642,31 @@ public class UnboundidDSTest {
         }
     }
 
+    @Test
+    public void testKeepAlive() throws Throwable {
+        try (TestContext<LdapTestParameters> context=TestContext.create(TEST_PARAMETERS);
+             UnboundidDirectoryServer ldapServer=new UnboundidDirectoryServer(
+                     false, TEST_PARAMETERS.serverPortClearText, TEST_PARAMETERS.serverPortTls)) {
+            ldapServer.start();
+            for (KeepAlive keepAlive: KeepAlive.values()) {
+                context.<Void>get(
+                        Closeable.withCloseable(
+                                ()->context.parameters().connectionFactory(
+                                        context, ldapServer, UnboundidDirectoryServer.adminBind()),
+                                (connection)->keepAlive.apply(connection)
+                                        .composeIgnoreResult(()->keepAlive.apply(connection))
+                                        .composeIgnoreResult(()->connection.writeRequestReadResponseChecked(
+                                                WhoAmI.REQUEST.controlsEmpty()))
+                                        .compose((response)->{
+                                            assertEquals(
+                                                    LdapResultCode.SUCCESS,
+                                                    response.message().ldapResult().resultCode2());
+                                            return Lava.VOID;
+                                        })));
+            }
+        }
+    }
+
     @Test
     public void testModify() throws Throwable {
         try (TestContext<LdapTestParameters> context=TestContext.create(TEST_PARAMETERS);
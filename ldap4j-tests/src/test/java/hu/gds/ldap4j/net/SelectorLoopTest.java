@@ -0,0 +1,149 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.TestLog;
+import hu.gds.ldap4j.lava.ContextHolder;
+import hu.gds.ldap4j.lava.Lava;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class SelectorLoopTest {
+    private static final long DELAY_NANOS=100_000_000L;
+
+    /**
+     * @return the nanos elapsed until the await completed
+     */
+    private static long await(
+            @NotNull ContextHolder context,
+            @NotNull Runnable later,
+            @NotNull SelectorLoop.Registration registration) throws Throwable {
+        long startNanos=System.nanoTime();
+        CompletableFuture<Void> future=CompletableFuture.runAsync(
+                later,
+                CompletableFuture.delayedExecutor(DELAY_NANOS, TimeUnit.NANOSECONDS));
+        context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, registration.await(SelectionKey.OP_READ));
+        long elapsedNanos=System.nanoTime()-startNanos;
+        future.get(AbstractTest.TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+        return elapsedNanos;
+    }
+
+    private static @NotNull Pipe pipe() throws Throwable {
+        Pipe pipe=Pipe.open();
+        pipe.sink().configureBlocking(false);
+        pipe.source().configureBlocking(false);
+        return pipe;
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testClose(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log);
+             SelectorLoop selectorLoop=new SelectorLoop(log, null, 2)) {
+            context.start();
+            Pipe pipe=pipe();
+            try {
+                SelectorLoop.Registration registration=selectorLoop.register(pipe.source());
+                assertTrue(AbstractTest.TIMEOUT_NANOS/2>await(context, registration::close, registration));
+                assertTrue(AbstractTest.TIMEOUT_NANOS/2>await(context, selectorLoop::close, registration));
+                try {
+                    context.getOrTimeoutDelayNanos(
+                            AbstractTest.TIMEOUT_NANOS,
+                            registration.await(SelectionKey.OP_READ));
+                    fail("should have failed");
+                }
+                catch (Throwable throwable) {
+                    Exceptions.findCauseOrThrow(ClosedException.class, throwable);
+                }
+                assertThrows(ClosedException.class, ()->selectorLoop.register(pipe.sink()));
+            }
+            finally {
+                pipe.sink().close();
+                pipe.source().close();
+            }
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testReady(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log);
+             SelectorLoop selectorLoop=new SelectorLoop(log, null, 2)) {
+            context.start();
+            Pipe pipe=pipe();
+            try {
+                SelectorLoop.Registration registration=selectorLoop.register(pipe.source());
+                assertTrue(AbstractTest.TIMEOUT_NANOS/2>await(
+                        context,
+                        ()->{
+                            try {
+                                assertEquals(1, pipe.sink().write(java.nio.ByteBuffer.wrap(new byte[]{1})));
+                            }
+                            catch (Throwable throwable) {
+                                throw new RuntimeException(throwable);
+                            }
+                        },
+                        registration));
+                // level triggered, the unread byte is still ready
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        registration.await(SelectionKey.OP_READ));
+                assertEquals(1, pipe.source().read(java.nio.ByteBuffer.allocate(2)));
+                registration.close();
+            }
+            finally {
+                pipe.sink().close();
+                pipe.source().close();
+            }
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testTimeout(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log);
+             SelectorLoop selectorLoop=new SelectorLoop(log, null, 2)) {
+            context.start();
+            Pipe pipe=pipe();
+            try {
+                SelectorLoop.Registration registration=selectorLoop.register(pipe.source());
+                long startNanos=System.nanoTime();
+                // contexts may wake up early, only the upper bound holds for every context
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        Lava.context()
+                                .compose((context2)->Lava.endNanos(
+                                        context2.clock().delayNanosToEndNanos(DELAY_NANOS),
+                                        ()->registration.await(SelectionKey.OP_READ))));
+                long elapsedNanos=System.nanoTime()-startNanos;
+                assertTrue(AbstractTest.TIMEOUT_NANOS/2>elapsedNanos, "elapsed nanos %,d".formatted(elapsedNanos));
+                assertEquals(0, pipe.source().read(java.nio.ByteBuffer.allocate(1)));
+                registration.close();
+            }
+            finally {
+                pipe.sink().close();
+                pipe.source().close();
+            }
+        }
+        log.assertEmpty();
+    }
+}
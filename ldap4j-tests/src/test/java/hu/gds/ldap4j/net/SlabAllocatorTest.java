@@ -0,0 +1,82 @@
+package hu.gds.ldap4j.net;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlabAllocatorTest {
+    private static final int SLAB_SIZE=64;
+
+    private static byte @NotNull [] bytes(int size, int value) {
+        byte[] bytes=new byte[size];
+        for (int ii=0; size>ii; ++ii) {
+            bytes[ii]=(byte)(value+ii);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testLargerSlabKept() {
+        for (boolean direct: new boolean[]{false, true}) {
+            SlabAllocator allocator=new SlabAllocator(direct, SLAB_SIZE);
+            java.nio.ByteBuffer buffer0=allocator.allocate(8);
+            java.nio.ByteBuffer buffer1=allocator.allocate(8);
+            assertNotSame(buffer0, buffer1);
+            assertEquals(direct, buffer0.isDirect());
+            buffer0.put(bytes(40, 0));
+            buffer1.put(bytes(8, 0));
+            allocator.release(buffer1, 0);
+            allocator.release(buffer0, 0);
+            java.nio.ByteBuffer buffer2=allocator.allocate(32);
+            assertSame(buffer1, buffer2);
+            assertEquals(8, buffer2.position());
+        }
+    }
+
+    @Test
+    public void testRegionsNotReused() {
+        SlabAllocator allocator=new SlabAllocator(false, SLAB_SIZE);
+        java.nio.ByteBuffer buffer0=allocator.allocate(16);
+        int start0=buffer0.position();
+        buffer0.put(bytes(16, 0));
+        ByteBuffer region0=allocator.release(buffer0, start0);
+        java.nio.ByteBuffer buffer1=allocator.allocate(16);
+        assertSame(buffer0, buffer1);
+        int start1=buffer1.position();
+        assertTrue(start0+16<=start1);
+        buffer1.put(bytes(16, 100));
+        ByteBuffer region1=allocator.release(buffer1, start1);
+        assertArrayEquals(bytes(16, 0), region0.arrayCopy());
+        assertArrayEquals(bytes(16, 100), region1.arrayCopy());
+        // too small a leftover, a new slab is allocated, the old regions stay untouched
+        java.nio.ByteBuffer buffer2=allocator.allocate(SLAB_SIZE);
+        assertNotSame(buffer0, buffer2);
+        buffer2.put(bytes(SLAB_SIZE, 50));
+        allocator.release(buffer2, 0);
+        assertArrayEquals(bytes(16, 0), region0.arrayCopy());
+        assertArrayEquals(bytes(16, 100), region1.arrayCopy());
+    }
+
+    @Test
+    public void testReleaseRegion() {
+        SlabAllocator allocator=new SlabAllocator(false, SLAB_SIZE);
+        java.nio.ByteBuffer buffer0=allocator.allocate(16);
+        buffer0.put(bytes(5, 0));
+        allocator.release(buffer0, 0);
+        java.nio.ByteBuffer buffer1=allocator.allocate(16);
+        assertSame(buffer0, buffer1);
+        assertEquals(5, buffer1.position());
+        buffer1.put(bytes(7, 10));
+        ByteBuffer region=allocator.release(buffer1, 5);
+        assertEquals(7, region.size());
+        assertArrayEquals(bytes(7, 10), region.arrayCopy());
+        assertEquals(SLAB_SIZE, buffer1.limit());
+        java.nio.ByteBuffer buffer2=allocator.allocate(0);
+        assertSame(buffer0, buffer2);
+        assertEquals(0, allocator.release(buffer2, buffer2.position()).size());
+    }
+}
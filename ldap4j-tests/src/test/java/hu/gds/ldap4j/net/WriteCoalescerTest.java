@@ -0,0 +1,248 @@
+package hu.gds.ldap4j.net;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.Exceptions;
+import hu.gds.ldap4j.Function;
+import hu.gds.ldap4j.Log;
+import hu.gds.ldap4j.Supplier;
+import hu.gds.ldap4j.TestLog;
+import hu.gds.ldap4j.lava.Callback;
+import hu.gds.ldap4j.lava.Clock;
+import hu.gds.ldap4j.lava.Context;
+import hu.gds.ldap4j.lava.ContextHolder;
+import hu.gds.ldap4j.lava.JoinCallback;
+import hu.gds.ldap4j.lava.Lava;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class WriteCoalescerTest {
+    /**
+     * Runs tasks on the calling thread, or rejects them.
+     */
+    private static class DirectContext extends Context.Abstract {
+        private final boolean reject;
+
+        public DirectContext(long endNanos, @NotNull Log log, boolean reject) {
+            super(Clock.SYSTEM_NANO_TIME, DirectContext.class.getName(), endNanos, log, 1);
+            this.reject=reject;
+        }
+
+        @Override
+        public @NotNull Runnable awaitEndNanos(@NotNull Callback<Void> callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected @NotNull Context context(@NotNull String debugMagic, @Nullable Long endNanos, @NotNull Log log) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void execute(@NotNull Runnable command) {
+            if (reject) {
+                throw new RejectedExecutionException();
+            }
+            command.run();
+        }
+    }
+
+    /**
+     * Holds back the first write until it's opened, the writes started meanwhile queue up behind it.
+     */
+    private static class Gate {
+        private @Nullable Callback<Void> callback;
+        private @Nullable Context context;
+        private boolean first=true;
+        private boolean open;
+
+        /**
+         * @return the write is held back
+         */
+        public boolean hold(@NotNull Callback<Void> callback, @NotNull Context context) {
+            synchronized (this) {
+                boolean hold=first && (!open);
+                first=false;
+                if (hold) {
+                    this.callback=callback;
+                    this.context=context;
+                }
+                return hold;
+            }
+        }
+
+        public void open() {
+            @Nullable Callback<Void> callback2;
+            @Nullable Context context2;
+            synchronized (this) {
+                open=true;
+                callback2=callback;
+                context2=context;
+                callback=null;
+                context=null;
+            }
+            if (null!=callback2) {
+                context2.complete(callback2, null);
+            }
+        }
+    }
+
+    private static final int MAX_BATCH_SIZE=64;
+    private static final int MESSAGE_SIZE=4;
+    private static final int MESSAGES=256;
+
+    @Test
+    public void testContextRejects() throws Throwable {
+        TestLog log=new TestLog();
+        long endNanos=Clock.SYSTEM_NANO_TIME.delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS);
+        Context context=new DirectContext(endNanos, log, false);
+        Context rejecting=new DirectContext(endNanos+AbstractTest.TIMEOUT_NANOS, log, true);
+        List<@NotNull ByteBuffer> batches=new ArrayList<>();
+        Gate gate=new Gate();
+        WriteCoalescer writeCoalescer=new WriteCoalescer(
+                MAX_BATCH_SIZE,
+                (value)->(callback, context2)->{
+                    batches.add(value);
+                    if (!gate.hold(callback, context2)) {
+                        context2.complete(callback, null);
+                    }
+                });
+        JoinCallback<Void> write0=Callback.join(context.clock());
+        JoinCallback<Void> write1=Callback.join(context.clock());
+        JoinCallback<Void> write2=Callback.join(context.clock());
+        writeCoalescer.write(ByteBuffer.create((byte)0)).get(write0, context);
+        writeCoalescer.write(ByteBuffer.create((byte)1)).get(write1, rejecting);
+        writeCoalescer.write(ByteBuffer.create((byte)2)).get(write2, context);
+        assertEquals(List.of(ByteBuffer.create((byte)0)), batches);
+        // the second batch is written on the rejecting context, it has the latest end nanos
+        gate.open();
+        write0.result();
+        assertFalse(write1.completed());
+        Exceptions.findCauseOrThrow(RejectedExecutionException.class, write2.either().right());
+        assertTrue(log.removeError((throwable)->throwable.getCause() instanceof RejectedExecutionException));
+        JoinCallback<Void> write3=Callback.join(context.clock());
+        writeCoalescer.write(ByteBuffer.create((byte)3)).get(write3, context);
+        write3.result();
+        assertEquals(List.of(ByteBuffer.create((byte)0), ByteBuffer.create((byte)3)), batches);
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testFail(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            IllegalStateException exception=new IllegalStateException("write failed");
+            WriteCoalescer writeCoalescer=new WriteCoalescer(
+                    MAX_BATCH_SIZE,
+                    (value)->Lava.fail(exception));
+            try {
+                context.getOrTimeoutDelayNanos(
+                        AbstractTest.TIMEOUT_NANOS,
+                        writeCoalescer.write(ByteBuffer.create((byte)1)));
+                fail("should have failed");
+            }
+            catch (Throwable throwable) {
+                assertSame(exception, Exceptions.findCauseOrThrow(IllegalStateException.class, throwable));
+            }
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, writeCoalescer.flush());
+        }
+        log.assertEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("hu.gds.ldap4j.TestParameters#contextHolderFactories")
+    public void testWrite(
+            @NotNull Function<@NotNull Log, @NotNull ContextHolder> contextHolderFactory) throws Throwable {
+        TestLog log=new TestLog();
+        try (ContextHolder context=contextHolderFactory.apply(log)) {
+            context.start();
+            List<@NotNull ByteBuffer> batches=new ArrayList<>();
+            Gate gate=new Gate();
+            AtomicInteger writing=new AtomicInteger();
+            WriteCoalescer writeCoalescer=new WriteCoalescer(
+                    MAX_BATCH_SIZE,
+                    (value)->(callback, context2)->{
+                        assertEquals(1, writing.incrementAndGet());
+                        synchronized (batches) {
+                            batches.add(value);
+                        }
+                        writing.decrementAndGet();
+                        if (!gate.hold(callback, context2)) {
+                            context2.complete(callback, null);
+                        }
+                    });
+            List<@NotNull ByteBuffer> messages=new ArrayList<>(MESSAGES+1);
+            for (int ii=0; MESSAGES>ii; ++ii) {
+                messages.add(ByteBuffer.createLong(ii)
+                        .subBuffer(8-MESSAGE_SIZE, 8));
+            }
+            messages.add(ByteBuffer.create(new byte[2*MAX_BATCH_SIZE]));
+            // the order the writes joined the queue
+            List<@NotNull Integer> submitted=new ArrayList<>(MESSAGES+1);
+            List<@NotNull Supplier<@NotNull Lava<Void>>> writes=new ArrayList<>(MESSAGES+1);
+            for (int ii=0; messages.size()>ii; ++ii) {
+                int index=ii;
+                writes.add(()->(callback, context2)->{
+                    synchronized (submitted) {
+                        submitted.add(index);
+                        writeCoalescer.write(messages.get(index))
+                                .get(callback, context2);
+                        if (messages.size()==submitted.size()) {
+                            gate.open();
+                        }
+                    }
+                });
+            }
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, Lava.forkJoin(writes));
+            context.getOrTimeoutDelayNanos(AbstractTest.TIMEOUT_NANOS, writeCoalescer.flush());
+            Set<@NotNull Integer> messages2=new HashSet<>();
+            int large=0;
+            ByteBuffer written=ByteBuffer.empty();
+            for (ByteBuffer batch: batches) {
+                written=written.append(batch);
+                if (2*MAX_BATCH_SIZE==batch.size()) {
+                    ++large;
+                    continue;
+                }
+                assertTrue(MAX_BATCH_SIZE>=batch.size());
+                assertEquals(0, batch.size()%MESSAGE_SIZE);
+                ByteBuffer.Reader reader=batch.reader();
+                while (reader.hasRemainingBytes()) {
+                    int message=0;
+                    for (int ii=MESSAGE_SIZE; 0<ii; --ii) {
+                        message=(message<<8)|(reader.readByte()&255);
+                    }
+                    assertTrue(messages2.add(message));
+                }
+            }
+            assertEquals(1, large);
+            assertEquals(MESSAGES, messages2.size());
+            ByteBuffer expected=ByteBuffer.empty();
+            for (int index: submitted) {
+                expected=expected.append(messages.get(index));
+            }
+            assertEquals(expected, written);
+            // the first write is alone, the writes queued behind it fill the batches,
+            // the large write may split a batch
+            assertTrue(3+MESSAGES*MESSAGE_SIZE/MAX_BATCH_SIZE>=batches.size(), Integer.toString(batches.size()));
+            assertTrue(MESSAGES>batches.size(), Integer.toString(batches.size()));
+        }
+        log.assertEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package hu.gds.ldap4j.net.mina;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinaBuffersTest {
+    private static byte @NotNull [] array(int size) {
+        byte[] array=new byte[size];
+        for (int ii=0; size>ii; ++ii) {
+            array[ii]=(byte)(ii+1);
+        }
+        return array;
+    }
+
+    private static byte @NotNull [] remaining(@NotNull IoBuffer ioBuffer) {
+        byte[] array=new byte[ioBuffer.remaining()];
+        ioBuffer.duplicate().get(array);
+        return array;
+    }
+
+    @Test
+    public void testFromMinaCopy() {
+        byte[] array=array(16);
+        IoBuffer ioBuffer=IoBuffer.wrap(array);
+        ioBuffer.position(5);
+        ioBuffer.limit(8);
+        ByteBuffer byteBuffer=MinaBuffers.fromMina(ioBuffer);
+        array[6]=0;
+        assertArrayEquals(new byte[]{6, 7, 8}, byteBuffer.arrayCopy());
+    }
+
+    @Test
+    public void testFromMinaDirect() {
+        IoBuffer ioBuffer=IoBuffer.allocate(8, true);
+        ioBuffer.put(array(8));
+        ioBuffer.flip();
+        ioBuffer.position(2);
+        ByteBuffer byteBuffer=MinaBuffers.fromMina(ioBuffer);
+        assertArrayEquals(new byte[]{3, 4, 5, 6, 7, 8}, byteBuffer.arrayCopy());
+        ioBuffer.put(3, (byte)0);
+        assertArrayEquals(new byte[]{3, 0, 5, 6, 7, 8}, byteBuffer.arrayCopy());
+    }
+
+    @Test
+    public void testFromMinaEmpty() {
+        assertTrue(MinaBuffers.fromMina(IoBuffer.allocate(0)).isEmpty());
+        assertTrue(MinaBuffers.fromMina(IoBuffer.allocate(8).flip()).isEmpty());
+    }
+
+    @Test
+    public void testFromMinaHeap() {
+        byte[] array=array(10);
+        IoBuffer ioBuffer=IoBuffer.wrap(java.nio.ByteBuffer.wrap(array, 2, 8).slice());
+        assertEquals(2, ioBuffer.arrayOffset());
+        ioBuffer.position(1);
+        ByteBuffer byteBuffer=MinaBuffers.fromMina(ioBuffer);
+        assertArrayEquals(new byte[]{4, 5, 6, 7, 8, 9, 10}, byteBuffer.arrayCopy());
+        array[4]=0;
+        assertArrayEquals(new byte[]{4, 0, 6, 7, 8, 9, 10}, byteBuffer.arrayCopy());
+    }
+
+    @Test
+    public void testToMinaChunks() {
+        IoBuffer ioBuffer=MinaBuffers.toMina(
+                ByteBuffer.create((byte)1, (byte)2)
+                        .append(ByteBuffer.create((byte)3))
+                        .append(ByteBuffer.create(java.nio.ByteBuffer.wrap(new byte[]{4, 5}))));
+        assertEquals(0, ioBuffer.position());
+        assertEquals(5, ioBuffer.limit());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, remaining(ioBuffer));
+    }
+
+    @Test
+    public void testToMinaEmpty() {
+        assertEquals(0, MinaBuffers.toMina(ByteBuffer.empty()).remaining());
+    }
+
+    @Test
+    public void testToMinaSingleChunk() {
+        byte[] array=array(4);
+        IoBuffer ioBuffer=MinaBuffers.toMina(ByteBuffer.create(array, 1, 3));
+        assertSame(array, ioBuffer.array());
+        assertArrayEquals(new byte[]{2, 3}, remaining(ioBuffer));
+    }
+}
@@ -0,0 +1,202 @@
+package hu.gds.ldap4j.net.netty;
+
+import hu.gds.ldap4j.net.ByteBuffer;
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NettyBuffersTest {
+    /**
+     * Records the io buffers allocated, and optionally fails to allocate composite buffers.
+     */
+    private static class Allocator extends AbstractByteBufAllocator {
+        private final @NotNull List<@NotNull ByteBuf> ioBuffers=new ArrayList<>();
+        private final boolean failComposite;
+
+        public Allocator(boolean failComposite) {
+            super(false);
+            this.failComposite=failComposite;
+        }
+
+        @Override
+        public @NotNull CompositeByteBuf compositeBuffer(int maxNumComponents) {
+            if (failComposite) {
+                throw new IllegalStateException("composite buffer failed");
+            }
+            return super.compositeBuffer(maxNumComponents);
+        }
+
+        @Override
+        public @NotNull ByteBuf ioBuffer(int initialCapacity) {
+            ByteBuf ioBuffer=super.ioBuffer(initialCapacity);
+            ioBuffers.add(ioBuffer);
+            return ioBuffer;
+        }
+
+        @Override
+        public boolean isDirectBufferPooled() {
+            return false;
+        }
+
+        @Override
+        protected @NotNull ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+            return Unpooled.directBuffer(initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected @NotNull ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+            return Unpooled.buffer(initialCapacity, maxCapacity);
+        }
+    }
+
+    private static @NotNull ByteBuffer direct(byte... array) {
+        java.nio.ByteBuffer buffer=java.nio.ByteBuffer.allocateDirect(array.length);
+        buffer.put(array);
+        buffer.flip();
+        return ByteBuffer.create(buffer);
+    }
+
+    private static @NotNull ByteBuffer mixed() {
+        return ByteBuffer.create((byte)1, (byte)2)
+                .append(ByteBuffer.create((byte)3))
+                .append(direct((byte)4, (byte)5))
+                .append(ByteBuffer.create((byte)6, (byte)7));
+    }
+
+    private static byte @NotNull [] readableBytes(@NotNull ByteBuf byteBuf) {
+        byte[] array=new byte[byteBuf.readableBytes()];
+        byteBuf.getBytes(byteBuf.readerIndex(), array);
+        return array;
+    }
+
+    @Test
+    public void testFromNettyDirect() {
+        ByteBuf byteBuf=Unpooled.directBuffer(3);
+        try {
+            byteBuf.writeBytes(new byte[]{1, 2, 3});
+            ByteBuffer byteBuffer=NettyBuffers.fromNetty(byteBuf);
+            assertEquals(0, byteBuf.readableBytes());
+            byteBuf.setByte(0, 4);
+            assertArrayEquals(new byte[]{1, 2, 3}, byteBuffer.arrayCopy());
+        }
+        finally {
+            assertTrue(byteBuf.release());
+        }
+    }
+
+    @Test
+    public void testFromNettyPooled() {
+        ByteBuf byteBuf=PooledByteBufAllocator.DEFAULT.heapBuffer(3, 3);
+        ByteBuffer byteBuffer;
+        try {
+            byteBuf.writeBytes(new byte[]{1, 2, 3});
+            byteBuffer=NettyBuffers.fromNetty(byteBuf);
+            assertEquals(0, byteBuf.readableBytes());
+            byteBuf.setByte(0, 4);
+        }
+        finally {
+            assertTrue(byteBuf.release());
+        }
+        assertArrayEquals(new byte[]{1, 2, 3}, byteBuffer.arrayCopy());
+    }
+
+    @Test
+    public void testFromNettyUnpooledHeap() {
+        byte[] array={0, 1, 2, 3};
+        ByteBuf byteBuf=Unpooled.wrappedBuffer(array);
+        ByteBuffer byteBuffer;
+        try {
+            byteBuf.readByte();
+            byteBuffer=NettyBuffers.fromNetty(byteBuf);
+            assertEquals(0, byteBuf.readableBytes());
+        }
+        finally {
+            assertTrue(byteBuf.release());
+        }
+        // wrapped, not copied, and still valid after the release
+        array[1]=4;
+        assertArrayEquals(new byte[]{4, 2, 3}, byteBuffer.arrayCopy());
+    }
+
+    @Test
+    public void testFromNettyUnpooledHeapMostlyEmpty() {
+        ByteBuf byteBuf=Unpooled.buffer(16);
+        ByteBuffer byteBuffer;
+        try {
+            byteBuf.writeBytes(new byte[]{1, 2, 3});
+            byteBuffer=NettyBuffers.fromNetty(byteBuf);
+            byteBuf.setByte(0, 4);
+        }
+        finally {
+            assertTrue(byteBuf.release());
+        }
+        assertArrayEquals(new byte[]{1, 2, 3}, byteBuffer.arrayCopy());
+    }
+
+    @Test
+    public void testToNettyEmpty() {
+        assertSame(Unpooled.EMPTY_BUFFER, NettyBuffers.toNetty(new Allocator(false), ByteBuffer.empty()));
+    }
+
+    @Test
+    public void testToNettyFailureReleases() {
+        Allocator allocator=new Allocator(true);
+        assertThrows(IllegalStateException.class, ()->NettyBuffers.toNetty(allocator, mixed()));
+        assertEquals(2, allocator.ioBuffers.size());
+        for (ByteBuf ioBuffer: allocator.ioBuffers) {
+            assertEquals(0, ioBuffer.refCnt());
+        }
+    }
+
+    @Test
+    public void testToNettyHeap() {
+        Allocator allocator=new Allocator(false);
+        ByteBuf byteBuf=NettyBuffers.toNetty(
+                allocator,
+                ByteBuffer.create((byte)1, (byte)2)
+                        .append(ByteBuffer.create((byte)3)));
+        try {
+            assertFalse(byteBuf instanceof CompositeByteBuf);
+            assertEquals(List.of(byteBuf), allocator.ioBuffers);
+            assertArrayEquals(new byte[]{1, 2, 3}, readableBytes(byteBuf));
+        }
+        finally {
+            assertTrue(byteBuf.release());
+        }
+    }
+
+    @Test
+    public void testToNettyMixed() {
+        Allocator allocator=new Allocator(false);
+        ByteBuf byteBuf=NettyBuffers.toNetty(allocator, mixed());
+        try {
+            assertTrue(byteBuf instanceof CompositeByteBuf);
+            CompositeByteBuf composite=(CompositeByteBuf)byteBuf;
+            // the heap runs are copied once each, the direct chunk is wrapped
+            assertEquals(3, composite.numComponents());
+            assertArrayEquals(new byte[]{1, 2, 3}, readableBytes(composite.component(0)));
+            assertArrayEquals(new byte[]{4, 5}, readableBytes(composite.component(1)));
+            assertArrayEquals(new byte[]{6, 7}, readableBytes(composite.component(2)));
+            assertEquals(2, allocator.ioBuffers.size());
+            assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7}, readableBytes(byteBuf));
+        }
+        finally {
+            assertTrue(byteBuf.release());
+        }
+        for (ByteBuf ioBuffer: allocator.ioBuffers) {
+            assertEquals(0, ioBuffer.refCnt());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package hu.gds.ldap4j.trampoline;
+
+import hu.gds.ldap4j.AbstractTest;
+import hu.gds.ldap4j.TestLog;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AbstractTrampolineTest {
+    private static void execute(
+            @NotNull LavaEngine.Context context, int from, @NotNull List<@NotNull Integer> ran, int to) {
+        for (int ii=from; to>ii; ++ii) {
+            int jj=ii;
+            context.execute(()->ran.add(jj));
+        }
+    }
+
+    @Test
+    public void testDoneRequeuesTheRestOfTheBatch() throws Throwable {
+        TestLog log=new TestLog();
+        try (LavaEngine engine=new LavaEngine(log)) {
+            LavaEngine.Context context=engine.contextEndNanos(
+                    engine.clock().delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS));
+            List<@NotNull Integer> ran=new ArrayList<>();
+            execute(context, 0, ran, 5);
+            assertTrue(engine.runBatch(()->2<=ran.size(), null));
+            assertEquals(List.of(0, 1), ran);
+            execute(context, 5, ran, 7);
+            assertTrue(engine.runBatch(()->4<=ran.size(), null));
+            assertEquals(List.of(0, 1, 2, 3), ran);
+            assertTrue(engine.runBatch(()->false, null));
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), ran);
+            assertFalse(engine.runBatch(()->false, null));
+        }
+        log.assertEmpty();
+    }
+
+    @Test
+    public void testFailureRequeuesTheRestOfTheBatch() throws Throwable {
+        TestLog log=new TestLog();
+        try (LavaEngine engine=new LavaEngine(log)) {
+            LavaEngine.Context context=engine.contextEndNanos(
+                    engine.clock().delayNanosToEndNanos(AbstractTest.TIMEOUT_NANOS));
+            List<@NotNull Integer> ran=new ArrayList<>();
+            RuntimeException exception=new RuntimeException("task failed");
+            execute(context, 0, ran, 2);
+            context.execute(()->{
+                throw exception;
+            });
+            execute(context, 2, ran, 4);
+            assertSame(exception, assertThrows(RuntimeException.class, ()->engine.runBatch(()->false, null)));
+            assertEquals(List.of(0, 1), ran);
+            engine.runAll();
+            assertEquals(List.of(0, 1, 2, 3), ran);
+            assertFalse(engine.runBatch(()->false, null));
+        }
+        log.assertEmpty();
+    }
+}